@@ -0,0 +1,8 @@
+/**
+ * AttemptOutcome - Result of a single answer attempt on a task item
+ */
+public enum AttemptOutcome {
+    WRONG,
+    CORRECT,
+    TIMEOUT
+}
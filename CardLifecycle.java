@@ -0,0 +1,261 @@
+import java.awt.CardLayout;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.NotificationEmitter;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+/**
+ * CardLifecycle - Builds the main window's cards on demand and releases hidden ones under memory pressure
+ *
+ * A card is built the first time it is shown. Task state that must outlive the
+ * card's components lives outside them, in the student's completed items in
+ * {@link ProgressBits}. So a card can be dropped at any time while hidden and
+ * rebuilt later. Panels that run timers
+ * implement {@link Releasable}, so their timers stop when they are dropped
+ * instead of keeping the panel reachable and ticking in the background.
+ *
+ * Hidden cards are evicted, least recently shown first, when the heap still in use
+ * after the last garbage collection exceeds the budget. This is checked on every
+ * card switch, and as soon as a heap pool's collection usage threshold
+ * (MemoryPoolMXBean) reports it. An evicted card is removed from the window but
+ * kept through a SoftReference, so showing it again reuses it unless the
+ * collector has needed the memory, in which case it is rebuilt.
+ *
+ * The budget is -Dshapeville.cardBudgetMB (default half the maximum heap). Used
+ * only on the event dispatch thread.
+ */
+public class CardLifecycle {
+    private static final LongAdder EVICTED = Metrics.global().counter("cards.evicted");
+    private static final LongAdder REBUILT = Metrics.global().counter("cards.rebuilt");
+
+    /**
+     * Implemented by panels that run timers while shown
+     */
+    public interface Releasable {
+        /**
+         * Stops the panel's timers; called before the panel is evicted or discarded
+         */
+        void release();
+    }
+
+    /**
+     * Builds a card's panel
+     */
+    public interface Factory {
+        /**
+         * @return The panel
+         */
+        JPanel create();
+    }
+
+    private static final class Card {
+        final String name;
+        final Factory factory;
+        final boolean evictable;
+        JPanel panel;                  // Set while in the window
+        SoftReference<JPanel> released; // Set once evicted
+        long lastShown;
+
+        Card(String name, Factory factory, boolean evictable) {
+            this.name = name;
+            this.factory = factory;
+            this.evictable = evictable;
+        }
+    }
+
+    private final JPanel container;
+    private final CardLayout layout;
+    private final long budgetBytes;
+    private final Map<String, Card> cards = new LinkedHashMap<>();
+    private long shows;
+    private volatile int resident;
+
+    /**
+     * Creates the lifecycle for a container and starts listening for heap pressure
+     * @param container The panel holding the cards
+     * @param layout The container's layout
+     * @param budgetBytes Heap in use after collection above which hidden cards are evicted
+     */
+    public CardLifecycle(JPanel container, CardLayout layout, long budgetBytes) {
+        this.container = container;
+        this.layout = layout;
+        this.budgetBytes = budgetBytes;
+        Metrics.global().gauge("cards.resident", () -> resident);
+        watchHeap();
+    }
+
+    /**
+     * @return The budget from -Dshapeville.cardBudgetMB, or half the maximum heap
+     */
+    public static long configuredBudget() {
+        long defaultBudget = Runtime.getRuntime().maxMemory() / 2;
+        String setting = System.getProperty("shapeville.cardBudgetMB");
+        if (setting == null) return defaultBudget;
+        try {
+            return Long.parseLong(setting) * 1024 * 1024;
+        } catch (NumberFormatException e) {
+            System.err.println("Error reading shapeville.cardBudgetMB '" + setting + "', using "
+                    + defaultBudget / (1024 * 1024) + " MB");
+            return defaultBudget;
+        }
+    }
+
+    /**
+     * Adds a card, built now if it is never evicted and on first show otherwise
+     * @param name The card name
+     * @param factory Builds the card's panel
+     * @param evictable Whether the card may be released while hidden
+     */
+    public void add(String name, Factory factory, boolean evictable) {
+        Card card = new Card(name, factory, evictable);
+        cards.put(name, card);
+        if (!evictable) install(card, factory.create());
+    }
+
+    /**
+     * Shows a card, rebuilding it if it was evicted
+     * @param name The card name
+     */
+    public void show(String name) {
+        Card card = cards.get(name);
+        if (card == null) return;
+        if (card.panel == null) {
+            JPanel panel = card.released != null ? card.released.get() : null;
+            card.released = null;
+            if (panel == null) {
+                panel = card.factory.create();
+                // Cards built once before are rebuilds
+                if (card.lastShown > 0) REBUILT.increment();
+            }
+            install(card, panel);
+        }
+        card.lastShown = ++shows;
+        layout.show(container, name);
+        trim();
+    }
+
+    /**
+     * Removes every card, as when another student takes over
+     */
+    public void clear() {
+        for (Card card : cards.values()) {
+            if (card.panel != null) release(card.panel);
+        }
+        container.removeAll();
+        cards.clear();
+        resident = 0;
+    }
+
+    private void install(Card card, JPanel panel) {
+        card.panel = panel;
+        if (!Boolean.TRUE.equals(panel.getClientProperty(CardLifecycle.class))) {
+            panel.putClientProperty(CardLifecycle.class, Boolean.TRUE);
+            panel.addComponentListener(new ComponentAdapter() {
+                @Override
+                public void componentShown(ComponentEvent e) {
+                    ShapevilleEvents.panelShown(card.name);
+                }
+            });
+        }
+        container.add(panel, card.name);
+        resident++;
+    }
+
+    /**
+     * Evicts hidden cards, least recently shown first, while the heap is over budget
+     */
+    public void trim() {
+        if (heapAfterCollection() <= budgetBytes) return;
+        List<Card> hidden = new ArrayList<>();
+        for (Card card : cards.values()) {
+            if (card.evictable && card.panel != null && !card.panel.isVisible()) hidden.add(card);
+        }
+        hidden.sort((a, b) -> Long.compare(a.lastShown, b.lastShown));
+        // The heap cannot be measured again until the next collection, so all of them go
+        for (Card card : hidden) evict(card);
+        if (!hidden.isEmpty()) {
+            container.revalidate();
+        }
+    }
+
+    /**
+     * Releases a hidden card; its panel stays reachable only through a SoftReference
+     * @param name The card name
+     */
+    public void evict(String name) {
+        Card card = cards.get(name);
+        if (card != null && card.evictable && card.panel != null && !card.panel.isVisible()) {
+            evict(card);
+            container.revalidate();
+        }
+    }
+
+    private void evict(Card card) {
+        release(card.panel);
+        container.remove(card.panel);
+        card.released = new SoftReference<>(card.panel);
+        card.panel = null;
+        resident--;
+        EVICTED.increment();
+    }
+
+    private static void release(JPanel panel) {
+        if (panel instanceof Releasable) ((Releasable) panel).release();
+    }
+
+    /**
+     * @param name The card name
+     * @return Whether the card's panel is currently in the window
+     */
+    public boolean isResident(String name) {
+        Card card = cards.get(name);
+        return card != null && card.panel != null;
+    }
+
+    /**
+     * @return Heap in use after the last collection, summed over the heap pools
+     */
+    static long heapAfterCollection() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP) continue;
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (usage != null) used += usage.getUsed();
+        }
+        return used;
+    }
+
+    /**
+     * Asks the heap pools to report when a collection leaves more than the budget in use
+     */
+    private void watchHeap() {
+        boolean watching = false;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP || !pool.isCollectionUsageThresholdSupported()) continue;
+            long max = pool.getUsage().getMax();
+            long threshold = max > 0 ? Math.min(budgetBytes, max) : budgetBytes;
+            // Keep a lower threshold if another component already set one
+            if (pool.getCollectionUsageThreshold() == 0 || pool.getCollectionUsageThreshold() > threshold) {
+                pool.setCollectionUsageThreshold(threshold);
+            }
+            watching = true;
+        }
+        if (!watching) return;
+        NotificationEmitter emitter = (NotificationEmitter) ManagementFactory.getMemoryMXBean();
+        emitter.addNotificationListener((notification, handback) -> SwingUtilities.invokeLater(this::trim),
+                notification -> MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED
+                        .equals(notification.getType()), null);
+    }
+}
@@ -0,0 +1,262 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * ClassAnalytics - Live class-level statistics built from answer attempts as they happen
+ *
+ * Each attempt updates a handful of counters and one histogram bucket for its task
+ * and for its item within the task; nothing per attempt is kept. A question counts
+ * once, when it finishes: solved (on the first, second or third attempt), failed
+ * after the last attempt, or timed out. Time-to-answer is taken from the finishing
+ * attempt of questions that did not time out.
+ *
+ * Memory is fixed: the histograms have a fixed bucket count, and there are at most
+ * {@link #MAX_TASKS} tasks and {@link #MAX_ITEMS} items per task (further ones are
+ * counted under {@link #OTHER}). Queries read counters and scan the fixed buckets,
+ * so their cost does not grow with the number of events.
+ */
+public class ClassAnalytics {
+    public static final int MAX_TASKS = 32;
+    public static final int MAX_ITEMS = 64;
+    public static final String OTHER = "other";
+
+    private final Map<String, TaskStats> tasks = new ConcurrentHashMap<>();
+
+    /**
+     * Records an attempt
+     * @param attempt The attempt
+     */
+    public void record(ProfileStore.Attempt attempt) {
+        record(attempt.getTaskId(), attempt.getItem(), attempt.getAttempt(), attempt.getOutcome(),
+                attempt.getLatencyMillis());
+    }
+
+    /**
+     * Records an attempt
+     * @param taskId The task ID
+     * @param item The item answered
+     * @param attempt The attempt number, starting at 1
+     * @param outcome The result of the attempt
+     * @param latencyMillis Time from the question being shown to this attempt
+     */
+    public void record(String taskId, String item, int attempt, AttemptOutcome outcome, long latencyMillis) {
+        TaskStats task = bounded(tasks, taskId, MAX_TASKS, TaskStats::new);
+        task.record(attempt, outcome, latencyMillis);
+        bounded(task.items, item, MAX_ITEMS, Stats::new).record(attempt, outcome, latencyMillis);
+    }
+
+    private static <V> V bounded(Map<String, V> map, String key, int limit, Supplier<V> create) {
+        V value = map.get(key);
+        if (value != null) return value;
+        // Concurrent inserts may overshoot the limit by at most one entry per thread
+        return map.computeIfAbsent(map.size() < limit ? key : OTHER, k -> create.get());
+    }
+
+    /**
+     * Statistics for one task
+     * @param taskId The task ID
+     * @return The statistics, or null if nothing was recorded for the task
+     */
+    public Stats task(String taskId) {
+        return tasks.get(taskId);
+    }
+
+    /**
+     * Statistics for one item of a task
+     * @param taskId The task ID
+     * @param item The item
+     * @return The statistics, or null if nothing was recorded for the item
+     */
+    public Stats item(String taskId, String item) {
+        TaskStats task = tasks.get(taskId);
+        return task != null ? task.items.get(item) : null;
+    }
+
+    /**
+     * @return IDs of the tasks with recorded attempts, sorted
+     */
+    public List<String> taskIds() {
+        return new ArrayList<>(new TreeMap<>(tasks).keySet());
+    }
+
+    /**
+     * Formats every task, optionally with its items, as JSON
+     * @param withItems Whether to include per-item statistics
+     * @return JSON text
+     */
+    public String toJson(boolean withItems) {
+        StringBuilder json = new StringBuilder("{");
+        boolean first = true;
+        for (Map.Entry<String, TaskStats> task : new TreeMap<>(tasks).entrySet()) {
+            json.append(first ? "" : ",").append(ReportExporter.jsonString(task.getKey())).append(':');
+            task.getValue().appendJson(json, withItems);
+            first = false;
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * Formats one line per task: questions, accuracy, attempts, timeouts and time-to-answer
+     * @return The table
+     */
+    public String summary() {
+        StringBuilder table = new StringBuilder(String.format(Locale.ROOT,
+                "%-22s %9s %8s %17s %8s %8s %8s%n", "task", "questions", "accuracy", "solved at 1/2/3",
+                "timeouts", "p50 ms", "p90 ms"));
+        for (Map.Entry<String, TaskStats> entry : new TreeMap<>(tasks).entrySet()) {
+            Stats s = entry.getValue();
+            table.append(String.format(Locale.ROOT, "%-22s %9d %7.1f%% %17s %7.1f%% %8d %8d%n",
+                    entry.getKey(), s.questions(), 100 * s.accuracy(),
+                    s.solvedAt(1) + "/" + s.solvedAt(2) + "/" + s.solvedAt(3), 100 * s.timeoutRate(),
+                    s.answerTime().percentile(50), s.answerTime().percentile(90)));
+        }
+        return table.toString();
+    }
+
+    /**
+     * Counters and time-to-answer histogram for a task or an item
+     */
+    public static class Stats {
+        private final LongAdder attempts = new LongAdder();
+        private final LongAdder[] solvedAt = new LongAdder[TaskEngine.MAX_ATTEMPTS];
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder timedOut = new LongAdder();
+        private final LatencyHistogram answerTime = new LatencyHistogram();
+
+        Stats() {
+            for (int i = 0; i < solvedAt.length; i++) solvedAt[i] = new LongAdder();
+        }
+
+        void record(int attempt, AttemptOutcome outcome, long latencyMillis) {
+            if (outcome != AttemptOutcome.TIMEOUT) attempts.increment();
+            switch (outcome) {
+                case CORRECT:
+                    solvedAt[Math.max(1, Math.min(attempt, solvedAt.length)) - 1].increment();
+                    answerTime.record(latencyMillis);
+                    break;
+                case WRONG:
+                    if (attempt >= TaskEngine.MAX_ATTEMPTS) {
+                        failed.increment();
+                        answerTime.record(latencyMillis);
+                    }
+                    break;
+                default:
+                    timedOut.increment();
+            }
+        }
+
+        /**
+         * @return Answers submitted (timeouts excluded)
+         */
+        public long attempts() {
+            return attempts.sum();
+        }
+
+        /**
+         * @return Finished questions
+         */
+        public long questions() {
+            return solved() + failed.sum() + timedOut.sum();
+        }
+
+        /**
+         * @return Questions answered correctly
+         */
+        public long solved() {
+            long total = 0;
+            for (LongAdder count : solvedAt) total += count.sum();
+            return total;
+        }
+
+        /**
+         * Questions answered correctly on a given attempt
+         * @param attempt The attempt number, starting at 1
+         * @return The count
+         */
+        public long solvedAt(int attempt) {
+            return attempt >= 1 && attempt <= solvedAt.length ? solvedAt[attempt - 1].sum() : 0;
+        }
+
+        /**
+         * @return Questions failed after the last attempt
+         */
+        public long failed() {
+            return failed.sum();
+        }
+
+        /**
+         * @return Questions that timed out
+         */
+        public long timedOut() {
+            return timedOut.sum();
+        }
+
+        /**
+         * @return Share of finished questions answered correctly, 0-1
+         */
+        public double accuracy() {
+            long questions = questions();
+            return questions == 0 ? 0 : (double) solved() / questions;
+        }
+
+        /**
+         * @return Share of finished questions that timed out, 0-1
+         */
+        public double timeoutRate() {
+            long questions = questions();
+            return questions == 0 ? 0 : (double) timedOut.sum() / questions;
+        }
+
+        /**
+         * @return Time-to-answer of finished questions in milliseconds, timeouts excluded
+         */
+        public LatencyHistogram answerTime() {
+            return answerTime;
+        }
+
+        void appendJson(StringBuilder json) {
+            appendFields(json);
+            json.append('}');
+        }
+
+        void appendFields(StringBuilder json) {
+            json.append("{\"questions\":").append(questions())
+                    .append(",\"attempts\":").append(attempts())
+                    .append(",\"accuracy\":").append(String.format(Locale.ROOT, "%.4f", accuracy()))
+                    .append(",\"solvedAt\":[");
+            for (int i = 0; i < solvedAt.length; i++) json.append(i > 0 ? "," : "").append(solvedAt[i].sum());
+            json.append("],\"failed\":").append(failed())
+                    .append(",\"timedOut\":").append(timedOut())
+                    .append(",\"timeoutRate\":").append(String.format(Locale.ROOT, "%.4f", timeoutRate()))
+                    .append(",\"answerTimeMillis\":").append(answerTime.toJson());
+        }
+    }
+
+    /**
+     * Task statistics plus a bounded map of per-item statistics
+     */
+    private static final class TaskStats extends Stats {
+        private final Map<String, Stats> items = new ConcurrentHashMap<>();
+
+        void appendJson(StringBuilder json, boolean withItems) {
+            appendFields(json);
+            if (withItems) {
+                json.append(",\"items\":{");
+                boolean first = true;
+                for (Map.Entry<String, Stats> item : new TreeMap<>(items).entrySet()) {
+                    json.append(first ? "" : ",").append(ReportExporter.jsonString(item.getKey())).append(':');
+                    item.getValue().appendJson(json);
+                    first = false;
+                }
+                json.append('}');
+            }
+            json.append('}');
+        }
+    }
+}
@@ -0,0 +1,257 @@
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * EdtWatchdog - Finds event dispatch thread stalls and what the EDT was doing during them
+ *
+ * Installed as the system event queue, it times every event dispatch. A monitor
+ * thread wakes every half threshold and, when the current dispatch has run longer
+ * than the threshold, samples the EDT's stack every {@link #SAMPLE_MILLIS} ms until
+ * it finishes, then logs the stall to stderr. Samples are counted by their top
+ * frame and the innermost app frame below it, so a report line reads like
+ * "ImageIO.read <- ShapeRenderer.drawShapeImage".
+ *
+ * When nothing is slow the cost is two nanoTime calls and a histogram update per
+ * event, and two volatile reads per monitor wake-up; stacks are only taken during
+ * a stall. Time spent in a nested event loop (a modal dialog pumping events) is
+ * not counted against the dispatch that opened it.
+ *
+ * Opt-in with -Dshapeville.edtWatchdog=THRESHOLD_MS (or =true for 100 ms); the
+ * summary from {@link #report} is appended to a file on exit.
+ */
+public class EdtWatchdog extends EventQueue {
+    public static final long DEFAULT_THRESHOLD_MILLIS = 100;
+    static final long SAMPLE_MILLIS = 10;
+    static final int TOP_FRAMES = 10;
+    private static final int MAX_DEPTH = 32;
+
+    private final long thresholdNanos;
+    private final LatencyHistogram dispatchMicros = new LatencyHistogram();
+    private final LatencyHistogram stallMillis = new LatencyHistogram();
+
+    // Written on the EDT only
+    private final long[] nestedNanos = new long[MAX_DEPTH];
+    private int depth;
+
+    // Read by the monitor thread
+    private volatile Thread edt;
+    private volatile long busySince;   // Start of the running dispatch, 0 when idle
+    private volatile long dispatches;  // Bumped when a dispatch starts or ends
+    private volatile Class<?> currentEvent = AWTEvent.class;  // Type of the running dispatch's event
+
+    // Guarded by this
+    private final Map<String, Integer> frameSamples = new HashMap<>();
+    private int samples;
+
+    /**
+     * Creates a watchdog; call {@link #install} to start it
+     * @param thresholdMillis Dispatch time above which a dispatch counts as a stall
+     */
+    public EdtWatchdog(long thresholdMillis) {
+        this.thresholdNanos = thresholdMillis * 1_000_000;
+    }
+
+    /**
+     * Installs a watchdog if -Dshapeville.edtWatchdog is set
+     * @param reportFile Where the summary is written on exit
+     * @return The watchdog, or null if not enabled
+     */
+    public static EdtWatchdog installIfEnabled(Path reportFile) {
+        String setting = System.getProperty("shapeville.edtWatchdog");
+        if (setting == null || setting.equals("false")) return null;
+        long threshold = DEFAULT_THRESHOLD_MILLIS;
+        if (!setting.equals("true") && !setting.isEmpty()) {
+            try {
+                threshold = Long.parseLong(setting);
+            } catch (NumberFormatException e) {
+                System.err.println("Error reading shapeville.edtWatchdog '" + setting + "', using "
+                        + DEFAULT_THRESHOLD_MILLIS + " ms");
+            }
+        }
+        EdtWatchdog watchdog = new EdtWatchdog(threshold);
+        watchdog.install(reportFile);
+        return watchdog;
+    }
+
+    /**
+     * Replaces the system event queue with this one and starts the monitor thread
+     * @param reportFile Where the summary is written on exit, or null for none
+     */
+    public void install(Path reportFile) {
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(this);
+        Thread monitor = new Thread(this::monitor, "edt-watchdog");
+        monitor.setDaemon(true);
+        monitor.start();
+        if (reportFile != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> writeReport(reportFile), "edt-watchdog-report"));
+        }
+    }
+
+    @Override
+    protected void dispatchEvent(AWTEvent event) {
+        long start = System.nanoTime();
+        int level = depth++;
+        if (level == 0) edt = Thread.currentThread();
+        if (level < MAX_DEPTH) nestedNanos[level] = 0;
+        busySince = start;
+        currentEvent = event.getClass();
+        dispatches++;
+        try {
+            super.dispatchEvent(event);
+        } finally {
+            long end = System.nanoTime();
+            depth = level;
+            long total = end - start;
+            long own = total - (level < MAX_DEPTH ? nestedNanos[level] : 0);
+            if (level > 0 && level <= MAX_DEPTH) nestedNanos[level - 1] += total;
+            dispatchMicros.record(own / 1000);
+            if (own > thresholdNanos) stallMillis.record(own / 1_000_000);
+            // An outer dispatch pumping a nested loop is responsive again from now
+            busySince = level > 0 ? end : 0;
+            dispatches++;
+        }
+    }
+
+    /**
+     * Waits for a dispatch to run over the threshold, then samples the EDT's stack until it ends
+     */
+    private void monitor() {
+        long wake = Math.max(1, thresholdNanos / 2_000_000);
+        while (true) {
+            try {
+                Thread.sleep(wake);
+                long dispatch = dispatches;
+                long since = busySince;
+                Thread thread = edt;
+                // A changed count means since may belong to a dispatch that already ended
+                if (since == 0 || thread == null || dispatches != dispatch
+                        || System.nanoTime() - since < thresholdNanos) continue;
+                // Sample this dispatch until it ends or a nested one starts
+                String event = currentEvent.getSimpleName();
+                Map<String, Integer> stall = new HashMap<>();
+                while (dispatches == dispatch) {
+                    StackTraceElement[] stack = thread.getStackTrace();
+                    if (stack.length > 0) stall.merge(frameKey(stack), 1, Integer::sum);
+                    Thread.sleep(SAMPLE_MILLIS);
+                }
+                stallSampled(event, (System.nanoTime() - since) / 1_000_000, stall);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void stallSampled(String event, long millis, Map<String, Integer> stall) {
+        String top = "";
+        int topCount = 0;
+        int count = 0;
+        synchronized (this) {
+            for (Map.Entry<String, Integer> frame : stall.entrySet()) {
+                frameSamples.merge(frame.getKey(), frame.getValue(), Integer::sum);
+                count += frame.getValue();
+                if (frame.getValue() > topCount) {
+                    top = frame.getKey();
+                    topCount = frame.getValue();
+                }
+            }
+            samples += count;
+        }
+        System.err.printf(Locale.ROOT, "EDT stall: about %d ms in %s, %d/%d samples in %s%n", millis, event,
+                topCount, count, top);
+    }
+
+    /**
+     * Names a sample by its top frame and the innermost app frame below it
+     */
+    static String frameKey(StackTraceElement[] stack) {
+        String top = frameName(stack[0]);
+        for (StackTraceElement frame : stack) {
+            if (isAppFrame(frame)) return frame == stack[0] ? top : top + " <- " + frameName(frame);
+        }
+        return top;
+    }
+
+    private static boolean isAppFrame(StackTraceElement frame) {
+        // App classes are in the default package
+        return frame.getClassName().indexOf('.') < 0;
+    }
+
+    private static String frameName(StackTraceElement frame) {
+        String className = frame.getClassName();
+        String simple = className.substring(className.lastIndexOf('.') + 1);
+        return simple + "." + frame.getMethodName()
+                + (frame.getLineNumber() > 0 ? ":" + frame.getLineNumber() : "");
+    }
+
+    /**
+     * @return Dispatch times in microseconds, nested event loops excluded
+     */
+    public LatencyHistogram getDispatchMicros() {
+        return dispatchMicros;
+    }
+
+    /**
+     * @return Durations of stalls in milliseconds
+     */
+    public LatencyHistogram getStallMillis() {
+        return stallMillis;
+    }
+
+    /**
+     * Formats the stall count, dispatch and stall percentiles, and the most sampled frames
+     * @return The report
+     */
+    public synchronized String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "EDT stalls over %d ms: %d (max %d ms) in %d events%n",
+                thresholdNanos / 1_000_000, stallMillis.count(), stallMillis.max(), dispatchMicros.count()));
+        report.append("dispatch ").append(dispatchMicros.summary("us")).append(System.lineSeparator());
+        if (stallMillis.count() > 0) {
+            report.append("stall    ").append(stallMillis.summary("ms")).append(System.lineSeparator());
+        }
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(frameSamples.entrySet());
+        entries.sort((a, b) -> b.getValue() - a.getValue());
+        if (!entries.isEmpty()) {
+            report.append(String.format(Locale.ROOT, "Top frames (%d samples every %d ms):%n", samples,
+                    SAMPLE_MILLIS));
+        }
+        for (int i = 0; i < Math.min(TOP_FRAMES, entries.size()); i++) {
+            Map.Entry<String, Integer> entry = entries.get(i);
+            report.append(String.format(Locale.ROOT, "%6d %5.1f%%  %s%n", entry.getValue(),
+                    100.0 * entry.getValue() / samples, entry.getKey()));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Appends the report to a file, headed by the current time
+     * @param file The report file
+     */
+    public void writeReport(Path file) {
+        try {
+            if (file.getParent() != null) Files.createDirectories(file.getParent());
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                out.write("== " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date())
+                        + System.lineSeparator());
+                out.write(report());
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing EDT stall report " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,470 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * EventJournal - Crash-safe append-only journal of score and progress events
+ *
+ * Callers append events without blocking; a background writer thread drains
+ * the queue, writes every pending record and issues a single fsync per batch
+ * (group commit). On open, the last snapshot is loaded and the log is replayed
+ * on top of it. Torn or corrupt records at the tail are truncated.
+ * The writer periodically snapshots its state and truncates the log so that
+ * replay stays short.
+ *
+ * Record layout: int length, long sequence, byte type, payload, int CRC32
+ * (length counts sequence, type and payload; the CRC covers the same bytes).
+ * Snapshot layout: int magic, byte version, long last sequence, state, int CRC32.
+ * Version 1 snapshots had no version byte; their sequence number starts where the
+ * version is now, with a zero byte, and they are still read. The log is truncated
+ * after each snapshot, so a snapshot of an unknown version fails the open rather
+ * than being skipped.
+ */
+public class EventJournal implements Closeable {
+    public static final String LOG_FILE = "journal.log";
+    public static final String SNAPSHOT_FILE = "journal.snapshot";
+
+    // Record types
+    static final byte SCORE_AWARDED = 1;
+    static final byte TASK_COMPLETED = 2;
+    static final byte ITEM_ATTEMPTED = 3;
+    static final byte STUDENT_SELECTED = 4;
+
+    private static final int SNAPSHOT_MAGIC = 0x53484a53; // "SHJS"
+    private static final byte SNAPSHOT_VERSION = 2;
+    private static final int MAX_RECORD = 64 * 1024;
+    private static final long SNAPSHOT_INTERVAL_MILLIS = 30_000;
+    private static final byte[] CLOSE_MARKER = new byte[0];
+
+    private final Path directory;
+    private final FileChannel log;
+    private final BlockingQueue<byte[]> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final int snapshotEvery;
+    private final State recovered;
+
+    // Owned by the writer thread after construction
+    private final State durable;
+    private long nextSequence;
+    private int recordsSinceSnapshot;
+    private long lastSnapshotAt = System.currentTimeMillis();
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    /**
+     * Opens (creating if necessary) the journal in a directory and recovers its state
+     * @param directory Directory holding the log and snapshot files
+     * @param snapshotEvery Number of records after which the log is compacted
+     * @throws IOException If the journal files cannot be read or created
+     */
+    public EventJournal(Path directory, int snapshotEvery) throws IOException {
+        this.directory = directory;
+        this.snapshotEvery = snapshotEvery;
+        Files.createDirectories(directory);
+
+        State state = new State();
+        long snapshotSequence = readSnapshot(state);
+        log = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        nextSequence = replay(state, snapshotSequence) + 1;
+        durable = state;
+        recovered = state.copy();
+
+        writer = new Thread(this::runWriter, "journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Opens the journal with the default compaction threshold
+     * @param directory Directory holding the journal files
+     * @return The opened journal
+     * @throws IOException If the journal cannot be opened
+     */
+    public static EventJournal open(Path directory) throws IOException {
+        return new EventJournal(directory, 500);
+    }
+
+    /**
+     * Returns the state recovered from disk when the journal was opened
+     * @return A copy of the recovered state
+     */
+    public State getRecoveredState() {
+        return recovered.copy();
+    }
+
+    public void scoreAwarded(String taskId, int points) {
+        append(SCORE_AWARDED, out -> {
+            out.writeUTF(taskId);
+            out.writeInt(points);
+        });
+    }
+
+    public void taskCompleted(String taskId) {
+        append(TASK_COMPLETED, out -> out.writeUTF(taskId));
+    }
+
+    /**
+     * Records a switch to another student. The record carries the student's stored
+     * score and completed tasks and replaces the journal state on replay.
+     * @param studentId The selected student
+     * @param score The student's current score
+     * @param completedTasks The student's completed task IDs
+     */
+    public void studentSelected(String studentId, int score, Set<String> completedTasks) {
+        List<String> tasks = new ArrayList<>(completedTasks);
+        append(STUDENT_SELECTED, out -> {
+            out.writeUTF(studentId);
+            out.writeInt(score);
+            out.writeShort(tasks.size());
+            for (String task : tasks) out.writeUTF(task);
+        });
+    }
+
+    /**
+     * Records one answer attempt
+     * @param taskId The task ID
+     * @param item The item being answered (shape name, sector ID, ...)
+     * @param attempt Attempt number, starting at 1
+     * @param outcome Result of the attempt
+     * @param points Points awarded for this attempt
+     * @param latencyMillis Time from question start to this attempt
+     */
+    public void itemAttempted(String taskId, String item, int attempt, AttemptOutcome outcome,
+                              int points, long latencyMillis) {
+        append(ITEM_ATTEMPTED, out -> {
+            out.writeUTF(taskId);
+            out.writeUTF(item);
+            out.writeShort(attempt);
+            out.writeByte(outcome.ordinal());
+            out.writeInt(points);
+            out.writeInt((int) Math.min(Integer.MAX_VALUE, latencyMillis));
+        });
+    }
+
+    private interface Payload {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Encodes a record body (type + payload) and hands it to the writer thread
+     */
+    private void append(byte type, Payload payload) {
+        if (closed) return;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            payload.write(out);
+            queue.add(bytes.toByteArray());
+        } catch (IOException e) {
+            // Writing to a byte array cannot fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writer thread loop: drains all pending records, writes them and fsyncs once per batch
+     */
+    private void runWriter() {
+        List<byte[]> batch = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                byte[] first = queue.poll(1, TimeUnit.SECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch);
+                }
+                int end = batch.indexOf(CLOSE_MARKER);
+                if (end >= 0) {
+                    batch.subList(end, batch.size()).clear();
+                    running = false;
+                }
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                    batch.clear();
+                }
+                if (!running
+                        || recordsSinceSnapshot >= snapshotEvery
+                        || (recordsSinceSnapshot > 0
+                            && System.currentTimeMillis() - lastSnapshotAt >= SNAPSHOT_INTERVAL_MILLIS)) {
+                    compact();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (IOException e) {
+                failure = e;
+                System.err.println("Error writing journal: " + e.getMessage());
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes and fsyncs a batch of records, then applies them to the durable state.
+     * If the write fails, the log is cut back to where the batch started and the
+     * state and sequence numbers are left as they were.
+     */
+    private void writeBatch(List<byte[]> batch) throws IOException {
+        int size = 0;
+        for (byte[] body : batch) size += 16 + body.length;
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        CRC32 crc = new CRC32();
+        long sequence = nextSequence;
+        for (byte[] body : batch) {
+            int start = buffer.position();
+            buffer.putInt(8 + body.length).putLong(sequence++).put(body);
+            crc.reset();
+            crc.update(buffer.array(), start + 4, 8 + body.length);
+            buffer.putInt((int) crc.getValue());
+        }
+        buffer.flip();
+        long end = log.size();
+        try {
+            log.position(end);
+            while (buffer.hasRemaining()) {
+                log.write(buffer);
+            }
+            log.force(false);
+        } catch (IOException e) {
+            try {
+                log.truncate(end);
+            } catch (IOException ignored) {
+                // Replay truncates a torn tail on the next open
+            }
+            throw e;
+        }
+        nextSequence = sequence;
+        for (byte[] body : batch) apply(durable, body);
+        recordsSinceSnapshot += batch.size();
+    }
+
+    /**
+     * Writes a snapshot of the durable state, then truncates the log.
+     * The snapshot stores the last sequence number it covers, so a crash between
+     * the two steps only leaves records that replay will skip.
+     */
+    private void compact() throws IOException {
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeByte(SNAPSHOT_VERSION);
+        out.writeLong(nextSequence - 1);
+        durable.write(out);
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(SNAPSHOT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.truncate(0);
+        log.force(true);
+        recordsSinceSnapshot = 0;
+        lastSnapshotAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Loads the snapshot into the given state
+     * @return The last sequence number covered by the snapshot, or 0 if there is none
+     */
+    private long readSnapshot(State state) throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) return 0;
+        byte[] bytes = Files.readAllBytes(file);
+        if (bytes.length < 17) return 0;
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 4);
+        if ((int) crc.getValue() != ByteBuffer.wrap(bytes, bytes.length - 4, 4).getInt()) {
+            System.err.println("Ignoring corrupt journal snapshot");
+            return 0;
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 4));
+        if (in.readInt() != SNAPSHOT_MAGIC) return 0;
+        int version = bytes[4] == 0 ? 1 : in.readByte();
+        if (version != 1 && version != SNAPSHOT_VERSION) {
+            throw new IOException("Unsupported journal snapshot version " + version + " in " + file);
+        }
+        long sequence = in.readLong();
+        state.read(in, version);
+        return sequence;
+    }
+
+    /**
+     * Replays valid log records after the snapshot and truncates a torn tail
+     * @return The highest sequence number seen
+     */
+    private long replay(State state, long snapshotSequence) throws IOException {
+        long size = log.size();
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, Integer.MAX_VALUE));
+        log.position(0);
+        while (buffer.hasRemaining() && log.read(buffer) >= 0) {
+            // keep reading until the buffer is full or the file ends
+        }
+        buffer.flip();
+
+        long lastSequence = snapshotSequence;
+        CRC32 crc = new CRC32();
+        int validEnd = 0;
+        while (buffer.remaining() >= 4) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            if (length < 9 || length > MAX_RECORD || buffer.remaining() < length + 4) break;
+            crc.reset();
+            crc.update(buffer.array(), start + 4, length);
+            long sequence = buffer.getLong();
+            byte[] body = new byte[length - 8];
+            buffer.get(body);
+            if (buffer.getInt() != (int) crc.getValue()) break;
+            if (sequence > snapshotSequence) {
+                apply(state, body);
+                lastSequence = Math.max(lastSequence, sequence);
+            }
+            validEnd = buffer.position();
+        }
+        if (validEnd < size) {
+            System.err.println("Truncating " + (size - validEnd) + " bytes of incomplete journal records");
+            log.truncate(validEnd);
+            log.force(true);
+        }
+        return lastSequence;
+    }
+
+    /**
+     * Applies one record body (type + payload) to a state
+     */
+    private static void apply(State state, byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        switch (in.readByte()) {
+            case SCORE_AWARDED:
+                in.readUTF();
+                state.score += in.readInt();
+                break;
+            case TASK_COMPLETED:
+                state.completedTasks.add(in.readUTF());
+                break;
+            case ITEM_ATTEMPTED:
+                state.attempts++;
+                break;
+            case STUDENT_SELECTED:
+                state.studentId = in.readUTF();
+                state.score = in.readInt();
+                state.completedTasks.clear();
+                for (int i = in.readUnsignedShort(); i > 0; i--) state.completedTasks.add(in.readUTF());
+                break;
+            default:
+                // Unknown record types from newer versions are skipped
+                break;
+        }
+    }
+
+    /**
+     * Returns the last write error, if any
+     * @return The error or null
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Flushes pending records, writes a final snapshot and closes the log
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        queue.add(CLOSE_MARKER);
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.close();
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * Score and progress state reconstructed from the journal
+     */
+    public static class State {
+        private String studentId;
+        private int score;
+        private long attempts;
+        private final Set<String> completedTasks = new LinkedHashSet<>();
+
+        /**
+         * @return The student the state belongs to, or null if no student was ever selected
+         */
+        public String getStudentId() {
+            return studentId;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public long getAttempts() {
+            return attempts;
+        }
+
+        public Set<String> getCompletedTasks() {
+            return Collections.unmodifiableSet(completedTasks);
+        }
+
+        State copy() {
+            State copy = new State();
+            copy.studentId = studentId;
+            copy.score = score;
+            copy.attempts = attempts;
+            copy.completedTasks.addAll(completedTasks);
+            return copy;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(score);
+            out.writeLong(attempts);
+            out.writeShort(completedTasks.size());
+            for (String task : completedTasks) out.writeUTF(task);
+            out.writeUTF(studentId != null ? studentId : "");
+        }
+
+        void read(DataInputStream in, int version) throws IOException {
+            score = in.readInt();
+            attempts = in.readLong();
+            int count = in.readUnsignedShort();
+            for (int i = 0; i < count; i++) completedTasks.add(in.readUTF());
+            // Version 1 snapshots written before student profiles existed have no student
+            if (version == 1 && in.available() == 0) return;
+            String id = in.readUTF();
+            studentId = id.isEmpty() ? null : id;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.SoftReference;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * ImageLoader - Loads image assets at the size they are shown, in compact pixel storage
+ *
+ * A 1200x900 drawing shown as a 180x130 button thumbnail used to be decoded whole
+ * into a 4 MB ARGB image and then scaled with getScaledInstance. Here the decoder
+ * skips source pixels (ImageIO subsampling) down to no less than twice the display
+ * size, and a high-quality pass finishes the job: bilinear halving steps, which
+ * average 2x2 blocks, then one bicubic step to the exact size. The result is
+ * stored as TYPE_BYTE_INDEXED with its exact palette when it has at most 256
+ * colours, as TYPE_INT_RGB when it is opaque, and as TYPE_INT_ARGB otherwise.
+ *
+ * Loaded images are shared through a cache keyed by asset and size that holds
+ * them by SoftReference, so repeated paints and rebuilt panels reuse them until
+ * the collector needs the memory. Callers must not draw into them.
+ */
+public final class ImageLoader {
+    private static final int MAX_PALETTE = 256;
+
+    private static final Map<String, SoftReference<BufferedImage>> CACHE = new ConcurrentHashMap<>();
+    private static final LongAdder HITS = Metrics.global().counter("images.cache.hits");
+    private static final LongAdder MISSES = Metrics.global().counter("images.cache.misses");
+    private static final LongAdder ASSETS_LOADED = Metrics.global().counter("assets.loaded");
+    private static final LatencyHistogram ASSET_LOAD_MICROS = Metrics.global().histogram("assets.loadMicros");
+    // Loaded images still reachable anywhere in the app, with their pixel data size
+    private static final Map<BufferedImage, Long> LIVE_ASSETS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    static {
+        Metrics.global().gauge("images.cache.hitRate", () -> {
+            long hits = HITS.sum();
+            long total = hits + MISSES.sum();
+            return total == 0 ? 0 : (double) hits / total;
+        });
+        Metrics.global().gauge("assets.heapBytes", ImageLoader::liveAssetBytes);
+    }
+
+    private ImageLoader() {
+    }
+
+    /**
+     * Loads an image at its own size
+     * @param url The asset
+     * @return The shared image
+     * @throws IOException If the asset cannot be read or is not an image
+     */
+    public static BufferedImage load(URL url) throws IOException {
+        return load(url, 0, 0);
+    }
+
+    /**
+     * Loads an image scaled to exactly a display size, from the cache if it is still there
+     * @param url The asset
+     * @param width Display width, or 0 with height 0 for the image's own size
+     * @param height Display height
+     * @return The shared image
+     * @throws IOException If the asset cannot be read or is not an image
+     */
+    public static BufferedImage load(URL url, int width, int height) throws IOException {
+        String key = url + "@" + width + "x" + height;
+        SoftReference<BufferedImage> cached = CACHE.get(key);
+        BufferedImage image = cached != null ? cached.get() : null;
+        if (image != null) {
+            HITS.increment();
+            return image;
+        }
+        MISSES.increment();
+        image = read(url, width, height);
+        CACHE.put(key, new SoftReference<>(image));
+        return image;
+    }
+
+    /**
+     * Reads, decodes and scales an asset, recording the load as a flight recorder event and in the metrics
+     */
+    private static BufferedImage read(URL url, int width, int height) throws IOException {
+        ShapevilleEvents.AssetLoaded event = ShapevilleEvents.assetLoading();
+        long start = System.nanoTime();
+        byte[] bytes = new byte[0];
+        BufferedImage image = null;
+        try (InputStream in = url.openStream()) {
+            bytes = in.readAllBytes();
+            image = compact(decode(bytes, width, height, url));
+            LIVE_ASSETS.put(image, sizeOf(image));
+            return image;
+        } finally {
+            ASSETS_LOADED.increment();
+            ASSET_LOAD_MICROS.record((System.nanoTime() - start) / 1000);
+            ShapevilleEvents.assetLoaded(event, url.getPath(), bytes.length,
+                    image != null ? image.getWidth() : 0, image != null ? image.getHeight() : 0);
+        }
+    }
+
+    /**
+     * Decodes an image, skipping source pixels where it is much larger than the display size
+     */
+    static BufferedImage decode(byte[] bytes, int width, int height, URL url) throws IOException {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = stream != null ? ImageIO.getImageReaders(stream)
+                    : Collections.emptyIterator();
+            if (!readers.hasNext()) throw new IOException("Not a readable image: " + url);
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (width > 0 && height > 0) {
+                    // Keep at least twice the display size for the final pass to average
+                    int stepX = Math.max(1, reader.getWidth(0) / (2 * width));
+                    int stepY = Math.max(1, reader.getHeight(0) / (2 * height));
+                    if (stepX > 1 || stepY > 1) param.setSourceSubsampling(stepX, stepY, 0, 0);
+                }
+                BufferedImage decoded = reader.read(0, param);
+                return width > 0 && height > 0 ? scale(decoded, width, height) : decoded;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scales an image with bilinear halving steps followed by one bicubic step
+     * @param source The image
+     * @param width Target width
+     * @param height Target height
+     * @return The scaled image, or the source if it is already that size
+     */
+    static BufferedImage scale(BufferedImage source, int width, int height) {
+        boolean opaque = source.getTransparency() == Transparency.OPAQUE;
+        BufferedImage current = source;
+        while (current.getWidth() != width || current.getHeight() != height) {
+            int w = current.getWidth() >= 2 * width ? current.getWidth() / 2 : width;
+            int h = current.getHeight() >= 2 * height ? current.getHeight() / 2 : height;
+            boolean last = w == width && h == height;
+            // Premultiplied, so transparent edges do not bleed their hidden colour
+            BufferedImage next = new BufferedImage(w, h,
+                    opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D g2d = next.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, last
+                    ? RenderingHints.VALUE_INTERPOLATION_BICUBIC : RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g2d.drawImage(current, 0, 0, w, h, null);
+            g2d.dispose();
+            current = next;
+        }
+        return current;
+    }
+
+    /**
+     * Stores an image in the smallest form that keeps every pixel: indexed with its exact
+     * palette, packed RGB when opaque, or packed ARGB
+     * @param image The image
+     * @return The compact image
+     */
+    static BufferedImage compact(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        boolean opaque = true;
+        Map<Integer, Integer> palette = new HashMap<>();
+        for (int pixel : pixels) {
+            if (pixel >>> 24 != 0xff) opaque = false;
+            if (palette.size() <= MAX_PALETTE) palette.putIfAbsent(pixel, palette.size());
+        }
+        if (palette.size() <= MAX_PALETTE) {
+            int size = palette.size();
+            byte[] r = new byte[size], g = new byte[size], b = new byte[size], a = new byte[size];
+            for (Map.Entry<Integer, Integer> color : palette.entrySet()) {
+                int argb = color.getKey();
+                int index = color.getValue();
+                a[index] = (byte) (argb >>> 24);
+                r[index] = (byte) (argb >> 16);
+                g[index] = (byte) (argb >> 8);
+                b[index] = (byte) argb;
+            }
+            IndexColorModel model = opaque ? new IndexColorModel(8, size, r, g, b)
+                    : new IndexColorModel(8, size, r, g, b, a);
+            BufferedImage indexed = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, model);
+            byte[] data = ((DataBufferByte) indexed.getRaster().getDataBuffer()).getData();
+            for (int i = 0; i < pixels.length; i++) data[i] = (byte) (int) palette.get(pixels[i]);
+            return indexed;
+        }
+        int type = opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        if (image.getType() == type) return image;
+        BufferedImage packed = new BufferedImage(width, height, type);
+        packed.setRGB(0, 0, width, height, pixels, 0, width);
+        return packed;
+    }
+
+    /**
+     * @param image An image
+     * @return Size of its pixel data in bytes
+     */
+    static long sizeOf(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    /**
+     * @return Pixel data size of the loaded assets not yet garbage collected
+     */
+    static long liveAssetBytes() {
+        synchronized (LIVE_ASSETS) {
+            long total = 0;
+            for (long bytes : LIVE_ASSETS.values()) total += bytes;
+            return total;
+        }
+    }
+}
@@ -0,0 +1,539 @@
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import javax.imageio.ImageIO;
+
+/**
+ * ImageShapeAnalyzer - Finds the main 2D shape in a photo or image file and names it
+ *
+ * The pipeline:
+ * 1. Grayscale, then a 3x3 binomial blur to quiet sensor noise.
+ * 2. Sobel edge magnitude, with its histogram; edges are the pixels above the
+ *    Otsu threshold of that histogram (with a floor, so a flat image has none).
+ * 3. The largest connected group of edge pixels, preferring groups that do not
+ *    touch the image border (a table edge or picture frame), is taken as the shape.
+ * 4. Its outer boundary is traced (Moore neighbour tracing) into a closed contour.
+ * 5. The contour is simplified with Douglas-Peucker to count the sides, and named
+ *    by {@link SketchRecognizer}, since a traced outline is just a very clean stroke.
+ *
+ * Stages 1 and 2 touch every pixel, so they run on horizontal bands of rows as
+ * fork/join tasks in the given pool; the later stages only visit edge pixels.
+ *
+ * Usage: java ImageShapeAnalyzer IMAGE...
+ */
+public class ImageShapeAnalyzer {
+    /** Rows per fork/join task */
+    static final int BAND_ROWS = 64;
+    /** Weakest edge magnitude ever counted as an edge, out of 1020 */
+    static final int MIN_EDGE = 60;
+    /** Douglas-Peucker tolerance, as a share of the contour's length */
+    static final double SIMPLIFY_TOLERANCE = 0.01;
+    /** Shortest side counted, as a share of the contour's length; shorter ones are blunted corners */
+    static final double MIN_SIDE = 0.03;
+    /** Smallest shape worth naming, as a share of the image's smaller side */
+    static final double MIN_SHAPE = 0.05;
+
+    /**
+     * What was found in an image
+     */
+    public static final class Result {
+        private final List<SketchRecognizer.Candidate> ranked;
+        private final float[] contour;
+        private final float[] polygon;
+
+        Result(List<SketchRecognizer.Candidate> ranked, float[] contour, float[] polygon) {
+            this.ranked = ranked;
+            this.contour = contour;
+            this.polygon = polygon;
+        }
+
+        /**
+         * @return Whether a shape was found
+         */
+        public boolean found() {
+            return !ranked.isEmpty();
+        }
+
+        /**
+         * @return The shape's name, or null if none was found
+         */
+        public String getLabel() {
+            return found() ? ranked.get(0).getLabel() : null;
+        }
+
+        /**
+         * @return Confidence in the name, between 0 and 1
+         */
+        public double getConfidence() {
+            return found() ? ranked.get(0).getConfidence() : 0;
+        }
+
+        /**
+         * @return Every name, most likely first
+         */
+        public List<SketchRecognizer.Candidate> getRanked() {
+            return ranked;
+        }
+
+        /**
+         * @return Number of straight sides, or 0 for a circle or oval
+         */
+        public int getSides() {
+            String label = getLabel();
+            if (label == null || label.equals("circle") || label.equals("oval")) return 0;
+            return polygon.length / 2;
+        }
+
+        /**
+         * @return The traced outline as x, y pairs in image pixels
+         */
+        public float[] getContour() {
+            return contour;
+        }
+
+        /**
+         * @return The simplified outline's corners as x, y pairs
+         */
+        public float[] getPolygon() {
+            return polygon;
+        }
+
+        @Override
+        public String toString() {
+            if (!found()) return "no shape found";
+            return String.format(Locale.ROOT, "%s (%d sides, %.0f%%)", getLabel(), getSides(), getConfidence() * 100);
+        }
+    }
+
+    private final SketchRecognizer recognizer;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param recognizer Names the traced outlines
+     * @param pool Runs the per-pixel stages
+     */
+    public ImageShapeAnalyzer(SketchRecognizer recognizer, ForkJoinPool pool) {
+        this.recognizer = recognizer;
+        this.pool = pool;
+    }
+
+    /**
+     * Reads and analyzes an image file
+     * @param file The image
+     * @return What was found
+     * @throws IOException If the file cannot be read or is not an image
+     */
+    public Result analyze(Path file) throws IOException {
+        BufferedImage image = ImageIO.read(file.toFile());
+        if (image == null) throw new IOException("Not a readable image: " + file);
+        return analyze(image);
+    }
+
+    /**
+     * Analyzes an image
+     * @param image The image
+     * @return What was found
+     */
+    public Result analyze(BufferedImage image) {
+        int width = image.getWidth(), height = image.getHeight();
+        byte[] gray = grayscale(image);
+        byte[] smooth = blur(gray, width, height);
+        short[] magnitude = new short[width * height];
+        int[] histogram = sobel(smooth, width, height, magnitude);
+        int threshold = Math.max(MIN_EDGE, otsu(histogram));
+
+        int[] seed = largestComponent(magnitude, width, height, threshold);
+        if (seed == null) return new Result(Collections.emptyList(), new float[0], new float[0]);
+        float[] contour = trace(magnitude, width, height, threshold, seed[0], seed[1]);
+        double length = length(contour);
+        float[] polygon = dropStraight(mergeShort(simplify(contour, SIMPLIFY_TOLERANCE * length), MIN_SIDE * length));
+        return new Result(recognizer.recognize(contour), contour, polygon);
+    }
+
+    /**
+     * Work on a range of rows
+     */
+    interface Rows {
+        void run(int from, int to);
+    }
+
+    /**
+     * Splits rows in halves down to BAND_ROWS and runs the bands in parallel
+     */
+    private static final class Bands extends RecursiveAction {
+        private final Rows work;
+        private final int from;
+        private final int to;
+
+        Bands(Rows work, int from, int to) {
+            this.work = work;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BAND_ROWS) {
+                work.run(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Bands(work, from, middle), new Bands(work, middle, to));
+        }
+    }
+
+    private void forEachBand(int height, Rows work) {
+        pool.invoke(new Bands(work, 0, height));
+    }
+
+    /**
+     * @return Luminance (0.30 R + 0.59 G + 0.11 B) per pixel
+     */
+    byte[] grayscale(BufferedImage image) {
+        int width = image.getWidth();
+        byte[] gray = new byte[width * image.getHeight()];
+        forEachBand(image.getHeight(), (from, to) -> {
+            int[] row = new int[width];
+            for (int y = from; y < to; y++) {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                for (int x = 0, i = y * width; x < width; x++, i++) {
+                    int rgb = row[x];
+                    gray[i] = (byte) ((77 * (rgb >> 16 & 0xff) + 150 * (rgb >> 8 & 0xff) + 29 * (rgb & 0xff)) >> 8);
+                }
+            }
+        });
+        return gray;
+    }
+
+    /**
+     * @return The image blurred with the 3x3 kernel [1 2 1] x [1 2 1] / 16; border pixels are copied
+     */
+    byte[] blur(byte[] gray, int width, int height) {
+        byte[] out = new byte[gray.length];
+        forEachBand(height, (from, to) -> {
+            for (int y = from; y < to; y++) {
+                int row = y * width;
+                if (y == 0 || y == height - 1) {
+                    System.arraycopy(gray, row, out, row, width);
+                    continue;
+                }
+                out[row] = gray[row];
+                out[row + width - 1] = gray[row + width - 1];
+                for (int x = 1, i = row + 1; x < width - 1; x++, i++) {
+                    int up = i - width, down = i + width;
+                    int sum = (gray[up - 1] & 0xff) + 2 * (gray[up] & 0xff) + (gray[up + 1] & 0xff)
+                            + 2 * ((gray[i - 1] & 0xff) + 2 * (gray[i] & 0xff) + (gray[i + 1] & 0xff))
+                            + (gray[down - 1] & 0xff) + 2 * (gray[down] & 0xff) + (gray[down + 1] & 0xff);
+                    out[i] = (byte) ((sum + 8) >> 4);
+                }
+            }
+        });
+        return out;
+    }
+
+    /**
+     * Computes the Sobel edge magnitude |Gx| + |Gy| (0 on the border)
+     * @param gray The image
+     * @param width Image width
+     * @param height Image height
+     * @param magnitude Receives the magnitude per pixel
+     * @return Histogram of the magnitudes, 1021 buckets
+     */
+    int[] sobel(byte[] gray, int width, int height, short[] magnitude) {
+        int[] histogram = new int[1021];
+        forEachBand(height, (from, to) -> {
+            int[] local = new int[histogram.length];
+            for (int y = Math.max(1, from); y < Math.min(height - 1, to); y++) {
+                for (int x = 1, i = y * width + 1; x < width - 1; x++, i++) {
+                    int up = i - width, down = i + width;
+                    int gx = (gray[up + 1] & 0xff) + 2 * (gray[i + 1] & 0xff) + (gray[down + 1] & 0xff)
+                            - (gray[up - 1] & 0xff) - 2 * (gray[i - 1] & 0xff) - (gray[down - 1] & 0xff);
+                    int gy = (gray[down - 1] & 0xff) + 2 * (gray[down] & 0xff) + (gray[down + 1] & 0xff)
+                            - (gray[up - 1] & 0xff) - 2 * (gray[up] & 0xff) - (gray[up + 1] & 0xff);
+                    // |Gx| + |Gy| is at most 2040; halved to fit the histogram
+                    int value = (Math.abs(gx) + Math.abs(gy)) >> 1;
+                    magnitude[i] = (short) value;
+                    local[value]++;
+                }
+            }
+            synchronized (histogram) {
+                for (int v = 0; v < local.length; v++) histogram[v] += local[v];
+            }
+        });
+        return histogram;
+    }
+
+    /**
+     * @param histogram Counts per value
+     * @return The threshold that best separates the values into two classes (Otsu)
+     */
+    static int otsu(int[] histogram) {
+        long total = 0;
+        double sum = 0;
+        for (int v = 0; v < histogram.length; v++) {
+            total += histogram[v];
+            sum += (double) v * histogram[v];
+        }
+        long below = 0;
+        double sumBelow = 0, best = -1;
+        int threshold = 0;
+        for (int v = 0; v < histogram.length; v++) {
+            below += histogram[v];
+            if (below == 0) continue;
+            long above = total - below;
+            if (above == 0) break;
+            sumBelow += (double) v * histogram[v];
+            double meanBelow = sumBelow / below, meanAbove = (sum - sumBelow) / above;
+            double between = (double) below * above * (meanBelow - meanAbove) * (meanBelow - meanAbove);
+            if (between > best) {
+                best = between;
+                threshold = v + 1;
+            }
+        }
+        return threshold;
+    }
+
+    /**
+     * Finds the largest group of 8-connected edge pixels by bounding box, preferring groups
+     * clear of the image border
+     * @return Its top-left-most pixel as {x, y}, or null if there is no group big enough
+     */
+    static int[] largestComponent(short[] magnitude, int width, int height, int threshold) {
+        boolean[] seen = new boolean[magnitude.length];
+        int[] stack = new int[1024];
+        int[] best = null;
+        long bestArea = 0;
+        boolean bestInside = false;
+        int minSize = (int) (MIN_SHAPE * Math.min(width, height));
+        for (int start = 0; start < magnitude.length; start++) {
+            if (seen[start] || magnitude[start] < threshold) continue;
+            int minX = width, minY = height, maxX = 0, maxY = 0;
+            int top = 0;
+            stack[top++] = start;
+            seen[start] = true;
+            while (top > 0) {
+                int i = stack[--top];
+                int x = i % width, y = i / width;
+                minX = Math.min(minX, x);
+                maxX = Math.max(maxX, x);
+                minY = Math.min(minY, y);
+                maxY = Math.max(maxY, y);
+                for (int dy = -1; dy <= 1; dy++) {
+                    int ny = y + dy;
+                    if (ny < 0 || ny >= height) continue;
+                    for (int dx = -1; dx <= 1; dx++) {
+                        int nx = x + dx;
+                        if (nx < 0 || nx >= width) continue;
+                        int j = ny * width + nx;
+                        if (seen[j] || magnitude[j] < threshold) continue;
+                        seen[j] = true;
+                        if (top == stack.length) stack = Arrays.copyOf(stack, 2 * top);
+                        stack[top++] = j;
+                    }
+                }
+            }
+            if (maxX - minX < minSize || maxY - minY < minSize) continue;
+            // The border is 0 in the magnitude, so a group touching it reaches the second pixel
+            boolean inside = minX > 1 && minY > 1 && maxX < width - 2 && maxY < height - 2;
+            long area = (long) (maxX - minX) * (maxY - minY);
+            if (best == null || (inside && !bestInside) || (inside == bestInside && area > bestArea)) {
+                best = new int[] {start % width, start / width};
+                bestArea = area;
+                bestInside = inside;
+            }
+        }
+        return best;
+    }
+
+    // Moore neighbourhood, clockwise from west (with y pointing down)
+    private static final int[] NEIGHBOUR_X = {-1, -1, 0, 1, 1, 1, 0, -1};
+    private static final int[] NEIGHBOUR_Y = {0, -1, -1, -1, 0, 1, 1, 1};
+
+    /**
+     * Traces the outer boundary of the edge group containing a pixel (Moore neighbour tracing)
+     * @param startX X of the group's first pixel in raster order
+     * @param startY Y of that pixel
+     * @return The boundary pixels as x, y pairs, clockwise
+     */
+    static float[] trace(short[] magnitude, int width, int height, int threshold, int startX, int startY) {
+        float[] points = new float[256];
+        int count = 0;
+        int x = startX, y = startY;
+        // Raster order reached the start from the west, which is outside
+        int from = 0;
+        int limit = 4 * magnitude.length;
+        do {
+            if (count + 2 > points.length) points = Arrays.copyOf(points, 2 * points.length);
+            points[count++] = x;
+            points[count++] = y;
+            int next = -1;
+            for (int k = 1; k <= 8; k++) {
+                int d = (from + k) % 8;
+                int nx = x + NEIGHBOUR_X[d], ny = y + NEIGHBOUR_Y[d];
+                if (nx >= 0 && ny >= 0 && nx < width && ny < height && magnitude[ny * width + nx] >= threshold) {
+                    next = d;
+                    break;
+                }
+            }
+            if (next < 0) break; // A single pixel
+            x += NEIGHBOUR_X[next];
+            y += NEIGHBOUR_Y[next];
+            // Resume the search at the last outside pixel seen, as seen from the new pixel
+            int outside = (next + 7) % 8;
+            from = direction(NEIGHBOUR_X[outside] - NEIGHBOUR_X[next], NEIGHBOUR_Y[outside] - NEIGHBOUR_Y[next]);
+        } while ((x != startX || y != startY) && count < limit);
+        return Arrays.copyOf(points, count);
+    }
+
+    private static int direction(int dx, int dy) {
+        for (int d = 0; d < 8; d++) {
+            if (NEIGHBOUR_X[d] == dx && NEIGHBOUR_Y[d] == dy) return d;
+        }
+        throw new IllegalArgumentException("Not a neighbour: " + dx + ", " + dy);
+    }
+
+    /**
+     * Simplifies a closed outline with Douglas-Peucker, splitting it at its first point and the point
+     * farthest from it
+     * @param contour The outline as x, y pairs
+     * @param tolerance Largest distance a dropped point may be from the simplified outline
+     * @return The kept points as x, y pairs, in order
+     */
+    static float[] simplify(float[] contour, double tolerance) {
+        int n = contour.length / 2;
+        if (n < 3) return contour.clone();
+        int far = 0;
+        double farDistance = -1;
+        for (int i = 1; i < n; i++) {
+            double d = Math.hypot(contour[2 * i] - contour[0], contour[2 * i + 1] - contour[1]);
+            if (d > farDistance) {
+                farDistance = d;
+                far = i;
+            }
+        }
+        boolean[] keep = new boolean[n];
+        keep[0] = keep[far] = true;
+        Deque<int[]> spans = new ArrayDeque<>();
+        spans.push(new int[] {0, far});
+        spans.push(new int[] {far, n});
+        while (!spans.isEmpty()) {
+            int[] span = spans.pop();
+            int a = span[0], b = span[1];
+            double ax = contour[2 * a], ay = contour[2 * a + 1];
+            double bx = contour[2 * (b % n)], by = contour[2 * (b % n) + 1];
+            double dx = bx - ax, dy = by - ay, length = Math.hypot(dx, dy);
+            int worst = -1;
+            double worstDistance = tolerance;
+            for (int i = a + 1; i < b; i++) {
+                double px = contour[2 * i] - ax, py = contour[2 * i + 1] - ay;
+                double d = length > 0 ? Math.abs(px * dy - py * dx) / length : Math.hypot(px, py);
+                if (d > worstDistance) {
+                    worstDistance = d;
+                    worst = i;
+                }
+            }
+            if (worst < 0) continue;
+            keep[worst] = true;
+            spans.push(new int[] {a, worst});
+            spans.push(new int[] {worst, b});
+        }
+        int kept = 0;
+        for (boolean k : keep) if (k) kept++;
+        float[] polygon = new float[2 * kept];
+        for (int i = 0, j = 0; i < n; i++) {
+            if (!keep[i]) continue;
+            polygon[j++] = contour[2 * i];
+            polygon[j++] = contour[2 * i + 1];
+        }
+        return polygon;
+    }
+
+    /**
+     * Replaces each run of corners joined by sides shorter than a length with their midpoint
+     */
+    static float[] mergeShort(float[] polygon, double shortest) {
+        int n = polygon.length / 2;
+        while (n > 3) {
+            int merge = -1;
+            double shortestSide = shortest;
+            for (int i = 0; i < n; i++) {
+                int j = (i + 1) % n;
+                double side = Math.hypot(polygon[2 * j] - polygon[2 * i], polygon[2 * j + 1] - polygon[2 * i + 1]);
+                if (side < shortestSide) {
+                    shortestSide = side;
+                    merge = i;
+                }
+            }
+            if (merge < 0) break;
+            int j = (merge + 1) % n;
+            polygon[2 * merge] = (polygon[2 * merge] + polygon[2 * j]) / 2;
+            polygon[2 * merge + 1] = (polygon[2 * merge + 1] + polygon[2 * j + 1]) / 2;
+            System.arraycopy(polygon, 2 * j + 2, polygon, 2 * j, 2 * (n - j - 1));
+            n--;
+        }
+        return polygon.length == 2 * n ? polygon : Arrays.copyOf(polygon, 2 * n);
+    }
+
+    /**
+     * Removes corners that are nearly straight, such as the split points in the middle of a side,
+     * widest first
+     */
+    static float[] dropStraight(float[] polygon) {
+        int n = polygon.length / 2;
+        while (n > 3) {
+            int widest = -1;
+            double widestAngle = SketchRecognizer.STRAIGHT_ANGLE;
+            for (int i = 0; i < n; i++) {
+                int a = (i + n - 1) % n, b = (i + 1) % n;
+                double ax = polygon[2 * a] - polygon[2 * i], ay = polygon[2 * a + 1] - polygon[2 * i + 1];
+                double bx = polygon[2 * b] - polygon[2 * i], by = polygon[2 * b + 1] - polygon[2 * i + 1];
+                double angle = Math.toDegrees(Math.abs(Math.atan2(ax * by - ay * bx, ax * bx + ay * by)));
+                if (angle > widestAngle) {
+                    widestAngle = angle;
+                    widest = i;
+                }
+            }
+            if (widest < 0) break;
+            System.arraycopy(polygon, 2 * widest + 2, polygon, 2 * widest, 2 * (n - widest - 1));
+            n--;
+        }
+        return polygon.length == 2 * n ? polygon : Arrays.copyOf(polygon, 2 * n);
+    }
+
+    private static double length(float[] contour) {
+        int n = contour.length / 2;
+        double length = 0;
+        for (int i = 0; i < n; i++) {
+            int j = (i + 1) % n;
+            length += Math.hypot(contour[2 * j] - contour[2 * i], contour[2 * j + 1] - contour[2 * i + 1]);
+        }
+        return length;
+    }
+
+    /**
+     * Analyzes image files and prints what was found in each
+     * @param args Image files
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: java ImageShapeAnalyzer IMAGE...");
+            System.exit(2);
+        }
+        ImageShapeAnalyzer analyzer = new ImageShapeAnalyzer(new SketchRecognizer(SketchTemplates.builtIn()),
+                ForkJoinPool.commonPool());
+        for (String arg : args) {
+            long start = System.nanoTime();
+            Result result = analyzer.analyze(Paths.get(arg));
+            System.out.printf(Locale.ROOT, "%s: %s in %d ms%n", arg, result, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+}
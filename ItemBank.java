@@ -0,0 +1,338 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * ItemBank - Read-only view over a compact binary content pack
+ * The bank is memory-mapped and entries are decoded lazily on access, so opening
+ * a bank only reads the fixed-size header regardless of how many items it holds.
+ * References inside records are checked as they are read; a corrupt one throws
+ * IndexOutOfBoundsException naming the record.
+ *
+ * Layout (big-endian, all offsets are absolute file positions):
+ * <pre>
+ * header   magic, version, string/task/item/alias counts and offsets (48 bytes)
+ * strings  int[stringCount] offsets into the string data, sorted by UTF-8 bytes
+ * data     u16 length + UTF-8 bytes per string
+ * tasks    nameRef, firstItem, itemCount per task, sorted by name
+ * items    40-byte records: key, nameRef, descRef, assetRef, aliasStart,
+ *          aliasCount (u16), dimension (u16), param0 (double), param1 (double)
+ * aliases  int[aliasCount] string references
+ * </pre>
+ * Items of a task are stored contiguously and sorted by key.
+ */
+public final class ItemBank implements Closeable {
+    static final int MAGIC = 0x53485642; // "SHVB"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 48;
+    static final int ITEM_SIZE = 40;
+    static final int TASK_SIZE = 12;
+
+    private final ByteBuffer buffer;
+    private final FileChannel channel;
+    private final int stringCount;
+    private final int stringIndexOffset;
+    private final int taskCount;
+    private final int taskIndexOffset;
+    private final int itemCount;
+    private final int itemsOffset;
+    private final int aliasCount;
+    private final int aliasOffset;
+
+    private ItemBank(ByteBuffer buffer, FileChannel channel) throws IOException {
+        this.buffer = buffer;
+        this.channel = channel;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a Shapeville item bank");
+        }
+        if (buffer.getShort(4) != VERSION) {
+            throw new IOException("Unsupported item bank version: " + buffer.getShort(4));
+        }
+        stringCount = buffer.getInt(8);
+        stringIndexOffset = buffer.getInt(12);
+        taskCount = buffer.getInt(20);
+        taskIndexOffset = buffer.getInt(24);
+        itemCount = buffer.getInt(28);
+        itemsOffset = buffer.getInt(32);
+        aliasCount = buffer.getInt(36);
+        aliasOffset = buffer.getInt(40);
+
+        // Only bounds are checked here; records themselves are decoded on demand
+        checkSection(stringIndexOffset, stringCount, 4);
+        checkSection(taskIndexOffset, taskCount, TASK_SIZE);
+        checkSection(itemsOffset, itemCount, ITEM_SIZE);
+        checkSection(aliasOffset, aliasCount, 4);
+    }
+
+    /**
+     * Opens a bank file by memory-mapping it read-only
+     * @param file The bank file
+     * @return The opened bank
+     * @throws IOException If the file cannot be mapped or is not a valid bank
+     */
+    public static ItemBank open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ItemBank(mapped, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Wraps an in-memory bank image, e.g. one produced by {@link ItemBankWriter#toByteBuffer()}
+     * @param buffer The bank bytes
+     * @return The bank view
+     * @throws IOException If the buffer is not a valid bank
+     */
+    public static ItemBank wrap(ByteBuffer buffer) throws IOException {
+        return new ItemBank(buffer.duplicate(), null);
+    }
+
+    private void checkSection(int offset, int count, int recordSize) throws IOException {
+        if (offset < 0 || count < 0 || (long) offset + (long) count * recordSize > buffer.limit()) {
+            throw new IOException("Corrupt item bank: section out of bounds");
+        }
+    }
+
+    public int getStringCount() {
+        return stringCount;
+    }
+
+    public int getTaskCount() {
+        return taskCount;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * Decodes a string from the string table
+     * @param ref The string reference
+     * @return The decoded string, or null for a negative reference
+     * @throws IndexOutOfBoundsException If the reference or its entry is outside the string table
+     */
+    public String string(int ref) {
+        if (ref < 0) return null;
+        int pos = stringPosition(ref);
+        byte[] bytes = new byte[buffer.getShort(pos) & 0xFFFF];
+        ByteBuffer view = buffer.duplicate();
+        view.position(pos + 2);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return Position of a string's entry, checked to lie inside the bank
+     */
+    private int stringPosition(int ref) {
+        if (ref >= stringCount) {
+            throw new IndexOutOfBoundsException("Corrupt item bank: string " + ref + " of " + stringCount);
+        }
+        int pos = buffer.getInt(stringIndexOffset + ref * 4);
+        if (pos < 0 || pos > buffer.limit() - 2 || pos + 2 + (buffer.getShort(pos) & 0xFFFF) > buffer.limit()) {
+            throw new IndexOutOfBoundsException("Corrupt item bank: string " + ref + " out of bounds");
+        }
+        return pos;
+    }
+
+    /**
+     * Finds a string in the sorted string table without decoding other entries
+     * @param value The string to look up
+     * @return Its reference, or -1 if the bank does not contain it
+     */
+    public int findString(String value) {
+        byte[] target = value.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = stringCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareString(mid, target);
+            if (cmp < 0) low = mid + 1;
+            else if (cmp > 0) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    private int compareString(int ref, byte[] target) {
+        int pos = stringPosition(ref);
+        int length = buffer.getShort(pos) & 0xFFFF;
+        pos += 2;
+        int n = Math.min(length, target.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = (buffer.get(pos + i) & 0xFF) - (target[i] & 0xFF);
+            if (cmp != 0) return cmp;
+        }
+        return length - target.length;
+    }
+
+    /**
+     * Looks up a task section by name
+     * @param name The task name, e.g. {@link ItemBankWriter#SHAPES_TASK}
+     * @return The task, or null if the bank has no such task
+     */
+    public Task task(String name) {
+        int ref = findString(name);
+        if (ref < 0) return null;
+        int low = 0;
+        int high = taskCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midRef = buffer.getInt(taskIndexOffset + mid * TASK_SIZE);
+            if (midRef < ref) low = mid + 1;
+            else if (midRef > ref) high = mid - 1;
+            else return new Task(mid);
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) channel.close();
+    }
+
+    /**
+     * A contiguous range of items belonging to one task
+     */
+    public final class Task {
+        private final int nameRef;
+        private final int firstItem;
+        private final int size;
+
+        private Task(int index) {
+            int pos = taskIndexOffset + index * TASK_SIZE;
+            this.nameRef = buffer.getInt(pos);
+            this.firstItem = buffer.getInt(pos + 4);
+            this.size = buffer.getInt(pos + 8);
+            if (firstItem < 0 || size < 0 || (long) firstItem + size > itemCount) {
+                throw new IndexOutOfBoundsException("Corrupt item bank: items of task " + index + " out of bounds");
+            }
+        }
+
+        public String getName() {
+            return string(nameRef);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Returns a lazy view of the item at the given position in this task
+         * @param index Position within the task (0-based)
+         * @return The item view
+         */
+        public Item item(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Item " + index + " of " + size);
+            }
+            return new Item(firstItem + index);
+        }
+
+        /**
+         * Finds an item by key using binary search over the key-sorted records
+         * @param key The item key
+         * @return The item, or null if not present
+         */
+        public Item findByKey(int key) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int midKey = buffer.getInt(itemsOffset + (firstItem + mid) * ITEM_SIZE);
+                if (midKey < key) low = mid + 1;
+                else if (midKey > key) high = mid - 1;
+                else return new Item(firstItem + mid);
+            }
+            return null;
+        }
+
+        /**
+         * Finds an item whose name or one of its aliases equals the given text
+         * @param name The name to look up
+         * @return The item, or null if not present
+         */
+        public Item findByName(String name) {
+            int ref = findString(name);
+            if (ref < 0) return null;
+            for (int i = 0; i < size; i++) {
+                Item item = new Item(firstItem + i);
+                if (item.nameRef() == ref || item.hasAliasRef(ref)) return item;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Flyweight view of a single item record; fields are read from the bank on every call
+     */
+    public final class Item {
+        private final int pos;
+
+        private Item(int index) {
+            this.pos = itemsOffset + index * ITEM_SIZE;
+            int start = buffer.getInt(pos + 16);
+            if (start < 0 || (long) start + getAliasCount() > aliasCount) {
+                throw new IndexOutOfBoundsException("Corrupt item bank: aliases of item " + index + " out of bounds");
+            }
+        }
+
+        public int getKey() {
+            return buffer.getInt(pos);
+        }
+
+        int nameRef() {
+            return buffer.getInt(pos + 4);
+        }
+
+        public String getName() {
+            return string(nameRef());
+        }
+
+        public String getDescription() {
+            return string(buffer.getInt(pos + 8));
+        }
+
+        public String getAsset() {
+            return string(buffer.getInt(pos + 12));
+        }
+
+        public int getAliasCount() {
+            return buffer.getShort(pos + 20) & 0xFFFF;
+        }
+
+        public String getAlias(int index) {
+            if (index < 0 || index >= getAliasCount()) {
+                throw new IndexOutOfBoundsException("Alias " + index);
+            }
+            return string(buffer.getInt(aliasOffset + (buffer.getInt(pos + 16) + index) * 4));
+        }
+
+        boolean hasAliasRef(int ref) {
+            int start = buffer.getInt(pos + 16);
+            int count = getAliasCount();
+            for (int i = 0; i < count; i++) {
+                if (buffer.getInt(aliasOffset + (start + i) * 4) == ref) return true;
+            }
+            return false;
+        }
+
+        public int getDimension() {
+            return buffer.getShort(pos + 22) & 0xFFFF;
+        }
+
+        public double getParam(int index) {
+            if (index < 0 || index > 1) throw new IndexOutOfBoundsException("Param " + index);
+            return buffer.getDouble(pos + 24 + index * 8);
+        }
+    }
+}
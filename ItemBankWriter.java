@@ -0,0 +1,346 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * ItemBankWriter - Builds binary item banks read by {@link ItemBank}
+ * Content can be added programmatically or loaded from a tab-separated content pack.
+ *
+ * Usage: java ItemBankWriter output.bank [content.tsv]
+ * Without a TSV file the built-in Shapeville content is written.
+ */
+public class ItemBankWriter {
+    // Task sections used by the application
+    public static final String SHAPES_TASK = "shapes";
+    public static final String COMPOSITE_TASK = "composite";
+    public static final String SECTOR_TASK = "sector";
+
+    private static final Comparator<byte[]> UTF8_ORDER = (a, b) -> {
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (cmp != 0) return cmp;
+        }
+        return a.length - b.length;
+    };
+
+    private final Map<String, List<Entry>> tasks = new TreeMap<>();
+
+    /**
+     * Adds an item to a task section
+     * @param task The task section name
+     * @param key Unique key within the task (items are ordered by key)
+     * @param name Display name
+     * @param description Description text, may be null
+     * @param dimension Dimension (2 or 3 for shapes, 0 otherwise)
+     * @param asset Asset path, may be null
+     * @param aliases Alternative accepted names
+     * @param param0 First numeric parameter (e.g. radius or area)
+     * @param param1 Second numeric parameter (e.g. angle)
+     * @return This writer
+     */
+    public ItemBankWriter add(String task, int key, String name, String description, int dimension,
+                              String asset, List<String> aliases, double param0, double param1) {
+        if (dimension < 0 || dimension > 0xFFFF) throw new IllegalArgumentException("Bad dimension: " + dimension);
+        if (aliases.size() > 0xFFFF) throw new IllegalArgumentException("Too many aliases for " + name);
+        tasks.computeIfAbsent(task, t -> new ArrayList<>())
+                .add(new Entry(key, name, description, dimension, asset, aliases, param0, param1));
+        return this;
+    }
+
+    /**
+     * Encodes the bank into a heap buffer
+     * @return The bank bytes, positioned at zero
+     */
+    public ByteBuffer toByteBuffer() {
+        // Collect and sort all distinct strings by their UTF-8 bytes
+        Map<String, byte[]> encoded = new HashMap<>();
+        for (Map.Entry<String, List<Entry>> task : tasks.entrySet()) {
+            intern(encoded, task.getKey());
+            for (Entry e : task.getValue()) {
+                intern(encoded, e.name);
+                intern(encoded, e.description);
+                intern(encoded, e.asset);
+                for (String alias : e.aliases) intern(encoded, alias);
+            }
+        }
+        List<byte[]> strings = new ArrayList<>(encoded.values());
+        strings.sort(UTF8_ORDER);
+        Map<String, Integer> refs = new HashMap<>();
+        long stringBytes = 0;
+        for (int i = 0; i < strings.size(); i++) {
+            refs.put(new String(strings.get(i), StandardCharsets.UTF_8), i);
+            stringBytes += 2 + strings.get(i).length;
+        }
+
+        int itemCount = 0;
+        int aliasCount = 0;
+        for (List<Entry> entries : tasks.values()) {
+            entries.sort(Comparator.comparingInt(e -> e.key));
+            for (int i = 1; i < entries.size(); i++) {
+                if (entries.get(i).key == entries.get(i - 1).key) {
+                    throw new IllegalStateException("Duplicate key " + entries.get(i).key);
+                }
+            }
+            itemCount += entries.size();
+            for (Entry e : entries) aliasCount += e.aliases.size();
+        }
+
+        long stringIndexOffset = ItemBank.HEADER_SIZE;
+        long stringDataOffset = stringIndexOffset + 4L * strings.size();
+        long taskIndexOffset = stringDataOffset + stringBytes;
+        long itemsOffset = taskIndexOffset + (long) ItemBank.TASK_SIZE * tasks.size();
+        long aliasOffset = itemsOffset + (long) ItemBank.ITEM_SIZE * itemCount;
+        long total = aliasOffset + 4L * aliasCount;
+        if (total > Integer.MAX_VALUE) throw new IllegalStateException("Item bank exceeds 2 GB");
+
+        ByteBuffer out = ByteBuffer.allocate((int) total);
+        out.putInt(ItemBank.MAGIC).putShort(ItemBank.VERSION).putShort((short) 0);
+        out.putInt(strings.size()).putInt((int) stringIndexOffset).putInt((int) stringDataOffset);
+        out.putInt(tasks.size()).putInt((int) taskIndexOffset);
+        out.putInt(itemCount).putInt((int) itemsOffset);
+        out.putInt(aliasCount).putInt((int) aliasOffset);
+        out.putInt(0);
+
+        int dataPos = (int) stringDataOffset;
+        for (byte[] s : strings) {
+            out.putInt(dataPos);
+            dataPos += 2 + s.length;
+        }
+        for (byte[] s : strings) {
+            out.putShort((short) s.length).put(s);
+        }
+
+        // Task names are interned in sorted order, so TreeMap order equals reference order
+        int firstItem = 0;
+        for (Map.Entry<String, List<Entry>> task : tasks.entrySet()) {
+            out.putInt(refs.get(task.getKey())).putInt(firstItem).putInt(task.getValue().size());
+            firstItem += task.getValue().size();
+        }
+
+        int aliasStart = 0;
+        for (List<Entry> entries : tasks.values()) {
+            for (Entry e : entries) {
+                out.putInt(e.key);
+                out.putInt(ref(refs, e.name));
+                out.putInt(ref(refs, e.description));
+                out.putInt(ref(refs, e.asset));
+                out.putInt(aliasStart);
+                out.putShort((short) e.aliases.size());
+                out.putShort((short) e.dimension);
+                out.putDouble(e.param0);
+                out.putDouble(e.param1);
+                aliasStart += e.aliases.size();
+            }
+        }
+        for (List<Entry> entries : tasks.values()) {
+            for (Entry e : entries) {
+                for (String alias : e.aliases) out.putInt(refs.get(alias));
+            }
+        }
+
+        out.flip();
+        return out;
+    }
+
+    /**
+     * Writes the bank to a file, replacing any existing file
+     * @param file Target file
+     * @throws IOException If writing fails
+     */
+    public void write(Path file) throws IOException {
+        ByteBuffer bytes = toByteBuffer();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Builds an in-memory bank from the added content
+     * @return The bank
+     */
+    public ItemBank toBank() {
+        try {
+            return ItemBank.wrap(toByteBuffer());
+        } catch (IOException e) {
+            throw new IllegalStateException("Writer produced an unreadable bank", e);
+        }
+    }
+
+    private static void intern(Map<String, byte[]> encoded, String s) {
+        if (s == null || encoded.containsKey(s)) return;
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) throw new IllegalArgumentException("String too long for item bank");
+        encoded.put(s, bytes);
+    }
+
+    private static int ref(Map<String, Integer> refs, String s) {
+        return s == null ? -1 : refs.get(s);
+    }
+
+    /**
+     * Reads a tab-separated content pack. Columns:
+     * task, key, name, description, dimension, asset, aliases (comma separated), param0, param1.
+     * Blank lines and lines starting with '#' are ignored; trailing columns may be omitted.
+     * @param file The TSV file
+     * @return This writer
+     * @throws IOException If the file cannot be read or a line is malformed
+     */
+    public ItemBankWriter addTsv(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty() || line.startsWith("#")) continue;
+                String[] cols = line.split("\t", -1);
+                if (cols.length < 3) throw new IOException(file + ":" + lineNumber + ": expected at least 3 columns");
+                try {
+                    List<String> aliases = new ArrayList<>();
+                    if (cols.length > 6 && !cols[6].isEmpty()) {
+                        for (String alias : cols[6].split(",")) aliases.add(alias.trim());
+                    }
+                    add(cols[0], Integer.parseInt(cols[1].trim()), cols[2],
+                            column(cols, 3), cols.length > 4 && !cols[4].isEmpty() ? Integer.parseInt(cols[4].trim()) : 0,
+                            column(cols, 5), aliases,
+                            cols.length > 7 && !cols[7].isEmpty() ? Double.parseDouble(cols[7].trim()) : 0,
+                            cols.length > 8 && !cols[8].isEmpty() ? Double.parseDouble(cols[8].trim()) : 0);
+                } catch (NumberFormatException e) {
+                    throw new IOException(file + ":" + lineNumber + ": " + e.getMessage());
+                }
+            }
+        }
+        return this;
+    }
+
+    private static String column(String[] cols, int index) {
+        return cols.length > index && !cols[index].isEmpty() ? cols[index] : null;
+    }
+
+    /**
+     * Creates a writer holding the content that ships with the application
+     * @return The populated writer
+     */
+    public static ItemBankWriter builtIn() {
+        ItemBankWriter w = new ItemBankWriter();
+        List<String> none = new ArrayList<>();
+
+        // 2D shapes: name, description, then any other accepted names
+        String[][] shapes2D = {
+                {"circle", "A round shape with no corners"},
+                {"rectangle", "A shape with 4 sides and 4 right angles, opposite sides are equal"},
+                {"triangle", "A shape with 3 sides and 3 angles"},
+                {"oval", "An elongated round shape", "ellipse"},
+                {"octagon", "A shape with 8 sides"},
+                {"square", "A shape with 4 equal sides and 4 right angles"},
+                {"heptagon", "A shape with 7 sides"},
+                {"rhombus", "A shape with 4 equal sides, opposite angles equal", "diamond"},
+                {"pentagon", "A shape with 5 sides"},
+                {"hexagon", "A shape with 6 sides"},
+                {"kite", "A shape with two distinct pairs of adjacent sides equal"}
+        };
+        // 3D shapes
+        String[][] shapes3D = {
+                {"cube", "A 3D shape with 6 equal square faces"},
+                {"cuboid", "A 3D shape with 6 rectangular faces", "rectangular prism"},
+                {"cylinder", "A 3D shape with two circular bases and a curved surface"},
+                {"sphere", "A perfectly round 3D shape like a ball"},
+                {"cone", "A 3D shape with a circular base and a pointed top"},
+                {"triangular prism", "A 3D shape with triangular ends and rectangular faces"},
+                {"square - based pyramid", "A 3D shape with a square base and triangular faces meeting at a point",
+                        "square-based pyramid", "square based pyramid"},
+                {"tetrahedron", "A 3D shape with 4 triangular faces", "triangular pyramid"}
+        };
+        int key = 0;
+        for (String[] s : shapes2D) {
+            w.add(SHAPES_TASK, key++, s[0], s[1], 2, "image2D/" + s[0] + ".png", aliases(s), 0, 0);
+        }
+        for (String[] s : shapes3D) {
+            w.add(SHAPES_TASK, key++, s[0], s[1], 3, "image3D/" + s[0] + ".png", aliases(s), 0, 0);
+        }
+
+        // Composite figures: param0 = area
+        double[][] composites = {
+                {2, 20 * 10 + 11 * 11},       // Rectangle + Square combination
+                {3, 16 * 16 + 18 * 19},       // Rectangle + Extension part
+                {4, 24 * 6 + 12 * 12},        // Multiple rectangle combination
+                {5, 4 * 3 + (4 * 3) / 2.0},   // Rectangle + Triangle
+                {8, 60 * 36 + 36 * 36},       // Large rectangle minus small rectangle
+                {9, 11 * 10 + 8 * 8}          // Rectangle + Square
+        };
+        for (double[] c : composites) {
+            int id = (int) c[0];
+            w.add(COMPOSITE_TASK, id, "Figure " + id, null, 0, "/images1/shape" + id + ".png", none, c[1], 0);
+        }
+
+        // Sectors: param0 = radius, param1 = angle in degrees
+        double[][] sectors = {
+                {1, 8, 90}, {2, 18, 130}, {3, 19, 240}, {4, 22, 110},
+                {5, 3.5, 100}, {6, 8, 270}, {7, 12, 280}, {8, 15, 250}
+        };
+        for (double[] s : sectors) {
+            int id = (int) s[0];
+            w.add(SECTOR_TASK, id, "Sector " + id, null, 0, "/images2/sector" + id + ".png", none, s[1], s[2]);
+        }
+        return w;
+    }
+
+    private static List<String> aliases(String[] shape) {
+        return new ArrayList<>(Arrays.asList(shape).subList(2, shape.length));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java ItemBankWriter output.bank [content.tsv]");
+            System.exit(1);
+        }
+        ItemBankWriter writer = args.length > 1 ? new ItemBankWriter().addTsv(Paths.get(args[1])) : builtIn();
+        writer.write(Paths.get(args[0]));
+        try (ItemBank bank = ItemBank.open(Paths.get(args[0]))) {
+            System.out.println("Wrote " + bank.getItemCount() + " items in " + bank.getTaskCount()
+                    + " tasks (" + bank.getStringCount() + " strings) to " + args[0]);
+        }
+    }
+
+    /**
+     * Pending item before encoding
+     */
+    private static class Entry {
+        final int key;
+        final String name;
+        final String description;
+        final int dimension;
+        final String asset;
+        final List<String> aliases;
+        final double param0;
+        final double param1;
+
+        Entry(int key, String name, String description, int dimension, String asset,
+              List<String> aliases, double param0, double param1) {
+            this.key = key;
+            this.name = name;
+            this.description = description;
+            this.dimension = dimension;
+            this.asset = asset;
+            this.aliases = aliases;
+            this.param0 = param0;
+            this.param1 = param1;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram - Fixed-size, lock-free histogram of non-negative values
+ *
+ * Values are counted in log-linear buckets: 8 sub-buckets per power of two, so
+ * any reported percentile is within 12.5% of the true value. Memory use is fixed
+ * (488 counters) regardless of how many values are recorded, and recording is a
+ * single atomic increment, so many threads can record concurrently.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value
+     * @param value The value (negative values are recorded as 0)
+     */
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts.incrementAndGet(bucketOf(value));
+        total.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * @return Number of recorded values
+     */
+    public long count() {
+        return total.get();
+    }
+
+    /**
+     * @return Mean of the recorded values, or 0 if empty
+     */
+    public double mean() {
+        long n = total.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * @return Largest recorded value
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Estimates a percentile
+     * @param percentile Percentile between 0 and 100
+     * @return Upper bound of the bucket holding the percentile, or 0 if empty
+     */
+    public long percentile(double percentile) {
+        long n = total.get();
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(n * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Counts values no larger than a bound (exact at bucket boundaries)
+     * @param value The bound
+     * @return Number of recorded values in buckets ending at or below the bound
+     */
+    public long countAtOrBelow(long value) {
+        long seen = 0;
+        for (int i = 0; i < BUCKETS && upperBound(i) <= value; i++) {
+            seen += counts.get(i);
+        }
+        return seen;
+    }
+
+    /**
+     * Count of values in a bucket
+     * @param bucket Bucket index
+     * @return The count
+     */
+    public long bucketCount(int bucket) {
+        return counts.get(bucket);
+    }
+
+    /**
+     * @return Number of buckets
+     */
+    public static int bucketCountTotal() {
+        return BUCKETS;
+    }
+
+    /**
+     * Adds every count of another histogram into this one
+     * @param other The histogram to merge
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = other.counts.get(i);
+            if (c != 0) counts.addAndGet(i, c);
+        }
+        total.addAndGet(other.total.get());
+        sum.addAndGet(other.sum.get());
+        max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+    /**
+     * Clears all counts
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        total.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Bucket index of a value
+     * @param value A non-negative value
+     * @return The bucket index
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_COUNT) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    /**
+     * Largest value that falls into a bucket
+     * @param bucket The bucket index
+     * @return The inclusive upper bound
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_COUNT) return bucket;
+        int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+        long sub = bucket % SUB_COUNT;
+        long width = 1L << (exponent - SUB_BITS);
+        return ((SUB_COUNT + sub) << (exponent - SUB_BITS)) + width - 1;
+    }
+
+    /**
+     * Formats count, mean and the usual percentiles
+     * @param unit Unit label appended to each value
+     * @return A one-line summary
+     */
+    public String summary(String unit) {
+        return String.format(Locale.ROOT, "n=%d mean=%.1f%s p50=%d%s p90=%d%s p99=%d%s p99.9=%d%s max=%d%s",
+                count(), mean(), unit, percentile(50), unit, percentile(90), unit,
+                percentile(99), unit, percentile(99.9), unit, max(), unit);
+    }
+
+    /**
+     * Formats the same figures as a JSON object
+     * @return JSON text
+     */
+    public String toJson() {
+        return String.format(Locale.ROOT,
+                "{\"count\":%d,\"mean\":%.1f,\"p50\":%d,\"p90\":%d,\"p99\":%d,\"p999\":%d,\"max\":%d}",
+                count(), mean(), percentile(50), percentile(90), percentile(99), percentile(99.9), max());
+    }
+}
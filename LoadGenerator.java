@@ -0,0 +1,637 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LoadGenerator - Drives the task engines with simulated students
+ *
+ * Each simulated student runs on its own virtual thread (platform threads on JDKs
+ * without them) and loops until the run ends: pick a task, fetch a question, think,
+ * answer correctly with the configured probability, and retry until the question
+ * is finished. Students work out the correct answer from the question itself, so a
+ * correct answer graded wrong is reported as a grading mismatch. A student who is
+ * still thinking when a timed task's limit runs out lets the question time out.
+ *
+ * With --virtual the students run on a {@link TaskClock.Virtual} in a single thread
+ * instead: think times and countdowns take no real time, so hours of classroom use
+ * (including every timeout) are simulated in seconds, identically for a given seed.
+ *
+ * Usage: java LoadGenerator [options]
+ * <pre>
+ * --students N      simulated students (default 500)
+ * --duration S      run time in seconds (default 30; simulated time with --virtual)
+ * --accuracy P      chance each attempt is correct, 0-1 (default 0.7)
+ * --think DIST      think time before each answer (default exp:2000):
+ *                   fixed:MS, uniform:MIN-MAX, exp:MEAN or normal:MEAN,SD
+ * --server H:P      drive a running ShapevilleServer instead of an in-process one
+ * --connections N   pipelined connections shared by the students (default 8)
+ * --seed S          random seed (default: time based)
+ * --virtual         simulate time instead of waiting for it
+ * --json FILE       also write the results as JSON
+ * </pre>
+ */
+public class LoadGenerator {
+    private static final String[] TASKS = {
+            TaskEngine.SHAPES, TaskEngine.ANGLES, TaskEngine.AREA,
+            TaskEngine.CIRCLE, TaskEngine.COMPOSITE, TaskEngine.SECTOR
+    };
+    // Latency bounds for the distribution table, in microseconds
+    private static final long[] TABLE_BOUNDS = {100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000,
+            50_000, 100_000, 250_000, 1_000_000};
+
+    private final Target target;
+    private final TaskEngine engine;
+    private final ItemBank bank;
+    private final int students;
+    private final double accuracy;
+    private final ThinkTime thinkTime;
+    private final long seed;
+
+    private final LatencyHistogram questionLatency = new LatencyHistogram();
+    private final LatencyHistogram answerLatency = new LatencyHistogram();
+    private final LongAdder questions = new LongAdder();
+    private final LongAdder correct = new LongAdder();
+    private final LongAdder wrong = new LongAdder();
+    private final LongAdder mismatches = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private long simulatedMillis;
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a load generator
+     * @param target Where questions and answers go
+     * @param bank The content bank, used by students to work out answers
+     * @param students Number of simulated students
+     * @param accuracy Chance each attempt is correct
+     * @param thinkTime Think time before each answer
+     * @param seed Random seed
+     */
+    public LoadGenerator(Target target, ItemBank bank, int students, double accuracy, ThinkTime thinkTime, long seed) {
+        this.target = target;
+        this.bank = bank;
+        this.engine = new TaskEngine(bank);
+        this.students = students;
+        this.accuracy = accuracy;
+        this.thinkTime = thinkTime;
+        this.seed = seed;
+    }
+
+    /**
+     * Runs the simulated students until the duration has passed
+     * @param durationMillis Run time
+     * @return Elapsed wall time in milliseconds
+     * @throws InterruptedException If interrupted while waiting for the students
+     */
+    public long run(long durationMillis) throws InterruptedException {
+        ExecutorService executor = ShapevilleServer.newVirtualThreadExecutor("simulated-student", students);
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        for (int i = 0; i < students; i++) {
+            String studentId = "sim" + i;
+            Random random = new Random(seed * 31 + i);
+            executor.execute(() -> simulate(studentId, random, deadline));
+        }
+        executor.shutdown();
+        long reportEvery = TimeUnit.SECONDS.toNanos(5);
+        long lastOps = 0;
+        while (!executor.awaitTermination(reportEvery, TimeUnit.NANOSECONDS)) {
+            long ops = questionLatency.count() + answerLatency.count();
+            System.out.printf(Locale.ROOT, "%5.0fs  %8.0f req/s  questions=%d errors=%d%n",
+                    (System.nanoTime() - start) / 1e9, (ops - lastOps) * 1e9 / reportEvery,
+                    questions.sum(), errorCount());
+            lastOps = ops;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * One simulated student's session
+     */
+    private void simulate(String studentId, Random random, long deadline) {
+        try {
+            // Stagger the start so the students do not arrive in lockstep
+            sleepUntil(Math.min(deadline, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(random.nextInt(1000))));
+            while (System.nanoTime() < deadline) {
+                String task = TASKS[random.nextInt(TASKS.length)];
+                long started = System.nanoTime();
+                ShapevilleServer.IssuedQuestion issued;
+                try {
+                    issued = target.question(studentId, task);
+                } catch (Exception e) {
+                    error("question", e);
+                    continue;
+                } finally {
+                    questionLatency.record((System.nanoTime() - started) / 1000);
+                }
+                questions.increment();
+                String answer = solve(issued.getQuestion());
+                long asked = System.nanoTime();
+                long limit = TimeUnit.SECONDS.toNanos(TaskEngine.timeLimitSeconds(task));
+                boolean finished = false;
+                while (!finished && System.nanoTime() < deadline) {
+                    long think = thinkTime.next(random);
+                    long answerAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(think);
+                    if (limit > 0 && answerAt > asked + limit) {
+                        sleepUntil(Math.min(deadline, asked + limit));
+                        if (System.nanoTime() >= deadline) break;
+                        timeOut(studentId, issued.getId(), TimeUnit.NANOSECONDS.toMillis(limit));
+                        break;
+                    }
+                    sleepUntil(Math.min(deadline, answerAt));
+                    boolean answerCorrectly = random.nextDouble() < accuracy;
+                    String given = answerCorrectly ? answer : wrongAnswer(answer);
+                    finished = answer(studentId, issued.getId(), given, answerCorrectly,
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - asked));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            error("student", e);
+        }
+    }
+
+    /**
+     * Sends an answer and counts the outcome
+     * @return True if the question is finished (or failed)
+     */
+    private boolean answer(String studentId, long questionId, String given, boolean answerCorrectly,
+                           long latencyMillis) {
+        long started = System.nanoTime();
+        try {
+            ShapevilleServer.AnswerResult result = target.answer(studentId, questionId, given, latencyMillis);
+            if (result.isCorrect()) correct.increment();
+            else wrong.increment();
+            if (result.isCorrect() != answerCorrectly) mismatches.increment();
+            return result.isFinished();
+        } catch (Exception e) {
+            error("answer", e);
+            return true;
+        } finally {
+            answerLatency.record((System.nanoTime() - started) / 1000);
+        }
+    }
+
+    /**
+     * Lets a question run out of time and counts the outcome
+     */
+    private void timeOut(String studentId, long questionId, long latencyMillis) {
+        long started = System.nanoTime();
+        try {
+            target.timeOut(studentId, questionId, latencyMillis);
+            timeouts.increment();
+        } catch (Exception e) {
+            error("timeout", e);
+        } finally {
+            answerLatency.record((System.nanoTime() - started) / 1000);
+        }
+    }
+
+    /**
+     * Simulates the students on a virtual clock in the calling thread
+     * @param durationMillis Simulated run time
+     * @return Elapsed wall time in milliseconds
+     */
+    public long runVirtual(long durationMillis) {
+        TaskClock.Virtual clock = new TaskClock.Virtual();
+        long start = System.nanoTime();
+        for (int i = 0; i < students; i++) {
+            new VirtualStudent("sim" + i, new Random(seed * 31 + i), clock, durationMillis).start();
+        }
+        clock.advanceTo(durationMillis);
+        simulatedMillis = durationMillis;
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * A simulated student driven by virtual-clock callbacks rather than a thread
+     */
+    private class VirtualStudent {
+        private final String studentId;
+        private final Random random;
+        private final TaskClock clock;
+        private final long end;
+        private ShapevilleServer.IssuedQuestion issued;
+        private String answer;
+        private long askedAt;
+        private TaskClock.Task pendingAnswer;
+        private TaskClock.Task countdown;
+
+        VirtualStudent(String studentId, Random random, TaskClock clock, long end) {
+            this.studentId = studentId;
+            this.random = random;
+            this.clock = clock;
+            this.end = end;
+        }
+
+        void start() {
+            clock.schedule(random.nextInt(1000), this::ask);
+        }
+
+        private void ask() {
+            if (clock.now() >= end) return;
+            String task = TASKS[random.nextInt(TASKS.length)];
+            long started = System.nanoTime();
+            try {
+                issued = target.question(studentId, task);
+            } catch (Exception e) {
+                error("question", e);
+                clock.schedule(1000, this::ask);
+                return;
+            } finally {
+                questionLatency.record((System.nanoTime() - started) / 1000);
+            }
+            questions.increment();
+            answer = solve(issued.getQuestion());
+            askedAt = clock.now();
+            int limit = TaskEngine.timeLimitSeconds(task);
+            countdown = limit > 0 ? clock.schedule(TimeUnit.SECONDS.toMillis(limit), this::expire) : null;
+            think();
+        }
+
+        private void think() {
+            pendingAnswer = clock.schedule(thinkTime.next(random), this::answer);
+        }
+
+        private void answer() {
+            boolean answerCorrectly = random.nextDouble() < accuracy;
+            String given = answerCorrectly ? answer : wrongAnswer(answer);
+            if (LoadGenerator.this.answer(studentId, issued.getId(), given, answerCorrectly, clock.now() - askedAt)) {
+                if (countdown != null) countdown.cancel();
+                ask();
+            } else {
+                think();
+            }
+        }
+
+        private void expire() {
+            pendingAnswer.cancel();
+            timeOut(studentId, issued.getId(), clock.now() - askedAt);
+            ask();
+        }
+    }
+
+    /**
+     * Works out the correct answer to a question from what the student is shown
+     * @param question The question
+     * @return The answer as a student would type it
+     */
+    String solve(TaskEngine.Question question) {
+        switch (question.getTaskId()) {
+            case TaskEngine.SHAPES:
+                return bank.task(ItemBankWriter.SHAPES_TASK).findByKey((int) question.getDim(0)).getName();
+            case TaskEngine.ANGLES:
+                return TaskEngine.angleType((int) question.getDim(0));
+            case TaskEngine.AREA: {
+                double a = question.getDim(0), b = question.getDim(1), h = question.getDim(2);
+                switch (question.getItem()) {
+                    case "Triangle": return format(a * b / 2.0);
+                    case "Trapezium": return format((a + b) / 2.0 * h);
+                    default: return format(a * b);
+                }
+            }
+            case TaskEngine.CIRCLE:
+                return format(TaskEngine.circleAnswer(question.getItem(), question.getDim(0)));
+            case TaskEngine.COMPOSITE:
+                return format(engine.compositeArea(Integer.parseInt(question.getItem())));
+            case TaskEngine.SECTOR:
+                return format(TaskEngine.sectorArea(question.getDim(0), question.getDim(1)));
+            default:
+                throw new IllegalArgumentException("Unknown task: " + question.getTaskId());
+        }
+    }
+
+    private static String wrongAnswer(String answer) {
+        try {
+            return format(Double.parseDouble(answer) + 1.5);
+        } catch (NumberFormatException e) {
+            return "not " + answer;
+        }
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.4f", value);
+    }
+
+    private static void sleepUntil(long nanoTime) throws InterruptedException {
+        long remaining = nanoTime - System.nanoTime();
+        if (remaining > 0) TimeUnit.NANOSECONDS.sleep(remaining);
+    }
+
+    private void error(String operation, Exception e) {
+        Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+        errors.computeIfAbsent(operation + ": " + cause.getClass().getSimpleName(), k -> new LongAdder()).increment();
+    }
+
+    private long errorCount() {
+        long total = 0;
+        for (LongAdder count : errors.values()) total += count.sum();
+        return total;
+    }
+
+    /**
+     * Prints throughput, error rates and latency histograms
+     * @param elapsedMillis Wall time of the run
+     */
+    public void printReport(long elapsedMillis) {
+        long requests = questionLatency.count() + answerLatency.count();
+        System.out.println();
+        System.out.printf(Locale.ROOT, "Students: %d, accuracy %.2f, think time %s, target %s%n",
+                students, accuracy, thinkTime, target);
+        System.out.printf(Locale.ROOT, "Elapsed: %.1f s, requests: %d, throughput: %.0f req/s%n",
+                elapsedMillis / 1000.0, requests, requests * 1000.0 / Math.max(1, elapsedMillis));
+        if (simulatedMillis > 0) {
+            System.out.printf(Locale.ROOT, "Simulated: %.1f h of virtual time (%.0fx real time)%n",
+                    simulatedMillis / 3_600_000.0, (double) simulatedMillis / Math.max(1, elapsedMillis));
+        }
+        System.out.printf(Locale.ROOT, "Questions: %d, answers: %d correct / %d wrong, timeouts: %d, grading mismatches: %d%n",
+                questions.sum(), correct.sum(), wrong.sum(), timeouts.sum(), mismatches.sum());
+        System.out.printf(Locale.ROOT, "Errors: %d (%.3f%%)%n", errorCount(), 100.0 * errorCount() / Math.max(1, requests));
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(errors).entrySet()) {
+            System.out.println("  " + entry.getKey() + ": " + entry.getValue().sum());
+        }
+        System.out.println("Question latency: " + questionLatency.summary("us"));
+        System.out.println("Answer latency:   " + answerLatency.summary("us"));
+        System.out.println();
+        System.out.println("  latency <=     questions    answers");
+        for (long bound : TABLE_BOUNDS) {
+            System.out.printf(Locale.ROOT, "  %9s  %10.2f%% %10.2f%%%n", formatMicros(bound),
+                    percentBelow(questionLatency, bound), percentBelow(answerLatency, bound));
+        }
+    }
+
+    /**
+     * Writes the results as JSON
+     * @param file The output file
+     * @param elapsedMillis Wall time of the run
+     * @throws IOException If the file cannot be written
+     */
+    public void writeJson(String file, long elapsedMillis) throws IOException {
+        long requests = questionLatency.count() + answerLatency.count();
+        StringBuilder json = new StringBuilder(512)
+                .append("{\"students\":").append(students)
+                .append(",\"accuracy\":").append(accuracy)
+                .append(",\"thinkTime\":").append(ReportExporter.jsonString(thinkTime.toString()))
+                .append(",\"target\":").append(ReportExporter.jsonString(target.toString()))
+                .append(",\"elapsedMs\":").append(elapsedMillis)
+                .append(",\"simulatedMs\":").append(simulatedMillis)
+                .append(",\"requests\":").append(requests)
+                .append(",\"throughput\":").append(String.format(Locale.ROOT, "%.1f",
+                        requests * 1000.0 / Math.max(1, elapsedMillis)))
+                .append(",\"questions\":").append(questions.sum())
+                .append(",\"correct\":").append(correct.sum())
+                .append(",\"wrong\":").append(wrong.sum())
+                .append(",\"timeouts\":").append(timeouts.sum())
+                .append(",\"mismatches\":").append(mismatches.sum())
+                .append(",\"errors\":{");
+        boolean first = true;
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(errors).entrySet()) {
+            json.append(first ? "" : ",").append(ReportExporter.jsonString(entry.getKey()))
+                    .append(':').append(entry.getValue().sum());
+            first = false;
+        }
+        json.append("},\"questionLatencyMicros\":").append(questionLatency.toJson())
+                .append(",\"answerLatencyMicros\":").append(answerLatency.toJson())
+                .append("}\n");
+        try (Writer out = Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8)) {
+            out.write(json.toString());
+        }
+    }
+
+    private static double percentBelow(LatencyHistogram histogram, long bound) {
+        return histogram.count() == 0 ? 0 : 100.0 * histogram.countAtOrBelow(bound) / histogram.count();
+    }
+
+    private static String formatMicros(long micros) {
+        if (micros >= 1_000_000) return (micros / 1_000_000) + " s";
+        if (micros >= 1_000) return String.format(Locale.ROOT, "%.1f ms", micros / 1000.0).replace(".0 ", " ");
+        return micros + " us";
+    }
+
+    /**
+     * Where a simulated student sends its requests
+     */
+    public interface Target extends AutoCloseable {
+        ShapevilleServer.IssuedQuestion question(String studentId, String taskId) throws Exception;
+
+        ShapevilleServer.AnswerResult answer(String studentId, long questionId, String answer, long latencyMillis)
+                throws Exception;
+
+        ShapevilleServer.AnswerResult timeOut(String studentId, long questionId, long latencyMillis) throws Exception;
+
+        @Override
+        void close();
+    }
+
+    /**
+     * Calls a server's engine methods directly, without HTTP
+     */
+    static class InProcessTarget implements Target {
+        private final ShapevilleServer server;
+
+        InProcessTarget(ShapevilleServer server) {
+            this.server = server;
+        }
+
+        @Override
+        public ShapevilleServer.IssuedQuestion question(String studentId, String taskId) {
+            return server.nextQuestion(studentId, taskId, null);
+        }
+
+        @Override
+        public ShapevilleServer.AnswerResult answer(String studentId, long questionId, String answer,
+                                                    long latencyMillis) {
+            return server.submitAnswer(studentId, questionId, answer, latencyMillis);
+        }
+
+        @Override
+        public ShapevilleServer.AnswerResult timeOut(String studentId, long questionId, long latencyMillis) {
+            return server.timeOut(studentId, questionId, latencyMillis);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return "in-process";
+        }
+    }
+
+    /**
+     * Sends requests over pipelined connections shared by all students
+     */
+    static class HttpTarget implements Target {
+        private final String address;
+        private final ShapevilleClient[] clients;
+
+        HttpTarget(String address, int connections) {
+            this.address = address;
+            clients = new ShapevilleClient[Math.max(1, connections)];
+            for (int i = 0; i < clients.length; i++) {
+                clients[i] = ShapevilleClient.connect(address, "sim");
+            }
+        }
+
+        private ShapevilleClient client(String studentId) {
+            return clients[(studentId.hashCode() & Integer.MAX_VALUE) % clients.length];
+        }
+
+        @Override
+        public ShapevilleServer.IssuedQuestion question(String studentId, String taskId) throws Exception {
+            return client(studentId).question(studentId, taskId, null).get(30, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public ShapevilleServer.AnswerResult answer(String studentId, long questionId, String answer,
+                                                    long latencyMillis) throws Exception {
+            return client(studentId).answer(studentId, questionId, answer, latencyMillis).get(30, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public ShapevilleServer.AnswerResult timeOut(String studentId, long questionId, long latencyMillis)
+                throws Exception {
+            return client(studentId).timeOut(studentId, questionId, latencyMillis).get(30, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void close() {
+            for (ShapevilleClient client : clients) client.close();
+        }
+
+        @Override
+        public String toString() {
+            return "http://" + address + " (" + clients.length + " connections)";
+        }
+    }
+
+    /**
+     * Think time distribution in milliseconds
+     */
+    static class ThinkTime {
+        private final String spec;
+        private final String kind;
+        private final double a;
+        private final double b;
+
+        private ThinkTime(String spec, String kind, double a, double b) {
+            this.spec = spec;
+            this.kind = kind;
+            this.a = a;
+            this.b = b;
+        }
+
+        /**
+         * Parses fixed:MS, uniform:MIN-MAX, exp:MEAN or normal:MEAN,SD
+         * @param spec The distribution
+         * @return The think time
+         */
+        static ThinkTime parse(String spec) {
+            int colon = spec.indexOf(':');
+            String kind = colon < 0 ? spec : spec.substring(0, colon);
+            String[] args = colon < 0 ? new String[0] : spec.substring(colon + 1).split("[-,]");
+            switch (kind) {
+                case "fixed":
+                case "exp":
+                    return new ThinkTime(spec, kind, Double.parseDouble(args[0]), 0);
+                case "uniform":
+                case "normal":
+                    return new ThinkTime(spec, kind, Double.parseDouble(args[0]), Double.parseDouble(args[1]));
+                default:
+                    throw new IllegalArgumentException("Unknown think time distribution: " + spec);
+            }
+        }
+
+        long next(Random random) {
+            double millis;
+            switch (kind) {
+                case "fixed": millis = a; break;
+                case "uniform": millis = a + random.nextDouble() * (b - a); break;
+                case "exp": millis = -a * Math.log(1 - random.nextDouble()); break;
+                default: millis = a + random.nextGaussian() * b;
+            }
+            return Math.max(0, Math.round(millis));
+        }
+
+        @Override
+        public String toString() {
+            return spec;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int students = 500;
+        long duration = 30;
+        double accuracy = 0.7;
+        String think = "exp:2000";
+        String server = null;
+        int connections = 8;
+        long seed = System.nanoTime();
+        String json = null;
+        boolean virtual = false;
+        for (int i = 0; i < args.length; i += 2) {
+            if (args[i].equals("--virtual")) {
+                virtual = true;
+                i--;
+                continue;
+            }
+            if (i + 1 >= args.length) throw new IllegalArgumentException("Missing value for " + args[i]);
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--students": students = Integer.parseInt(value); break;
+                case "--duration": duration = Long.parseLong(value); break;
+                case "--accuracy": accuracy = Double.parseDouble(value); break;
+                case "--think": think = value; break;
+                case "--server": server = value; break;
+                case "--connections": connections = Integer.parseInt(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--json": json = value; break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        ItemBank bank = ShapevilleApp.loadContentBank();
+        ShapevilleServer inProcess = null;
+        Target target;
+        if (server == null) {
+            inProcess = new ShapevilleServer(new TaskEngine(bank), null, ShapevilleServer.DEFAULT_STRIPES, seed);
+            target = new InProcessTarget(inProcess);
+        } else if (server.equals("loopback")) {
+            // Starts a server on a free loopback port in this process and drives it over HTTP
+            inProcess = new ShapevilleServer(new TaskEngine(bank), null, ShapevilleServer.DEFAULT_STRIPES, seed);
+            inProcess.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            target = new HttpTarget("127.0.0.1:" + inProcess.getPort(), connections);
+        } else {
+            target = new HttpTarget(server, connections);
+        }
+
+        System.out.printf(Locale.ROOT, "Running %d simulated students for %d s against %s%n", students, duration, target);
+        LoadGenerator generator = new LoadGenerator(target, bank, students, accuracy, ThinkTime.parse(think), seed);
+        long elapsed = virtual ? generator.runVirtual(TimeUnit.SECONDS.toMillis(duration))
+                : generator.run(TimeUnit.SECONDS.toMillis(duration));
+        target.close();
+        if (inProcess != null) inProcess.stop();
+        generator.printReport(elapsed);
+        if (inProcess != null) {
+            System.out.println();
+            System.out.print(inProcess.getAnalytics().summary());
+        }
+        if (json != null) generator.writeJson(json, elapsed);
+    }
+}
@@ -0,0 +1,322 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * Metrics - Registry of named counters, gauges and histograms for operational monitoring
+ *
+ * Counters are LongAdders and histograms are {@link LatencyHistogram}s, so recording
+ * is lock-free and cheap enough for the event thread; gauges are read only when a
+ * snapshot is taken. Components look their metrics up once (usually into a static
+ * final field) from {@link #global()} and update them directly.
+ *
+ * Once started, the registry is visible as the JMX MBean shapeville:type=Metrics
+ * (jconsole, VisualVM) and a sampler thread writes a JSON snapshot to a local file
+ * every period, replacing it atomically so a scraper never reads half a file. Each
+ * counter also gets a per-second rate over the last period.
+ *
+ * Enabled by default every 10 s; set -Dshapeville.metrics=SECONDS to change the
+ * period, or =false to turn it off.
+ */
+public final class Metrics {
+    public static final String OBJECT_NAME = "shapeville:type=Metrics";
+    public static final long DEFAULT_PERIOD_SECONDS = 10;
+
+    private static final Metrics GLOBAL = new Metrics();
+
+    // Sorted so snapshots list metrics in a stable order
+    private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, DoubleSupplier> gauges = new ConcurrentSkipListMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+
+    // Guarded by this
+    private Map<String, Double> rates = new HashMap<>();
+    private final Map<String, Long> lastCounts = new HashMap<>();
+    private long lastSampleNanos = System.nanoTime();
+
+    /**
+     * @return The registry shared by the whole application
+     */
+    public static Metrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Gets or creates a counter
+     * @param name The metric name
+     * @return The counter
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    /**
+     * Registers a gauge, replacing any gauge of the same name
+     * @param name The metric name
+     * @param value Reads the current value; called from the sampler and JMX threads
+     */
+    public void gauge(String name, DoubleSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Gets or creates a histogram
+     * @param name The metric name, ending in its unit (for example paint.micros)
+     * @return The histogram
+     */
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, k -> new LatencyHistogram());
+    }
+
+    /**
+     * Updates every counter's per-second rate from its change since the last call
+     */
+    public synchronized void sample() {
+        long now = System.nanoTime();
+        double seconds = (now - lastSampleNanos) / 1e9;
+        Map<String, Double> sampled = new HashMap<>();
+        for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+            long count = counter.getValue().sum();
+            long last = lastCounts.getOrDefault(counter.getKey(), 0L);
+            sampled.put(counter.getKey(), seconds > 0 ? (count - last) / seconds : 0);
+            lastCounts.put(counter.getKey(), count);
+        }
+        rates = sampled;
+        lastSampleNanos = now;
+    }
+
+    /**
+     * @param counter The counter's name
+     * @return Its rate per second over the last sampling period
+     */
+    public synchronized double rate(String counter) {
+        return rates.getOrDefault(counter, 0.0);
+    }
+
+    /**
+     * Formats every metric as a JSON object with counters, rates, gauges and histograms
+     * @return JSON text
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"time\":").append(System.currentTimeMillis());
+        json.append(",\"uptimeMillis\":").append(ManagementFactory.getRuntimeMXBean().getUptime());
+        json.append(",\"counters\":{");
+        String separator = "";
+        for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+            json.append(separator).append(ReportExporter.jsonString(counter.getKey())).append(':')
+                    .append(counter.getValue().sum());
+            separator = ",";
+        }
+        json.append("},\"rates\":{");
+        separator = "";
+        for (String name : counters.keySet()) {
+            json.append(separator).append(ReportExporter.jsonString(name)).append(':')
+                    .append(formatNumber(rate(name)));
+            separator = ",";
+        }
+        json.append("},\"gauges\":{");
+        separator = "";
+        for (Map.Entry<String, DoubleSupplier> gauge : gauges.entrySet()) {
+            json.append(separator).append(ReportExporter.jsonString(gauge.getKey())).append(':')
+                    .append(formatNumber(read(gauge.getValue())));
+            separator = ",";
+        }
+        json.append("},\"histograms\":{");
+        separator = "";
+        for (Map.Entry<String, LatencyHistogram> histogram : histograms.entrySet()) {
+            json.append(separator).append(ReportExporter.jsonString(histogram.getKey())).append(':')
+                    .append(histogram.getValue().toJson());
+            separator = ",";
+        }
+        return json.append("}}").toString();
+    }
+
+    private static double read(DoubleSupplier gauge) {
+        try {
+            return gauge.getAsDouble();
+        } catch (RuntimeException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static String formatNumber(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) return "null";
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) return Long.toString((long) value);
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    /**
+     * Writes a snapshot to a file through a temporary file, so readers see the old or the new one whole
+     * @param file The snapshot file
+     */
+    public void writeSnapshot(Path file) {
+        try {
+            if (file.getParent() != null) Files.createDirectories(file.getParent());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(temp, toJson().getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing metrics snapshot " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Starts the global registry if -Dshapeville.metrics is not false
+     * @param snapshotFile Where snapshots are written
+     */
+    public static void startIfEnabled(Path snapshotFile) {
+        String setting = System.getProperty("shapeville.metrics");
+        if (setting != null && (setting.equals("false") || setting.equals("0"))) return;
+        long period = DEFAULT_PERIOD_SECONDS;
+        if (setting != null && !setting.equals("true") && !setting.isEmpty()) {
+            try {
+                period = Math.max(1, Long.parseLong(setting));
+            } catch (NumberFormatException e) {
+                System.err.println("Error reading shapeville.metrics '" + setting + "', using "
+                        + DEFAULT_PERIOD_SECONDS + " s");
+            }
+        }
+        GLOBAL.start(snapshotFile, period);
+    }
+
+    /**
+     * Adds the JVM gauges, registers the MBean and starts writing snapshots
+     * @param snapshotFile Where snapshots are written, or null for JMX only
+     * @param periodSeconds Time between snapshots (and rate samples)
+     */
+    public void start(Path snapshotFile, long periodSeconds) {
+        gauge("threads.live", () -> ManagementFactory.getThreadMXBean().getThreadCount());
+        gauge("heap.usedBytes", () -> ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MBean(), new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println("Error registering metrics MBean: " + e.getMessage());
+        }
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(() -> {
+            sample();
+            if (snapshotFile != null) writeSnapshot(snapshotFile);
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        if (snapshotFile != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> writeSnapshot(snapshotFile), "metrics-snapshot"));
+        }
+    }
+
+    /**
+     * Read-only view of the registry for JMX: a counter, its NAME.perSecond rate, a gauge,
+     * and NAME.count/.p50/.p99/.max per histogram, plus the whole snapshot as JSON
+     */
+    private class MBean implements DynamicMBean {
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            if (attribute.equals("Snapshot")) return toJson();
+            LongAdder counter = counters.get(attribute);
+            if (counter != null) return counter.sum();
+            DoubleSupplier gauge = gauges.get(attribute);
+            if (gauge != null) return read(gauge);
+            int dot = attribute.lastIndexOf('.');
+            if (dot > 0) {
+                String name = attribute.substring(0, dot);
+                String field = attribute.substring(dot + 1);
+                if (field.equals("perSecond") && counters.containsKey(name)) return rate(name);
+                LatencyHistogram histogram = histograms.get(name);
+                if (histogram != null) {
+                    switch (field) {
+                        case "count": return histogram.count();
+                        case "p50": return histogram.percentile(50);
+                        case "p99": return histogram.percentile(99);
+                        case "max": return histogram.max();
+                        default: break;
+                    }
+                }
+            }
+            throw new AttributeNotFoundException(attribute);
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                try {
+                    list.add(new Attribute(attribute, getAttribute(attribute)));
+                } catch (AttributeNotFoundException e) {
+                    // Left out, as the DynamicMBean contract allows
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            // Built on each call, since metrics can be registered after the MBean
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            attributes.add(attribute("Snapshot", String.class, "All metrics as JSON"));
+            for (String name : counters.keySet()) {
+                attributes.add(attribute(name, Long.class, "Counter"));
+                attributes.add(attribute(name + ".perSecond", Double.class, "Rate over the last period"));
+            }
+            for (String name : gauges.keySet()) {
+                attributes.add(attribute(name, Double.class, "Gauge"));
+            }
+            for (String name : histograms.keySet()) {
+                for (String field : new String[]{"count", "p50", "p99", "max"}) {
+                    attributes.add(attribute(name + "." + field, Long.class, "Histogram " + field));
+                }
+            }
+            return new MBeanInfo(Metrics.class.getName(), "Shapeville operational metrics",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+
+        private MBeanAttributeInfo attribute(String name, Class<?> type, String description) {
+            return new MBeanAttributeInfo(name, type.getName(), description, true, false, false);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Cursor;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.geom.Path2D;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+/**
+ * PolygonCanvas - Grid on which students click out polygons to measure their area
+ *
+ * A click on a grid point adds a corner to the current part of the figure; a
+ * corner can be dragged to another grid point. The figure is kept in a
+ * {@link PolygonArea}, which updates its exact and estimated areas incrementally,
+ * and the change listener runs after every change so the areas can be shown.
+ */
+public class PolygonCanvas extends JPanel {
+    /** Pixels per grid unit */
+    public static final int CELL = 24;
+    private static final int MARGIN = 12;
+    private static final int GRAB_PIXELS = 8;
+    private static final Color GRID = new Color(229, 231, 235);
+    private static final Color FILL = new Color(24, 115, 204, 70);
+    private static final Color EDGE = new Color(24, 115, 204);
+    private static final Color CORNER = new Color(239, 68, 68);
+
+    private final PolygonArea figure;
+    private final Path2D.Double path = new Path2D.Double();
+    private final BasicStroke edgeStroke = new BasicStroke(2f);
+    private Runnable changeListener;
+
+    // Corner being dragged, or -1
+    private int dragPart = -1;
+    private int dragIndex = -1;
+
+    /**
+     * Creates a canvas showing a figure
+     * @param figure The figure, which sets the grid size
+     */
+    public PolygonCanvas(PolygonArea figure) {
+        this.figure = figure;
+        setBackground(Color.WHITE);
+        setPreferredSize(new Dimension(figure.getColumns() * CELL + 2 * MARGIN, figure.getRows() * CELL + 2 * MARGIN));
+        MouseAdapter edit = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (!SwingUtilities.isLeftMouseButton(e)) return;
+                if (grab(e.getX(), e.getY())) return;
+                int x = gridX(e.getX()), y = gridY(e.getY());
+                figure.addVertex(x, y);
+                changed();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (dragPart < 0) return;
+                int x = gridX(e.getX()), y = gridY(e.getY());
+                if (x == figure.getX(dragPart, dragIndex) && y == figure.getY(dragPart, dragIndex)) return;
+                figure.moveVertex(dragPart, dragIndex, x, y);
+                changed();
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                dragPart = dragIndex = -1;
+            }
+
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                boolean onCorner = find(e.getX(), e.getY()) != null;
+                setCursor(Cursor.getPredefinedCursor(onCorner ? Cursor.MOVE_CURSOR : Cursor.CROSSHAIR_CURSOR));
+            }
+        };
+        addMouseListener(edit);
+        addMouseMotionListener(edit);
+    }
+
+    /**
+     * Sets what runs after each change to the figure
+     * @param listener The listener, or null for none
+     */
+    public void setChangeListener(Runnable listener) {
+        this.changeListener = listener;
+    }
+
+    /**
+     * @return The figure being drawn
+     */
+    public PolygonArea getFigure() {
+        return figure;
+    }
+
+    /**
+     * Starts a new part of the figure
+     */
+    public void startPart() {
+        figure.startPart();
+    }
+
+    /**
+     * Removes the whole figure
+     */
+    public void clear() {
+        figure.clear();
+        dragPart = dragIndex = -1;
+        changed();
+    }
+
+    private void changed() {
+        repaint();
+        if (changeListener != null) changeListener.run();
+    }
+
+    private boolean grab(int px, int py) {
+        int[] corner = find(px, py);
+        if (corner == null) return false;
+        dragPart = corner[0];
+        dragIndex = corner[1];
+        return true;
+    }
+
+    /**
+     * @return The part and index of the corner within GRAB_PIXELS of a point, or null
+     */
+    private int[] find(int px, int py) {
+        for (int p = 0; p < figure.getPartCount(); p++) {
+            for (int i = 0; i < figure.getVertexCount(p); i++) {
+                int dx = screenX(figure.getX(p, i)) - px, dy = screenY(figure.getY(p, i)) - py;
+                if (dx * dx + dy * dy <= GRAB_PIXELS * GRAB_PIXELS) return new int[] {p, i};
+            }
+        }
+        return null;
+    }
+
+    private int gridX(int px) {
+        return Math.max(0, Math.min(figure.getColumns(), Math.round((px - MARGIN) / (float) CELL)));
+    }
+
+    private int gridY(int py) {
+        return Math.max(0, Math.min(figure.getRows(), Math.round((py - MARGIN) / (float) CELL)));
+    }
+
+    private static int screenX(int x) {
+        return MARGIN + x * CELL;
+    }
+
+    private static int screenY(int y) {
+        return MARGIN + y * CELL;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2d = (Graphics2D) g;
+        g2d.setColor(GRID);
+        for (int x = 0; x <= figure.getColumns(); x++) {
+            g2d.drawLine(screenX(x), screenY(0), screenX(x), screenY(figure.getRows()));
+        }
+        for (int y = 0; y <= figure.getRows(); y++) {
+            g2d.drawLine(screenX(0), screenY(y), screenX(figure.getColumns()), screenY(y));
+        }
+
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setStroke(edgeStroke);
+        for (int p = 0; p < figure.getPartCount(); p++) {
+            int count = figure.getVertexCount(p);
+            if (count == 0) continue;
+            path.reset();
+            path.moveTo(screenX(figure.getX(p, 0)), screenY(figure.getY(p, 0)));
+            for (int i = 1; i < count; i++) path.lineTo(screenX(figure.getX(p, i)), screenY(figure.getY(p, i)));
+            path.closePath();
+            if (count >= 3) {
+                g2d.setColor(FILL);
+                g2d.fill(path);
+            }
+            g2d.setColor(EDGE);
+            g2d.draw(path);
+            g2d.setColor(CORNER);
+            for (int i = 0; i < count; i++) {
+                g2d.fillOval(screenX(figure.getX(p, i)) - 4, screenY(figure.getY(p, i)) - 4, 8, 8);
+            }
+        }
+    }
+}
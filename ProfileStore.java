@@ -0,0 +1,573 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * ProfileStore - Embedded on-disk store of student profiles for shared lab machines
+ *
+ * Profiles live in a paged hash index (profiles.idx). Page 0 is a header; pages
+ * 1..bucketCount are primary bucket pages and overflow pages are appended and
+ * chained from them. Each 64-byte slot holds the student ID, score, completed
+ * task mask and the head/tail of the student's attempt history, which is kept
+ * as a forward-linked list of records in history.dat.
+ *
+ * Only a bounded number of index pages is cached in memory, so the heap cost is
+ * independent of the number of profiles. Readers share a read lock; updates
+ * take the write lock and write pages through to disk immediately. The cached
+ * pages assume no one else writes the files, so a store holds an exclusive file
+ * lock on its index while open and cannot be opened twice.
+ */
+public class ProfileStore implements Closeable {
+    public static final String INDEX_FILE = "profiles.idx";
+    public static final String HISTORY_FILE = "history.dat";
+    public static final int MAX_ID_BYTES = 31;
+
+    private static final int MAGIC = 0x53485053; // "SHPS"
+    private static final int PAGE_SIZE = 4096;
+    private static final int PAGE_HEADER = 8;     // int slotCount, int overflowPage
+    private static final int SLOT_SIZE = 64;
+    private static final int SLOTS_PER_PAGE = (PAGE_SIZE - PAGE_HEADER) / SLOT_SIZE;
+
+    // Slot layout
+    private static final int SLOT_ID = 0;          // byte length + 31 bytes UTF-8
+    private static final int SLOT_SCORE = 32;
+    private static final int SLOT_HISTORY_COUNT = 36;
+    private static final int SLOT_MASK = 40;
+    private static final int SLOT_HISTORY_HEAD = 48;
+    private static final int SLOT_HISTORY_TAIL = 56;
+
+    private final FileChannel index;
+    private final FileChannel history;
+    private final PageCache cache;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int bucketCount;
+    private int pageCount;
+    private int profileCount;
+
+    /**
+     * Opens or creates a profile store
+     * @param directory Directory holding the store files
+     * @param bucketCount Number of hash buckets used when creating a new store
+     * @param cachePages Maximum number of index pages kept in memory
+     * @throws IOException If the files cannot be opened, are not a profile store, or are
+     *                     already open in this or another process
+     */
+    public ProfileStore(Path directory, int bucketCount, int cachePages) throws IOException {
+        Files.createDirectories(directory);
+        index = FileChannel.open(directory.resolve(INDEX_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileLock locked;
+        try {
+            locked = index.tryLock();
+        } catch (OverlappingFileLockException e) {
+            locked = null;
+        }
+        if (locked == null) {
+            index.close();
+            throw new IOException("Profile store " + directory + " is already in use by another process");
+        }
+        history = FileChannel.open(directory.resolve(HISTORY_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        cache = new PageCache(cachePages);
+
+        if (index.size() == 0) {
+            this.bucketCount = bucketCount;
+            this.pageCount = bucketCount + 1;
+            for (int page = 1; page <= bucketCount; page++) {
+                writePage(page, ByteBuffer.allocate(PAGE_SIZE));
+            }
+            writeHeader();
+            index.force(true);
+        } else {
+            ByteBuffer header = readPage(0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != PAGE_SIZE) {
+                throw new IOException("Not a Shapeville profile store: " + directory);
+            }
+            this.bucketCount = header.getInt(8);
+            this.pageCount = header.getInt(12);
+            this.profileCount = header.getInt(16);
+        }
+    }
+
+    /**
+     * Opens a store with 256 buckets and a 64-page (256 KB) cache
+     * @param directory Directory holding the store files
+     * @return The opened store
+     * @throws IOException If the store cannot be opened
+     */
+    public static ProfileStore open(Path directory) throws IOException {
+        return new ProfileStore(directory, 256, 64);
+    }
+
+    /**
+     * Checks whether a student ID can be stored
+     * @param studentId The ID to check
+     * @return true if the ID is non-empty and fits in a slot
+     */
+    public static boolean isValidId(String studentId) {
+        if (studentId == null || studentId.trim().isEmpty()) return false;
+        return studentId.getBytes(StandardCharsets.UTF_8).length <= MAX_ID_BYTES;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return profileCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Loads a profile
+     * @param studentId The student ID
+     * @return The profile, or null if the student is unknown
+     * @throws IOException If the index cannot be read
+     */
+    public Profile load(String studentId) throws IOException {
+        byte[] id = encodeId(studentId);
+        lock.readLock().lock();
+        try {
+            SlotRef slot = find(id);
+            return slot != null ? slot.toProfile() : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Loads a profile, creating an empty one if the student is unknown
+     * @param studentId The student ID
+     * @return The profile
+     * @throws IOException If the index cannot be read or written
+     */
+    public Profile loadOrCreate(String studentId) throws IOException {
+        Profile existing = load(studentId);
+        if (existing != null) return existing;
+        lock.writeLock().lock();
+        try {
+            return findOrInsert(encodeId(studentId)).toProfile();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stores a student's score and completed task mask, creating the profile if needed
+     * @param studentId The student ID
+     * @param score The score
+     * @param completedMask Bit mask of completed tasks
+     * @throws IOException If the index cannot be written
+     */
+    public void save(String studentId, int score, long completedMask) throws IOException {
+        lock.writeLock().lock();
+        try {
+            SlotRef slot = findOrInsert(encodeId(studentId));
+            slot.page.putInt(slot.offset + SLOT_SCORE, score);
+            slot.page.putLong(slot.offset + SLOT_MASK, completedMask);
+            writePage(slot.pageNumber, slot.page);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Appends an attempt to a student's history, creating the profile if needed
+     * @param studentId The student ID
+     * @param attempt The attempt to append
+     * @throws IOException If the history or index cannot be written
+     */
+    public void appendAttempt(String studentId, Attempt attempt) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeLong(0); // next record offset, filled in by the following append
+        out.writeLong(attempt.getTimestamp());
+        out.writeUTF(attempt.getTaskId());
+        out.writeUTF(attempt.getItem());
+        out.writeShort(attempt.getAttempt());
+        out.writeByte(attempt.getOutcome().ordinal());
+        out.writeInt(attempt.getPoints());
+        out.writeInt((int) Math.min(Integer.MAX_VALUE, attempt.getLatencyMillis()));
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        record.putInt(0, record.limit() - 4);
+
+        lock.writeLock().lock();
+        try {
+            SlotRef slot = findOrInsert(encodeId(studentId));
+            long offset = history.size();
+            writeFully(history, record, offset);
+            long tail = slot.page.getLong(slot.offset + SLOT_HISTORY_TAIL);
+            if (tail == 0) {
+                slot.page.putLong(slot.offset + SLOT_HISTORY_HEAD, offset + 1);
+            } else {
+                ByteBuffer next = ByteBuffer.allocate(8);
+                next.putLong(0, offset + 1);
+                writeFully(history, next, tail - 1 + 4);
+            }
+            slot.page.putLong(slot.offset + SLOT_HISTORY_TAIL, offset + 1);
+            slot.page.putInt(slot.offset + SLOT_HISTORY_COUNT, slot.page.getInt(slot.offset + SLOT_HISTORY_COUNT) + 1);
+            writePage(slot.pageNumber, slot.page);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Streams a student's attempt history in chronological order without loading it all
+     * @param studentId The student ID
+     * @param consumer Receives each attempt
+     * @throws IOException If the history cannot be read
+     */
+    public void forEachAttempt(String studentId, Consumer<Attempt> consumer) throws IOException {
+        Profile profile = load(studentId);
+        if (profile == null) return;
+        long position = profile.historyHead;
+        ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+        while (position != 0) {
+            ByteBuffer record;
+            lock.readLock().lock();
+            try {
+                lengthBuffer.clear();
+                readFully(history, lengthBuffer, position - 1);
+                record = ByteBuffer.allocate(lengthBuffer.getInt(0));
+                readFully(history, record, position - 1 + 4);
+            } finally {
+                lock.readLock().unlock();
+            }
+            position = record.getLong(0);
+            consumer.accept(Attempt.read(new DataInputStream(
+                    new ByteArrayInputStream(record.array(), 8, record.limit() - 8))));
+        }
+    }
+
+    /**
+     * Visits every stored profile, one index page at a time
+     * @param consumer Receives each profile
+     * @throws IOException If the index cannot be read
+     */
+    public void forEachProfile(Consumer<Profile> consumer) throws IOException {
+        for (int bucket = 1; bucket <= bucketCount; bucket++) {
+            int pageNumber = bucket;
+            while (pageNumber != 0) {
+                Profile[] profiles;
+                lock.readLock().lock();
+                try {
+                    ByteBuffer page = cache.get(pageNumber);
+                    int count = page.getInt(0);
+                    profiles = new Profile[count];
+                    for (int i = 0; i < count; i++) {
+                        profiles[i] = new SlotRef(pageNumber, page, PAGE_HEADER + i * SLOT_SIZE).toProfile();
+                    }
+                    pageNumber = page.getInt(4);
+                } finally {
+                    lock.readLock().unlock();
+                }
+                for (Profile profile : profiles) consumer.accept(profile);
+            }
+        }
+    }
+
+    /**
+     * Forces all written pages and history records to disk
+     * @throws IOException If syncing fails
+     */
+    public void sync() throws IOException {
+        lock.writeLock().lock();
+        try {
+            history.force(false);
+            index.force(false);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            history.force(true);
+            index.force(true);
+            history.close();
+            index.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static byte[] encodeId(String studentId) {
+        if (!isValidId(studentId)) throw new IllegalArgumentException("Invalid student ID: " + studentId);
+        return studentId.trim().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int bucketOf(byte[] id, int bucketCount) {
+        int hash = 1;
+        for (byte b : id) hash = 31 * hash + b;
+        hash ^= hash >>> 16;
+        return 1 + (hash & 0x7fffffff) % bucketCount;
+    }
+
+    /**
+     * Walks the bucket chain for an ID. Caller must hold a lock.
+     */
+    private SlotRef find(byte[] id) throws IOException {
+        int pageNumber = bucketOf(id, bucketCount);
+        while (pageNumber != 0) {
+            ByteBuffer page = cache.get(pageNumber);
+            int count = page.getInt(0);
+            for (int i = 0; i < count; i++) {
+                int offset = PAGE_HEADER + i * SLOT_SIZE;
+                if (idEquals(page, offset, id)) return new SlotRef(pageNumber, page, offset);
+            }
+            pageNumber = page.getInt(4);
+        }
+        return null;
+    }
+
+    /**
+     * Finds a slot or claims a new one at the end of the bucket chain. Caller must hold the write lock.
+     */
+    private SlotRef findOrInsert(byte[] id) throws IOException {
+        SlotRef existing = find(id);
+        if (existing != null) return existing;
+
+        int pageNumber = bucketOf(id, bucketCount);
+        ByteBuffer page = cache.get(pageNumber);
+        while (page.getInt(0) == SLOTS_PER_PAGE) {
+            int overflow = page.getInt(4);
+            if (overflow == 0) {
+                overflow = pageCount++;
+                page.putInt(4, overflow);
+                writePage(pageNumber, page);
+                writePage(overflow, ByteBuffer.allocate(PAGE_SIZE));
+            }
+            pageNumber = overflow;
+            page = cache.get(pageNumber);
+        }
+        int count = page.getInt(0);
+        int offset = PAGE_HEADER + count * SLOT_SIZE;
+        page.put(offset + SLOT_ID, (byte) id.length);
+        for (int i = 0; i < id.length; i++) page.put(offset + SLOT_ID + 1 + i, id[i]);
+        page.putInt(0, count + 1);
+        writePage(pageNumber, page);
+        profileCount++;
+        writeHeader();
+        return new SlotRef(pageNumber, page, offset);
+    }
+
+    private static boolean idEquals(ByteBuffer page, int offset, byte[] id) {
+        if (page.get(offset + SLOT_ID) != id.length) return false;
+        for (int i = 0; i < id.length; i++) {
+            if (page.get(offset + SLOT_ID + 1 + i) != id[i]) return false;
+        }
+        return true;
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(PAGE_SIZE);
+        header.putInt(0, MAGIC).putInt(4, PAGE_SIZE).putInt(8, bucketCount)
+                .putInt(12, pageCount).putInt(16, profileCount);
+        writeFully(index, header, 0);
+    }
+
+    private ByteBuffer readPage(int pageNumber) throws IOException {
+        ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+        readFully(index, page, (long) pageNumber * PAGE_SIZE);
+        return page;
+    }
+
+    private void writePage(int pageNumber, ByteBuffer page) throws IOException {
+        ByteBuffer view = page.duplicate();
+        view.clear();
+        writeFully(index, view, (long) pageNumber * PAGE_SIZE);
+        cache.put(pageNumber, page);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new IOException("Unexpected end of profile store file");
+            position += read;
+        }
+    }
+
+    /**
+     * Bounded LRU cache of index pages. Pages are always written through, so
+     * eviction simply drops them.
+     */
+    private class PageCache {
+        private final Map<Integer, ByteBuffer> pages;
+
+        PageCache(int maxPages) {
+            pages = new LinkedHashMap<Integer, ByteBuffer>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, ByteBuffer> eldest) {
+                    return size() > maxPages;
+                }
+            };
+        }
+
+        ByteBuffer get(int pageNumber) throws IOException {
+            synchronized (pages) {
+                ByteBuffer page = pages.get(pageNumber);
+                if (page != null) return page;
+            }
+            ByteBuffer page = readPage(pageNumber);
+            synchronized (pages) {
+                ByteBuffer raced = pages.putIfAbsent(pageNumber, page);
+                return raced != null ? raced : page;
+            }
+        }
+
+        void put(int pageNumber, ByteBuffer page) {
+            synchronized (pages) {
+                pages.put(pageNumber, page);
+            }
+        }
+    }
+
+    /**
+     * Location of a slot within a cached page
+     */
+    private class SlotRef {
+        final int pageNumber;
+        final ByteBuffer page;
+        final int offset;
+
+        SlotRef(int pageNumber, ByteBuffer page, int offset) {
+            this.pageNumber = pageNumber;
+            this.page = page;
+            this.offset = offset;
+        }
+
+        Profile toProfile() {
+            byte[] id = new byte[page.get(offset + SLOT_ID)];
+            for (int i = 0; i < id.length; i++) id[i] = page.get(offset + SLOT_ID + 1 + i);
+            return new Profile(new String(id, StandardCharsets.UTF_8),
+                    page.getInt(offset + SLOT_SCORE),
+                    page.getLong(offset + SLOT_MASK),
+                    page.getInt(offset + SLOT_HISTORY_COUNT),
+                    page.getLong(offset + SLOT_HISTORY_HEAD));
+        }
+    }
+
+    /**
+     * Immutable snapshot of a stored profile
+     */
+    public static class Profile {
+        private final String studentId;
+        private final int score;
+        private final long completedMask;
+        private final int historyCount;
+        private final long historyHead;
+
+        Profile(String studentId, int score, long completedMask, int historyCount, long historyHead) {
+            this.studentId = studentId;
+            this.score = score;
+            this.completedMask = completedMask;
+            this.historyCount = historyCount;
+            this.historyHead = historyHead;
+        }
+
+        public String getStudentId() {
+            return studentId;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public long getCompletedMask() {
+            return completedMask;
+        }
+
+        public int getHistoryCount() {
+            return historyCount;
+        }
+    }
+
+    /**
+     * One recorded answer attempt
+     */
+    public static class Attempt {
+        private final long timestamp;
+        private final String taskId;
+        private final String item;
+        private final int attempt;
+        private final AttemptOutcome outcome;
+        private final int points;
+        private final long latencyMillis;
+
+        public Attempt(long timestamp, String taskId, String item, int attempt,
+                       AttemptOutcome outcome, int points, long latencyMillis) {
+            this.timestamp = timestamp;
+            this.taskId = taskId;
+            this.item = item;
+            this.attempt = attempt;
+            this.outcome = outcome;
+            this.points = points;
+            this.latencyMillis = latencyMillis;
+        }
+
+        static Attempt read(DataInputStream in) throws IOException {
+            long timestamp = in.readLong();
+            String taskId = in.readUTF();
+            String item = in.readUTF();
+            int attempt = in.readShort();
+            AttemptOutcome outcome = AttemptOutcome.values()[in.readByte()];
+            int points = in.readInt();
+            int latency = in.readInt();
+            return new Attempt(timestamp, taskId, item, attempt, outcome, points, latency);
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public String getTaskId() {
+            return taskId;
+        }
+
+        public String getItem() {
+            return item;
+        }
+
+        public int getAttempt() {
+            return attempt;
+        }
+
+        public AttemptOutcome getOutcome() {
+            return outcome;
+        }
+
+        public int getPoints() {
+            return points;
+        }
+
+        public long getLatencyMillis() {
+            return latencyMillis;
+        }
+    }
+}
@@ -0,0 +1,308 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * ProgressBits - A student's progress through every task and item, packed into one long
+ *
+ * Bits 0-5 are the tasks in {@link #TASK_IDS} order; the profile store's completed
+ * mask has always used these bits, so existing profiles read unchanged. Each task
+ * then has an 8-bit slot for its items starting at bit 8 + 8 * task index (the
+ * 2D and 3D shape rounds, angle types, area shapes, circle calculations,
+ * composite figures and sectors),
+ * so adding an item to one task never moves another task's bits. The same long is
+ * kept in memory and written to the profile store, and set, test and count are
+ * single bit operations.
+ *
+ * {@link Roster} turns a class's progress values into one student bitset per bit,
+ * so "who has completed X" is a column lookup and combined questions are word-wise
+ * AND/OR over the class.
+ */
+public final class ProgressBits {
+    public static final String[] TASK_IDS = {
+            TaskEngine.SHAPES, TaskEngine.ANGLES, TaskEngine.AREA, TaskEngine.CIRCLE,
+            TaskEngine.COMPOSITE, TaskEngine.SECTOR
+    };
+    public static final int ITEM_SLOT = 8;
+    public static final long TASK_BITS = (1L << TASK_IDS.length) - 1;
+    public static final long ITEM_BITS = ~0L << ITEM_SLOT;
+
+    // Items of each task, by position in its slot
+    private static final String[][] ITEMS = {
+            TaskEngine.SHAPE_ROUNDS,
+            TaskEngine.ANGLE_TYPES,
+            TaskEngine.AREA_SHAPES,
+            TaskEngine.CIRCLE_TYPES,
+            names(TaskEngine.COMPOSITE_IDS),
+            names(TaskEngine.SECTOR_IDS)
+    };
+
+    private long bits;
+
+    /**
+     * Creates empty progress
+     */
+    public ProgressBits() {
+    }
+
+    /**
+     * Creates progress from its packed form
+     * @param bits The packed progress, as stored in a profile
+     */
+    public ProgressBits(long bits) {
+        this.bits = bits;
+    }
+
+    private static String[] names(int[] ids) {
+        String[] names = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) names[i] = String.valueOf(ids[i]);
+        return names;
+    }
+
+    /**
+     * @param taskId A task ID
+     * @return Its index in TASK_IDS, which is also its task bit
+     * @throws IllegalArgumentException If the task is unknown
+     */
+    public static int taskIndex(String taskId) {
+        for (int i = 0; i < TASK_IDS.length; i++) {
+            if (TASK_IDS[i].equals(taskId)) return i;
+        }
+        throw new IllegalArgumentException("Unknown task: " + taskId);
+    }
+
+    /**
+     * @param taskId A task ID
+     * @param item One of the task's items
+     * @return The item's bit
+     * @throws IllegalArgumentException If the task or item is unknown
+     */
+    public static int itemBit(String taskId, String item) {
+        int task = taskIndex(taskId);
+        String[] items = ITEMS[task];
+        for (int i = 0; i < items.length; i++) {
+            if (items[i].equals(item)) return ITEM_SLOT + ITEM_SLOT * task + i;
+        }
+        throw new IllegalArgumentException("Unknown item " + item + " in " + taskId);
+    }
+
+    /**
+     * @param taskId A task ID
+     * @return The task's items, in bit order
+     */
+    public static List<String> items(String taskId) {
+        return Arrays.asList(ITEMS[taskIndex(taskId)]);
+    }
+
+    private static long slotMask(int task) {
+        return 0xffL << (ITEM_SLOT + ITEM_SLOT * task);
+    }
+
+    /**
+     * @return The packed progress
+     */
+    public long getBits() {
+        return bits;
+    }
+
+    /**
+     * Replaces the progress, as when another student is selected
+     * @param bits The packed progress
+     */
+    public void setBits(long bits) {
+        this.bits = bits;
+    }
+
+    public boolean isTaskCompleted(String taskId) {
+        return (bits & (1L << taskIndex(taskId))) != 0;
+    }
+
+    /**
+     * Marks a task as completed
+     * @param taskId The task ID
+     * @return Whether it was not completed before
+     */
+    public boolean completeTask(String taskId) {
+        long before = bits;
+        bits |= 1L << taskIndex(taskId);
+        return bits != before;
+    }
+
+    /**
+     * @return Number of completed tasks
+     */
+    public int taskCount() {
+        return Long.bitCount(bits & TASK_BITS);
+    }
+
+    /**
+     * @return Share of tasks completed, in percent
+     */
+    public int percent() {
+        return taskCount() * 100 / TASK_IDS.length;
+    }
+
+    /**
+     * @return The completed task IDs, in TASK_IDS order
+     */
+    public Set<String> taskIds() {
+        Set<String> tasks = new LinkedHashSet<>();
+        for (int i = 0; i < TASK_IDS.length; i++) {
+            if ((bits & (1L << i)) != 0) tasks.add(TASK_IDS[i]);
+        }
+        return tasks;
+    }
+
+    public boolean isItemCompleted(String taskId, String item) {
+        return (bits & (1L << itemBit(taskId, item))) != 0;
+    }
+
+    /**
+     * Marks an item as completed
+     * @param taskId The task ID
+     * @param item The item
+     * @return Whether it was not completed before
+     */
+    public boolean completeItem(String taskId, String item) {
+        long before = bits;
+        bits |= 1L << itemBit(taskId, item);
+        return bits != before;
+    }
+
+    /**
+     * @param taskId The task ID
+     * @return Number of the task's items completed
+     */
+    public int itemCount(String taskId) {
+        return Long.bitCount(bits & slotMask(taskIndex(taskId)));
+    }
+
+    /**
+     * Forgets the completed items of one task, leaving its task bit as it is
+     * @param taskId The task ID
+     */
+    public void clearItems(String taskId) {
+        bits &= ~slotMask(taskIndex(taskId));
+    }
+
+    /**
+     * Adds the completed items of another progress value, leaving the task bits as they are
+     * @param other Packed progress
+     */
+    public void mergeItems(long other) {
+        bits |= other & ITEM_BITS;
+    }
+
+    /**
+     * A class's progress as one student bitset per progress bit. Student sets are
+     * long[] words indexed like the student list, and can be combined with
+     * {@link #and} and {@link #or}.
+     */
+    public static final class Roster {
+        private final List<String> students;
+        private final int words;
+        private final long[][] columns = new long[Long.SIZE][];
+
+        /**
+         * Builds the bit columns
+         * @param students Student IDs
+         * @param progress Packed progress of each student, in the same order
+         */
+        public Roster(List<String> students, long[] progress) {
+            if (students.size() != progress.length) {
+                throw new IllegalArgumentException("Expected " + students.size() + " progress values");
+            }
+            this.students = new ArrayList<>(students);
+            this.words = (students.size() + Long.SIZE - 1) / Long.SIZE;
+            for (int bit = 0; bit < Long.SIZE; bit++) columns[bit] = new long[words];
+            for (int s = 0; s < progress.length; s++) {
+                for (long rest = progress[s]; rest != 0; rest &= rest - 1) {
+                    columns[Long.numberOfTrailingZeros(rest)][s >>> 6] |= 1L << s;
+                }
+            }
+        }
+
+        /**
+         * @return Number of students
+         */
+        public int size() {
+            return students.size();
+        }
+
+        /**
+         * @param taskId A task ID
+         * @return The students who completed the task
+         */
+        public long[] completed(String taskId) {
+            return columns[taskIndex(taskId)].clone();
+        }
+
+        /**
+         * @param taskId A task ID
+         * @param item One of its items
+         * @return The students who completed the item
+         */
+        public long[] completed(String taskId, String item) {
+            return columns[itemBit(taskId, item)].clone();
+        }
+
+        /**
+         * @return Every student
+         */
+        public long[] all() {
+            long[] all = new long[words];
+            for (int s = 0; s < students.size(); s++) all[s >>> 6] |= 1L << s;
+            return all;
+        }
+
+        /**
+         * @param sets Student sets
+         * @return The students in every set
+         */
+        public long[] and(long[]... sets) {
+            long[] result = all();
+            for (long[] set : sets) {
+                for (int w = 0; w < words; w++) result[w] &= set[w];
+            }
+            return result;
+        }
+
+        /**
+         * @param sets Student sets
+         * @return The students in any of the sets
+         */
+        public long[] or(long[]... sets) {
+            long[] result = new long[words];
+            for (long[] set : sets) {
+                for (int w = 0; w < words; w++) result[w] |= set[w];
+            }
+            return result;
+        }
+
+        /**
+         * @param set A student set
+         * @return Number of students in it
+         */
+        public static int count(long[] set) {
+            int count = 0;
+            for (long word : set) count += Long.bitCount(word);
+            return count;
+        }
+
+        /**
+         * @param set A student set
+         * @return Their IDs, in roster order
+         */
+        public List<String> students(long[] set) {
+            List<String> ids = new ArrayList<>();
+            for (int w = 0; w < set.length; w++) {
+                for (long rest = set[w]; rest != 0; rest &= rest - 1) {
+                    ids.add(students.get(w * Long.SIZE + Long.numberOfTrailingZeros(rest)));
+                }
+            }
+            return ids;
+        }
+    }
+}
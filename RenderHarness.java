@@ -0,0 +1,410 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.imageio.ImageIO;
+
+/**
+ * RenderHarness - Paints every custom panel painter offscreen and checks it against golden images
+ *
+ * Each case is one painter (the ShapeRenderer method a panel's paintComponent
+ * calls) with fixed inputs at one size. Cases run in parallel on a thread per
+ * core, without a display. Each case is painted a few times to warm up, then
+ * timed, and the last image is compared with golden/CASE.png.
+ *
+ * The comparison is perceptual: a pixel differs when its CIE76 color distance
+ * (Delta E in Lab space) from the golden pixel exceeds {@link #JUST_NOTICEABLE}
+ * and no pixel next to it matches either, so anti-aliasing and font rasterizer
+ * changes that shift an edge by a pixel are ignored. A case fails when more than
+ * the tolerance share of its pixels differ, which a moved, recolored or missing
+ * element always does. Failing cases leave CASE.actual.png and CASE.diff.png in
+ * the output directory.
+ *
+ * Usage: java RenderHarness [--update] [--golden DIR] [--out DIR] [--tolerance FRACTION]
+ *                           [--runs N] [--threads N] [--json FILE]
+ */
+public class RenderHarness {
+    /** Delta E below which two colors look the same */
+    static final double JUST_NOTICEABLE = 2.3;
+    static final double DEFAULT_TOLERANCE = 0.001;
+    static final int WARMUP_RUNS = 5;
+    static final int DEFAULT_RUNS = 20;
+
+    /** Panel sizes: smallest usable, preferred, and full-screen */
+    static final int[][] SIZES = {{300, 220}, {400, 300}, {800, 600}};
+
+    /**
+     * Paints into a graphics context of a given size
+     */
+    interface Painter {
+        void paint(Graphics2D g2d, int width, int height);
+    }
+
+    /**
+     * One painter with fixed inputs at one size
+     */
+    static final class Case {
+        final String painter;
+        final String name;
+        final int width;
+        final int height;
+        final Painter paint;
+
+        Case(String painter, String variant, int width, int height, Painter paint) {
+            this.painter = painter;
+            this.name = painter + "-" + variant + "-" + width + "x" + height;
+            this.width = width;
+            this.height = height;
+            this.paint = paint;
+        }
+    }
+
+    /**
+     * Result of rendering and comparing one case
+     */
+    static final class Result {
+        final Case testCase;
+        final long medianMicros;
+        final String status;
+        final double differingShare;
+        final double maxDeltaE;
+
+        Result(Case testCase, long medianMicros, String status, double differingShare, double maxDeltaE) {
+            this.testCase = testCase;
+            this.medianMicros = medianMicros;
+            this.status = status;
+            this.differingShare = differingShare;
+            this.maxDeltaE = maxDeltaE;
+        }
+
+        boolean passed() {
+            return "ok".equals(status) || "updated".equals(status);
+        }
+    }
+
+    private final Path goldenDir;
+    private final Path outDir;
+    private final double tolerance;
+    private final int runs;
+    private final boolean update;
+    private final Map<String, LatencyHistogram> renderTimes = new ConcurrentHashMap<>();
+
+    RenderHarness(Path goldenDir, Path outDir, double tolerance, int runs, boolean update) {
+        this.goldenDir = goldenDir;
+        this.outDir = outDir;
+        this.tolerance = tolerance;
+        this.runs = runs;
+        this.update = update;
+    }
+
+    /**
+     * Builds the cases: every painter with representative inputs at every size
+     * @param shapeImage An image file for the shape recognition painter
+     * @return The cases
+     */
+    static List<Case> cases(Path shapeImage) {
+        List<Case> cases = new ArrayList<>();
+        for (int[] size : SIZES) {
+            int w = size[0], h = size[1];
+            cases.add(new Case("shapeImage", "asset", w, h,
+                    (g, width, height) -> ShapeRenderer.drawShapeImage(g, width, height, shapeImage.toString())));
+            cases.add(new Case("vectorShape", "hexagon", w, h,
+                    (g, width, height) -> VectorShapes.draw(g, width, height, "hexagon", VectorShapes.Style.DEFAULT)));
+            cases.add(new Case("vectorShape", "kite-turned", w, h,
+                    (g, width, height) -> VectorShapes.draw(g, width, height, "kite",
+                            new VectorShapes.Style(30, 0.8, Color.decode("#E94E3C")))));
+            for (String shape : new String[] {"cube", "cone", "square - based pyramid"}) {
+                MeshRenderer renderer = new MeshRenderer();
+                cases.add(new Case("mesh", shape.replaceAll("[ -]+", "-"), w, h,
+                        (g, width, height) -> renderer.draw(g, width, height, shape, 0.6, 0.4, 0xffffff)));
+            }
+            cases.add(new Case("areaShape", "rectangle", w, h,
+                    (g, width, height) -> ShapeRenderer.drawAreaShape(g, width, height, "Rectangle", 12, 7, 0)));
+            cases.add(new Case("areaShape", "parallelogram", w, h,
+                    (g, width, height) -> ShapeRenderer.drawAreaShape(g, width, height, "Parallelogram", 10, 6, 0)));
+            cases.add(new Case("areaShape", "triangle", w, h,
+                    (g, width, height) -> ShapeRenderer.drawAreaShape(g, width, height, "Triangle", 14, 9, 0)));
+            cases.add(new Case("areaShape", "trapezium", w, h,
+                    (g, width, height) -> ShapeRenderer.drawAreaShape(g, width, height, "Trapezium", 5, 11, 8)));
+            for (int angle : new int[] {0, 40, 90, 250}) {
+                cases.add(new Case("protractor", angle + "deg", w, h,
+                        (g, width, height) -> ShapeRenderer.drawProtractor(g, width, height, angle)));
+            }
+            cases.add(new Case("circle", "r15cm", w, h,
+                    (g, width, height) -> ShapeRenderer.drawCircle(g, width, height, 60)));
+        }
+        return cases;
+    }
+
+    /**
+     * Renders one case, times it and compares it with its golden image
+     * @param testCase The case
+     * @return The result
+     */
+    Result run(Case testCase) throws IOException {
+        BufferedImage image = new BufferedImage(testCase.width, testCase.height, BufferedImage.TYPE_INT_ARGB);
+        long[] micros = new long[runs];
+        LatencyHistogram times = renderTimes.computeIfAbsent(testCase.painter, k -> new LatencyHistogram());
+        for (int i = -WARMUP_RUNS; i < runs; i++) {
+            long start = System.nanoTime();
+            render(testCase, image);
+            long elapsed = (System.nanoTime() - start) / 1000;
+            if (i >= 0) {
+                micros[i] = elapsed;
+                times.record(elapsed);
+            }
+        }
+        Arrays.sort(micros);
+        long median = micros[runs / 2];
+
+        Path golden = goldenDir.resolve(testCase.name + ".png");
+        if (update) {
+            ImageIO.write(image, "png", golden.toFile());
+            return new Result(testCase, median, "updated", 0, 0);
+        }
+        if (!Files.isRegularFile(golden)) return new Result(testCase, median, "no golden", 1, 0);
+        BufferedImage expected = ImageIO.read(golden.toFile());
+        if (expected.getWidth() != image.getWidth() || expected.getHeight() != image.getHeight()) {
+            return new Result(testCase, median, "size differs", 1, 0);
+        }
+
+        BufferedImage diff = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        long differing = 0;
+        double maxDeltaE = 0;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int actualRgb = image.getRGB(x, y);
+                double deltaE = deltaE(actualRgb, expected.getRGB(x, y));
+                if (deltaE > JUST_NOTICEABLE && !nearMatch(expected, x, y, actualRgb)
+                        && !nearMatch(image, x, y, expected.getRGB(x, y))) {
+                    maxDeltaE = Math.max(maxDeltaE, deltaE);
+                    differing++;
+                    diff.setRGB(x, y, 0xff0000);
+                } else {
+                    // Faded copy of the image, so differences stand out in red
+                    diff.setRGB(x, y, fade(actualRgb));
+                }
+            }
+        }
+        double share = (double) differing / ((long) image.getWidth() * image.getHeight());
+        if (share <= tolerance) return new Result(testCase, median, "ok", share, maxDeltaE);
+        Files.createDirectories(outDir);
+        ImageIO.write(image, "png", outDir.resolve(testCase.name + ".actual.png").toFile());
+        ImageIO.write(diff, "png", outDir.resolve(testCase.name + ".diff.png").toFile());
+        return new Result(testCase, median, "DIFFERS", share, maxDeltaE);
+    }
+
+    /**
+     * Whether a pixel within one step of (x, y) looks the same as a color
+     */
+    private static boolean nearMatch(BufferedImage image, int x, int y, int argb) {
+        for (int ny = Math.max(0, y - 1); ny <= Math.min(image.getHeight() - 1, y + 1); ny++) {
+            for (int nx = Math.max(0, x - 1); nx <= Math.min(image.getWidth() - 1, x + 1); nx++) {
+                if (deltaE(image.getRGB(nx, ny), argb) <= JUST_NOTICEABLE) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Paints a case the way Swing paints an opaque panel: background first, then the painter
+     */
+    private static void render(Case testCase, BufferedImage image) {
+        ShapeRenderer.clear(image, Color.WHITE);
+        Graphics2D g2d = image.createGraphics();
+        try {
+            testCase.paint.paint(g2d, testCase.width, testCase.height);
+        } finally {
+            g2d.dispose();
+        }
+    }
+
+    /**
+     * Runs all cases in parallel
+     * @param cases The cases
+     * @param threads Number of worker threads
+     * @return The results, in case order
+     */
+    List<Result> runAll(List<Case> cases, int threads) throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (Case testCase : cases) futures.add(pool.submit(() -> run(testCase)));
+            List<Result> results = new ArrayList<>();
+            for (Future<Result> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) throw (IOException) cause;
+                    throw new IllegalStateException(cause);
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @return Render times in microseconds per painter, across its cases and sizes
+     */
+    Map<String, LatencyHistogram> renderTimes() {
+        return new TreeMap<>(renderTimes);
+    }
+
+    // sRGB (D65) to CIE Lab, for perceptual color distance
+    private static final double[] LINEAR = new double[256];
+    static {
+        for (int i = 0; i < 256; i++) {
+            double c = i / 255.0;
+            LINEAR[i] = c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+        }
+    }
+
+    /**
+     * CIE76 color distance between two ARGB pixels, each composited over white
+     */
+    static double deltaE(int argb1, int argb2) {
+        if (argb1 == argb2) return 0;
+        double[] lab1 = lab(argb1);
+        double[] lab2 = lab(argb2);
+        double dl = lab1[0] - lab2[0], da = lab1[1] - lab2[1], db = lab1[2] - lab2[2];
+        return Math.sqrt(dl * dl + da * da + db * db);
+    }
+
+    private static double[] lab(int argb) {
+        int alpha = argb >>> 24;
+        double r = LINEAR[overWhite((argb >> 16) & 0xff, alpha)];
+        double g = LINEAR[overWhite((argb >> 8) & 0xff, alpha)];
+        double b = LINEAR[overWhite(argb & 0xff, alpha)];
+        double x = (0.4124 * r + 0.3576 * g + 0.1805 * b) / 0.95047;
+        double y = 0.2126 * r + 0.7152 * g + 0.0722 * b;
+        double z = (0.0193 * r + 0.1192 * g + 0.9505 * b) / 1.08883;
+        double fx = labF(x), fy = labF(y), fz = labF(z);
+        return new double[] {116 * fy - 16, 500 * (fx - fy), 200 * (fy - fz)};
+    }
+
+    private static int overWhite(int channel, int alpha) {
+        return (channel * alpha + 255 * (255 - alpha) + 127) / 255;
+    }
+
+    private static double labF(double t) {
+        return t > 216.0 / 24389 ? Math.cbrt(t) : (24389.0 / 27 * t + 16) / 116;
+    }
+
+    private static int fade(int argb) {
+        int alpha = argb >>> 24;
+        int gray = (overWhite((argb >> 16) & 0xff, alpha) + overWhite((argb >> 8) & 0xff, alpha)
+                + overWhite(argb & 0xff, alpha)) / 3;
+        int light = 255 - (255 - gray) / 4;
+        return (light << 16) | (light << 8) | light;
+    }
+
+    /**
+     * Writes a small stand-in for a shape asset, since the shape images are not in the repository
+     */
+    private static Path writeShapeAsset() throws IOException {
+        BufferedImage asset = ShapeRenderer.newImage(200, 150, Color.WHITE);
+        Graphics2D g2d = asset.createGraphics();
+        ShapeRenderer.drawAreaShape(g2d, 200, 150, "Triangle", 6, 4, 0);
+        g2d.dispose();
+        Path file = Files.createTempFile("shapeville-asset", ".png");
+        file.toFile().deleteOnExit();
+        ImageIO.write(asset, "png", file.toFile());
+        return file;
+    }
+
+    private static String toJson(List<Result> results, Map<String, LatencyHistogram> times, long wallMillis) {
+        StringBuilder json = new StringBuilder("{\"wallMillis\":").append(wallMillis).append(",\"cases\":[");
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            json.append(i > 0 ? "," : "").append("{\"name\":").append(ReportExporter.jsonString(r.testCase.name))
+                    .append(",\"painter\":").append(ReportExporter.jsonString(r.testCase.painter))
+                    .append(",\"status\":").append(ReportExporter.jsonString(r.status))
+                    .append(",\"medianMicros\":").append(r.medianMicros)
+                    .append(",\"differingShare\":").append(String.format(Locale.ROOT, "%.5f", r.differingShare))
+                    .append(",\"maxDeltaE\":").append(String.format(Locale.ROOT, "%.2f", r.maxDeltaE)).append('}');
+        }
+        json.append("],\"painterMicros\":{");
+        boolean first = true;
+        for (Map.Entry<String, LatencyHistogram> entry : times.entrySet()) {
+            json.append(first ? "" : ",").append(ReportExporter.jsonString(entry.getKey())).append(':')
+                    .append(entry.getValue().toJson());
+            first = false;
+        }
+        return json.append("}}").toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Before any AWT class loads, so no display is needed
+        System.setProperty("java.awt.headless", "true");
+
+        Path goldenDir = Paths.get("golden");
+        Path outDir = Paths.get("render-out");
+        double tolerance = DEFAULT_TOLERANCE;
+        int runs = DEFAULT_RUNS;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean update = false;
+        Path jsonFile = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--update": update = true; break;
+                case "--golden": goldenDir = Paths.get(args[++i]); break;
+                case "--out": outDir = Paths.get(args[++i]); break;
+                case "--tolerance": tolerance = Double.parseDouble(args[++i]); break;
+                case "--runs": runs = Math.max(1, Integer.parseInt(args[++i])); break;
+                case "--threads": threads = Math.max(1, Integer.parseInt(args[++i])); break;
+                case "--json": jsonFile = Paths.get(args[++i]); break;
+                default:
+                    System.err.println("Usage: java RenderHarness [--update] [--golden DIR] [--out DIR]"
+                            + " [--tolerance FRACTION] [--runs N] [--threads N] [--json FILE]");
+                    System.exit(2);
+            }
+        }
+        if (update) Files.createDirectories(goldenDir);
+
+        long start = System.currentTimeMillis();
+        RenderHarness harness = new RenderHarness(goldenDir, outDir, tolerance, runs, update);
+        List<Result> results = harness.runAll(cases(writeShapeAsset()), threads);
+        long wallMillis = System.currentTimeMillis() - start;
+
+        int failed = 0;
+        System.out.printf(Locale.ROOT, "%-32s %-12s %10s %10s %8s%n", "case", "status", "median us", "differing",
+                "max dE");
+        for (Result r : results) {
+            if (!r.passed()) failed++;
+            System.out.printf(Locale.ROOT, "%-32s %-12s %10d %9.3f%% %8.1f%n", r.testCase.name, r.status,
+                    r.medianMicros, 100 * r.differingShare, r.maxDeltaE);
+        }
+        System.out.println();
+        Map<String, LatencyHistogram> times = harness.renderTimes();
+        for (Map.Entry<String, LatencyHistogram> entry : times.entrySet()) {
+            System.out.printf(Locale.ROOT, "%-12s %s%n", entry.getKey(), entry.getValue().summary("us"));
+        }
+        System.out.printf(Locale.ROOT, "%n%d cases on %d threads in %d ms, %d failed%s%n", results.size(), threads,
+                wallMillis, failed, failed > 0 ? " (see " + outDir + ")" : "");
+        if (jsonFile != null) {
+            try (Writer out = Files.newBufferedWriter(jsonFile, StandardCharsets.UTF_8)) {
+                out.write(toJson(results, times, wallMillis));
+            }
+        }
+        System.exit(failed > 0 ? 1 : 0);
+    }
+}
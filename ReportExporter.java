@@ -0,0 +1,326 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * ReportExporter - Writes class results reports from the student profile store
+ *
+ * Produces four files in the output directory:
+ * attempts.csv (one row per attempt), summary.csv (one row per student and task),
+ * report.json (per-student summaries with every attempt) and progress.csv (how
+ * many students completed each task and item, from a {@link ProgressBits.Roster}).
+ *
+ * Attempt histories are streamed record by record, so memory use does not grow
+ * with the length of a history. Students are split into chunks that are exported
+ * in parallel to part files, which are then concatenated in order.
+ *
+ * Usage: java ReportExporter [dataDir] [outputDir]
+ */
+public class ReportExporter {
+    public static final String ATTEMPTS_FILE = "attempts.csv";
+    public static final String SUMMARY_FILE = "summary.csv";
+    public static final String JSON_FILE = "report.json";
+    public static final String PROGRESS_FILE = "progress.csv";
+
+    private final ProfileStore store;
+    private final int threads;
+
+    /**
+     * Creates an exporter
+     * @param store The profile store to read
+     * @param threads Number of worker threads
+     */
+    public ReportExporter(ProfileStore store, int threads) {
+        this.store = store;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Exports the report files into a directory
+     * @param outputDir The directory to write into (created if missing)
+     * @return Number of students exported
+     * @throws IOException If the store cannot be read or the files cannot be written
+     */
+    public int export(Path outputDir) throws IOException {
+        Files.createDirectories(outputDir);
+        Map<String, Long> progress = new TreeMap<>();
+        store.forEachProfile(profile -> progress.put(profile.getStudentId(), profile.getCompletedMask()));
+        List<String> students = new ArrayList<>(progress.keySet());
+        writeProgress(new ProgressBits.Roster(students,
+                progress.values().stream().mapToLong(Long::longValue).toArray()), outputDir.resolve(PROGRESS_FILE));
+
+        // Small chunks keep the workers balanced when history lengths differ
+        int chunkSize = Math.max(1, (students.size() + threads * 4 - 1) / (threads * 4));
+        List<Path> partDirs = new ArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "report-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (int start = 0; start < students.size(); start += chunkSize) {
+                List<String> chunk = students.subList(start, Math.min(students.size(), start + chunkSize));
+                Path partDir = Files.createTempDirectory(outputDir, ".part");
+                partDirs.add(partDir);
+                futures.add(executor.submit(() -> {
+                    exportChunk(chunk, partDir);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Report export interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        try {
+            merge(partDirs, ATTEMPTS_FILE, outputDir.resolve(ATTEMPTS_FILE),
+                    "student_id,task_id,item,attempt,outcome,points,latency_ms,timestamp\n", "", "");
+            merge(partDirs, SUMMARY_FILE, outputDir.resolve(SUMMARY_FILE),
+                    "student_id,score,task_id,completed,attempts,correct,wrong,timeouts,points,mean_latency_ms\n",
+                    "", "");
+            merge(partDirs, JSON_FILE, outputDir.resolve(JSON_FILE),
+                    "{\"generated\":\"" + Instant.now() + "\",\"students\":[\n", ",\n", "\n]}\n");
+        } finally {
+            for (Path partDir : partDirs) {
+                for (String name : new String[]{ATTEMPTS_FILE, SUMMARY_FILE, JSON_FILE}) {
+                    Files.deleteIfExists(partDir.resolve(name));
+                }
+                Files.deleteIfExists(partDir);
+            }
+        }
+        return students.size();
+    }
+
+    /**
+     * Writes the part files for a contiguous range of students
+     */
+    private void exportChunk(List<String> students, Path partDir) throws IOException {
+        try (Writer attempts = open(partDir.resolve(ATTEMPTS_FILE));
+             Writer summary = open(partDir.resolve(SUMMARY_FILE));
+             Writer json = open(partDir.resolve(JSON_FILE))) {
+            boolean firstStudent = true;
+            for (String studentId : students) {
+                ProfileStore.Profile profile = store.load(studentId);
+                if (profile == null) continue;
+                if (!firstStudent) json.write(",\n");
+                firstStudent = false;
+
+                json.write("{\"id\":" + jsonString(studentId) + ",\"score\":" + profile.getScore()
+                        + ",\"completedTasks\":[");
+                boolean firstTask = true;
+                for (String taskId : new ProgressBits(profile.getCompletedMask()).taskIds()) {
+                    json.write((firstTask ? "" : ",") + jsonString(taskId));
+                    firstTask = false;
+                }
+                json.write("],\"attempts\":[");
+
+                Map<String, TaskTotals> totals = new LinkedHashMap<>();
+                for (String taskId : ProgressBits.TASK_IDS) totals.put(taskId, new TaskTotals());
+                boolean[] firstAttempt = {true};
+                store.forEachAttempt(studentId, attempt -> {
+                    totals.computeIfAbsent(attempt.getTaskId(), t -> new TaskTotals()).add(attempt);
+                    String timestamp = Instant.ofEpochMilli(attempt.getTimestamp()).toString();
+                    try {
+                        attempts.write(csv(studentId) + "," + csv(attempt.getTaskId()) + "," + csv(attempt.getItem())
+                                + "," + attempt.getAttempt() + "," + attempt.getOutcome().name().toLowerCase(Locale.ROOT)
+                                + "," + attempt.getPoints() + "," + attempt.getLatencyMillis() + "," + timestamp + "\n");
+                        json.write((firstAttempt[0] ? "" : ",") + "{\"task\":" + jsonString(attempt.getTaskId())
+                                + ",\"item\":" + jsonString(attempt.getItem())
+                                + ",\"attempt\":" + attempt.getAttempt()
+                                + ",\"outcome\":\"" + attempt.getOutcome().name().toLowerCase(Locale.ROOT) + "\""
+                                + ",\"points\":" + attempt.getPoints()
+                                + ",\"latencyMs\":" + attempt.getLatencyMillis()
+                                + ",\"timestamp\":\"" + timestamp + "\"}");
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    firstAttempt[0] = false;
+                });
+
+                json.write("],\"tasks\":{");
+                boolean firstTotals = true;
+                for (Map.Entry<String, TaskTotals> entry : totals.entrySet()) {
+                    String taskId = entry.getKey();
+                    TaskTotals t = entry.getValue();
+                    boolean completed = isCompleted(profile, taskId);
+                    summary.write(csv(studentId) + "," + profile.getScore() + "," + csv(taskId) + "," + completed
+                            + "," + t.attempts + "," + t.correct + "," + t.wrong + "," + t.timeouts
+                            + "," + t.points + "," + String.format(Locale.ROOT, "%.1f", t.meanLatency()) + "\n");
+                    json.write((firstTotals ? "" : ",") + jsonString(taskId) + ":{\"completed\":" + completed
+                            + ",\"attempts\":" + t.attempts + ",\"correct\":" + t.correct
+                            + ",\"wrong\":" + t.wrong + ",\"timeouts\":" + t.timeouts
+                            + ",\"points\":" + t.points
+                            + ",\"meanLatencyMs\":" + String.format(Locale.ROOT, "%.1f", t.meanLatency()) + "}");
+                    firstTotals = false;
+                }
+                json.write("}}");
+            }
+        }
+    }
+
+    private static boolean isCompleted(ProfileStore.Profile profile, String taskId) {
+        for (String known : ProgressBits.TASK_IDS) {
+            if (known.equals(taskId)) return new ProgressBits(profile.getCompletedMask()).isTaskCompleted(taskId);
+        }
+        return false;
+    }
+
+    /**
+     * Writes how many students completed each task and each item. A task's "*" row
+     * counts students with any of its items done (OR over the item columns), and
+     * the "all" row students with every task done (AND over the task columns).
+     */
+    static void writeProgress(ProgressBits.Roster roster, Path file) throws IOException {
+        try (Writer out = open(file)) {
+            out.write("task_id,item,students,share\n");
+            List<long[]> tasks = new ArrayList<>();
+            for (String taskId : ProgressBits.TASK_IDS) {
+                long[] done = roster.completed(taskId);
+                tasks.add(done);
+                out.write(progressRow(roster, taskId, "", done));
+                List<long[]> items = new ArrayList<>();
+                for (String item : ProgressBits.items(taskId)) {
+                    long[] itemDone = roster.completed(taskId, item);
+                    items.add(itemDone);
+                    out.write(progressRow(roster, taskId, item, itemDone));
+                }
+                if (!items.isEmpty()) {
+                    out.write(progressRow(roster, taskId, "*", roster.or(items.toArray(new long[0][]))));
+                }
+            }
+            out.write(progressRow(roster, "all", "", roster.and(tasks.toArray(new long[0][]))));
+        }
+    }
+
+    private static String progressRow(ProgressBits.Roster roster, String taskId, String item, long[] students) {
+        int count = ProgressBits.Roster.count(students);
+        return csv(taskId) + "," + csv(item) + "," + count + ","
+                + String.format(Locale.ROOT, "%.3f", roster.size() == 0 ? 0.0 : (double) count / roster.size()) + "\n";
+    }
+
+    private static Writer open(Path file) throws IOException {
+        return new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    /**
+     * Concatenates one part file from every chunk, in chunk order
+     */
+    private static void merge(List<Path> partDirs, String name, Path target, String header,
+                              String separator, String footer) throws IOException {
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            write(out, header);
+            boolean first = true;
+            for (Path partDir : partDirs) {
+                Path part = partDir.resolve(name);
+                try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                    long size = in.size();
+                    if (size == 0) continue;
+                    if (!first) write(out, separator);
+                    first = false;
+                    long position = 0;
+                    while (position < size) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+            }
+            write(out, footer);
+        }
+    }
+
+    private static void write(FileChannel out, String text) throws IOException {
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(text);
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    static String jsonString(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Running totals for one student's task
+     */
+    private static class TaskTotals {
+        int attempts;
+        int correct;
+        int wrong;
+        int timeouts;
+        int points;
+        long latencySum;
+
+        void add(ProfileStore.Attempt attempt) {
+            attempts++;
+            points += attempt.getPoints();
+            latencySum += attempt.getLatencyMillis();
+            switch (attempt.getOutcome()) {
+                case CORRECT: correct++; break;
+                case WRONG: wrong++; break;
+                case TIMEOUT: timeouts++; break;
+            }
+        }
+
+        double meanLatency() {
+            return attempts == 0 ? 0 : (double) latencySum / attempts;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path dataDir = Paths.get(args.length > 0 ? args[0] : "data");
+        Path outputDir = Paths.get(args.length > 1 ? args[1] : "reports");
+        try (ProfileStore store = ProfileStore.open(dataDir.resolve("profiles"))) {
+            long start = System.nanoTime();
+            int students = new ReportExporter(store, Runtime.getRuntime().availableProcessors()).export(outputDir);
+            System.out.printf(Locale.ROOT, "Exported %d students to %s in %d ms%n",
+                    students, outputDir, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,347 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SessionRecorder - Compact log of one app session for deterministic replay
+ *
+ * A session file starts with the session seed (which seeds every random choice
+ * the app makes) and the student, followed by one record per input: question
+ * requests and answers to questions graded by the task backend, and answers to
+ * questions the panels grade themselves together with the question shown.
+ * {@link SessionReplay} re-runs a file through the task engine at full speed.
+ *
+ * File layout: int magic, byte version, long seed, long start time (epoch ms),
+ * UTF student, UTF backend ("local" or the server address); then records of byte
+ * type, varint milliseconds since the previous record and a type-specific payload.
+ * Strings in records (task IDs, items, answers) are written once and then referred
+ * to by index, and whole-number dimensions are written as varints, so a typical
+ * record takes 5-10 bytes. Records are buffered and flushed by a background thread
+ * every {@link #FLUSH_MILLIS}, when the buffer fills and when the session is
+ * closed, so recording never waits on the disk and a crash loses at most the
+ * last second of records.
+ */
+public class SessionRecorder implements Closeable {
+    public static final String EXTENSION = ".svs";
+    /** Newest session files kept; older ones are deleted when a session starts */
+    public static final int MAX_SESSIONS = 50;
+    public static final String LOCAL_BACKEND = "local";
+    /** Strings remembered for back-references; later new strings are always written out */
+    static final int MAX_STRINGS = 4096;
+    /** Longest time a record stays in the buffer */
+    static final long FLUSH_MILLIS = 1000;
+
+    static final int MAGIC = 0x53565353; // "SVSS"
+    static final byte VERSION = 1;
+
+    // Record types
+    static final byte STUDENT = 1;
+    static final byte QUESTION = 2;
+    static final byte ANSWER = 3;
+    static final byte TIMEOUT = 4;
+    static final byte GRADED = 5;
+
+    // Result of an ANSWER record
+    static final byte RESULT_WRONG = 0;
+    static final byte RESULT_CORRECT = 1;
+    static final byte RESULT_REJECTED = 2; // Not a number
+    static final byte RESULT_FAILED = 3;   // Backend error
+
+    private final DataOutputStream out;
+    private final TaskClock clock;
+    private final Path file;
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final ScheduledExecutorService flusher;
+    private long lastRecordAt;
+    private boolean unflushed;
+
+    private SessionRecorder(Path file, DataOutputStream out, TaskClock clock) {
+        this.file = file;
+        this.out = out;
+        this.clock = clock;
+        this.lastRecordAt = clock.now();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, FLUSH_MILLIS, FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts a new session file in a directory, deleting the oldest files beyond {@link #MAX_SESSIONS}
+     * @param directory The sessions directory
+     * @param seed The session seed
+     * @param studentId The student at the start of the session
+     * @param backend "local" for the in-process backend, otherwise the server address
+     * @param clock Time source for record timestamps
+     * @return The recorder
+     * @throws IOException If the file cannot be created
+     */
+    public static SessionRecorder open(Path directory, long seed, String studentId, String backend,
+                                       TaskClock clock) throws IOException {
+        Files.createDirectories(directory);
+        prune(directory, MAX_SESSIONS - 1);
+        String name = "session-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date())
+                + "-" + Long.toHexString(seed) + EXTENSION;
+        Path file = directory.resolve(name);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(seed);
+        out.writeLong(System.currentTimeMillis());
+        out.writeUTF(studentId);
+        out.writeUTF(backend);
+        out.flush();
+        return new SessionRecorder(file, out, clock);
+    }
+
+    private static void prune(Path directory, int keep) throws IOException {
+        List<Path> sessions = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : files) sessions.add(file);
+        }
+        // Names start with the start time, so they sort oldest first
+        Collections.sort(sessions);
+        for (int i = 0; i < sessions.size() - keep; i++) Files.deleteIfExists(sessions.get(i));
+    }
+
+    /**
+     * @return The session file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Wraps a task backend so its questions and answers are recorded
+     * @param backend The backend
+     * @return The recording backend
+     */
+    public TaskBackend wrap(TaskBackend backend) {
+        return new RecordingBackend(backend);
+    }
+
+    /**
+     * Records an answer to a question graded outside the task backend
+     * @param question The question shown
+     * @param answer The answer as typed (empty for a timeout)
+     * @param attempt The attempt number, starting at 1
+     * @param outcome The result
+     * @param points The points awarded
+     */
+    public void graded(TaskEngine.Question question, String answer, int attempt, AttemptOutcome outcome,
+                       int points) {
+        write(GRADED, out -> {
+            writeString(out, question.getTaskId());
+            writeString(out, question.getItem());
+            writeDims(out, question);
+            writeString(out, answer);
+            out.writeByte(attempt);
+            out.writeByte(outcome.ordinal());
+            out.writeByte(points);
+        });
+    }
+
+    private interface Payload {
+        void write(DataOutput out) throws IOException;
+    }
+
+    private synchronized void write(byte type, Payload payload) {
+        try {
+            long now = clock.now();
+            out.writeByte(type);
+            writeVarLong(out, Math.max(0, now - lastRecordAt));
+            payload.write(out);
+            lastRecordAt = now;
+            unflushed = true;
+        } catch (IOException e) {
+            System.err.println("Error recording session: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes buffered records to the file
+     */
+    private synchronized void flush() {
+        if (!unflushed) return;
+        try {
+            out.flush();
+            unflushed = false;
+        } catch (IOException e) {
+            System.err.println("Error recording session: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        synchronized (this) {
+            unflushed = false;
+            out.close();
+        }
+    }
+
+    /**
+     * Writes a string as varint 0 followed by the string the first time, and as
+     * varint index + 1 after that
+     */
+    private void writeString(DataOutput out, String value) throws IOException {
+        Integer index = strings.get(value);
+        if (index != null) {
+            writeVarLong(out, index + 1);
+        } else {
+            writeVarLong(out, 0);
+            out.writeUTF(value);
+            if (strings.size() < MAX_STRINGS) strings.put(value, strings.size());
+        }
+    }
+
+    static String readString(DataInput in, List<String> strings) throws IOException {
+        int index = (int) readVarLong(in);
+        if (index > 0) {
+            if (index > strings.size()) throw new IOException("Bad string reference " + index);
+            return strings.get(index - 1);
+        }
+        String value = in.readUTF();
+        if (strings.size() < MAX_STRINGS) strings.add(value);
+        return value;
+    }
+
+    /**
+     * Writes dimensions as a count followed by varint 2n for a whole number n, or
+     * varint 1 followed by the double
+     */
+    private static void writeDims(DataOutput out, TaskEngine.Question question) throws IOException {
+        out.writeByte(question.getDimCount());
+        for (int i = 0; i < question.getDimCount(); i++) {
+            double dim = question.getDim(i);
+            if (dim == Math.rint(dim) && dim >= 0 && dim < (1L << 40)) {
+                writeVarLong(out, (long) dim << 1);
+            } else {
+                writeVarLong(out, 1);
+                out.writeDouble(dim);
+            }
+        }
+    }
+
+    static double[] readDims(DataInput in) throws IOException {
+        double[] dims = new double[in.readUnsignedByte()];
+        for (int i = 0; i < dims.length; i++) {
+            long encoded = readVarLong(in);
+            dims[i] = (encoded & 1) == 0 ? (double) (encoded >>> 1) : in.readDouble();
+        }
+        return dims;
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.writeByte((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Records the calls made on a backend along with their results
+     */
+    private class RecordingBackend implements TaskBackend {
+        private final TaskBackend backend;
+
+        RecordingBackend(TaskBackend backend) {
+            this.backend = backend;
+        }
+
+        @Override
+        public void setStudent(String studentId) {
+            write(STUDENT, out -> writeString(out, studentId));
+            backend.setStudent(studentId);
+        }
+
+        @Override
+        public CompletableFuture<ShapevilleServer.IssuedQuestion> question(String taskId, String variant) {
+            CompletableFuture<ShapevilleServer.IssuedQuestion> future = backend.question(taskId, variant);
+            future.thenAccept(issued -> write(QUESTION, out -> {
+                writeString(out, taskId);
+                out.writeBoolean(variant != null);
+                if (variant != null) writeString(out, variant);
+                writeVarLong(out, issued.getId());
+                writeString(out, issued.getQuestion().getItem());
+                writeDims(out, issued.getQuestion());
+            }));
+            return future;
+        }
+
+        @Override
+        public void prefetch(String taskId, String variant) {
+            backend.prefetch(taskId, variant);
+        }
+
+        @Override
+        public CompletableFuture<ShapevilleServer.AnswerResult> answer(long questionId, String answer,
+                                                                       long latencyMillis) {
+            CompletableFuture<ShapevilleServer.AnswerResult> future = backend.answer(questionId, answer, latencyMillis);
+            future.whenComplete((result, error) -> write(ANSWER, out -> {
+                writeVarLong(out, questionId);
+                writeString(out, answer);
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                out.writeByte(result != null ? (result.isCorrect() ? RESULT_CORRECT : RESULT_WRONG)
+                        : cause instanceof NumberFormatException ? RESULT_REJECTED : RESULT_FAILED);
+                out.writeByte(result != null ? result.getPoints() : 0);
+            }));
+            return future;
+        }
+
+        @Override
+        public CompletableFuture<ShapevilleServer.AnswerResult> timeOut(long questionId, long latencyMillis) {
+            CompletableFuture<ShapevilleServer.AnswerResult> future = backend.timeOut(questionId, latencyMillis);
+            future.thenAccept(result -> write(TIMEOUT, out -> writeVarLong(out, questionId)));
+            return future;
+        }
+
+        @Override
+        public void pointsAwarded(String taskId, int points) {
+            backend.pointsAwarded(taskId, points);
+        }
+
+        @Override
+        public void attemptRecorded(String taskId, String item, int attempt, AttemptOutcome outcome,
+                                    int points, long latencyMillis) {
+            backend.attemptRecorded(taskId, item, attempt, outcome, points, latencyMillis);
+        }
+
+        @Override
+        public void close() {
+            backend.close();
+        }
+    }
+}
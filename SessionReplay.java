@@ -0,0 +1,427 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * SessionReplay - Re-runs recorded sessions headlessly through the task engine
+ *
+ * Sessions recorded with the in-process backend are replayed through a
+ * {@link ShapevilleServer} seeded with the session seed, so every question must
+ * come out exactly as it was shown and every answer must be graded the same way.
+ * Sessions recorded against a server cannot regenerate its questions; their
+ * answers are re-graded against the recorded questions instead. Answers graded by
+ * the panels are always re-graded against the recorded question. Any difference
+ * is reported as a mismatch, so a directory of sessions doubles as a regression
+ * corpus; --repeat replays it several times and reports the replay rate.
+ *
+ * Usage: java SessionReplay [--repeat N] [--quiet] file-or-directory...
+ */
+public class SessionReplay {
+    private final TaskEngine engine;
+
+    /**
+     * Creates a replayer
+     * @param engine The task engine to replay against
+     */
+    public SessionReplay(TaskEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Reads a session file; a record torn by a crash ends the session
+     * @param file The file
+     * @return The session
+     * @throws IOException If the file cannot be read or is not a session file
+     */
+    public static Session read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != SessionRecorder.MAGIC) throw new IOException("Not a session file: " + file);
+            int version = in.readByte();
+            if (version != SessionRecorder.VERSION) throw new IOException("Unsupported session version " + version);
+            Session session = new Session(file.getFileName().toString(), in.readLong(), in.readLong(),
+                    in.readUTF(), in.readUTF());
+            List<String> strings = new ArrayList<>();
+            long at = 0;
+            while (true) {
+                int type = in.read();
+                if (type < 0) break;
+                try {
+                    at += SessionRecorder.readVarLong(in);
+                    session.events.add(readEvent((byte) type, at, in, strings));
+                } catch (EOFException e) {
+                    session.truncated = true;
+                    break;
+                }
+            }
+            return session;
+        }
+    }
+
+    private static Event readEvent(byte type, long at, DataInputStream in, List<String> strings)
+            throws IOException {
+        Event event = new Event(type, at);
+        switch (type) {
+            case SessionRecorder.STUDENT:
+                event.studentId = SessionRecorder.readString(in, strings);
+                break;
+            case SessionRecorder.QUESTION:
+                event.taskId = SessionRecorder.readString(in, strings);
+                event.variant = in.readBoolean() ? SessionRecorder.readString(in, strings) : null;
+                event.questionId = SessionRecorder.readVarLong(in);
+                event.item = SessionRecorder.readString(in, strings);
+                event.dims = SessionRecorder.readDims(in);
+                break;
+            case SessionRecorder.ANSWER:
+                event.questionId = SessionRecorder.readVarLong(in);
+                event.answer = SessionRecorder.readString(in, strings);
+                event.result = in.readByte();
+                event.points = in.readByte();
+                break;
+            case SessionRecorder.TIMEOUT:
+                event.questionId = SessionRecorder.readVarLong(in);
+                break;
+            case SessionRecorder.GRADED:
+                event.taskId = SessionRecorder.readString(in, strings);
+                event.item = SessionRecorder.readString(in, strings);
+                event.dims = SessionRecorder.readDims(in);
+                event.answer = SessionRecorder.readString(in, strings);
+                event.attempt = in.readByte();
+                event.result = in.readByte();
+                event.points = in.readByte();
+                break;
+            default:
+                throw new IOException("Unknown record type " + type);
+        }
+        return event;
+    }
+
+    /**
+     * Replays a session
+     * @param session The session
+     * @return One message per mismatch; empty if the replay matched the recording
+     */
+    public List<String> replay(Session session) {
+        List<String> mismatches = new ArrayList<>();
+        boolean regenerate = SessionRecorder.LOCAL_BACKEND.equals(session.backend);
+        ShapevilleServer server = new ShapevilleServer(engine, null, 4, session.seed);
+        String studentId = session.studentId;
+        // Question IDs are per student, so the maps are keyed by student and recorded question ID.
+        // Recorded question -> replayed question ID, or the recorded question when it cannot be replayed
+        Map<String, Long> replayIds = new HashMap<>();
+        Map<String, TaskEngine.Question> detached = new HashMap<>();
+        Map<String, Integer> wrongAttempts = new HashMap<>();
+
+        for (int i = 0; i < session.events.size(); i++) {
+            Event event = session.events.get(i);
+            try {
+                switch (event.type) {
+                    case SessionRecorder.STUDENT:
+                        studentId = event.studentId;
+                        break;
+                    case SessionRecorder.QUESTION: {
+                        if (!regenerate) {
+                            detached.put(key(studentId, event), engine.question(event.taskId, event.item, event.dims));
+                            break;
+                        }
+                        ShapevilleServer.IssuedQuestion issued = server.nextQuestion(studentId, event.taskId, event.variant);
+                        TaskEngine.Question question = issued.getQuestion();
+                        if (question.getItem().equals(event.item) && Arrays.equals(dims(question), event.dims)) {
+                            replayIds.put(key(studentId, event), issued.getId());
+                        } else {
+                            mismatches.add(where(session, i) + "question was " + describe(event.item, event.dims)
+                                    + ", replay generated " + describe(question.getItem(), dims(question)));
+                            detached.put(key(studentId, event), engine.question(event.taskId, event.item, event.dims));
+                        }
+                        break;
+                    }
+                    case SessionRecorder.ANSWER:
+                        replayAnswer(server, studentId, session, i, replayIds, detached, wrongAttempts, mismatches);
+                        break;
+                    case SessionRecorder.TIMEOUT: {
+                        Long id = replayIds.remove(key(studentId, event));
+                        if (id != null) server.timeOut(studentId, id);
+                        detached.remove(key(studentId, event));
+                        wrongAttempts.remove(key(studentId, event));
+                        break;
+                    }
+                    case SessionRecorder.GRADED:
+                        regrade(session, i, mismatches);
+                        break;
+                    default:
+                        break;
+                }
+            } catch (RuntimeException e) {
+                mismatches.add(where(session, i) + "replay failed: " + e);
+            }
+        }
+        return mismatches;
+    }
+
+    private void replayAnswer(ShapevilleServer server, String studentId, Session session, int index,
+                              Map<String, Long> replayIds, Map<String, TaskEngine.Question> detached,
+                              Map<String, Integer> wrongAttempts, List<String> mismatches) {
+        Event event = session.events.get(index);
+        String key = key(studentId, event);
+        byte result;
+        int points = 0;
+        Long id = replayIds.get(key);
+        if (id != null) {
+            try {
+                ShapevilleServer.AnswerResult graded = server.submitAnswer(studentId, id, event.answer);
+                result = graded.isCorrect() ? SessionRecorder.RESULT_CORRECT : SessionRecorder.RESULT_WRONG;
+                points = graded.getPoints();
+                if (graded.isFinished()) replayIds.remove(key);
+            } catch (NumberFormatException e) {
+                result = SessionRecorder.RESULT_REJECTED;
+            } catch (IllegalStateException e) {
+                result = SessionRecorder.RESULT_FAILED;
+            }
+        } else {
+            TaskEngine.Question question = detached.get(key);
+            if (question == null) {
+                // Unknown to the replay too, e.g. the question request was never answered by the backend
+                result = SessionRecorder.RESULT_FAILED;
+            } else {
+                try {
+                    int wrong = wrongAttempts.getOrDefault(key, 0);
+                    if (TaskEngine.check(question, event.answer)) {
+                        result = SessionRecorder.RESULT_CORRECT;
+                        points = TaskEngine.points(question.getTaskId(), question.getDimension(), wrong);
+                    } else {
+                        result = SessionRecorder.RESULT_WRONG;
+                        wrong++;
+                    }
+                    if (result == SessionRecorder.RESULT_CORRECT || wrong >= TaskEngine.MAX_ATTEMPTS) {
+                        detached.remove(key);
+                        wrongAttempts.remove(key);
+                    } else {
+                        wrongAttempts.put(key, wrong);
+                    }
+                } catch (NumberFormatException e) {
+                    result = SessionRecorder.RESULT_REJECTED;
+                }
+            }
+        }
+        if (result != event.result || points != event.points) {
+            mismatches.add(where(session, index) + "answer \"" + event.answer + "\" was " + describeResult(event.result, event.points)
+                    + ", replay gave " + describeResult(result, points));
+        }
+    }
+
+    private void regrade(Session session, int index, List<String> mismatches) {
+        Event event = session.events.get(index);
+        AttemptOutcome outcome = AttemptOutcome.values()[event.result];
+        if (outcome == AttemptOutcome.TIMEOUT) return;
+        TaskEngine.Question question = engine.question(event.taskId, event.item, event.dims);
+        AttemptOutcome replayed;
+        try {
+            replayed = TaskEngine.check(question, event.answer) ? AttemptOutcome.CORRECT : AttemptOutcome.WRONG;
+        } catch (NumberFormatException e) {
+            mismatches.add(where(session, index) + "answer \"" + event.answer + "\" was graded " + outcome + " but is not a number");
+            return;
+        }
+        if (replayed != outcome) {
+            mismatches.add(where(session, index) + event.taskId + " " + describe(event.item, event.dims) + ": answer \""
+                    + event.answer + "\" was graded " + outcome + ", replay graded " + replayed);
+        } else if (outcome == AttemptOutcome.CORRECT && event.points > 0) {
+            // Zero points for a correct answer is the panels' choice (e.g. an angle type already done)
+            int points = TaskEngine.points(event.taskId, question.getDimension(), event.attempt - 1);
+            if (points != event.points) {
+                mismatches.add(where(session, index) + event.taskId + " " + describe(event.item, event.dims) + ": awarded "
+                        + event.points + " points on attempt " + event.attempt + ", rules give " + points);
+            }
+        }
+    }
+
+    private static String key(String studentId, Event event) {
+        return studentId + '\u0000' + event.questionId;
+    }
+
+    private static String where(Session session, int index) {
+        return String.format(Locale.ROOT, "%s #%d at %s: ", session.name, index,
+                formatTime(session.events.get(index).at));
+    }
+
+    private static double[] dims(TaskEngine.Question question) {
+        double[] dims = new double[question.getDimCount()];
+        for (int i = 0; i < dims.length; i++) dims[i] = question.getDim(i);
+        return dims;
+    }
+
+    private static String describe(String item, double[] dims) {
+        return dims.length == 0 ? item : item + " " + Arrays.toString(dims);
+    }
+
+    private static String describeResult(byte result, int points) {
+        switch (result) {
+            case SessionRecorder.RESULT_CORRECT: return "correct (" + points + " points)";
+            case SessionRecorder.RESULT_WRONG: return "wrong";
+            case SessionRecorder.RESULT_REJECTED: return "rejected as not a number";
+            default: return "not accepted";
+        }
+    }
+
+    private static String formatTime(long millis) {
+        return String.format(Locale.ROOT, "%d:%02d.%03d", millis / 60_000, millis / 1000 % 60, millis % 1000);
+    }
+
+    /**
+     * A recorded session
+     */
+    public static class Session {
+        private final String name;
+        private final long seed;
+        private final long startedAt;
+        private final String studentId;
+        private final String backend;
+        private final List<Event> events = new ArrayList<>();
+        private boolean truncated;
+
+        Session(String name, long seed, long startedAt, String studentId, String backend) {
+            this.name = name;
+            this.seed = seed;
+            this.startedAt = startedAt;
+            this.studentId = studentId;
+            this.backend = backend;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        public long getStartedAt() {
+            return startedAt;
+        }
+
+        public String getStudentId() {
+            return studentId;
+        }
+
+        public String getBackend() {
+            return backend;
+        }
+
+        public int getEventCount() {
+            return events.size();
+        }
+
+        /**
+         * @return Recorded length of the session in milliseconds
+         */
+        public long getDuration() {
+            return events.isEmpty() ? 0 : events.get(events.size() - 1).at;
+        }
+
+        /**
+         * @return Whether the file ended in the middle of a record
+         */
+        public boolean isTruncated() {
+            return truncated;
+        }
+    }
+
+    /**
+     * One recorded input; fields not used by the record type are left unset
+     */
+    static class Event {
+        final byte type;
+        final long at;
+        String studentId;
+        String taskId;
+        String variant;
+        String item;
+        double[] dims;
+        long questionId;
+        String answer;
+        byte result;
+        int attempt;
+        int points;
+
+        Event(byte type, long at) {
+            this.type = type;
+            this.at = at;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int repeat = 1;
+        boolean quiet = false;
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--repeat")) repeat = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--quiet")) quiet = true;
+            else addSessions(Paths.get(args[i]), files);
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: java SessionReplay [--repeat N] [--quiet] file-or-directory...");
+            System.exit(2);
+        }
+
+        List<Session> sessions = new ArrayList<>();
+        for (Path file : files) {
+            try {
+                sessions.add(read(file));
+            } catch (IOException e) {
+                System.err.println("Error reading session " + file + ": " + e.getMessage());
+            }
+        }
+        SessionReplay replay = new SessionReplay(new TaskEngine(ShapevilleApp.loadContentBank()));
+
+        long events = 0;
+        long recorded = 0;
+        int mismatches = 0;
+        for (Session session : sessions) {
+            List<String> found = replay.replay(session);
+            events += session.getEventCount();
+            recorded += session.getDuration();
+            mismatches += found.size();
+            if (!quiet || !found.isEmpty()) {
+                System.out.printf(Locale.ROOT, "%s: student %s, %s backend, seed %x, %d events%s, %d mismatches%n",
+                        session.name, session.studentId, session.backend, session.seed, session.getEventCount(),
+                        session.truncated ? " (truncated)" : "", found.size());
+            }
+            for (String mismatch : found) System.out.println("  " + mismatch);
+        }
+
+        // Timed passes over the already loaded sessions
+        long start = System.nanoTime();
+        for (int pass = 1; pass < repeat; pass++) {
+            for (Session session : sessions) replay.replay(session);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf(Locale.ROOT, "%d sessions, %d events, %s recorded, %d mismatches%n",
+                sessions.size(), events, formatTime(recorded), mismatches);
+        if (repeat > 1) {
+            long replayed = events * (repeat - 1);
+            System.out.printf(Locale.ROOT, "Replayed %d more times: %.0f events/s, %.0fx faster than recorded%n",
+                    repeat - 1, replayed * 1e9 / Math.max(1, elapsed),
+                    (double) recorded * (repeat - 1) * 1e6 / Math.max(1, elapsed));
+        }
+        System.exit(mismatches == 0 ? 0 : 1);
+    }
+
+    private static void addSessions(Path path, List<Path> files) throws IOException {
+        if (!Files.isDirectory(path)) {
+            files.add(path);
+            return;
+        }
+        List<Path> found = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path, "*" + SessionRecorder.EXTENSION)) {
+            for (Path file : stream) found.add(file);
+        }
+        Collections.sort(found);
+        files.addAll(found);
+    }
+}
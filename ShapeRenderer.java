@@ -0,0 +1,359 @@
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * ShapeRenderer - Drawing code for the shape image, area shape, protractor and circle panels
+ * The panels call these from paintComponent; they only need a Graphics2D and a
+ * size, so the same drawing can be done offscreen into a BufferedImage.
+ */
+public class ShapeRenderer {
+    private static final int PADDING = 25;
+    private static final int RAY_WIDTH = 3; // Protractor angle ray
+
+    private ShapeRenderer() {
+    }
+
+    /**
+     * Creates an offscreen image filled with a background color
+     * @param width Image width
+     * @param height Image height
+     * @param background The background color
+     * @return The image
+     */
+    public static BufferedImage newImage(int width, int height, Color background) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        clear(image, background);
+        return image;
+    }
+
+    /**
+     * Fills an image with a background color, as a panel does before painting
+     * @param image The image
+     * @param background The background color
+     */
+    public static void clear(BufferedImage image, Color background) {
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(background);
+        g2d.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g2d.dispose();
+    }
+
+    /**
+     * Draws a shape recognition image centered, or an error line if it cannot be read
+     * @param g2d Graphics context
+     * @param width Drawing area width
+     * @param height Drawing area height
+     * @param imagePath Path of the shape's image file
+     */
+    public static void drawShapeImage(Graphics2D g2d, int width, int height, String imagePath) {
+        try {
+            BufferedImage img = ImageLoader.load(new File(imagePath).toURI().toURL());
+            int x = (width - img.getWidth()) / 2;
+            int y = (height - img.getHeight()) / 2;
+            g2d.drawImage(img, x, y, null);
+        } catch (IOException e) {
+            g2d.setColor(Color.RED);
+            g2d.drawString("Image not found: " + imagePath, 10, height / 2);
+        }
+    }
+
+    /**
+     * Draws an area-task shape scaled to fit, with its dimension labels
+     * @param g2d Graphics context
+     * @param width Drawing area width
+     * @param height Drawing area height
+     * @param shapeType One of TaskEngine.AREA_SHAPES
+     * @param d1 First dimension
+     * @param d2 Second dimension
+     * @param d3 Third dimension (for trapezoid)
+     */
+    public static void drawAreaShape(Graphics2D g2d, int width, int height, String shapeType,
+                                     double d1, double d2, double d3) {
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setColor(Color.BLUE);
+        g2d.setStroke(new BasicStroke(2));
+
+        int drawWidth = width - 2 * PADDING;
+        int drawHeight = height - 2 * PADDING;
+
+        // Calculate scaling factor based on shape dimensions
+        double maxDim = Math.max(d1, Math.max(d2, d3));
+        if (shapeType.equals("Trapezium")) maxDim = Math.max(d2, d3);
+        else if (shapeType.equals("Triangle") || shapeType.equals("Parallelogram")) maxDim = Math.max(d1, d2);
+        else if (shapeType.equals("Rectangle")) maxDim = Math.max(d1, d2);
+        if (maxDim <= 0) maxDim = 10;
+
+        double scale = Math.min(drawWidth / maxDim, drawHeight / maxDim) * 0.8;
+        if (shapeType.equals("Rectangle")) {
+            scale = Math.min(drawWidth / d1, drawHeight / d2) * 0.9;
+        }
+
+        // Scale dimensions for drawing
+        int sD1 = (int) (d1 * scale);
+        int sD2 = (int) (d2 * scale);
+        int sD3 = (int) (d3 * scale);
+        int startX = PADDING;
+        int startY = PADDING;
+        g2d.setColor(Color.decode("#4A90E2"));
+
+        // Draw the appropriate shape based on type
+        switch (shapeType) {
+            case "Rectangle":
+                if (sD1 > 0 && sD2 > 0) {
+                    g2d.fillRect(startX + (drawWidth - sD1)/2, startY + (drawHeight - sD2)/2, sD1, sD2);
+                    drawDimensionLabel(g2d, String.format("L: %.1f", d1),
+                            (int)(startX + (drawWidth - sD1)/2.0 + sD1/2.0),
+                            startY + (drawHeight - sD2)/2 + sD2 + 15, true);
+                    drawDimensionLabel(g2d, String.format("W: %.1f", d2),
+                            (int)(startX + (drawWidth - sD1)/2.0 - 20),
+                            (int)(startY + (drawHeight - sD2)/2.0 + sD2/2.0), false);
+                }
+                break;
+            case "Parallelogram":
+                if (sD1 > 0 && sD2 > 0) {
+                    Path2D.Double parallelogram = new Path2D.Double();
+                    int xOffset = sD2 / 2;
+                    if (startX + sD1 + xOffset > width - PADDING) {
+                        xOffset = Math.max(0, (width - PADDING - startX - sD1));
+                    }
+                    int pStartX = startX + (drawWidth - (sD1 + xOffset))/2;
+                    int pStartY = startY + (drawHeight - sD2)/2;
+                    parallelogram.moveTo(pStartX + xOffset, pStartY);
+                    parallelogram.lineTo(pStartX + sD1 + xOffset, pStartY);
+                    parallelogram.lineTo(pStartX + sD1, pStartY + sD2);
+                    parallelogram.lineTo(pStartX, pStartY + sD2);
+                    parallelogram.closePath();
+                    g2d.fill(parallelogram);
+                    drawDimensionLabel(g2d, String.format("Base: %.1f", d1),
+                            (int)(pStartX + sD1/2.0),
+                            pStartY + sD2 + 15, true);
+                    drawDimensionLabel(g2d, String.format("H: %.1f", d2),
+                            pStartX - 20,
+                            (int)(pStartY + sD2/2.0), false);
+                }
+                break;
+            case "Triangle":
+                if (sD1 > 0 && sD2 > 0) {
+                    Path2D.Double triangle = new Path2D.Double();
+                    int tStartX = startX + (drawWidth - sD1)/2;
+                    int tStartY = startY + (drawHeight - sD2)/2;
+                    triangle.moveTo(tStartX + sD1 / 2.0, tStartY);
+                    triangle.lineTo(tStartX + sD1, tStartY + sD2);
+                    triangle.lineTo(tStartX, tStartY + sD2);
+                    triangle.closePath();
+                    g2d.fill(triangle);
+                    drawDimensionLabel(g2d, String.format("Base: %.1f", d1),
+                            (int)(tStartX + sD1/2.0),
+                            tStartY + sD2 + 15, true);
+                    drawDimensionLabel(g2d, String.format("H: %.1f", d2),
+                            (int)(tStartX + sD1/2.0 + 5),
+                            (int)(tStartY + sD2/2.0), false);
+                }
+                break;
+            case "Trapezium":
+                if (sD1 > 0 && sD2 > 0 && sD3 > 0 && sD2 > sD1) {
+                    Path2D.Double trapezium = new Path2D.Double();
+                    int zStartX = startX + (drawWidth - sD2)/2;
+                    int zStartY = startY + (drawHeight - sD3)/2;
+                    double topOffset = (sD2 - sD1) / 2.0;
+                    trapezium.moveTo(zStartX + topOffset, zStartY);
+                    trapezium.lineTo(zStartX + topOffset + sD1, zStartY);
+                    trapezium.lineTo(zStartX + sD2, zStartY + sD3);
+                    trapezium.lineTo(zStartX, zStartY + sD3);
+                    trapezium.closePath();
+                    g2d.fill(trapezium);
+                    drawDimensionLabel(g2d, String.format("a: %.1f", d1),
+                            (int)(zStartX + topOffset + sD1/2.0),
+                            zStartY - 5, true);
+                    drawDimensionLabel(g2d, String.format("b: %.1f", d2),
+                            (int)(zStartX + sD2/2.0),
+                            zStartY + sD3 + 15, true);
+                    drawDimensionLabel(g2d, String.format("h: %.1f", d3),
+                            zStartX + sD2 + 5,
+                            (int)(zStartY + sD3/2.0), false);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Draws dimension labels for the shape
+     * @param g2d Graphics context
+     * @param text Label text
+     * @param x X coordinate
+     * @param y Y coordinate
+     * @param isHorizontal Whether the label is horizontal
+     */
+    private static void drawDimensionLabel(Graphics2D g2d, String text, int x, int y, boolean isHorizontal) {
+        g2d.setColor(Color.BLACK);
+        g2d.setFont(new Font("Arial", Font.PLAIN, 12));
+        FontMetrics fm = g2d.getFontMetrics();
+        int textWidth = fm.stringWidth(text);
+        if (isHorizontal) {
+            g2d.drawString(text, x - textWidth / 2, y);
+        } else {
+            g2d.drawString(text, x, y + fm.getAscent()/2);
+        }
+    }
+
+    /**
+     * Draws a protractor with 10-degree marks and, for a positive angle, the angle's ray
+     * @param g2d Graphics context
+     * @param width Drawing area width
+     * @param height Drawing area height
+     * @param angle The angle in degrees, or 0 for none
+     */
+    public static void drawProtractor(Graphics2D g2d, int width, int height, int angle) {
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        int centerX = width / 2;
+        int centerY = height / 2;
+        int radius = protractorRadius(width, height);
+
+        // Draw protractor background
+        g2d.setColor(new Color(248, 249, 250));
+        Ellipse2D protractor = new Ellipse2D.Double(centerX - radius, centerY - radius,
+                radius * 2, radius * 2);
+        g2d.fill(protractor);
+        g2d.setColor(new Color(55, 65, 81)); // Dark gray border
+        g2d.draw(protractor);
+
+        // Draw scale marks (0-360 degrees, 10-degree intervals, 30-degree labels)
+        g2d.setFont(new Font("Arial", Font.PLAIN, 12));
+        for (int i = 0; i < 360; i += 10) {
+            double rad = Math.toRadians(i);
+            int x1 = centerX + (int) ((radius - 8) * Math.cos(rad));
+            int y1 = centerY - (int) ((radius - 8) * Math.sin(rad));
+            int x2 = centerX + (int) (radius * Math.cos(rad));
+            int y2 = centerY - (int) (radius * Math.sin(rad));
+            g2d.setStroke(new BasicStroke(i % 30 == 0 ? 2 : 1)); // Thicker main scale marks
+            g2d.drawLine(x1, y1, x2, y2);
+            if (i % 30 == 0) { // Display scale values
+                int textX = centerX + (int) ((radius - 25) * Math.cos(rad));
+                int textY = centerY - (int) ((radius - 25) * Math.sin(rad));
+                g2d.drawString(Integer.toString(i), textX, textY);
+            }
+        }
+
+        // Draw center point and baseline (horizontal center line)
+        g2d.setColor(new Color(239, 68, 68)); // Red center point
+        g2d.fillOval(centerX - 4, centerY - 4, 8, 8);
+        g2d.setColor(new Color(55, 65, 81)); // Dark gray baseline
+        g2d.setStroke(new BasicStroke(2));
+        g2d.drawLine(centerX - radius, centerY, centerX + radius, centerY);
+
+        // Draw the user's input angle line (only if the angle is valid)
+        if (angle > 0) {
+            g2d.setColor(new Color(24, 115, 204)); // Blue angle line
+            g2d.setStroke(new BasicStroke(RAY_WIDTH));
+            double angleRad = Math.toRadians(angle);
+            int endX = centerX + (int) (radius * Math.cos(angleRad));
+            int endY = centerY - (int) (radius * Math.sin(angleRad));
+            g2d.drawLine(centerX, centerY, endX, endY); // Draw angle line
+        }
+    }
+
+    /**
+     * @param width Drawing area width
+     * @param height Drawing area height
+     * @return Radius of the protractor drawn by drawProtractor
+     */
+    public static int protractorRadius(int width, int height) {
+        return Math.min(width, height) / 3;
+    }
+
+    /**
+     * Finds the area the protractor's angle ray covers, including its line width and antialiasing
+     * @param width Drawing area width
+     * @param height Drawing area height
+     * @param angle The angle in degrees, or 0 for none
+     * @return The ray's bounds, or an empty rectangle for no ray
+     */
+    public static Rectangle protractorRayBounds(int width, int height, int angle) {
+        if (angle <= 0) return new Rectangle();
+        int centerX = width / 2;
+        int centerY = height / 2;
+        int radius = protractorRadius(width, height);
+        double angleRad = Math.toRadians(angle);
+        int endX = centerX + (int) (radius * Math.cos(angleRad));
+        int endY = centerY - (int) (radius * Math.sin(angleRad));
+        int pad = RAY_WIDTH / 2 + 2;
+        return new Rectangle(Math.min(centerX, endX) - pad, Math.min(centerY, endY) - pad,
+                Math.abs(endX - centerX) + 2 * pad + 1, Math.abs(endY - centerY) + 2 * pad + 1);
+    }
+
+    /**
+     * Tests whether a point is on or near the protractor's angle ray
+     * @param width Drawing area width
+     * @param height Drawing area height
+     * @param angle The angle in degrees, or 0 for none
+     * @param x Point X
+     * @param y Point Y
+     * @param tolerance Greatest distance from the ray that still counts, in pixels
+     * @return Whether the point hits the ray
+     */
+    public static boolean hitsProtractorRay(int width, int height, int angle, int x, int y, int tolerance) {
+        if (angle <= 0) return false;
+        int centerX = width / 2;
+        int centerY = height / 2;
+        int radius = protractorRadius(width, height);
+        double angleRad = Math.toRadians(angle);
+        double dx = radius * Math.cos(angleRad), dy = -radius * Math.sin(angleRad);
+        double px = x - centerX, py = y - centerY;
+        // Nearest point of the ray is at t along it, clamped to the ray's ends
+        double t = Math.max(0, Math.min(1, (px * dx + py * dy) / ((double) radius * radius)));
+        double ox = px - t * dx, oy = py - t * dy;
+        return ox * ox + oy * oy <= (double) tolerance * tolerance;
+    }
+
+    /**
+     * Finds the protractor angle pointing at a point, snapped to a step
+     * @param width Drawing area width
+     * @param height Drawing area height
+     * @param x Point X
+     * @param y Point Y
+     * @param step Snap step in degrees
+     * @return The angle in degrees, 0 up to but not including 360
+     */
+    public static int protractorAngle(int width, int height, int x, int y, int step) {
+        double degrees = Math.toDegrees(Math.atan2(height / 2 - y, x - width / 2));
+        int snapped = (int) Math.round(degrees / step) * step;
+        return (snapped % 360 + 360) % 360;
+    }
+
+    /**
+     * Draws a centered circle with its radius line and label
+     * @param g2d Graphics context
+     * @param width Drawing area width
+     * @param height Drawing area height
+     * @param radius Radius in pixels (4 pixels per cm)
+     */
+    public static void drawCircle(Graphics2D g2d, int width, int height, int radius) {
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        int centerX = width / 2;
+        int centerY = height / 2;
+
+        // Draw circle with radius line
+        g2d.setColor(new Color(200, 255, 200));
+        Ellipse2D circle = new Ellipse2D.Double(centerX - radius, centerY - radius, radius * 2, radius * 2);
+        g2d.fill(circle);
+        g2d.setColor(Color.BLACK);
+        g2d.draw(circle);
+
+        g2d.setStroke(new BasicStroke(2.0f));
+        g2d.drawLine(centerX, centerY, centerX + radius, centerY);
+        g2d.setFont(new Font("Arial", Font.PLAIN, 14));
+        g2d.drawString("Radius: " + radius/4 + "cm", centerX + radius / 2, centerY - 10);
+    }
+}
@@ -1,23 +1,38 @@
+import javax.imageio.ImageIO;
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.Arc2D;
-import java.awt.geom.Ellipse2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Objects;
 import java.util.Random;
-import javax.imageio.ImageIO;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.text.DecimalFormat;
-import java.awt.geom.Path2D;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 /**
  * ShapevilleApp - A Geometry Learning Application
  * This application provides an interactive learning environment for geometry concepts
@@ -44,19 +59,80 @@ public class ShapevilleApp {
     private JFrame mainFrame;
     private CardLayout cardLayout;
     private JPanel mainPanel;
+    private CardLifecycle cards;
     private int score = 0;
     private int progress = 0;
-    private Random random = new Random();
+    private final Random random;
     private JLabel scoreLabel;
     private JProgressBar progressBar;
-    private Set<String> completedTasks = new HashSet<>();
+    private final ProgressBits completed = new ProgressBits(); // Completed tasks and items of the current student
     private JLabel timerLabel;
+    private final ItemBank contentBank = loadContentBank();
+    private final TaskEngine taskEngine = new TaskEngine(contentBank);
+    // Questions and grading for the panels listed in BACKEND_TASKS; a thin client when shapeville.server is set
+    private TaskBackend taskBackend;
+    private static final Set<String> BACKEND_TASKS = new HashSet<>(Arrays.asList(TaskEngine.SHAPES, TaskEngine.AREA));
+    private EventJournal journal;
+
+    // Student profiles: the profile store is only touched from the profile writer thread
+    private static final String DEFAULT_STUDENT = "guest";
+    private ProfileStore profileStore;
+    private final ExecutorService profileWriter = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "profile-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private String studentId = DEFAULT_STUDENT;
+    private JLabel studentLabel;
+
+    // Starting view of a 3D shape, and how far a mouse drag turns it
+    private static final double INITIAL_YAW = 0.6;
+    private static final double INITIAL_PITCH = 0.4;
+    private static final double RADIANS_PER_PIXEL = 0.01;
+
+    // Dragging the protractor's ray: angles snap to the task's steps, and the ray can be grabbed this near
+    private static final int ANGLE_SNAP = 10;
+    private static final int RAY_GRAB_PIXELS = 8;
+
+    // Operational metrics, published by Metrics over JMX and in data/metrics.json
+    private static final LongAdder QUESTIONS_SERVED = Metrics.global().counter("questions.served");
+    private static final LongAdder ANSWERS = Metrics.global().counter("answers");
+    private static final LongAdder CORRECT_ANSWERS = Metrics.global().counter("answers.correct");
+    private static final LongAdder TIMEOUTS = Metrics.global().counter("questions.timedOut");
+    private static final LongAdder TASKS_COMPLETED = Metrics.global().counter("tasks.completed");
+    private static final LatencyHistogram ANSWER_MILLIS = Metrics.global().histogram("answers.latencyMillis");
+    private static final LatencyHistogram PAINT_MICROS = Metrics.global().histogram("paint.micros");
+
+    private final TaskClock clock;
+    private final long sessionSeed;
+    private SessionRecorder session;
+
+    /**
+     * Creates the application with wall-clock countdowns and the session seed given by
+     * the shapeville.seed system property (a fresh one if unset)
+     */
+    public ShapevilleApp() {
+        this(new TaskClock.Swing(), Long.getLong("shapeville.seed", System.nanoTime()));
+    }
+
+    /**
+     * Creates the application
+     * @param clock Time source for countdowns, delayed transitions and answer latencies
+     * @param sessionSeed Seed for every random choice, recorded so the session can be replayed
+     */
+    ShapevilleApp(TaskClock clock, long sessionSeed) {
+        this.clock = clock;
+        this.sessionSeed = sessionSeed;
+        this.random = new Random(sessionSeed);
+    }
 
     /**
      * Main entry point of the application
      * @param args Command line arguments (not used)
      */
     public static void main(String[] args) {
+        EdtWatchdog.installIfEnabled(Paths.get(System.getProperty("shapeville.data", "data"), "edt-stalls.txt"));
+        Metrics.startIfEnabled(Paths.get(System.getProperty("shapeville.data", "data"), "metrics.json"));
         new ShapevilleApp().createAndShowGUI();
     }
 
@@ -64,6 +140,9 @@ public class ShapevilleApp {
      * Creates and initializes the main application window and UI components
      */
     private void createAndShowGUI() {
+        // Restore score and progress from the journal before building the panels
+        openStores();
+
         // Initialize main window
         mainFrame = new JFrame("Shapeville - Geometry Learning App");
         mainFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -81,44 +160,400 @@ public class ShapevilleApp {
         cardLayout = new CardLayout();
         mainPanel = new JPanel(cardLayout);
         mainPanel.setBackground(CARTOON_BACKGROUND);
+        cards = new CardLifecycle(mainPanel, cardLayout, CardLifecycle.configuredBudget());
 
         // Add all task panels
-        mainPanel.add(createHomePanel(), "home");
-        mainPanel.add(createKS1Task1Panel(), "ks1_task1");
-        mainPanel.add(createKS1Task2Panel(), "ks1_task2");
-        mainPanel.add(createShapeAreaCalculationPanel(), "ks2_task3");
-        mainPanel.add(createCircleCalculationPanel(), "ks2_task4");
-        mainPanel.add(new BonusTaskCompositePanel(), "bonus_task_composite");
-        mainPanel.add(new BonusTaskSectorPanel(), "bonus_task_sector");
+        addPanels();
 
         mainFrame.add(mainPanel);
         mainFrame.setVisible(true);
     }
 
+    /**
+     * Adds the home panel and all task panels to the main card layout.
+     * Task panels are built when first opened and may be released while hidden;
+     * item progress is kept in the student's progress and the angle panel's
+     * correct count in its card model.
+     */
+    private void addPanels() {
+        cards.add("home", this::createHomePanel, false);
+        cards.add("ks1_task1", this::createKS1Task1Panel, true);
+        cards.add("ks1_task2", this::createKS1Task2Panel, true);
+        cards.add("ks2_task3", this::createShapeAreaCalculationPanel, true);
+        cards.add("ks2_task4", this::createCircleCalculationPanel, true);
+        cards.add("bonus_task_composite", () -> new BonusTaskCompositePanel(), true);
+        cards.add("bonus_task_sector", () -> new BonusTaskSectorPanel(), true);
+    }
+
+    /**
+     * Loads the content bank named by the shapeville.bank system property
+     * (default content/shapeville.bank), falling back to the built-in content
+     * @return The content bank
+     */
+    static ItemBank loadContentBank() {
+        Path bankPath = Paths.get(System.getProperty("shapeville.bank", "content/shapeville.bank"));
+        if (Files.isRegularFile(bankPath)) {
+            try {
+                return ItemBank.open(bankPath);
+            } catch (IOException e) {
+                System.err.println("Error opening content bank " + bankPath + ": " + e.getMessage());
+            }
+        }
+        return ItemBankWriter.builtIn().toBank();
+    }
+
+    /**
+     * Opens the event journal and the student profile store in the directory named
+     * by the shapeville.data system property (default data) and restores the
+     * current student's score and progress. The journal holds the latest state,
+     * so it is written back to the profile store after recovery.
+     * Both are flushed and closed by a shutdown hook, so "End Session" and
+     * closing the window keep everything recorded so far.
+     * Also starts the task backend and records the session under sessions/.
+     */
+    private void openStores() {
+        Path dataDir = Paths.get(System.getProperty("shapeville.data", "data"));
+        boolean journalHasStudent = false;
+        try {
+            journal = EventJournal.open(dataDir);
+            EventJournal.State state = journal.getRecoveredState();
+            journalHasStudent = state.getStudentId() != null;
+            if (journalHasStudent) studentId = state.getStudentId();
+            score = state.getScore();
+            for (String task : state.getCompletedTasks()) completed.completeTask(task);
+            progress = completed.percent();
+        } catch (IOException e) {
+            System.err.println("Error opening journal in " + dataDir + ": " + e.getMessage());
+        }
+        try {
+            profileStore = ProfileStore.open(dataDir.resolve("profiles"));
+            ProfileStore.Profile stored = profileStore.load(studentId);
+            if (stored != null && (journal == null || !journalHasStudent)) {
+                applyProfile(stored);
+            } else {
+                // The journal only records tasks; item progress comes from the stored profile
+                if (stored != null) completed.mergeItems(stored.getCompletedMask());
+                profileStore.save(studentId, score, completed.getBits());
+            }
+        } catch (IOException e) {
+            System.err.println("Error opening profile store in " + dataDir + ": " + e.getMessage());
+        }
+        if (journal != null && !journalHasStudent) {
+            journal.studentSelected(studentId, score, completed.taskIds());
+        }
+
+        String server = System.getProperty("shapeville.server");
+        taskBackend = server != null ? ShapevilleClient.connect(server, studentId)
+                : new TaskBackend.Local(taskEngine, studentId, sessionSeed);
+        try {
+            session = SessionRecorder.open(dataDir.resolve("sessions"), sessionSeed, studentId,
+                    server != null ? server : SessionRecorder.LOCAL_BACKEND, clock);
+            taskBackend = session.wrap(taskBackend);
+        } catch (IOException e) {
+            System.err.println("Error starting session recording in " + dataDir + ": " + e.getMessage());
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(this::closeStores, "stores-shutdown"));
+    }
+
+    /**
+     * Flushes pending profile writes and closes the profile store and journal
+     */
+    private void closeStores() {
+        if (taskBackend != null) taskBackend.close();
+        try {
+            if (session != null) session.close();
+        } catch (IOException e) {
+            System.err.println("Error closing session recording: " + e.getMessage());
+        }
+        profileWriter.shutdown();
+        try {
+            profileWriter.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (profileStore != null) profileStore.close();
+        } catch (IOException e) {
+            System.err.println("Error closing profile store: " + e.getMessage());
+        }
+        try {
+            if (journal != null) journal.close();
+        } catch (IOException e) {
+            System.err.println("Error closing journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Saves the current student and switches to another one without restarting.
+     * The profiles are written and read on the profile writer thread; once the new
+     * one is loaded, task panels are rebuilt so no per-task state carries over.
+     * @param newStudentId The student to switch to
+     * @param switchButton The button to disable while the profile loads
+     */
+    private void switchStudent(String newStudentId, JButton switchButton) {
+        if (profileStore == null) {
+            JOptionPane.showMessageDialog(mainFrame, "Student profiles are not available.",
+                    "Switch Student", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        String previousId = studentId;
+        int previousScore = score;
+        long previousMask = completed.getBits();
+        Future<ProfileStore.Profile> loading = profileWriter.submit(() -> {
+            profileStore.save(previousId, previousScore, previousMask);
+            profileStore.sync();
+            return profileStore.loadOrCreate(newStudentId);
+        });
+        switchButton.setEnabled(false);
+        new SwingWorker<ProfileStore.Profile, Void>() {
+            @Override
+            protected ProfileStore.Profile doInBackground() throws Exception {
+                return loading.get();
+            }
+
+            @Override
+            protected void done() {
+                switchButton.setEnabled(true);
+                try {
+                    applyStudent(get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() instanceof ExecutionException ? e.getCause().getCause() : e.getCause();
+                    JOptionPane.showMessageDialog(mainFrame, "Could not load student: " + cause.getMessage(),
+                            "Switch Student", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Makes a loaded profile the current student and rebuilds the task panels
+     * @param profile The profile
+     */
+    private void applyStudent(ProfileStore.Profile profile) {
+        applyProfile(profile);
+        if (journal != null) journal.studentSelected(studentId, score, completed.taskIds());
+        taskBackend.setStudent(studentId);
+
+        cards.clear();
+        addPanels();
+        cards.show("home");
+        mainPanel.revalidate();
+        mainPanel.repaint();
+    }
+
+    /**
+     * Exports the class results report into reports/ in the background.
+     * Pending profile writes are flushed first so the report includes the latest answers.
+     * @param exportButton The button to disable while the export runs
+     */
+    private void exportReport(JButton exportButton) {
+        if (profileStore == null) {
+            JOptionPane.showMessageDialog(mainFrame, "Student profiles are not available.",
+                    "Export Report", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        Path outputDir = Paths.get(System.getProperty("shapeville.reports", "reports"));
+        Future<?> pendingWrites = profileWriter.submit(() -> { });
+        exportButton.setEnabled(false);
+        new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() throws Exception {
+                pendingWrites.get();
+                return new ReportExporter(profileStore, Runtime.getRuntime().availableProcessors()).export(outputDir);
+            }
+
+            @Override
+            protected void done() {
+                exportButton.setEnabled(true);
+                try {
+                    int students = get();
+                    JOptionPane.showMessageDialog(mainFrame,
+                            "Exported results for " + students + " students to " + outputDir.toAbsolutePath(),
+                            "Export Report", JOptionPane.INFORMATION_MESSAGE);
+                } catch (InterruptedException | ExecutionException ex) {
+                    JOptionPane.showMessageDialog(mainFrame, "Report export failed: " + ex.getMessage(),
+                            "Export Report", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Makes a stored profile the current student
+     * @param profile The profile to apply
+     */
+    private void applyProfile(ProfileStore.Profile profile) {
+        studentId = profile.getStudentId();
+        score = profile.getScore();
+        completed.setBits(profile.getCompletedMask());
+        progress = completed.percent();
+    }
+
+    /**
+     * Writes the current student's score and completed tasks to the profile store
+     * on the profile writer thread
+     */
+    private void saveProfileAsync() {
+        if (profileStore == null) return;
+        String id = studentId;
+        int currentScore = score;
+        long mask = completed.getBits();
+        profileWriter.execute(() -> {
+            try {
+                profileStore.save(id, currentScore, mask);
+            } catch (IOException e) {
+                System.err.println("Error saving profile " + id + ": " + e.getMessage());
+            }
+        });
+    }
+
     /**
      * Marks a task as completed and updates progress
      * @param taskId The ID of the completed task
      */
     private void completeTask(String taskId) {
-        if (!completedTasks.contains(taskId)) {
-            completedTasks.add(taskId);
-            progress = (int) (((double) completedTasks.size() / 6) * 100);
+        if (completed.completeTask(taskId)) {
+            progress = completed.percent();
+            if (journal != null) journal.taskCompleted(taskId);
+            ShapevilleEvents.taskCompleted(taskId, score, progress);
+            TASKS_COMPLETED.increment();
+            saveProfileAsync();
             if (scoreLabel != null) scoreLabel.setText("Current Score: " + score);
             if (progressBar != null) progressBar.setValue(progress);
         }
     }
 
+    /**
+     * Marks an item of a task as completed and saves it with the profile
+     * @param taskId The ID of the task
+     * @param item The item
+     */
+    private void completeItem(String taskId, String item) {
+        if (completed.completeItem(taskId, item)) saveProfileAsync();
+    }
+
+    /**
+     * Adds points to the score, records them in the journal and refreshes the score label
+     * @param taskId The ID of the task awarding the points
+     * @param points The points to add
+     */
+    private void awardPoints(String taskId, int points) {
+        score += points;
+        if (journal != null) journal.scoreAwarded(taskId, points);
+        if (!BACKEND_TASKS.contains(taskId)) taskBackend.pointsAwarded(taskId, points);
+        saveProfileAsync();
+        if (scoreLabel != null) {
+            scoreLabel.setText("Current Score: " + score);
+        }
+    }
+
+    /**
+     * Marks a question as shown to the student
+     * @param taskId The ID of the task
+     * @param item The item shown
+     * @return The time shown, for the attempt latency
+     */
+    private long questionShown(String taskId, String item) {
+        ShapevilleEvents.questionStarted(taskId, item);
+        QUESTIONS_SERVED.increment();
+        return clock.now();
+    }
+
+    /**
+     * Records a panel's paint time in the paint.micros metric
+     * @param startNanos System.nanoTime() when painting started
+     */
+    private static void painted(long startNanos) {
+        PAINT_MICROS.record((System.nanoTime() - startNanos) / 1000);
+    }
+
+    /**
+     * Records a single answer attempt
+     * @param taskId The ID of the task
+     * @param item The item being answered
+     * @param attempt The attempt number, starting at 1
+     * @param outcome The result of the attempt
+     * @param points The points awarded for the attempt
+     * @param questionStartedAt Time in milliseconds when the question was shown
+     */
+    private void recordAttempt(String taskId, String item, int attempt, AttemptOutcome outcome,
+                               int points, long questionStartedAt) {
+        long now = clock.now();
+        long latency = now - questionStartedAt;
+        ShapevilleEvents.attempted(taskId, item, attempt, outcome, points, latency);
+        if (outcome == AttemptOutcome.TIMEOUT) {
+            TIMEOUTS.increment();
+        } else {
+            ANSWERS.increment();
+            if (outcome == AttemptOutcome.CORRECT) CORRECT_ANSWERS.increment();
+            ANSWER_MILLIS.record(latency);
+        }
+        if (journal != null) journal.itemAttempted(taskId, item, attempt, outcome, points, latency);
+        if (!BACKEND_TASKS.contains(taskId)) {
+            taskBackend.attemptRecorded(taskId, item, attempt, outcome, points, latency);
+        }
+        if (profileStore != null) {
+            String id = studentId;
+            ProfileStore.Attempt record = new ProfileStore.Attempt(now, taskId, item, attempt, outcome, points, latency);
+            profileWriter.execute(() -> {
+                try {
+                    profileStore.appendAttempt(id, record);
+                } catch (IOException e) {
+                    System.err.println("Error saving attempt for " + id + ": " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Records an answer graded by a panel (rather than the task backend) in the session file
+     * @param question The question shown
+     * @param answer The answer as typed, or empty for a timeout
+     * @param attempt The attempt number, starting at 1
+     * @param outcome The result of the attempt
+     * @param points The points awarded for the attempt
+     */
+    private void recordAnswer(TaskEngine.Question question, String answer, int attempt, AttemptOutcome outcome,
+                              int points) {
+        if (session != null) session.graded(question, answer, attempt, outcome, points);
+    }
+
+    /**
+     * Runs a callback on the event dispatch thread once a backend call completes
+     * @param future The pending result
+     * @param onResult Called with the result
+     * @param onError Called with the failure (unwrapped from CompletionException)
+     */
+    private <T> void onEdt(CompletableFuture<T> future, Consumer<T> onResult, Consumer<Throwable> onError) {
+        future.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            if (error == null) {
+                onResult.accept(result);
+            } else {
+                onError.accept(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            }
+        }));
+    }
+
+    /**
+     * Tells the student a backend call failed
+     * @param error The failure
+     */
+    private void showBackendError(Throwable error) {
+        JOptionPane.showMessageDialog(mainFrame, "Could not reach the Shapeville server: " + error.getMessage(),
+                "Connection Problem", JOptionPane.ERROR_MESSAGE);
+    }
+
     /**
      * Determines the correct shape name based on description
      * @param description The shape description
      * @return The corresponding shape name
      */
     private String getCorrectShapeForDescription(String description) {
-        if (description.contains("4 equal sides")) return "Square";
-        if (description.contains("round")) return "Circle";
-        if (description.contains("3 sides")) return "Triangle";
-        if (description.contains("4 sides") && description.contains("opposite sides")) return "Rectangle";
-        return "Square";
+        return TaskEngine.shapeForDescription(description);
     }
 
     /**
@@ -127,10 +562,7 @@ public class ShapevilleApp {
      * @return The type of angle (Acute/Right/Obtuse/Reflex)
      */
     private String getAngleType(int degree) {
-        if (degree < 90) return "Acute";
-        if (degree == 90) return "Right";
-        if (degree < 180) return "Obtuse";
-        return "Reflex";
+        return TaskEngine.angleType(degree);
     }
 
 
@@ -162,7 +594,13 @@ public class ShapevilleApp {
         contentPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
         contentPanel.setBackground(CARTOON_BACKGROUND);
 
-        // Add score display
+        // Add student and score display
+        studentLabel = new JLabel("Student: " + studentId);
+        studentLabel.setFont(CARTOON_TEXT_FONT);
+        studentLabel.setForeground(CARTOON_TEXT);
+        studentLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+        contentPanel.add(studentLabel);
+
         scoreLabel = new JLabel("Current Score: " + score);
         scoreLabel.setFont(CARTOON_TEXT_FONT);
         scoreLabel.setForeground(CARTOON_TEXT);
@@ -227,6 +665,23 @@ public class ShapevilleApp {
                 System.exit(0);
             }
         });
+        JButton switchStudentButton = createCartoonButton("Switch Student");
+        switchStudentButton.addActionListener(e -> {
+            String newId = JOptionPane.showInputDialog(mainFrame, "Enter student ID:",
+                    "Switch Student", JOptionPane.QUESTION_MESSAGE);
+            if (newId == null) return;
+            if (!ProfileStore.isValidId(newId)) {
+                JOptionPane.showMessageDialog(mainFrame,
+                        "Please enter a student ID of up to " + ProfileStore.MAX_ID_BYTES + " characters.",
+                        "Invalid Student ID", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            switchStudent(newId.trim(), switchStudentButton);
+        });
+        JButton exportReportButton = createCartoonButton("Export Report");
+        exportReportButton.addActionListener(e -> exportReport(exportReportButton));
+        buttonPanel.add(switchStudentButton);
+        buttonPanel.add(exportReportButton);
         buttonPanel.add(endSessionButton);
         homePanel.add(buttonPanel, BorderLayout.SOUTH);
 
@@ -270,7 +725,7 @@ public class ShapevilleApp {
      */
     private JButton createLevelButton(String text, String panelName) {
         JButton button = createCartoonButton(text);
-        button.addActionListener(e -> cardLayout.show(mainPanel, panelName));
+        button.addActionListener(e -> cards.show(panelName));
         return button;
     }
 
@@ -280,41 +735,31 @@ public class ShapevilleApp {
      */
     class ShapeList {
         private final List<Shape> shapeList = new ArrayList<>();
+        private final Map<Integer, Shape> shapesByKey = new HashMap<>();
 
         /**
-         * Initializes the shape list with predefined 2D and 3D shapes
+         * Initializes the shape list from the shapes section of the content bank
          */
         public ShapeList() {
-            // Initialize 2D shapes
-            shapeList.add(new Shape("circle", "A round shape with no corners", 2));
-            shapeList.add(new Shape("rectangle", "A shape with 4 sides and 4 right angles, opposite sides are equal", 2));
-            shapeList.add(new Shape("triangle", "A shape with 3 sides and 3 angles", 2));
-            shapeList.add(new Shape("oval", "An elongated round shape", 2));
-            shapeList.add(new Shape("octagon", "A shape with 8 sides", 2));
-            shapeList.add(new Shape("square", "A shape with 4 equal sides and 4 right angles", 2));
-            shapeList.add(new Shape("heptagon", "A shape with 7 sides", 2));
-            shapeList.add(new Shape("rhombus", "A shape with 4 equal sides, opposite angles equal", 2));
-            shapeList.add(new Shape("pentagon", "A shape with 5 sides", 2));
-            shapeList.add(new Shape("hexagon", "A shape with 6 sides", 2));
-            shapeList.add(new Shape("kite", "A shape with two distinct pairs of adjacent sides equal", 2));
-
-            // Initialize 3D shapes
-            shapeList.add(new Shape("cube", "A 3D shape with 6 equal square faces", 3));
-            shapeList.add(new Shape("cuboid", "A 3D shape with 6 rectangular faces", 3));
-            shapeList.add(new Shape("cylinder", "A 3D shape with two circular bases and a curved surface", 3));
-            shapeList.add(new Shape("sphere", "A perfectly round 3D shape like a ball", 3));
-            shapeList.add(new Shape("cone", "A 3D shape with a circular base and a pointed top", 3));
-            shapeList.add(new Shape("triangular prism", "A 3D shape with triangular ends and rectangular faces", 3));
-            shapeList.add(new Shape("square - based pyramid", "A 3D shape with a square base and triangular faces meeting at a point", 3));
-            shapeList.add(new Shape("tetrahedron", "A 3D shape with 4 triangular faces", 3));
+            ItemBank.Task shapes = contentBank.task(ItemBankWriter.SHAPES_TASK);
+            if (shapes == null) {
+                throw new IllegalStateException("Content bank has no '" + ItemBankWriter.SHAPES_TASK + "' section");
+            }
+            for (int i = 0; i < shapes.size(); i++) {
+                ItemBank.Item item = shapes.item(i);
+                Shape shape = new Shape(item.getName(), item.getDescription(), item.getDimension(), item.getAsset());
+                shapeList.add(shape);
+                shapesByKey.put(item.getKey(), shape);
+            }
         }
 
         /**
-         * Retrieves a random shape from the list
-         * @return A randomly selected shape
+         * Looks up a shape by its content bank key
+         * @param key The item key
+         * @return The shape, or null if unknown
          */
-        public Shape getRandomShape() {
-            return shapeList.get(new Random().nextInt(shapeList.size()));
+        public Shape getShape(int key) {
+            return shapesByKey.get(key);
         }
 
         /**
@@ -324,17 +769,21 @@ public class ShapevilleApp {
             private final String name;
             private final String description;
             private final int dimension;
+            private final String assetPath;
 
             /**
              * Creates a new shape with specified properties
              * @param name The name of the shape
              * @param description A description of the shape
              * @param dimension The dimension (2 for 2D, 3 for 3D)
+             * @param assetPath Path of the shape image, or null to use the default location
              */
-            public Shape(String name, String description, int dimension) {
+            public Shape(String name, String description, int dimension, String assetPath) {
                 this.name = name;
                 this.description = description;
                 this.dimension = dimension;
+                this.assetPath = assetPath != null ? assetPath
+                        : (dimension == 2 ? "image2D/" : "image3D/") + name + ".png";
             }
 
             public String getName() {
@@ -349,6 +798,10 @@ public class ShapevilleApp {
                 return dimension;
             }
 
+            public String getAssetPath() {
+                return assetPath;
+            }
+
             @Override
             public boolean equals(Object obj) {
                 if (this == obj) return true;
@@ -366,66 +819,86 @@ public class ShapevilleApp {
 
     /**
      * Manages the shape recognition task flow and state
-     * Handles user interactions, scoring, and progress tracking
+     * Questions are issued and graded by the task backend; this class is only
+     * used on the event dispatch thread
      */
     class ShapeTask {
         private final ShapeList shapeList;
-        private List<ShapeList.Shape> shapesToIdentify;
         private int currentIndex;
         private ShapeList.Shape currentShape;
+        private VectorShapes.Style currentStyle = VectorShapes.Style.DEFAULT;
+        private long currentQuestionId;
         private int attemptsLeft;
         private static final int MAX_ATTEMPTS = 3;
         private static final int TOTAL_SHAPES = 4;
         private int targetDimension;
+        private long questionStartedAt;
+        // Grades the current question: the task backend, or localShapes for a question made here
+        private TaskBackend questionBackend;
+        private TaskBackend.Local localShapes;
 
         /**
          * Initializes a new shape recognition task
          */
         public ShapeTask() {
             shapeList = new ShapeList();
-            shapesToIdentify = new ArrayList<>();
-            currentIndex = 0;
+            currentIndex = -1;
             attemptsLeft = MAX_ATTEMPTS;
         }
 
         /**
          * Starts a new task with shapes of the specified dimension
          * @param dimension The target dimension (2 for 2D, 3 for 3D)
+         * @return The first question, to be passed to {@link #show}
          */
-        public void startNewTask(int dimension) {
+        public CompletableFuture<ShapevilleServer.IssuedQuestion> startNewTask(int dimension) {
             targetDimension = dimension;
-            shapesToIdentify.clear();
-            List<ShapeList.Shape> allShapes = new ArrayList<>();
-
-            // Filter shapes by dimension
-            for (int i = 0; i < 100; i++) {
-                ShapeList.Shape shape = shapeList.getRandomShape();
-                if (shape.getDimension() == targetDimension && !allShapes.contains(shape)) {
-                    allShapes.add(shape);
-                }
-                if (allShapes.size() >= TOTAL_SHAPES) break;
-            }
+            currentIndex = -1;
+            currentShape = null;
+            return nextTask();
+        }
 
-            // Randomly select shapes for the task
-            Collections.shuffle(allShapes);
-            shapesToIdentify = allShapes.subList(0, Math.min(TOTAL_SHAPES, allShapes.size()));
-            currentIndex = 0;
-            currentShape = shapesToIdentify.get(currentIndex);
-            attemptsLeft = MAX_ATTEMPTS;
+        /**
+         * Fetches the next shape in the task
+         * @return The next question, to be passed to {@link #show}
+         */
+        public CompletableFuture<ShapevilleServer.IssuedQuestion> nextTask() {
+            return taskBackend.question(TaskEngine.SHAPES, String.valueOf(targetDimension));
         }
 
         /**
-         * Advances to the next shape in the task
-         * @return true if there are more shapes, false if task is complete
+         * Starts fetching the next shape while the student reads the feedback
          */
-        public boolean nextTask() {
-            currentIndex++;
-            if (currentIndex < shapesToIdentify.size()) {
-                currentShape = shapesToIdentify.get(currentIndex);
-                attemptsLeft = MAX_ATTEMPTS;
-                return true;
+        public void prefetchNext() {
+            if (!isTaskCompleted()) taskBackend.prefetch(TaskEngine.SHAPES, String.valueOf(targetDimension));
+        }
+
+        /**
+         * Makes a fetched question the current shape; a shape this app's content bank
+         * does not have is reported and replaced by a question made locally
+         * @param question The question
+         */
+        public void show(ShapevilleServer.IssuedQuestion question) {
+            int key = (int) question.getQuestion().getDim(0);
+            currentShape = shapeList.getShape(key);
+            questionBackend = taskBackend;
+            if (currentShape == null) {
+                System.err.println("Error showing shape " + key + ": not in the content bank");
+                JOptionPane.showMessageDialog(mainFrame,
+                        "The server asked about a shape this app does not know; a local question is used instead.",
+                        "Unknown Shape", JOptionPane.WARNING_MESSAGE);
+                if (localShapes == null) localShapes = new TaskBackend.Local(taskEngine, studentId, sessionSeed);
+                // The local backend completes its futures before returning, so this does not block
+                question = localShapes.question(TaskEngine.SHAPES, String.valueOf(targetDimension)).join();
+                currentShape = shapeList.getShape((int) question.getQuestion().getDim(0));
+                questionBackend = localShapes;
             }
-            return false;
+            currentIndex++;
+            currentQuestionId = question.getId();
+            // Seeded per question, so replays draw the same and the session's random stream is untouched
+            currentStyle = VectorShapes.Style.random(new Random(sessionSeed ^ currentQuestionId));
+            attemptsLeft = MAX_ATTEMPTS;
+            questionStartedAt = questionShown(TaskEngine.SHAPES, currentShape.getName());
         }
 
         public String getCurrentDescription() {
@@ -440,32 +913,47 @@ public class ShapevilleApp {
             return currentShape;
         }
 
+        public VectorShapes.Style getCurrentStyle() {
+            return currentStyle;
+        }
+
         public int getAttemptsLeft() {
             return attemptsLeft;
         }
 
-        public void decrementAttempts() {
-            attemptsLeft--;
+        public long getQuestionStartedAt() {
+            return questionStartedAt;
         }
 
         /**
-         * Checks if the user's answer matches the current shape
+         * Sends the user's answer for grading
          * @param userInput The user's answer
-         * @return true if correct, false otherwise
+         * @return The result; attempts left are updated when it is passed to {@link #apply}
          */
-        public boolean checkAnswer(String userInput) {
-            if (currentShape == null) return false;
-            boolean correct = userInput.trim().toLowerCase().equals(currentShape.getName().toLowerCase());
-            if (!correct) {
-                attemptsLeft--;
-            }
-            return correct;
+        public CompletableFuture<ShapevilleServer.AnswerResult> checkAnswer(String userInput) {
+            return questionBackend.answer(currentQuestionId, userInput.trim(),
+                    clock.now() - questionStartedAt);
+        }
+
+        /**
+         * Updates the attempts left from a graded answer
+         * @param result The result
+         */
+        public void apply(ShapevilleServer.AnswerResult result) {
+            if (!result.isCorrect()) attemptsLeft = result.getAttemptsLeft();
         }
 
         public boolean isTaskCompleted() {
             return currentIndex >= TOTAL_SHAPES - 1;
         }
 
+        /**
+         * @return The progress item of the current round, "2D" or "3D"
+         */
+        public String getRound() {
+            return targetDimension + "D";
+        }
+
         public int getCurrentIndex() {
             return currentIndex;
         }
@@ -500,6 +988,10 @@ public class ShapevilleApp {
         btn3D.setAlignmentX(Component.CENTER_ALIGNMENT);
         btn3D.setMaximumSize(new Dimension(200, 50));
 
+        JButton btnDraw = new JButton("Draw a Shape");
+        btnDraw.setAlignmentX(Component.CENTER_ALIGNMENT);
+        btnDraw.setMaximumSize(new Dimension(200, 50));
+
         JButton backButton = new JButton("Back to Main Menu");
         backButton.setAlignmentX(Component.CENTER_ALIGNMENT);
         backButton.setMaximumSize(new Dimension(200, 50));
@@ -512,6 +1004,8 @@ public class ShapevilleApp {
         selectionPanel.add(Box.createRigidArea(new Dimension(0, 20)));
         selectionPanel.add(btn3D);
         selectionPanel.add(Box.createRigidArea(new Dimension(0, 20)));
+        selectionPanel.add(btnDraw);
+        selectionPanel.add(Box.createRigidArea(new Dimension(0, 20)));
         selectionPanel.add(backButton);
         selectionPanel.add(Box.createVerticalGlue());
 
@@ -529,28 +1023,51 @@ public class ShapevilleApp {
         JButton nextButton = new JButton("Next");
         JButton backToSelectionButton = new JButton("Back to Selection");
 
-        // Create drawing panel for shape visualization
+        // Create drawing panel for shape visualization; 3D shapes are turned by dragging
+        MeshRenderer meshRenderer = new MeshRenderer();
+        double[] view = {INITIAL_YAW, INITIAL_PITCH};
         JPanel drawingPanel = new JPanel() {
             @Override
             protected void paintComponent(Graphics g) {
                 super.paintComponent(g);
-                if (shapeTask.getCurrentShape() != null) {
-                    String imagePath = shapeTask.getCurrentShape().getDimension() == 2 ?
-                            "image2D/" + shapeTask.getCurrentShape().getName() + ".png" :
-                            "image3D/" + shapeTask.getCurrentShape().getName() + ".png";
-                    try {
-                        BufferedImage img = ImageIO.read(new File(imagePath));
-                        int x = (getWidth() - img.getWidth()) / 2;
-                        int y = (getHeight() - img.getHeight()) / 2;
-                        g.drawImage(img, x, y, null);
-                    } catch (IOException e) {
-                        g.setColor(Color.RED);
-                        g.drawString("Image not found: " + imagePath, 10, getHeight() / 2);
+                ShapeList.Shape shape = shapeTask.getCurrentShape();
+                if (shape != null) {
+                    long start = System.nanoTime();
+                    if (shape.getDimension() == 2 && VectorShapes.supports(shape.getName())) {
+                        VectorShapes.draw((Graphics2D) g, getWidth(), getHeight(), shape.getName(),
+                                shapeTask.getCurrentStyle());
+                    } else if (shape.getDimension() == 3 && MeshRenderer.supports(shape.getName())) {
+                        meshRenderer.draw((Graphics2D) g, getWidth(), getHeight(), shape.getName(),
+                                view[0], view[1], getBackground().getRGB());
+                    } else {
+                        ShapeRenderer.drawShapeImage((Graphics2D) g, getWidth(), getHeight(), shape.getAssetPath());
                     }
+                    painted(start);
                 }
             }
         };
         drawingPanel.setPreferredSize(new Dimension(400, 300));
+        MouseAdapter rotate = new MouseAdapter() {
+            private Point last;
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                last = e.getPoint();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                ShapeList.Shape shape = shapeTask.getCurrentShape();
+                if (last == null || shape == null || shape.getDimension() != 3) return;
+                view[0] += (e.getX() - last.x) * RADIANS_PER_PIXEL;
+                double pitch = view[1] + (e.getY() - last.y) * RADIANS_PER_PIXEL;
+                view[1] = Math.max(-Math.PI / 2, Math.min(Math.PI / 2, pitch));
+                last = e.getPoint();
+                drawingPanel.repaint();
+            }
+        };
+        drawingPanel.addMouseListener(rotate);
+        drawingPanel.addMouseMotionListener(rotate);
 
         // Layout control panel components
         JPanel controlPanel = new JPanel();
@@ -583,86 +1100,140 @@ public class ShapevilleApp {
         taskPanel.add(drawingPanel, BorderLayout.CENTER);
         taskPanel.add(controlPanel, BorderLayout.SOUTH);
 
+        // Create sketch panel for drawing shapes freehand
+        JPanel sketchPanel = new JPanel(new BorderLayout());
+        SketchCanvas sketchCanvas = new SketchCanvas();
+        sketchCanvas.setPreferredSize(new Dimension(400, 300));
+        JLabel sketchPrompt = new JLabel("Draw a 2D shape with the mouse or a pen", SwingConstants.CENTER);
+        JLabel sketchResult = new JLabel(" ", SwingConstants.CENTER);
+        JButton clearSketchButton = new JButton("Clear");
+        JButton teachButton = new JButton("Teach");
+        JButton photoButton = new JButton("Open Photo...");
+        JButton sketchBackButton = new JButton("Back to Selection");
+        teachButton.setEnabled(false);
+        JPanel sketchButtons = new JPanel();
+        sketchButtons.add(clearSketchButton);
+        sketchButtons.add(teachButton);
+        sketchButtons.add(photoButton);
+        sketchButtons.add(sketchBackButton);
+        JPanel sketchControls = new JPanel(new BorderLayout());
+        sketchControls.add(sketchResult, BorderLayout.NORTH);
+        sketchControls.add(sketchButtons, BorderLayout.SOUTH);
+        sketchPanel.add(sketchPrompt, BorderLayout.NORTH);
+        sketchPanel.add(sketchCanvas, BorderLayout.CENTER);
+        sketchPanel.add(sketchControls, BorderLayout.SOUTH);
+
+        // Recognizes each stroke; "Teach" adds the last stroke to the templates under the right name
+        Path templatesFile = Paths.get(System.getProperty("shapeville.data", "data"), "sketch-templates.tsv");
+        SketchTemplates sketchTemplates = SketchTemplates.load(templatesFile);
+        SketchRecognizer recognizer = new SketchRecognizer(sketchTemplates);
+        sketchCanvas.setStrokeListener(() -> {
+            float[] stroke = sketchCanvas.getStroke(sketchCanvas.getStrokeCount() - 1);
+            List<SketchRecognizer.Candidate> ranked = recognizer.recognize(stroke);
+            if (ranked.isEmpty()) return;
+            sketchResult.setText("Looks like: " + ranked.get(0)
+                    + (ranked.size() > 1 ? "   (or " + ranked.get(1) + ")" : ""));
+            teachButton.setEnabled(true);
+        });
+
         // Add panels to main task panel
         mainTaskPanel.add(selectionPanel, "selection");
         mainTaskPanel.add(taskPanel, "task");
+        mainTaskPanel.add(sketchPanel, "sketch");
 
         // Initialize UI state
         showAnswerButton.setEnabled(false);
         nextButton.setEnabled(false);
 
         // Add action listeners
-        backButton.addActionListener(e -> cardLayout.show(mainPanel, "home"));
-
-        btn2D.addActionListener(e -> {
-            shapeTask.startNewTask(2);
-            updateProgressLabel(progressLabel, shapeTask, 0);
+        backButton.addActionListener(e -> cards.show("home"));
+
+        // Shows a fetched shape question
+        Consumer<ShapevilleServer.IssuedQuestion> showShape = question -> {
+            shapeTask.show(question);
+            view[0] = INITIAL_YAW;
+            view[1] = INITIAL_PITCH;
+            updateProgressLabel(progressLabel, shapeTask, shapeTask.getCurrentIndex());
             attemptsLabel.setText("Attempts left: " + shapeTask.getAttemptsLeft());
             descriptionLabel.setText(shapeTask.getCurrentDescription());
             answerField.setText("");
             showAnswerButton.setEnabled(false);
             nextButton.setEnabled(false);
+            submitButton.setEnabled(true);
             drawingPanel.repaint();
             taskCardLayout.show(mainTaskPanel, "task");
-        });
+        };
 
-        btn3D.addActionListener(e -> {
-            shapeTask.startNewTask(3);
-            updateProgressLabel(progressLabel, shapeTask, 0);
-            attemptsLabel.setText("Attempts left: " + shapeTask.getAttemptsLeft());
-            descriptionLabel.setText(shapeTask.getCurrentDescription());
-            answerField.setText("");
-            showAnswerButton.setEnabled(false);
-            nextButton.setEnabled(false);
-            drawingPanel.repaint();
-            taskCardLayout.show(mainTaskPanel, "task");
+        btn2D.addActionListener(e -> onEdt(shapeTask.startNewTask(2), showShape, this::showBackendError));
+
+        btn3D.addActionListener(e -> onEdt(shapeTask.startNewTask(3), showShape, this::showBackendError));
+
+        btnDraw.addActionListener(e -> {
+            sketchCanvas.clear();
+            sketchResult.setText(" ");
+            teachButton.setEnabled(false);
+            taskCardLayout.show(mainTaskPanel, "sketch");
         });
+        clearSketchButton.addActionListener(e -> {
+            sketchCanvas.clear();
+            sketchResult.setText(" ");
+            teachButton.setEnabled(false);
+        });
+        teachButton.addActionListener(e -> {
+            Object label = JOptionPane.showInputDialog(mainFrame, "Which shape did you draw?", "Teach",
+                    JOptionPane.QUESTION_MESSAGE, null, VectorShapes.NAMES.toArray(), VectorShapes.NAMES.get(0));
+            if (label == null || sketchCanvas.getStrokeCount() == 0) return;
+            sketchTemplates.add(label.toString(), sketchCanvas.getStroke(sketchCanvas.getStrokeCount() - 1));
+            try {
+                sketchTemplates.save(templatesFile);
+            } catch (IOException ex) {
+                System.err.println("Error saving sketch templates " + templatesFile + ": " + ex.getMessage());
+            }
+            teachButton.setEnabled(false);
+        });
+        // Names the main shape in a photo or picture of one, off the event thread
+        ImageShapeAnalyzer photoAnalyzer = new ImageShapeAnalyzer(recognizer, ForkJoinPool.commonPool());
+        photoButton.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setFileFilter(new FileNameExtensionFilter("Images", ImageIO.getReaderFileSuffixes()));
+            if (chooser.showOpenDialog(mainFrame) != JFileChooser.APPROVE_OPTION) return;
+            Path photo = chooser.getSelectedFile().toPath();
+            photoButton.setEnabled(false);
+            sketchResult.setText("Looking at " + photo.getFileName() + "...");
+            onEdt(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return photoAnalyzer.analyze(photo);
+                } catch (IOException ex) {
+                    throw new CompletionException(ex);
+                }
+            }), result -> {
+                photoButton.setEnabled(true);
+                sketchResult.setText(!result.found() ? "No shape found in " + photo.getFileName()
+                        : "Photo shows: " + result.getLabel() + ", " + result.getSides() + " sides ("
+                                + Math.round(result.getConfidence() * 100) + "%)");
+            }, error -> {
+                photoButton.setEnabled(true);
+                sketchResult.setText(" ");
+                System.err.println("Error analyzing " + photo + ": " + error.getMessage());
+                JOptionPane.showMessageDialog(mainFrame, "Could not read " + photo.getFileName() + ": "
+                        + error.getMessage(), "Open Photo", JOptionPane.ERROR_MESSAGE);
+            });
+        });
+        sketchBackButton.addActionListener(e -> taskCardLayout.show(mainTaskPanel, "selection"));
 
         submitButton.addActionListener(e -> {
             String answer = answerField.getText().trim().toLowerCase();
-            boolean correct = shapeTask.checkAnswer(answer);
-
-            if (correct) {
-                int pointsToAdd = 0;
-                int attemptsUsed = 3 - shapeTask.getAttemptsLeft();
-
-                // Calculate points based on dimension and attempts
-                if (shapeTask.getCurrentShape().getDimension() == 2) {
-                    switch (attemptsUsed) {
-                        case 0: pointsToAdd = 3; break;
-                        case 1: pointsToAdd = 2; break;
-                        case 2: pointsToAdd = 1; break;
-                    }
-                } else {
-                    switch (attemptsUsed) {
-                        case 0: pointsToAdd = 6; break;
-                        case 1: pointsToAdd = 4; break;
-                        case 2: pointsToAdd = 2; break;
-                    }
-                }
-
-                score += pointsToAdd;
-                if (scoreLabel != null) scoreLabel.setText("Current Score: " + score);
-
-                JOptionPane.showMessageDialog(mainFrame,
-                        "Great job! You earned " + pointsToAdd + " points!",
-                        "Correct!",
-                        JOptionPane.INFORMATION_MESSAGE);
-
-                showAnswerButton.setEnabled(false);
-                nextButton.setEnabled(true);
-                submitButton.setEnabled(false);
-            } else {
-                JOptionPane.showMessageDialog(mainFrame, "Incorrect! Try again.", "Result", JOptionPane.ERROR_MESSAGE);
-
-                attemptsLabel.setText("Attempts left: " + shapeTask.getAttemptsLeft());
-
-                if (shapeTask.getAttemptsLeft() == 0) {
-                    showAnswerButton.setEnabled(true);
-                    nextButton.setEnabled(true);
-                    submitButton.setEnabled(false);
-                }
-            }
+            int attemptsUsed = 3 - shapeTask.getAttemptsLeft();
+            submitButton.setEnabled(false);
+            onEdt(shapeTask.checkAnswer(answer), result -> {
+                shapeTask.apply(result);
+                if (result.isFinished()) shapeTask.prefetchNext();
+                handleShapeResult(result, attemptsUsed, shapeTask, attemptsLabel, submitButton,
+                        showAnswerButton, nextButton);
+            }, error -> {
+                submitButton.setEnabled(true);
+                showBackendError(error);
+            });
         });
 
         showAnswerButton.addActionListener(e -> {
@@ -673,18 +1244,15 @@ public class ShapevilleApp {
 
         nextButton.addActionListener(e -> {
             if (shapeTask.isTaskCompleted()) {
+                completeItem(TaskEngine.SHAPES, shapeTask.getRound());
                 completeTask("ks1_task1");
                 taskCardLayout.show(mainTaskPanel, "selection");
             } else {
-                shapeTask.nextTask();
-                updateProgressLabel(progressLabel, shapeTask, shapeTask.getCurrentIndex());
-                descriptionLabel.setText(shapeTask.getCurrentDescription());
-                answerField.setText("");
-                showAnswerButton.setEnabled(false);
                 nextButton.setEnabled(false);
-                submitButton.setEnabled(true);
-                attemptsLabel.setText("Attempts left: " + shapeTask.getAttemptsLeft());
-                drawingPanel.repaint();
+                onEdt(shapeTask.nextTask(), showShape, error -> {
+                    nextButton.setEnabled(true);
+                    showBackendError(error);
+                });
             }
         });
 
@@ -695,6 +1263,47 @@ public class ShapevilleApp {
         return mainTaskPanel;
     }
 
+    /**
+     * Shows the outcome of a graded shape answer
+     * @param result The graded result
+     * @param attemptsUsed Wrong attempts before this one
+     * @param shapeTask The shape task being answered
+     */
+    private void handleShapeResult(ShapevilleServer.AnswerResult result, int attemptsUsed, ShapeTask shapeTask,
+                                   JLabel attemptsLabel, JButton submitButton,
+                                   JButton showAnswerButton, JButton nextButton) {
+        if (result.isCorrect()) {
+            int pointsToAdd = result.getPoints();
+
+            awardPoints("ks1_task1", pointsToAdd);
+            recordAttempt("ks1_task1", shapeTask.getCurrentName(), attemptsUsed + 1,
+                    AttemptOutcome.CORRECT, pointsToAdd, shapeTask.getQuestionStartedAt());
+
+            JOptionPane.showMessageDialog(mainFrame,
+                    "Great job! You earned " + pointsToAdd + " points!",
+                    "Correct!",
+                    JOptionPane.INFORMATION_MESSAGE);
+
+            showAnswerButton.setEnabled(false);
+            nextButton.setEnabled(true);
+            submitButton.setEnabled(false);
+        } else {
+            recordAttempt("ks1_task1", shapeTask.getCurrentName(), 3 - shapeTask.getAttemptsLeft(),
+                    AttemptOutcome.WRONG, 0, shapeTask.getQuestionStartedAt());
+            JOptionPane.showMessageDialog(mainFrame, "Incorrect! Try again.", "Result", JOptionPane.ERROR_MESSAGE);
+
+            attemptsLabel.setText("Attempts left: " + shapeTask.getAttemptsLeft());
+
+            if (shapeTask.getAttemptsLeft() == 0) {
+                showAnswerButton.setEnabled(true);
+                nextButton.setEnabled(true);
+                submitButton.setEnabled(false);
+            } else {
+                submitButton.setEnabled(true);
+            }
+        }
+    }
+
     /**
      * Updates the progress label with current task information
      * @param label The label to update
@@ -719,61 +1328,16 @@ public class ShapevilleApp {
         JTextField angleInput = new JTextField(8); // Angle input field, limited to 8 characters
         angleInput.setFont(new Font("Arial", Font.PLAIN, 16));
 
-        // Angle visualization panel: Draws a protractor and the input angle
+        // Angle visualization panel: Draws a protractor and the input angle, or the angle being dragged
+        int[] dragAngle = {-1};
         JPanel anglePanel = new JPanel() {
             @Override
             protected void paintComponent(Graphics g) {
                 super.paintComponent(g);
-                Graphics2D g2d = (Graphics2D) g;
-                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-                int width = getWidth();
-                int height = getHeight();
-                int centerX = width / 2;
-                int centerY = height / 2;
-                int radius = Math.min(width, height) / 3; // Protractor radius
-
-                // Draw protractor background
-                g2d.setColor(new Color(248, 249, 250));
-                Ellipse2D protractor = new Ellipse2D.Double(centerX - radius, centerY - radius,
-                        radius * 2, radius * 2);
-                g2d.fill(protractor);
-                g2d.setColor(new Color(55, 65, 81)); // Dark gray border
-                g2d.draw(protractor);
-
-                // Draw scale marks (0-360 degrees, 10-degree intervals, 30-degree labels)
-                g2d.setFont(new Font("Arial", Font.PLAIN, 12));
-                for (int i = 0; i < 360; i += 10) {
-                    double rad = Math.toRadians(i);
-                    int x1 = centerX + (int) ((radius - 8) * Math.cos(rad));
-                    int y1 = centerY - (int) ((radius - 8) * Math.sin(rad));
-                    int x2 = centerX + (int) (radius * Math.cos(rad));
-                    int y2 = centerY - (int) (radius * Math.sin(rad));
-                    g2d.setStroke(new BasicStroke(i % 30 == 0 ? 2 : 1)); // Thicker main scale marks
-                    g2d.drawLine(x1, y1, x2, y2);
-                    if (i % 30 == 0) { // Display scale values
-                        int textX = centerX + (int) ((radius - 25) * Math.cos(rad));
-                        int textY = centerY - (int) ((radius - 25) * Math.sin(rad));
-                        g2d.drawString(Integer.toString(i), textX, textY);
-                    }
-                }
-
-                // Draw center point and baseline (horizontal center line)
-                g2d.setColor(new Color(239, 68, 68)); // Red center point
-                g2d.fillOval(centerX - 4, centerY - 4, 8, 8);
-                g2d.setColor(new Color(55, 65, 81)); // Dark gray baseline
-                g2d.setStroke(new BasicStroke(2));
-                g2d.drawLine(centerX - radius, centerY, centerX + radius, centerY);
-
-                // Draw the user's input angle line (only if the angle is valid)
-                if (angleTask.getCurrentAngle() > 0) {
-                    g2d.setColor(new Color(24, 115, 204)); // Blue angle line
-                    g2d.setStroke(new BasicStroke(3));
-                    double angleRad = Math.toRadians(angleTask.getCurrentAngle());
-                    int endX = centerX + (int) (radius * Math.cos(angleRad));
-                    int endY = centerY - (int) (radius * Math.sin(angleRad));
-                    g2d.drawLine(centerX, centerY, endX, endY); // Draw angle line
-                }
+                long start = System.nanoTime();
+                int angle = dragAngle[0] >= 0 ? dragAngle[0] : angleTask.getCurrentAngle();
+                ShapeRenderer.drawProtractor((Graphics2D) g, getWidth(), getHeight(), angle);
+                painted(start);
             }
         };
         anglePanel.setPreferredSize(new Dimension(400, 400));
@@ -783,10 +1347,20 @@ public class ShapevilleApp {
         // Input area: Angle input field and submit button
         JPanel inputSection = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 10));
         inputSection.setBackground(Color.WHITE);
-        JLabel inputLabel = new JLabel("Enter angle (0 - 360, multiples of 10°):");
+        JLabel inputLabel = new JLabel("Enter or drag an angle (0 - 360, multiples of 10°):");
         inputLabel.setFont(new Font("Arial", Font.PLAIN, 16));
         JButton submitBtn = new JButton("Submit Angle");
         submitBtn.setFont(new Font("Arial", Font.PLAIN, 14));
+        JLabel angleReadout = new JLabel(" ");
+        angleReadout.setFont(new Font("Arial", Font.BOLD, 16));
+        angleReadout.setPreferredSize(new Dimension(150, 24));
+        IntConsumer acceptAngle = angle -> {
+            angleTask.setUserAngle(angle); // Set user's input angle value
+            anglePanel.repaint(); // Refresh graphics display
+            enableTypeButtons(true, panel); // Enable angle type selection buttons
+            angleInput.setEnabled(false); // Disable input field after valid input
+            submitBtn.setEnabled(false); // Disable submit button after valid input
+        };
         submitBtn.addActionListener(e -> {
             try {
                 int angle = Integer.parseInt(angleInput.getText().trim());
@@ -799,11 +1373,7 @@ public class ShapevilleApp {
                     angleInput.setText("");
                     return;
                 }
-                angleTask.setUserAngle(angle); // Set user's input angle value
-                anglePanel.repaint(); // Refresh graphics display
-                enableTypeButtons(true, panel); // Enable angle type selection buttons
-                angleInput.setEnabled(false); // Disable input field after valid input
-                submitBtn.setEnabled(false); // Disable submit button after valid input
+                acceptAngle.accept(angle);
             } catch (NumberFormatException ex) {
                 // Handle non-numeric input
                 JOptionPane.showMessageDialog(panel,
@@ -815,6 +1385,66 @@ public class ShapevilleApp {
         inputSection.add(inputLabel);
         inputSection.add(angleInput);
         inputSection.add(submitBtn);
+        inputSection.add(angleReadout);
+
+        // The ray can also be dragged round the protractor until an angle is accepted. Only the
+        // area between the old and new ray is repainted, and only when the snapped angle changes.
+        MouseAdapter dragRay = new MouseAdapter() {
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                boolean onRay = angleInput.isEnabled() && ShapeRenderer.hitsProtractorRay(anglePanel.getWidth(),
+                        anglePanel.getHeight(), angleTask.getCurrentAngle(), e.getX(), e.getY(), RAY_GRAB_PIXELS);
+                anglePanel.setCursor(Cursor.getPredefinedCursor(onRay ? Cursor.HAND_CURSOR : Cursor.DEFAULT_CURSOR));
+            }
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (!angleInput.isEnabled() || !SwingUtilities.isLeftMouseButton(e)) return;
+                int width = anglePanel.getWidth(), height = anglePanel.getHeight();
+                int radius = ShapeRenderer.protractorRadius(width, height);
+                double dx = e.getX() - width / 2, dy = e.getY() - height / 2;
+                // Grab the ray, or anywhere on the protractor to swing the ray there
+                if (!ShapeRenderer.hitsProtractorRay(width, height, angleTask.getCurrentAngle(), e.getX(), e.getY(),
+                        RAY_GRAB_PIXELS) && dx * dx + dy * dy > (double) radius * radius) {
+                    return;
+                }
+                dragAngle[0] = angleTask.getCurrentAngle();
+                moveRay(e, true);
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (dragAngle[0] >= 0) moveRay(e, false);
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                if (dragAngle[0] < 0) return;
+                int angle = dragAngle[0];
+                dragAngle[0] = -1;
+                angleReadout.setText(" ");
+                angleInput.setText(Integer.toString(angle));
+                acceptAngle.accept(angle);
+            }
+
+            private void moveRay(MouseEvent e, boolean started) {
+                int width = anglePanel.getWidth(), height = anglePanel.getHeight();
+                int angle = ShapeRenderer.protractorAngle(width, height, e.getX(), e.getY(), ANGLE_SNAP);
+                if (angle == dragAngle[0] && !started) return;
+                Rectangle dirty = ShapeRenderer.protractorRayBounds(width, height, dragAngle[0]);
+                Rectangle ray = ShapeRenderer.protractorRayBounds(width, height, angle);
+                if (dirty.isEmpty()) {
+                    dirty = ray;
+                } else if (!ray.isEmpty()) {
+                    dirty.add(ray);
+                }
+                dragAngle[0] = angle;
+                angleReadout.setText(angle + "° - " + getAngleType(angle));
+                if (!dirty.isEmpty()) anglePanel.repaint(dirty);
+            }
+        };
+        anglePanel.addMouseListener(dragRay);
+        anglePanel.addMouseMotionListener(dragRay);
 
         // Angle type selection button area
         JPanel typePanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 10));
@@ -840,7 +1470,7 @@ public class ShapevilleApp {
         JButton homeBtn = new JButton("Home");
         homeBtn.addActionListener(e -> {
             angleTask.reset(); // Reset task state
-            cardLayout.show(mainPanel, "home");
+            cards.show("home");
         });
         homeBtn.setFont(new Font("Arial", Font.PLAIN, 18));
         homeBtn.setForeground(Color.WHITE);
@@ -900,10 +1530,15 @@ public class ShapevilleApp {
     private void handleAnswer(AngleTask angleTask, String selectedType, JPanel panel, JTextField angleInput, JButton submitBtn) {
         String correctType = getAngleType(angleTask.getCurrentAngle()); // Get correct angle type
         boolean isCorrect = selectedType.equals(correctType); // Determine if correct
+        TaskEngine.Question question = taskEngine.question(TaskEngine.ANGLES,
+                String.valueOf(angleTask.getCurrentAngle()));
 
         if (isCorrect) {
-            // Check if this angle type has already been completed
-            if (angleTask.isAngleTypeCompleted(correctType)) {
+            // An angle type scores only once, here as on the server
+            if (TaskEngine.scoresOnce(TaskEngine.ANGLES) && angleTask.isAngleTypeCompleted(correctType)) {
+                recordAnswer(question, selectedType, 4 - angleTask.getAttemptsLeft(), AttemptOutcome.CORRECT, 0);
+                recordAttempt("ks1_task2", correctType, 4 - angleTask.getAttemptsLeft(),
+                        AttemptOutcome.CORRECT, 0, angleTask.getQuestionStartedAt());
                 JOptionPane.showMessageDialog(mainFrame,
                         "You have already completed this angle type! Try a different angle.",
                         "Already Completed",
@@ -918,18 +1553,12 @@ public class ShapevilleApp {
             }
 
             int attemptsUsed = 3 - angleTask.getAttemptsLeft();
-            int pointsToAdd = 0;
+            int pointsToAdd = TaskEngine.points(TaskEngine.ANGLES, 0, attemptsUsed);
 
-            switch (attemptsUsed) {
-                case 0: pointsToAdd = 3; break; // First try
-                case 1: pointsToAdd = 2; break; // Second try
-                case 2: pointsToAdd = 1; break; // Third try
-            }
-
-            score += pointsToAdd;
-            if (scoreLabel != null) {
-                scoreLabel.setText("Current Score: " + score);
-            }
+            awardPoints("ks1_task2", pointsToAdd);
+            recordAnswer(question, selectedType, attemptsUsed + 1, AttemptOutcome.CORRECT, pointsToAdd);
+            recordAttempt("ks1_task2", correctType, attemptsUsed + 1,
+                    AttemptOutcome.CORRECT, pointsToAdd, angleTask.getQuestionStartedAt());
 
             JOptionPane.showMessageDialog(mainFrame,
                     "Great job! You earned " + pointsToAdd + " points!",
@@ -937,19 +1566,15 @@ public class ShapevilleApp {
                     JOptionPane.INFORMATION_MESSAGE);
 
             angleTask.markAngleTypeCompleted(correctType); // Mark this angle type as completed
-            angleTask.incrementCorrectCount(); // Increment correct count
-            progress += 5; // Increase progress
-            if (progress > 100) progress = 100; // Progress does not exceed 100%
 
             // Check if all angle types have been completed
-            if (angleTask.getCorrectCount() >= 4) {
+            if (completed.itemCount(TaskEngine.ANGLES) == TaskEngine.ANGLE_TYPES.length) {
                 JOptionPane.showMessageDialog(mainFrame,
                         "Congratulations! You have completed all angle types!",
                         "Task Completed",
                         JOptionPane.INFORMATION_MESSAGE);
                 completeTask("ks1_task2"); // Mark task as completed
-                cardLayout.show(mainPanel, "home"); // Return to home interface
-                angleTask.resetCorrectCount(); // Reset correct count
+                cards.show("home"); // Return to home interface
             } else {
                 // Reset for next angle
                 angleTask.reset(); // Reset task state
@@ -960,6 +1585,9 @@ public class ShapevilleApp {
             }
         } else {
             angleTask.decrementAttempts();
+            recordAnswer(question, selectedType, 3 - angleTask.getAttemptsLeft(), AttemptOutcome.WRONG, 0);
+            recordAttempt("ks1_task2", correctType, 3 - angleTask.getAttemptsLeft(),
+                    AttemptOutcome.WRONG, 0, angleTask.getQuestionStartedAt());
             if (angleTask.getAttemptsLeft() > 0) {
                 JOptionPane.showMessageDialog(mainFrame,
                         "Incorrect! You have " + angleTask.getAttemptsLeft() + " attempts left.",
@@ -982,30 +1610,29 @@ public class ShapevilleApp {
     }
 
     /**
-     * Angle task inner class, managing angle input and correct count
+     * Angle task inner class, managing angle input and attempts
      */
     private class AngleTask {
         private int userAngle;            // User's input angle value
-        private int correctCount = 0;     // Number of correct answers
         private int attemptsLeft = 3;     // Number of attempts left
-        private Set<String> completedAngleTypes = new HashSet<>(); // Track completed angle types
-
-        public int getCorrectCount() { return correctCount; }
-        public void incrementCorrectCount() { correctCount++; }
-        public void resetCorrectCount() { correctCount = 0; }
+        private long questionStartedAt;   // Time the current angle was entered
 
         public int getCurrentAngle() { return userAngle; }
-        public void setUserAngle(int angle) { this.userAngle = angle; }
+        public void setUserAngle(int angle) {
+            this.userAngle = angle;
+            this.questionStartedAt = questionShown(TaskEngine.ANGLES, TaskEngine.angleType(angle));
+        }
+        public long getQuestionStartedAt() { return questionStartedAt; }
 
         public int getAttemptsLeft() { return attemptsLeft; }
         public void decrementAttempts() { attemptsLeft--; }
 
         public boolean isAngleTypeCompleted(String angleType) {
-            return completedAngleTypes.contains(angleType);
+            return completed.isItemCompleted(TaskEngine.ANGLES, angleType);
         }
 
         public void markAngleTypeCompleted(String angleType) {
-            completedAngleTypes.add(angleType);
+            completeItem(TaskEngine.ANGLES, angleType);
         }
 
         /**
@@ -1035,15 +1662,14 @@ public class ShapevilleApp {
      */
     private JPanel createShapeAreaCalculationPanel() {
         ShapeAreaCalculationPanel panel = new ShapeAreaCalculationPanel();
-        panel.backToMenuButton.addActionListener(e -> cardLayout.show(mainPanel, "home"));
+        panel.backToMenuButton.addActionListener(e -> cards.show("home"));
         return panel;
     }
 
 
-    class ShapeAreaCalculationPanel extends JPanel {
+    class ShapeAreaCalculationPanel extends JPanel implements CardLifecycle.Releasable {
         // Format for decimal numbers
         private static final DecimalFormat df = new DecimalFormat("#.##");
-        private Random random = new Random();
 
         // UI Components
         private JLabel shapeInfoLabel;
@@ -1054,21 +1680,22 @@ public class ShapevilleApp {
         private JButton backToMenuButton;
         private JPanel shapeSelectionPanel;
         private JPanel calculationPanel;
+        private JPanel drawAreaPanel;
         private CardLayout cardLayout;
         private JLabel timerLabel;
 
-        // Task state variables
-        private Set<String> completedShapes;
+        // Task state variables; completed shapes are items in the student's progress
         private String currentShapeType;
-        private double correctAnswer;
+        private long currentQuestionId;
+        private double correctAnswer; // Known once the question is finished
         private int attemptsLeft;
         private double dim1, dim2, dim3;
+        private long questionStartedAt;
 
         // Drawing and timing components
         private DrawingPanel drawingPanel;
-        private Timer timer;
-        private int questionTime = 180;
-        private boolean taskCompleted = false;
+        private TaskClock.Task timer;
+        private int questionTime = TaskEngine.timeLimitSeconds(TaskEngine.AREA);
         private boolean isCalculationInProgress = false;
 
         /**
@@ -1076,11 +1703,11 @@ public class ShapevilleApp {
          */
         public ShapeAreaCalculationPanel() {
             setLayout(new BorderLayout());
-            completedShapes = new HashSet<>();
 
             // Initialize UI panels
             createShapeSelectionPanel();
             createCalculationPanel();
+            createDrawAreaPanel();
 
             // Setup card layout for switching between panels
             JPanel cardPanel = new JPanel();
@@ -1088,6 +1715,7 @@ public class ShapevilleApp {
             cardPanel.setLayout(cardLayout);
             cardPanel.add(shapeSelectionPanel, "selection");
             cardPanel.add(calculationPanel, "calculation");
+            cardPanel.add(drawAreaPanel, "draw");
             add(cardPanel, BorderLayout.CENTER);
 
             // Show selection panel initially
@@ -1143,6 +1771,16 @@ public class ShapevilleApp {
             shapeSelectionPanel.add(gridPanel);
             shapeSelectionPanel.add(Box.createRigidArea(new Dimension(0, 20)));
 
+            // Free practice: measure a polygon the student draws
+            JButton drawButton = new JButton("Draw Your Own Shape");
+            drawButton.setAlignmentX(Component.CENTER_ALIGNMENT);
+            drawButton.setMaximumSize(new Dimension(200, 50));
+            drawButton.addActionListener(e -> {
+                if (!isCalculationInProgress) cardLayout.show((Container) getComponent(0), "draw");
+            });
+            shapeSelectionPanel.add(drawButton);
+            shapeSelectionPanel.add(Box.createRigidArea(new Dimension(0, 10)));
+
             // Add back to menu button
             backToMenuButton = new JButton("Back to Main Menu");
             backToMenuButton.setAlignmentX(Component.CENTER_ALIGNMENT);
@@ -1151,7 +1789,7 @@ public class ShapevilleApp {
                 SwingUtilities.invokeLater(() -> {
                     stopTimer();
                     isCalculationInProgress = false;
-                    ShapevilleApp.this.cardLayout.show(ShapevilleApp.this.mainPanel, "home");
+                    cards.show("home");
                 });
             });
             shapeSelectionPanel.add(backToMenuButton);
@@ -1166,10 +1804,10 @@ public class ShapevilleApp {
             JButton button = new JButton(shapeName);
             button.setPreferredSize(new Dimension(200, 150));
             button.setFont(new Font("Arial", Font.BOLD, 16));
-            button.setEnabled(!completedShapes.contains(shapeName));
+            button.setEnabled(!completed.isItemCompleted(TaskEngine.AREA, shapeName));
 
             button.addActionListener(e -> {
-                if (!isCalculationInProgress && !completedShapes.contains(shapeName)) {
+                if (!isCalculationInProgress && !completed.isItemCompleted(TaskEngine.AREA, shapeName)) {
                     currentShapeType = shapeName;
                     startShapeCalculation();
                 }
@@ -1178,6 +1816,56 @@ public class ShapevilleApp {
             return button;
         }
 
+        /**
+         * Creates the panel where students click out polygons on a grid and see their area,
+         * exactly and as a pixel count
+         */
+        private void createDrawAreaPanel() {
+            drawAreaPanel = new JPanel(new BorderLayout());
+            drawAreaPanel.setBackground(Color.WHITE);
+            drawAreaPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+
+            JLabel instructions = new JLabel("Click grid points to draw a shape; drag a corner to move it",
+                    SwingConstants.CENTER);
+            instructions.setFont(new Font("Arial", Font.BOLD, 16));
+            drawAreaPanel.add(instructions, BorderLayout.NORTH);
+
+            PolygonCanvas canvas = new PolygonCanvas(new PolygonArea(16, 10, ForkJoinPool.commonPool()));
+            JPanel centerPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+            centerPanel.setBackground(Color.WHITE);
+            centerPanel.add(canvas);
+            drawAreaPanel.add(centerPanel, BorderLayout.CENTER);
+
+            JLabel areaLabel = new JLabel(" ", SwingConstants.CENTER);
+            areaLabel.setFont(new Font("Arial", Font.PLAIN, 16));
+            canvas.setChangeListener(() -> {
+                PolygonArea figure = canvas.getFigure();
+                areaLabel.setText("Area: " + df.format(figure.getArea()) + " square units   Counting pixels: "
+                        + df.format(figure.getEstimatedArea()));
+            });
+
+            JButton newPartButton = new JButton("New Part");
+            newPartButton.addActionListener(e -> canvas.startPart());
+            JButton clearButton = new JButton("Clear");
+            clearButton.addActionListener(e -> canvas.clear());
+            JButton backButton = new JButton("Back to Shapes");
+            backButton.addActionListener(e -> {
+                canvas.clear();
+                cardLayout.show((Container) getComponent(0), "selection");
+            });
+            JPanel buttons = new JPanel(new FlowLayout(FlowLayout.CENTER));
+            buttons.setBackground(Color.WHITE);
+            buttons.add(newPartButton);
+            buttons.add(clearButton);
+            buttons.add(backButton);
+
+            JPanel bottomPanel = new JPanel(new BorderLayout());
+            bottomPanel.setBackground(Color.WHITE);
+            bottomPanel.add(areaLabel, BorderLayout.NORTH);
+            bottomPanel.add(buttons, BorderLayout.SOUTH);
+            drawAreaPanel.add(bottomPanel, BorderLayout.SOUTH);
+        }
+
         /**
          * Creates the calculation panel with input fields and shape visualization
          */
@@ -1281,14 +1969,13 @@ public class ShapevilleApp {
                 cardLayout.show((Container)getComponent(0), "selection");
 
                 // Check if all shapes are completed
-                if (completedShapes.size() >= 4 && !taskCompleted) {
-                    taskCompleted = true;
+                if (completed.itemCount(TaskEngine.AREA) >= 4 && !completed.isTaskCompleted(TaskEngine.AREA)) {
                     completeTask("ks2_task3");
                     JOptionPane.showMessageDialog(this,
                             "Congratulations! You have completed all shape calculations!",
                             "Task Completed",
                             JOptionPane.INFORMATION_MESSAGE);
-                    ShapevilleApp.this.cardLayout.show(ShapevilleApp.this.mainPanel, "home");
+                    cards.show("home");
                 }
 
                 revalidate();
@@ -1308,7 +1995,7 @@ public class ShapevilleApp {
                             if (btnComp instanceof JButton) {
                                 JButton button = (JButton) btnComp;
                                 String buttonText = button.getText();
-                                button.setEnabled(!completedShapes.contains(buttonText));
+                                button.setEnabled(!completed.isItemCompleted(TaskEngine.AREA, buttonText));
                             }
                         }
                     }
@@ -1322,11 +2009,11 @@ public class ShapevilleApp {
          * Starts a new shape calculation task
          */
         private void startShapeCalculation() {
-            SwingUtilities.invokeLater(() -> {
+            isCalculationInProgress = true;
+            onEdt(taskBackend.question(TaskEngine.AREA, currentShapeType), issued -> {
                 try {
-                    isCalculationInProgress = true;
-                    questionTime = 180;
-                    timerLabel.setText("Remaining time: 180 seconds");
+                    questionTime = TaskEngine.timeLimitSeconds(TaskEngine.AREA);
+                    timerLabel.setText("Remaining time: " + questionTime + " seconds");
                     attemptsLeft = 3;
                     answerField.setText("");
                     answerField.setEnabled(true);
@@ -1334,40 +2021,16 @@ public class ShapevilleApp {
                     feedbackLabel.setText(" ");
                     feedbackLabel.setForeground(Color.BLACK);
 
-                    String shapeText = "";
-                    dim1 = dim2 = dim3 = 0;
-
-                    // Generate dimensions and formula based on shape type
-                    switch (currentShapeType) {
-                        case "Rectangle":
-                            dim1 = random.nextInt(19) + 2;
-                            dim2 = random.nextInt(19) + 2;
-                            correctAnswer = dim1 * dim2;
-                            shapeText = String.format("Rectangle: length = %s cm, width = %s cm", df.format(dim1), df.format(dim2));
-                            break;
-                        case "Parallelogram":
-                            dim1 = random.nextInt(19) + 2;
-                            dim2 = random.nextInt(19) + 2;
-                            correctAnswer = dim1 * dim2;
-                            shapeText = String.format("Parallelogram: base = %s cm, height = %s cm", df.format(dim1), df.format(dim2));
-                            break;
-                        case "Triangle":
-                            dim1 = random.nextInt(19) + 2;
-                            dim2 = random.nextInt(19) + 2;
-                            correctAnswer = (dim1 * dim2) / 2.0;
-                            shapeText = String.format("Triangle: base = %s cm, height = %s cm", df.format(dim1), df.format(dim2));
-                            break;
-                        case "Trapezium":
-                            dim1 = random.nextInt(10) + 2;
-                            dim2 = random.nextInt(10) + dim1 + 1;
-                            dim3 = random.nextInt(19) + 2;
-                            correctAnswer = ((dim1 + dim2) / 2.0) * dim3;
-                            shapeText = String.format("Trapezoid: upper base a = %s cm, lower base b = %s cm, height h = %s cm",
-                                    df.format(dim1), df.format(dim2), df.format(dim3));
-                            break;
-                    }
+                    // Dimensions and formula for the selected shape type
+                    TaskEngine.Question question = issued.getQuestion();
+                    currentQuestionId = issued.getId();
+                    dim1 = question.getDim(0);
+                    dim2 = question.getDim(1);
+                    dim3 = question.getDim(2);
+                    correctAnswer = Double.NaN;
 
-                    shapeInfoLabel.setText(shapeText);
+                    shapeInfoLabel.setText(question.getPrompt());
+                    questionStartedAt = questionShown(TaskEngine.AREA, currentShapeType);
                     drawingPanel.setShapeProperties(currentShapeType, dim1, dim2, dim3);
                     drawingPanel.repaint();
 
@@ -1380,41 +2043,47 @@ public class ShapevilleApp {
                     System.err.println("Error starting shape calculation: " + e.getMessage());
                     resetAndShowSelectionPanel();
                 }
+            }, error -> {
+                isCalculationInProgress = false;
+                showBackendError(error);
             });
         }
 
+        /**
+         * Starts fetching questions for the shapes still to do while feedback is shown
+         */
+        private void prefetchRemainingShapes() {
+            for (String shapeType : TaskEngine.AREA_SHAPES) {
+                if (!completed.isItemCompleted(TaskEngine.AREA, shapeType)) taskBackend.prefetch(TaskEngine.AREA, shapeType);
+            }
+        }
+
         /**
          * Starts the timer for the current calculation task
          */
         private void startTimer() {
-            SwingUtilities.invokeLater(() -> {
-                stopTimer();
-                timer = new Timer(1000, e -> {
-                    questionTime--;
-                    if (SwingUtilities.isEventDispatchThread()) {
-                        timerLabel.setText("Remaining time: " + questionTime + " seconds");
-                        if (questionTime <= 0) {
-                            handleTimeout();
-                        }
-                    } else {
-                        SwingUtilities.invokeLater(() -> {
-                            timerLabel.setText("Remaining time: " + questionTime + " seconds");
-                            if (questionTime <= 0) {
-                                handleTimeout();
-                            }
-                        });
-                    }
-                });
-                timer.start();
+            stopTimer();
+            timer = clock.repeat(1000, () -> {
+                questionTime--;
+                timerLabel.setText("Remaining time: " + questionTime + " seconds");
+                if (questionTime <= 0) {
+                    handleTimeout();
+                }
             });
         }
 
+        @Override
+        public void release() {
+            stopTimer();
+            isCalculationInProgress = false;
+        }
+
         /**
          * Stops the current timer
          */
         private void stopTimer() {
             if (timer != null) {
-                timer.stop();
+                timer.cancel();
                 timer = null;
             }
         }
@@ -1426,16 +2095,24 @@ public class ShapevilleApp {
             SwingUtilities.invokeLater(() -> {
                 stopTimer();
                 isCalculationInProgress = false;
-                String formula = getFormulaWithValues();
-                feedbackLabel.setText("Time's up! " + formula);
-                feedbackLabel.setForeground(Color.RED);
                 submitButton.setEnabled(false);
                 answerField.setEnabled(false);
+                onEdt(taskBackend.timeOut(currentQuestionId, clock.now() - questionStartedAt), result -> {
+                    correctAnswer = Double.parseDouble(result.getAnswer());
+                    recordAttempt("ks2_task3", currentShapeType, 4 - attemptsLeft,
+                            AttemptOutcome.TIMEOUT, 0, questionStartedAt);
+                    prefetchRemainingShapes();
+                    String formula = getFormulaWithValues();
+                    feedbackLabel.setText("Time's up! " + formula);
+                    feedbackLabel.setForeground(Color.RED);
 
-                // Return to selection panel after delay
-                Timer delayTimer = new Timer(2000, e -> resetAndShowSelectionPanel());
-                delayTimer.setRepeats(false);
-                delayTimer.start();
+                    // Return to selection panel after delay
+                    clock.schedule(2000, () -> resetAndShowSelectionPanel());
+                }, error -> {
+                    // The question was already closed by an answer still in flight
+                    if (!(error instanceof IllegalStateException)) showBackendError(error);
+                    resetAndShowSelectionPanel();
+                });
             });
         }
 
@@ -1468,72 +2145,82 @@ public class ShapevilleApp {
         private void checkAnswer() {
             if (attemptsLeft <= 0 || !isCalculationInProgress) return;
 
+            String answer = answerField.getText();
             try {
-                double userAnswer = Double.parseDouble(answerField.getText());
-                if (Math.abs(userAnswer - correctAnswer) < 0.01) {
-                    int pointsToAdd = 0;
-                    int attemptsUsed = 3 - attemptsLeft;
-
-                    // Calculate points based on attempts used
-                    switch (attemptsUsed) {
-                        case 0: pointsToAdd = 3; break; // First try
-                        case 1: pointsToAdd = 2; break; // Second try
-                        case 2: pointsToAdd = 1; break; // Third try
-                    }
+                Double.parseDouble(answer);
+            } catch (NumberFormatException e) {
+                feedbackLabel.setText("Please enter a valid number.");
+                feedbackLabel.setForeground(Color.ORANGE);
+                return;
+            }
+            int attemptsUsed = 3 - attemptsLeft;
+            submitButton.setEnabled(false);
+            onEdt(taskBackend.answer(currentQuestionId, answer, clock.now() - questionStartedAt),
+                    result -> handleResult(result, attemptsUsed), error -> {
+                        submitButton.setEnabled(isCalculationInProgress);
+                        showBackendError(error);
+                    });
+        }
 
-                    score += pointsToAdd;
-                    if (scoreLabel != null) {
-                        scoreLabel.setText("Current Score: " + score);
-                    }
+        /**
+         * Shows the outcome of a graded answer
+         * @param result The graded result
+         * @param attemptsUsed Wrong attempts before this one
+         */
+        private void handleResult(ShapevilleServer.AnswerResult result, int attemptsUsed) {
+            if (!isCalculationInProgress) return; // Timed out while the answer was being graded
+            if (result.getAnswer() != null) correctAnswer = Double.parseDouble(result.getAnswer());
+            if (result.isCorrect()) {
+                int pointsToAdd = result.getPoints();
+
+                awardPoints("ks2_task3", pointsToAdd);
+                recordAttempt("ks2_task3", currentShapeType, attemptsUsed + 1,
+                        AttemptOutcome.CORRECT, pointsToAdd, questionStartedAt);
+                completeItem(TaskEngine.AREA, currentShapeType);
+                prefetchRemainingShapes();
 
-                    JOptionPane.showMessageDialog(mainFrame,
-                            "Great job! You earned " + pointsToAdd + " points!",
-                            "Correct!",
-                            JOptionPane.INFORMATION_MESSAGE);
+                JOptionPane.showMessageDialog(mainFrame,
+                        "Great job! You earned " + pointsToAdd + " points!",
+                        "Correct!",
+                        JOptionPane.INFORMATION_MESSAGE);
 
-                    feedbackLabel.setText("Correct answer!");
-                    feedbackLabel.setForeground(Color.GREEN);
+                feedbackLabel.setText("Correct answer!");
+                feedbackLabel.setForeground(Color.GREEN);
+                submitButton.setEnabled(false);
+                answerField.setEnabled(false);
+                isCalculationInProgress = false;
+
+                // Check if all shapes are completed
+                if (completed.itemCount(TaskEngine.AREA) >= 4 && !completed.isTaskCompleted(TaskEngine.AREA)) {
+                    completeTask("ks2_task3");
+                    JOptionPane.showMessageDialog(this,
+                            "Congratulations! You have completed all shape calculations!",
+                            "Task Completed",
+                            JOptionPane.INFORMATION_MESSAGE);
+                    stopTimer();
+                    cards.show("home");
+                } else {
+                    // Return to selection panel after delay
+                    clock.schedule(1500, () -> resetAndShowSelectionPanel());
+                }
+            } else {
+                attemptsLeft = result.getAttemptsLeft();
+                recordAttempt("ks2_task3", currentShapeType, 3 - attemptsLeft,
+                        AttemptOutcome.WRONG, 0, questionStartedAt);
+                feedbackLabel.setForeground(Color.RED);
+                if (attemptsLeft > 0) {
+                    feedbackLabel.setText(String.format("Wrong answer. %d attempts left.", attemptsLeft));
+                    submitButton.setEnabled(true);
+                } else {
+                    prefetchRemainingShapes();
+                    String formula = getFormulaWithValues();
+                    feedbackLabel.setText("Wrong answer. " + formula);
                     submitButton.setEnabled(false);
                     answerField.setEnabled(false);
-                    completedShapes.add(currentShapeType);
                     isCalculationInProgress = false;
-
-                    // Check if all shapes are completed
-                    if (completedShapes.size() >= 4 && !taskCompleted) {
-                        taskCompleted = true;
-                        completeTask("ks2_task3");
-                        JOptionPane.showMessageDialog(this,
-                                "Congratulations! You have completed all shape calculations!",
-                                "Task Completed",
-                                JOptionPane.INFORMATION_MESSAGE);
-                        stopTimer();
-                        ShapevilleApp.this.cardLayout.show(ShapevilleApp.this.mainPanel, "home");
-                    } else {
-                        // Return to selection panel after delay
-                        Timer delayTimer = new Timer(1500, e -> resetAndShowSelectionPanel());
-                        delayTimer.setRepeats(false);
-                        delayTimer.start();
-                    }
-                } else {
-                    attemptsLeft--;
-                    feedbackLabel.setForeground(Color.RED);
-                    if (attemptsLeft > 0) {
-                        feedbackLabel.setText(String.format("Wrong answer. %d attempts left.", attemptsLeft));
-                    } else {
-                        String formula = getFormulaWithValues();
-                        feedbackLabel.setText("Wrong answer. " + formula);
-                        submitButton.setEnabled(false);
-                        answerField.setEnabled(false);
-                        isCalculationInProgress = false;
-                        // Return to selection panel after delay
-                        Timer delayTimer = new Timer(3000, e -> resetAndShowSelectionPanel());
-                        delayTimer.setRepeats(false);
-                        delayTimer.start();
-                    }
+                    // Return to selection panel after delay
+                    clock.schedule(3000, () -> resetAndShowSelectionPanel());
                 }
-            } catch (NumberFormatException e) {
-                feedbackLabel.setText("Please enter a valid number.");
-                feedbackLabel.setForeground(Color.ORANGE);
             }
         }
 
@@ -1543,7 +2230,6 @@ public class ShapevilleApp {
         class DrawingPanel extends JPanel {
             private String shapeType;
             private double d1, d2, d3;
-            private final int PADDING = 25;
 
             /**
              * Sets the properties for the shape to be drawn
@@ -1563,135 +2249,9 @@ public class ShapevilleApp {
             protected void paintComponent(Graphics g) {
                 super.paintComponent(g);
                 if (shapeType == null) return;
-
-                Graphics2D g2d = (Graphics2D) g;
-                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                g2d.setColor(Color.BLUE);
-                g2d.setStroke(new BasicStroke(2));
-
-                int panelWidth = getWidth();
-                int panelHeight = getHeight();
-                int drawWidth = panelWidth - 2 * PADDING;
-                int drawHeight = panelHeight - 2 * PADDING;
-
-                // Calculate scaling factor based on shape dimensions
-                double maxDim = Math.max(d1, Math.max(d2, d3));
-                if (shapeType.equals("Trapezium")) maxDim = Math.max(d2, d3);
-                else if (shapeType.equals("Triangle") || shapeType.equals("Parallelogram")) maxDim = Math.max(d1, d2);
-                else if (shapeType.equals("Rectangle")) maxDim = Math.max(d1, d2);
-                if (maxDim <= 0) maxDim = 10;
-
-                double scale = Math.min(drawWidth / maxDim, drawHeight / maxDim) * 0.8;
-                if (shapeType.equals("Rectangle")) {
-                    scale = Math.min(drawWidth / d1, drawHeight / d2) * 0.9;
-                }
-
-                // Scale dimensions for drawing
-                int sD1 = (int) (d1 * scale);
-                int sD2 = (int) (d2 * scale);
-                int sD3 = (int) (d3 * scale);
-                int startX = PADDING;
-                int startY = PADDING;
-                g2d.setColor(Color.decode("#4A90E2"));
-
-                // Draw the appropriate shape based on type
-                switch (shapeType) {
-                    case "Rectangle":
-                        if (sD1 > 0 && sD2 > 0) {
-                            g2d.fillRect(startX + (drawWidth - sD1)/2, startY + (drawHeight - sD2)/2, sD1, sD2);
-                            drawDimensionLabel(g2d, String.format("L: %.1f", d1),
-                                    (int)(startX + (drawWidth - sD1)/2.0 + sD1/2.0),
-                                    startY + (drawHeight - sD2)/2 + sD2 + 15, true);
-                            drawDimensionLabel(g2d, String.format("W: %.1f", d2),
-                                    (int)(startX + (drawWidth - sD1)/2.0 - 20),
-                                    (int)(startY + (drawHeight - sD2)/2.0 + sD2/2.0), false);
-                        }
-                        break;
-                    case "Parallelogram":
-                        if (sD1 > 0 && sD2 > 0) {
-                            Path2D.Double parallelogram = new Path2D.Double();
-                            int xOffset = sD2 / 2;
-                            if (startX + sD1 + xOffset > panelWidth - PADDING) {
-                                xOffset = Math.max(0, (panelWidth - PADDING - startX - sD1));
-                            }
-                            int pStartX = startX + (drawWidth - (sD1 + xOffset))/2;
-                            int pStartY = startY + (drawHeight - sD2)/2;
-                            parallelogram.moveTo(pStartX + xOffset, pStartY);
-                            parallelogram.lineTo(pStartX + sD1 + xOffset, pStartY);
-                            parallelogram.lineTo(pStartX + sD1, pStartY + sD2);
-                            parallelogram.lineTo(pStartX, pStartY + sD2);
-                            parallelogram.closePath();
-                            g2d.fill(parallelogram);
-                            drawDimensionLabel(g2d, String.format("Base: %.1f", d1),
-                                    (int)(pStartX + sD1/2.0),
-                                    pStartY + sD2 + 15, true);
-                            drawDimensionLabel(g2d, String.format("H: %.1f", d2),
-                                    pStartX - 20,
-                                    (int)(pStartY + sD2/2.0), false);
-                        }
-                        break;
-                    case "Triangle":
-                        if (sD1 > 0 && sD2 > 0) {
-                            Path2D.Double triangle = new Path2D.Double();
-                            int tStartX = startX + (drawWidth - sD1)/2;
-                            int tStartY = startY + (drawHeight - sD2)/2;
-                            triangle.moveTo(tStartX + sD1 / 2.0, tStartY);
-                            triangle.lineTo(tStartX + sD1, tStartY + sD2);
-                            triangle.lineTo(tStartX, tStartY + sD2);
-                            triangle.closePath();
-                            g2d.fill(triangle);
-                            drawDimensionLabel(g2d, String.format("Base: %.1f", d1),
-                                    (int)(tStartX + sD1/2.0),
-                                    tStartY + sD2 + 15, true);
-                            drawDimensionLabel(g2d, String.format("H: %.1f", d2),
-                                    (int)(tStartX + sD1/2.0 + 5),
-                                    (int)(tStartY + sD2/2.0), false);
-                        }
-                        break;
-                    case "Trapezium":
-                        if (sD1 > 0 && sD2 > 0 && sD3 > 0 && sD2 > sD1) {
-                            Path2D.Double trapezium = new Path2D.Double();
-                            int zStartX = startX + (drawWidth - sD2)/2;
-                            int zStartY = startY + (drawHeight - sD3)/2;
-                            double topOffset = (sD2 - sD1) / 2.0;
-                            trapezium.moveTo(zStartX + topOffset, zStartY);
-                            trapezium.lineTo(zStartX + topOffset + sD1, zStartY);
-                            trapezium.lineTo(zStartX + sD2, zStartY + sD3);
-                            trapezium.lineTo(zStartX, zStartY + sD3);
-                            trapezium.closePath();
-                            g2d.fill(trapezium);
-                            drawDimensionLabel(g2d, String.format("a: %.1f", d1),
-                                    (int)(zStartX + topOffset + sD1/2.0),
-                                    zStartY - 5, true);
-                            drawDimensionLabel(g2d, String.format("b: %.1f", d2),
-                                    (int)(zStartX + sD2/2.0),
-                                    zStartY + sD3 + 15, true);
-                            drawDimensionLabel(g2d, String.format("h: %.1f", d3),
-                                    zStartX + sD2 + 5,
-                                    (int)(zStartY + sD3/2.0), false);
-                        }
-                        break;
-                }
-            }
-
-            /**
-             * Draws dimension labels for the shape
-             * @param g2d Graphics context
-             * @param text Label text
-             * @param x X coordinate
-             * @param y Y coordinate
-             * @param isHorizontal Whether the label is horizontal
-             */
-            private void drawDimensionLabel(Graphics2D g2d, String text, int x, int y, boolean isHorizontal) {
-                g2d.setColor(Color.BLACK);
-                g2d.setFont(new Font("Arial", Font.PLAIN, 12));
-                FontMetrics fm = g2d.getFontMetrics();
-                int textWidth = fm.stringWidth(text);
-                if (isHorizontal) {
-                    g2d.drawString(text, x - textWidth / 2, y);
-                } else {
-                    g2d.drawString(text, x, y + fm.getAscent()/2);
-                }
+                long start = System.nanoTime();
+                ShapeRenderer.drawAreaShape((Graphics2D) g, getWidth(), getHeight(), shapeType, d1, d2, d3);
+                painted(start);
             }
         }
     }
@@ -1710,14 +2270,14 @@ public class ShapevilleApp {
      * Panel class for handling circle area and circumference calculations
      * Manages the UI and logic for calculating circle measurements
      */
-    class CircleCalculationPanel extends JPanel {
+    class CircleCalculationPanel extends JPanel implements CardLifecycle.Releasable {
         // Circle properties and state variables
         private int[] radius = new int[1]; // Circle radius (array form for access in drawing panel)
         private int attempts = 0;           // Number of attempts
         private JTextField calculationField; // Input field for calculation
         private JPanel circlePanel;         // Circle drawing panel
-        private Timer timer;
-        private int remainingTime = 180;
+        private TaskClock.Task timer;
+        private int remainingTime = TaskEngine.timeLimitSeconds(TaskEngine.CIRCLE);
         private JLabel timerLabel;
         private String calculationType = ""; // "area" or "arc"
         private JPanel calculationPanel;     // Panel for calculation input
@@ -1725,6 +2285,7 @@ public class ShapevilleApp {
         private CardLayout cardLayout;       // For switching between selection and calculation
         private JButton backToMainButton;    // Button to return to main menu
         private boolean taskCompleted = false; // Flag to track if task is completed
+        private long questionStartedAt;        // Time the current question was shown
 
         /**
          * Constructor: Initialize panel layout and components
@@ -1816,7 +2377,12 @@ public class ShapevilleApp {
                 completeTask("ks2_task4");
             }
             reset();
-            ShapevilleApp.this.cardLayout.show(ShapevilleApp.this.mainPanel, "home");
+            cards.show("home");
+        }
+
+        @Override
+        public void release() {
+            stopTimer();
         }
 
         /**
@@ -1824,7 +2390,7 @@ public class ShapevilleApp {
          */
         private void stopTimer() {
             if (timer != null) {
-                timer.stop();
+                timer.cancel();
                 timer = null;
             }
         }
@@ -1858,25 +2424,9 @@ public class ShapevilleApp {
                 @Override
                 protected void paintComponent(Graphics g) {
                     super.paintComponent(g);
-                    Graphics2D g2d = (Graphics2D) g;
-                    g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-                    int width = getWidth();
-                    int height = getHeight();
-                    int centerX = width / 2;
-                    int centerY = height / 2;
-
-                    // Draw circle with radius line
-                    g2d.setColor(new Color(200, 255, 200));
-                    Ellipse2D circle = new Ellipse2D.Double(centerX - radius[0], centerY - radius[0], radius[0] * 2, radius[0] * 2);
-                    g2d.fill(circle);
-                    g2d.setColor(Color.BLACK);
-                    g2d.draw(circle);
-
-                    g2d.setStroke(new BasicStroke(2.0f));
-                    g2d.drawLine(centerX, centerY, centerX + radius[0], centerY);
-                    g2d.setFont(new Font("Arial", Font.PLAIN, 14));
-                    g2d.drawString("Radius: " + radius[0]/4 + "cm", centerX + radius[0] / 2, centerY - 10);
+                    long start = System.nanoTime();
+                    ShapeRenderer.drawCircle((Graphics2D) g, getWidth(), getHeight(), radius[0]);
+                    painted(start);
                 }
             };
             circlePanel.setPreferredSize(new Dimension(300, 300));
@@ -1939,6 +2489,7 @@ public class ShapevilleApp {
             }
 
             calculationField.setText("");
+            questionStartedAt = questionShown(TaskEngine.CIRCLE, calculationType);
             startTimer();
         }
 
@@ -1946,10 +2497,10 @@ public class ShapevilleApp {
          * Starts the timer for the current calculation task
          */
         private void startTimer() {
-            remainingTime = 180;
-            timerLabel.setText("Remaining time: 180 seconds");
+            remainingTime = TaskEngine.timeLimitSeconds(TaskEngine.CIRCLE);
+            timerLabel.setText("Remaining time: " + remainingTime + " seconds");
             stopTimer();
-            timer = new Timer(1000, e -> {
+            timer = clock.repeat(1000, () -> {
                 remainingTime--;
                 timerLabel.setText(String.format("Remaining time: %d seconds", remainingTime));
                 if (remainingTime <= 0) {
@@ -1957,16 +2508,18 @@ public class ShapevilleApp {
                     handleTimeout();
                 }
             });
-            timer.start();
         }
 
         /**
          * Handles timeout event for the current calculation task
          */
         private void handleTimeout() {
-            double correctAnswer = calculationType.equals("area") ?
-                    Math.PI * Math.pow(radius[0]/4.0, 2) :
-                    2 * Math.PI * (radius[0]/4.0);
+            double correctAnswer = TaskEngine.circleAnswer(calculationType, radius[0]/4.0);
+
+            recordAnswer(TaskEngine.circleQuestion(calculationType, radius[0] / 4), "", attempts + 1,
+                    AttemptOutcome.TIMEOUT, 0);
+            recordAttempt("ks2_task4", calculationType, attempts + 1,
+                    AttemptOutcome.TIMEOUT, 0, questionStartedAt);
 
             String message = String.format("Time's up! Correct %s = %.2f %s",
                     calculationType.equals("area") ? "area" : "arc length",
@@ -1985,24 +2538,19 @@ public class ShapevilleApp {
         private void handleSubmission() {
             try {
                 double userAnswer = Double.parseDouble(calculationField.getText());
-                double correctAnswer = calculationType.equals("area") ?
-                        Math.PI * Math.pow(radius[0]/4.0, 2) :
-                        2 * Math.PI * (radius[0]/4.0);
+                double correctAnswer = TaskEngine.circleAnswer(calculationType, radius[0]/4.0);
+                TaskEngine.Question question = TaskEngine.circleQuestion(calculationType, radius[0] / 4);
 
-                if (Math.abs(userAnswer - correctAnswer) < 0.01) {
+                if (TaskEngine.matches(userAnswer, correctAnswer)) {
                     // Correct answer handling
                     stopTimer();
-                    int pointsToAdd = 0;
-                    switch (attempts) {
-                        case 0: pointsToAdd = 3; break; // First try
-                        case 1: pointsToAdd = 2; break; // Second try
-                        case 2: pointsToAdd = 1; break; // Third try
-                    }
+                    int pointsToAdd = TaskEngine.points(TaskEngine.CIRCLE, 0, attempts);
 
-                    score += pointsToAdd;
-                    if (scoreLabel != null) {
-                        scoreLabel.setText("Current Score: " + score);
-                    }
+                    awardPoints("ks2_task4", pointsToAdd);
+                    recordAnswer(question, calculationField.getText(), attempts + 1,
+                            AttemptOutcome.CORRECT, pointsToAdd);
+                    recordAttempt("ks2_task4", calculationType, attempts + 1,
+                            AttemptOutcome.CORRECT, pointsToAdd, questionStartedAt);
 
                     JOptionPane.showMessageDialog(mainFrame,
                             "Great job! You earned " + pointsToAdd + " points!",
@@ -2010,6 +2558,7 @@ public class ShapevilleApp {
                             JOptionPane.INFORMATION_MESSAGE);
 
                     taskCompleted = true;
+                    completeItem(TaskEngine.CIRCLE, calculationType);
                     JOptionPane.showMessageDialog(mainFrame,
                             "Correct! Returning to main menu.",
                             "Success", JOptionPane.INFORMATION_MESSAGE);
@@ -2017,6 +2566,9 @@ public class ShapevilleApp {
                 } else {
                     // Incorrect answer handling
                     attempts++;
+                    recordAnswer(question, calculationField.getText(), attempts, AttemptOutcome.WRONG, 0);
+                    recordAttempt("ks2_task4", calculationType, attempts,
+                            AttemptOutcome.WRONG, 0, questionStartedAt);
                     if (attempts >= 3) {
                         stopTimer();
                         String formula = calculationType.equals("area") ?
@@ -2046,9 +2598,9 @@ public class ShapevilleApp {
          */
         private void reset() {
             attempts = 0;
-            remainingTime = 180;
+            remainingTime = TaskEngine.timeLimitSeconds(TaskEngine.CIRCLE);
             taskCompleted = false;
-            timerLabel.setText("Remaining time: 180 seconds");
+            timerLabel.setText("Remaining time: " + remainingTime + " seconds");
             stopTimer();
             updateCircleRadius(radius);
             circlePanel.repaint();
@@ -2069,12 +2621,12 @@ public class ShapevilleApp {
      * This panel allows users to practice calculating areas of composite shapes
      * @return The configured composite figure calculation panel
      */
-    class BonusTaskCompositePanel extends JPanel {
+    class BonusTaskCompositePanel extends JPanel implements CardLifecycle.Releasable {
         // UI Components
         private JLabel instructionLabel;
         private JLabel timerLabel;
-        private Timer timer;
-        private int remainingTime = 180;
+        private TaskClock.Task timer;
+        private int remainingTime = TaskEngine.timeLimitSeconds(TaskEngine.COMPOSITE);
         private JPanel shapeSelectionPanel;
         private JPanel calculationPanel;
         private CardLayout cardLayout;
@@ -2086,13 +2638,13 @@ public class ShapevilleApp {
         private JLabel currentShapeImageLabel;
 
         // Task state variables
-        private Set<Integer> completedShapes = new HashSet<>();
-        private final int[] allShapeIds = {2, 3, 4, 5, 8, 9};
+        // Completed figures are items in the student's progress
+        private final int[] allShapeIds = TaskEngine.COMPOSITE_IDS;
         private int currentShapeId;
         private double currentCorrectArea;
-        private Random rand = new Random();
         private int attempts = 0;
         private boolean taskCompleted = false;
+        private long questionStartedAt;
         private static final int MAX_ATTEMPTS = 3;
 
         /**
@@ -2157,12 +2709,12 @@ public class ShapevilleApp {
             backToMainButton.setFont(new Font("Arial", Font.PLAIN, 16));
             backToMainButton.addActionListener(e -> {
                 if (timer != null) {
-                    timer.stop();
+                    timer.cancel();
                 }
                 if (taskCompleted) {
                     completeTask("bonus_task_composite");
                 }
-                ShapevilleApp.this.cardLayout.show(ShapevilleApp.this.mainPanel, "home");
+                cards.show("home");
             });
 
             JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
@@ -2180,13 +2732,12 @@ public class ShapevilleApp {
             JButton button = new JButton();
             button.setPreferredSize(new Dimension(200, 150));
             button.setLayout(new BorderLayout());
-            button.setEnabled(!completedShapes.contains(shapeId));
+            button.setEnabled(!completed.isItemCompleted(TaskEngine.COMPOSITE, String.valueOf(shapeId)));
 
             // Load and display shape image
             try {
                 String imagePath = String.format("/images1/shape%d.png", shapeId);
-                BufferedImage image = ImageIO.read(Objects.requireNonNull(ShapevilleApp.class.getResource(imagePath)));
-                Image scaledImage = image.getScaledInstance(180, 130, Image.SCALE_SMOOTH);
+                BufferedImage scaledImage = ImageLoader.load(Objects.requireNonNull(ShapevilleApp.class.getResource(imagePath)), 180, 130);
                 JLabel imageLabel = new JLabel(new ImageIcon(scaledImage));
                 imageLabel.setHorizontalAlignment(SwingConstants.CENTER);
                 button.add(imageLabel, BorderLayout.CENTER);
@@ -2199,7 +2750,7 @@ public class ShapevilleApp {
             }
 
             button.addActionListener(e -> {
-                if (!completedShapes.contains(shapeId)) {
+                if (!completed.isItemCompleted(TaskEngine.COMPOSITE, String.valueOf(shapeId))) {
                     currentShapeId = shapeId;
                     startCalculation();
                 }
@@ -2277,7 +2828,7 @@ public class ShapevilleApp {
             backToSelectionButton.setFont(new Font("Arial", Font.PLAIN, 16));
             backToSelectionButton.addActionListener(e -> {
                 if (timer != null) {
-                    timer.stop();
+                    timer.cancel();
                 }
                 cardLayout.show((Container)getComponent(0), "selection");
             });
@@ -2287,11 +2838,19 @@ public class ShapevilleApp {
             calculationPanel.add(bottomPanel, BorderLayout.SOUTH);
         }
 
+        @Override
+        public void release() {
+            if (timer != null) {
+                timer.cancel();
+                timer = null;
+            }
+        }
+
         /**
          * Resets the task state and updates UI
          */
         private void resetTask() {
-            completedShapes.clear();
+            completed.clearItems(TaskEngine.COMPOSITE);
             scoreLabel.setText("Current Score: " + score);
             updateShapeButtons();
             cardLayout.show((Container)getComponent(0), "selection");
@@ -2308,7 +2867,7 @@ public class ShapevilleApp {
                     String buttonText = button.getText();
                     if (buttonText.startsWith("Figure ")) {
                         int shapeId = Integer.parseInt(buttonText.substring(7));
-                        button.setEnabled(!completedShapes.contains(shapeId));
+                        button.setEnabled(!completed.isItemCompleted(TaskEngine.COMPOSITE, String.valueOf(shapeId)));
                     }
                 }
             }
@@ -2320,8 +2879,8 @@ public class ShapevilleApp {
         private void startCalculation() {
             currentCorrectArea = calculateShapeArea(currentShapeId);
             attempts = 0;
-            remainingTime = 300;
-            timerLabel.setText("Remaining time: 300 seconds");
+            remainingTime = TaskEngine.timeLimitSeconds(TaskEngine.COMPOSITE);
+            timerLabel.setText("Remaining time: " + remainingTime + " seconds");
             answerField.setText("");
             answerField.setEnabled(true);
             submitButton.setEnabled(true);
@@ -2334,8 +2893,7 @@ public class ShapevilleApp {
 
             try {
                 String imagePath = String.format("/images1/shape%d.png", currentShapeId);
-                BufferedImage image = ImageIO.read(Objects.requireNonNull(ShapevilleApp.class.getResource(imagePath)));
-                Image scaledImage = image.getScaledInstance(300, 200, Image.SCALE_SMOOTH);
+                BufferedImage scaledImage = ImageLoader.load(Objects.requireNonNull(ShapevilleApp.class.getResource(imagePath)), 300, 200);
                 currentShapeImageLabel.setIcon(new ImageIcon(scaledImage));
             } catch (Exception ex) {
                 currentShapeImageLabel.setIcon(null);
@@ -2344,6 +2902,7 @@ public class ShapevilleApp {
             }
 
             cardLayout.show((Container)getComponent(0), "calculation");
+            questionStartedAt = questionShown(TaskEngine.COMPOSITE, String.valueOf(currentShapeId));
             startTimer();
         }
 
@@ -2352,16 +2911,15 @@ public class ShapevilleApp {
          */
         private void startTimer() {
             if (timer != null) {
-                timer.stop();
+                timer.cancel();
             }
-            timer = new Timer(1000, e -> {
+            timer = clock.repeat(1000, () -> {
                 remainingTime--;
                 timerLabel.setText(String.format("Remaining time: %d seconds", remainingTime));
                 if (remainingTime <= 0) {
                     handleTimeout();
                 }
             });
-            timer.start();
         }
 
         /**
@@ -2369,22 +2927,21 @@ public class ShapevilleApp {
          */
         private void handleTimeout() {
             if (timer != null) {
-                timer.stop();
+                timer.cancel();
             }
+            recordAnswer(taskEngine.question(TaskEngine.COMPOSITE, String.valueOf(currentShapeId)), "",
+                    attempts + 1, AttemptOutcome.TIMEOUT, 0);
+            recordAttempt("bonus_task_composite", String.valueOf(currentShapeId), attempts + 1,
+                    AttemptOutcome.TIMEOUT, 0, questionStartedAt);
             feedbackLabel.setText(String.format("Time's up! Correct area: %.2f", currentCorrectArea));
             feedbackLabel.setForeground(Color.RED);
             answerField.setEnabled(false);
             submitButton.setEnabled(false);
 
-            new java.util.Timer().schedule(new java.util.TimerTask() {
-                @Override
-                public void run() {
-                    SwingUtilities.invokeLater(() -> {
-                        cardLayout.show((Container)getComponent(0), "selection");
-                        updateShapeButtons();
-                    });
-                }
-            }, 3000);
+            clock.schedule(3000, () -> {
+                cardLayout.show((Container)getComponent(0), "selection");
+                updateShapeButtons();
+            });
         }
 
         /**
@@ -2392,78 +2949,62 @@ public class ShapevilleApp {
          */
         private void handleSubmit() {
             if (timer != null) {
-                timer.stop();
+                timer.cancel();
             }
             try {
                 double userAnswer = Double.parseDouble(answerField.getText());
-                if (Math.abs(userAnswer - currentCorrectArea) < 0.01) {
+                TaskEngine.Question question = taskEngine.question(TaskEngine.COMPOSITE, String.valueOf(currentShapeId));
+                if (TaskEngine.matches(userAnswer, currentCorrectArea)) {
                     // Correct answer handling
-                    int pointsToAdd = 0;
-                    switch (attempts) {
-                        case 0: pointsToAdd = 6; break; // First try
-                        case 1: pointsToAdd = 4; break; // Second try
-                        case 2: pointsToAdd = 2; break; // Third try
-                    }
+                    int pointsToAdd = TaskEngine.points(TaskEngine.COMPOSITE, 0, attempts);
 
-                    score += pointsToAdd;
-                    if (scoreLabel != null) {
-                        scoreLabel.setText("Current Score: " + score);
-                    }
+                    awardPoints("bonus_task_composite", pointsToAdd);
+                    recordAnswer(question, answerField.getText(), attempts + 1, AttemptOutcome.CORRECT, pointsToAdd);
+                    recordAttempt("bonus_task_composite", String.valueOf(currentShapeId), attempts + 1,
+                            AttemptOutcome.CORRECT, pointsToAdd, questionStartedAt);
 
                     JOptionPane.showMessageDialog(mainFrame,
                             "Great job! You earned " + pointsToAdd + " points!",
                             "Correct!",
                             JOptionPane.INFORMATION_MESSAGE);
 
-                    completedShapes.add(currentShapeId);
+                    completeItem(TaskEngine.COMPOSITE, String.valueOf(currentShapeId));
                     feedbackLabel.setText("Correct! Score +" + pointsToAdd);
                     feedbackLabel.setForeground(Color.GREEN);
 
                     // Check if all shapes are completed
-                    if (completedShapes.size() >= allShapeIds.length && !taskCompleted) {
+                    if (completed.itemCount(TaskEngine.COMPOSITE) >= allShapeIds.length && !taskCompleted) {
                         taskCompleted = true;
                         completeTask("bonus_task_composite");
                         JOptionPane.showMessageDialog(this,
                                 "Congratulations! You have completed all composite figure calculations!",
                                 "Task Completed",
                                 JOptionPane.INFORMATION_MESSAGE);
-                        new java.util.Timer().schedule(new java.util.TimerTask() {
-                            @Override
-                            public void run() {
-                                SwingUtilities.invokeLater(() -> {
-                                    ShapevilleApp.this.cardLayout.show(ShapevilleApp.this.mainPanel, "home");
-                                });
-                            }
-                        }, 2000);
+                        clock.schedule(2000, () -> {
+                            cards.show("home");
+                        });
                     } else {
-                        new java.util.Timer().schedule(new java.util.TimerTask() {
-                            @Override
-                            public void run() {
-                                SwingUtilities.invokeLater(() -> {
-                                    cardLayout.show((Container)getComponent(0), "selection");
-                                    updateShapeButtons();
-                                });
-                            }
-                        }, 1500);
+                        clock.schedule(1500, () -> {
+                            cardLayout.show((Container)getComponent(0), "selection");
+                            updateShapeButtons();
+                        });
                     }
                 } else {
                     // Incorrect answer handling
                     attempts++;
+                    recordAnswer(question, answerField.getText(), attempts, AttemptOutcome.WRONG, 0);
+                    recordAttempt("bonus_task_composite", String.valueOf(currentShapeId), attempts,
+                            AttemptOutcome.WRONG, 0, questionStartedAt);
                     if (attempts >= MAX_ATTEMPTS) {
                         feedbackLabel.setText(String.format("Wrong answer! Correct area: %.2f", currentCorrectArea));
                         feedbackLabel.setForeground(Color.RED);
                         answerField.setEnabled(false);
                         submitButton.setEnabled(false);
 
-                        new java.util.Timer().schedule(new java.util.TimerTask() {
-                            @Override
-                            public void run() {
-                                SwingUtilities.invokeLater(() -> {
-                                    cardLayout.show((Container)getComponent(0), "selection");
-                                    updateShapeButtons();
-                                });
-                            }
-                        }, 3000);
+                        clock.schedule(3000, () -> {
+                            cardLayout.show((Container)getComponent(0), "selection");
+                            updateShapeButtons();
+                        });
                     } else {
                         feedbackLabel.setText(String.format("Wrong answer! %d attempts remaining.", MAX_ATTEMPTS - attempts));
                         feedbackLabel.setForeground(Color.ORANGE);
@@ -2484,12 +3025,12 @@ public class ShapevilleApp {
      * @return The configured sector calculation panel
      */
 
-    class BonusTaskSectorPanel extends JPanel {
+    class BonusTaskSectorPanel extends JPanel implements CardLifecycle.Releasable {
         // UI Components
         private JLabel instructionLabel;
         private JLabel timerLabel;
-        private Timer timer;
-        private int remainingTime = 300;
+        private TaskClock.Task timer;
+        private int remainingTime = TaskEngine.timeLimitSeconds(TaskEngine.SECTOR);
         private JPanel shapeSelectionPanel;
         private JPanel calculationPanel;
         private CardLayout cardLayout;
@@ -2501,13 +3042,13 @@ public class ShapevilleApp {
         private JLabel currentShapeImageLabel;
 
         // Task state variables
-        private Set<Integer> completedSectors = new HashSet<>();
-        private final int[] allSectorIds = {1, 2, 3, 4, 5, 6, 7, 8};
+        // Completed sectors are items in the student's progress
+        private final int[] allSectorIds = TaskEngine.SECTOR_IDS;
         private int currentSectorId;
         private double currentCorrectArea;
-        private Random rand = new Random();
         private int attempts = 0;
         private boolean taskCompleted = false;
+        private long questionStartedAt;
         private static final int MAX_ATTEMPTS = 3;
 
         /**
@@ -2572,12 +3113,12 @@ public class ShapevilleApp {
             backToMainButton.setFont(new Font("Arial", Font.PLAIN, 16));
             backToMainButton.addActionListener(e -> {
                 if (timer != null) {
-                    timer.stop();
+                    timer.cancel();
                 }
                 if (taskCompleted) {
                     completeTask("bonus_task_sector");
                 }
-                ShapevilleApp.this.cardLayout.show(ShapevilleApp.this.mainPanel, "home");
+                cards.show("home");
             });
 
             JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
@@ -2595,13 +3136,12 @@ public class ShapevilleApp {
             JButton button = new JButton();
             button.setPreferredSize(new Dimension(180, 130));
             button.setLayout(new BorderLayout());
-            button.setEnabled(!completedSectors.contains(sectorId));
+            button.setEnabled(!completed.isItemCompleted(TaskEngine.SECTOR, String.valueOf(sectorId)));
 
             // Load and display sector image
             try {
                 String imagePath = String.format("/images2/sector%d.png", sectorId);
-                BufferedImage image = ImageIO.read(Objects.requireNonNull(ShapevilleApp.class.getResource(imagePath)));
-                Image scaledImage = image.getScaledInstance(160, 110, Image.SCALE_SMOOTH);
+                BufferedImage scaledImage = ImageLoader.load(Objects.requireNonNull(ShapevilleApp.class.getResource(imagePath)), 160, 110);
                 JLabel imageLabel = new JLabel(new ImageIcon(scaledImage));
                 imageLabel.setHorizontalAlignment(SwingConstants.CENTER);
                 button.add(imageLabel, BorderLayout.CENTER);
@@ -2614,7 +3154,7 @@ public class ShapevilleApp {
             }
 
             button.addActionListener(e -> {
-                if (!completedSectors.contains(sectorId)) {
+                if (!completed.isItemCompleted(TaskEngine.SECTOR, String.valueOf(sectorId))) {
                     currentSectorId = sectorId;
                     startCalculation();
                 }
@@ -2692,7 +3232,7 @@ public class ShapevilleApp {
             backToSelectionButton.setFont(new Font("Arial", Font.PLAIN, 16));
             backToSelectionButton.addActionListener(e -> {
                 if (timer != null) {
-                    timer.stop();
+                    timer.cancel();
                 }
                 cardLayout.show((Container)getComponent(0), "selection");
             });
@@ -2702,11 +3242,19 @@ public class ShapevilleApp {
             calculationPanel.add(bottomPanel, BorderLayout.SOUTH);
         }
 
+        @Override
+        public void release() {
+            if (timer != null) {
+                timer.cancel();
+                timer = null;
+            }
+        }
+
         /**
          * Resets the task state and updates UI
          */
         private void resetTask() {
-            completedSectors.clear();
+            completed.clearItems(TaskEngine.SECTOR);
             scoreLabel.setText("Current Score: " + score);
             updateSectorButtons();
             cardLayout.show((Container)getComponent(0), "selection");
@@ -2723,7 +3271,7 @@ public class ShapevilleApp {
                     String buttonText = button.getText();
                     if (buttonText.startsWith("Sector ")) {
                         int sectorId = Integer.parseInt(buttonText.substring(7));
-                        button.setEnabled(!completedSectors.contains(sectorId));
+                        button.setEnabled(!completed.isItemCompleted(TaskEngine.SECTOR, String.valueOf(sectorId)));
                     }
                 }
             }
@@ -2735,11 +3283,11 @@ public class ShapevilleApp {
         private void startCalculation() {
             double r = getRadius(currentSectorId);
             double theta = getAngle(currentSectorId);
-            currentCorrectArea = 3.14 * r * r * (theta / 360.0);
+            currentCorrectArea = TaskEngine.sectorArea(r, theta);
 
             attempts = 0;
-            remainingTime = 300;
-            timerLabel.setText("Remaining time: 300 seconds");
+            remainingTime = TaskEngine.timeLimitSeconds(TaskEngine.SECTOR);
+            timerLabel.setText("Remaining time: " + remainingTime + " seconds");
             areaField.setText("");
             areaField.setEnabled(true);
             submitButton.setEnabled(true);
@@ -2753,8 +3301,7 @@ public class ShapevilleApp {
 
             try {
                 String imagePath = String.format("/images2/sector%d.png", currentSectorId);
-                BufferedImage image = ImageIO.read(Objects.requireNonNull(ShapevilleApp.class.getResource(imagePath)));
-                Image scaledImage = image.getScaledInstance(300, 200, Image.SCALE_SMOOTH);
+                BufferedImage scaledImage = ImageLoader.load(Objects.requireNonNull(ShapevilleApp.class.getResource(imagePath)), 300, 200);
                 currentShapeImageLabel.setIcon(new ImageIcon(scaledImage));
             } catch (Exception ex) {
                 currentShapeImageLabel.setIcon(null);
@@ -2763,6 +3310,7 @@ public class ShapevilleApp {
             }
 
             cardLayout.show((Container)getComponent(0), "calculation");
+            questionStartedAt = questionShown(TaskEngine.SECTOR, String.valueOf(currentSectorId));
             startTimer();
         }
 
@@ -2771,16 +3319,15 @@ public class ShapevilleApp {
          */
         private void startTimer() {
             if (timer != null) {
-                timer.stop();
+                timer.cancel();
             }
-            timer = new Timer(1000, e -> {
+            timer = clock.repeat(1000, () -> {
                 remainingTime--;
                 timerLabel.setText(String.format("Remaining time: %d seconds", remainingTime));
                 if (remainingTime <= 0) {
                     handleTimeout();
                 }
             });
-            timer.start();
         }
 
         /**
@@ -2788,25 +3335,24 @@ public class ShapevilleApp {
          */
         private void handleTimeout() {
             if (timer != null) {
-                timer.stop();
+                timer.cancel();
             }
             double r = getRadius(currentSectorId);
             double theta = getAngle(currentSectorId);
             String formula = String.format("Area = π×r²×(θ/360) = 3.14×%.1f²×(%.0f/360) = %.2f", r, theta, currentCorrectArea);
+            recordAnswer(taskEngine.question(TaskEngine.SECTOR, String.valueOf(currentSectorId)), "",
+                    attempts + 1, AttemptOutcome.TIMEOUT, 0);
+            recordAttempt("bonus_task_sector", String.valueOf(currentSectorId), attempts + 1,
+                    AttemptOutcome.TIMEOUT, 0, questionStartedAt);
             feedbackLabel.setText(String.format("Time's up! %s", formula));
             feedbackLabel.setForeground(Color.RED);
             areaField.setEnabled(false);
             submitButton.setEnabled(false);
 
-            new java.util.Timer().schedule(new java.util.TimerTask() {
-                @Override
-                public void run() {
-                    SwingUtilities.invokeLater(() -> {
-                        cardLayout.show((Container)getComponent(0), "selection");
-                        updateSectorButtons();
-                    });
-                }
-            }, 3000);
+            clock.schedule(3000, () -> {
+                cardLayout.show((Container)getComponent(0), "selection");
+                updateSectorButtons();
+            });
         }
 
         /**
@@ -2814,64 +3360,53 @@ public class ShapevilleApp {
          */
         private void handleSubmit() {
             if (timer != null) {
-                timer.stop();
+                timer.cancel();
             }
             try {
                 double userArea = Double.parseDouble(areaField.getText());
+                TaskEngine.Question question = taskEngine.question(TaskEngine.SECTOR, String.valueOf(currentSectorId));
 
-                if (Math.abs(userArea - currentCorrectArea) < 0.01) {
+                if (TaskEngine.matches(userArea, currentCorrectArea)) {
                     // Correct answer handling
-                    int pointsToAdd = 0;
-                    switch (attempts) {
-                        case 0: pointsToAdd = 6; break; // First try
-                        case 1: pointsToAdd = 4; break; // Second try
-                        case 2: pointsToAdd = 2; break; // Third try
-                    }
+                    int pointsToAdd = TaskEngine.points(TaskEngine.SECTOR, 0, attempts);
 
-                    score += pointsToAdd;
-                    if (scoreLabel != null) {
-                        scoreLabel.setText("Current Score: " + score);
-                    }
+                    awardPoints("bonus_task_sector", pointsToAdd);
+                    recordAnswer(question, areaField.getText(), attempts + 1, AttemptOutcome.CORRECT, pointsToAdd);
+                    recordAttempt("bonus_task_sector", String.valueOf(currentSectorId), attempts + 1,
+                            AttemptOutcome.CORRECT, pointsToAdd, questionStartedAt);
 
                     JOptionPane.showMessageDialog(mainFrame,
                             "Great job! You earned " + pointsToAdd + " points!",
                             "Correct!",
                             JOptionPane.INFORMATION_MESSAGE);
 
-                    completedSectors.add(currentSectorId);
+                    completeItem(TaskEngine.SECTOR, String.valueOf(currentSectorId));
                     feedbackLabel.setText("Correct! Score +" + pointsToAdd);
                     feedbackLabel.setForeground(Color.GREEN);
 
                     // Check if all sectors are completed
-                    if (completedSectors.size() >= allSectorIds.length && !taskCompleted) {
+                    if (completed.itemCount(TaskEngine.SECTOR) >= allSectorIds.length && !taskCompleted) {
                         taskCompleted = true;
                         completeTask("bonus_task_sector");
                         JOptionPane.showMessageDialog(this,
                                 "Congratulations! You have completed all sector calculations!",
                                 "Task Completed",
                                 JOptionPane.INFORMATION_MESSAGE);
-                        new java.util.Timer().schedule(new java.util.TimerTask() {
-                            @Override
-                            public void run() {
-                                SwingUtilities.invokeLater(() -> {
-                                    ShapevilleApp.this.cardLayout.show(ShapevilleApp.this.mainPanel, "home");
-                                });
-                            }
-                        }, 2000);
+                        clock.schedule(2000, () -> {
+                            cards.show("home");
+                        });
                     } else {
-                        new java.util.Timer().schedule(new java.util.TimerTask() {
-                            @Override
-                            public void run() {
-                                SwingUtilities.invokeLater(() -> {
-                                    cardLayout.show((Container)getComponent(0), "selection");
-                                    updateSectorButtons();
-                                });
-                            }
-                        }, 1500);
+                        clock.schedule(1500, () -> {
+                            cardLayout.show((Container)getComponent(0), "selection");
+                            updateSectorButtons();
+                        });
                     }
                 } else {
                     // Incorrect answer handling
                     attempts++;
+                    recordAnswer(question, areaField.getText(), attempts, AttemptOutcome.WRONG, 0);
+                    recordAttempt("bonus_task_sector", String.valueOf(currentSectorId), attempts,
+                            AttemptOutcome.WRONG, 0, questionStartedAt);
                     if (attempts >= MAX_ATTEMPTS) {
                         double r = getRadius(currentSectorId);
                         double theta = getAngle(currentSectorId);
@@ -2881,15 +3416,10 @@ public class ShapevilleApp {
                         areaField.setEnabled(false);
                         submitButton.setEnabled(false);
 
-                        new java.util.Timer().schedule(new java.util.TimerTask() {
-                            @Override
-                            public void run() {
-                                SwingUtilities.invokeLater(() -> {
-                                    cardLayout.show((Container)getComponent(0), "selection");
-                                    updateSectorButtons();
-                                });
-                            }
-                        }, 3000);
+                        clock.schedule(3000, () -> {
+                            cardLayout.show((Container)getComponent(0), "selection");
+                            updateSectorButtons();
+                        });
                     } else {
                         feedbackLabel.setText(String.format("Wrong answer! %d attempts remaining.", MAX_ATTEMPTS - attempts));
                         feedbackLabel.setForeground(Color.ORANGE);
@@ -2911,22 +3441,7 @@ public class ShapevilleApp {
      * @return The calculated area
      */
     private double calculateShapeArea(int id) {
-        switch (id) {
-            case 2: // Rectangle + Square combination
-                return 20 * 10 + 11 * 11;
-            case 3: // Rectangle + Extension part
-                return 16 * 16 + 18 * 19;
-            case 4: // Multiple rectangle combination
-                return 24 * 6 + 12 * 12;
-            case 5: // Rectangle + Triangle
-                return 4 * 3 + (4 * 3) / 2.0;
-            case 8: // Large rectangle minus small rectangle
-                return 60 * 36 + 36 * 36;
-            case 9: // Rectangle + Square
-                return 11 * 10 + 8 * 8;
-            default:
-                return 0;
-        }
+        return taskEngine.compositeArea(id);
     }
 
     /**
@@ -2935,17 +3450,7 @@ public class ShapevilleApp {
      * @return The radius value
      */
     private double getRadius(int id) {
-        switch (id) {
-            case 1: return 8;
-            case 2: return 18;
-            case 3: return 19;
-            case 4: return 22;
-            case 5: return 3.5;
-            case 6: return 8;
-            case 7: return 12;
-            case 8: return 15;
-            default: return 0;
-        }
+        return taskEngine.sectorRadius(id);
     }
 
     /**
@@ -2954,17 +3459,7 @@ public class ShapevilleApp {
      * @return The angle value in degrees
      */
     private double getAngle(int id) {
-        switch (id) {
-            case 1: return 90;   // Right angle sector
-            case 2: return 130;  // Obtuse angle sector
-            case 3: return 240;  // Reflex angle sector
-            case 4: return 110;  // Acute angle sector
-            case 5: return 100;  // Acute angle sector
-            case 6: return 270;  // Reflex angle sector (3/4 circle)
-            case 7: return 280;  // Reflex angle sector
-            case 8: return 250;  // Reflex angle sector
-            default: return 0;
-        }
+        return taskEngine.sectorAngle(id);
     }
 
     /**
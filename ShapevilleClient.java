@@ -0,0 +1,654 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ShapevilleClient - Thin-client backend talking to a {@link ShapevilleServer}
+ *
+ * Requests are queued and written back to back on one keep-alive connection without
+ * waiting for earlier responses (HTTP/1.1 pipelining); a reader thread matches the
+ * responses to the requests in order. Attempt reports for tasks the app grades
+ * itself (from which the server awards their points) are buffered and sent as one /events request every 250 ms or every
+ * 32 events. Questions can be prefetched while the student is reading feedback, so
+ * the next question is usually on hand before it is asked for.
+ *
+ * Idempotent requests (question fetches) are retried once if the connection drops;
+ * others fail their future and the panel lets the student try again.
+ */
+public class ShapevilleClient implements TaskBackend {
+    public static final int MAX_IN_FLIGHT = 32;
+    public static final int EVENT_BATCH_SIZE = 32;
+    public static final long EVENT_FLUSH_MILLIS = 250;
+    // Closed before the server's 30 s idle timeout, so requests never race a server-side close
+    private static final long IDLE_CLOSE_MILLIS = 20_000;
+
+    private final String host;
+    private final int port;
+    private final BlockingDeque<Request> queue = new LinkedBlockingDeque<>();
+    private final Map<String, CompletableFuture<ShapevilleServer.IssuedQuestion>> prefetched = new ConcurrentHashMap<>();
+    private final Thread writer;
+    private volatile String studentId;
+    private volatile boolean closed;
+
+    // Pending reports, guarded by the events monitor
+    private final Object events = new Object();
+    private final StringBuilder eventBatch = new StringBuilder();
+    private String eventStudent;
+    private int eventCount;
+    private long firstEventAt;
+
+    // Only touched by the writer thread
+    private Connection connection;
+    private long lastWriteAt;
+
+    /**
+     * Creates a client; the connection is opened on the first request
+     * @param host Server host
+     * @param port Server port
+     * @param studentId The initial student
+     */
+    public ShapevilleClient(String host, int port, String studentId) {
+        this.host = host;
+        this.port = port;
+        this.studentId = studentId;
+        writer = new Thread(this::writeLoop, "shapeville-client");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Creates a client from a host:port address
+     * @param address The server address, e.g. "localhost:8765"
+     * @param studentId The initial student
+     * @return The client
+     */
+    public static ShapevilleClient connect(String address, String studentId) {
+        int colon = address.lastIndexOf(':');
+        if (colon < 0) return new ShapevilleClient(address, ShapevilleServer.DEFAULT_PORT, studentId);
+        return new ShapevilleClient(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)),
+                studentId);
+    }
+
+    @Override
+    public void setStudent(String studentId) {
+        flushEvents();
+        prefetched.clear();
+        this.studentId = studentId;
+    }
+
+    @Override
+    public CompletableFuture<ShapevilleServer.IssuedQuestion> question(String taskId, String variant) {
+        CompletableFuture<ShapevilleServer.IssuedQuestion> ready = prefetched.remove(prefetchKey(taskId, variant));
+        if (ready != null && !ready.isCompletedExceptionally()) return ready;
+        return question(studentId, taskId, variant);
+    }
+
+    @Override
+    public void prefetch(String taskId, String variant) {
+        prefetched.computeIfAbsent(prefetchKey(taskId, variant), key -> question(studentId, taskId, variant));
+    }
+
+    @Override
+    public CompletableFuture<ShapevilleServer.AnswerResult> answer(long questionId, String answer,
+                                                                   long latencyMillis) {
+        return answer(studentId, questionId, answer, latencyMillis);
+    }
+
+    @Override
+    public CompletableFuture<ShapevilleServer.AnswerResult> timeOut(long questionId, long latencyMillis) {
+        return timeOut(studentId, questionId, latencyMillis);
+    }
+
+    @Override
+    public void pointsAwarded(String taskId, int points) {
+        // The server scores the attempt report itself, so the points are not sent
+    }
+
+    @Override
+    public void attemptRecorded(String taskId, String item, int attempt, AttemptOutcome outcome,
+                                int points, long latencyMillis) {
+        addEvent("type=attempt&task=" + encode(taskId) + "&item=" + encode(item) + "&attempt=" + attempt
+                + "&outcome=" + outcome.name().toLowerCase(Locale.ROOT) + "&points=" + points
+                + "&latency=" + latencyMillis);
+    }
+
+    /**
+     * Sends buffered reports, then stops the writer once every queued request is written
+     */
+    @Override
+    public void close() {
+        flushEvents();
+        closed = true;
+        writer.interrupt();
+        try {
+            writer.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Fetches a question for any student, bypassing the prefetch cache; lets one
+     * connection carry requests for many students (used by the load generator)
+     * @param studentId The student
+     * @param taskId The task ID
+     * @param variant Task-specific choice, or null for a random one
+     * @return The question
+     */
+    CompletableFuture<ShapevilleServer.IssuedQuestion> question(String studentId, String taskId, String variant) {
+        String query = "task=" + encode(taskId) + (variant != null ? "&variant=" + encode(variant) : "");
+        return send(studentId, "GET", "/question", query, true).thenApply(body -> {
+            Map<String, Object> json = parseJson(body);
+            List<?> dimList = (List<?>) json.get("dims");
+            double[] dims = new double[dimList.size()];
+            for (int i = 0; i < dims.length; i++) dims[i] = ((Number) dimList.get(i)).doubleValue();
+            TaskEngine.Question question = new TaskEngine.Question((String) json.get("task"),
+                    (String) json.get("item"), (String) json.get("prompt"),
+                    ((Number) json.get("dimension")).intValue(), dims, null, Double.NaN);
+            return new ShapevilleServer.IssuedQuestion(((Number) json.get("question")).longValue(), question);
+        });
+    }
+
+    /**
+     * Grades an answer for any student
+     * @see #question(String, String, String)
+     */
+    CompletableFuture<ShapevilleServer.AnswerResult> answer(String studentId, long questionId, String answer,
+                                                            long latencyMillis) {
+        return send(studentId, "POST", "/answer", "question=" + questionId + "&answer=" + encode(answer)
+                + "&latency=" + latencyMillis, false).thenApply(ShapevilleClient::parseResult);
+    }
+
+    /**
+     * Closes a timed-out question for any student
+     * @see #question(String, String, String)
+     */
+    CompletableFuture<ShapevilleServer.AnswerResult> timeOut(String studentId, long questionId, long latencyMillis) {
+        return send(studentId, "POST", "/timeout", "question=" + questionId + "&latency=" + latencyMillis, false)
+                .thenApply(ShapevilleClient::parseResult);
+    }
+
+    private String prefetchKey(String taskId, String variant) {
+        return taskId + '\u0000' + variant;
+    }
+
+    private static ShapevilleServer.AnswerResult parseResult(String body) {
+        Map<String, Object> json = parseJson(body);
+        return new ShapevilleServer.AnswerResult((Boolean) json.get("correct"),
+                ((Number) json.get("points")).intValue(), ((Number) json.get("attemptsLeft")).intValue(),
+                ((Number) json.get("score")).intValue(), (Boolean) json.get("finished"), (String) json.get("answer"));
+    }
+
+    // ---- Event batching ----
+
+    private void addEvent(String event) {
+        synchronized (events) {
+            if (eventCount > 0 && !studentId.equals(eventStudent)) flushEventsLocked();
+            if (eventCount == 0) {
+                eventStudent = studentId;
+                firstEventAt = System.currentTimeMillis();
+            }
+            eventBatch.append(event).append('\n');
+            if (++eventCount >= EVENT_BATCH_SIZE) flushEventsLocked();
+        }
+    }
+
+    private void flushEvents() {
+        synchronized (events) {
+            flushEventsLocked();
+        }
+    }
+
+    private void flushEventsLocked() {
+        if (eventCount == 0) return;
+        Request request = new Request("POST", "/events", "student=" + encode(eventStudent), eventBatch.toString(), false);
+        int count = eventCount;
+        request.result.whenComplete((body, error) -> {
+            if (error != null) System.err.println("Error sending " + count + " events: " + error.getMessage());
+        });
+        queue.add(request);
+        eventBatch.setLength(0);
+        eventCount = 0;
+    }
+
+    private long eventFlushDelay() {
+        synchronized (events) {
+            if (eventCount == 0) return EVENT_FLUSH_MILLIS;
+            return Math.max(0, firstEventAt + EVENT_FLUSH_MILLIS - System.currentTimeMillis());
+        }
+    }
+
+    // ---- Pipelined transport ----
+
+    private CompletableFuture<String> send(String studentId, String method, String path, String params,
+                                           boolean idempotent) {
+        String query = "student=" + encode(studentId) + "&" + params;
+        Request request = "GET".equals(method)
+                ? new Request(method, path, query, null, idempotent)
+                : new Request(method, path, "student=" + encode(studentId), params, idempotent);
+        if (closed) {
+            request.result.completeExceptionally(new IOException("Client is closed"));
+        } else {
+            queue.add(request);
+        }
+        return request.result;
+    }
+
+    private void writeLoop() {
+        while (true) {
+            Request request;
+            try {
+                request = queue.poll(eventFlushDelay(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                request = queue.poll();
+            }
+            if (request == null) {
+                if (eventFlushDelay() == 0) {
+                    flushEvents();
+                } else if (closed) {
+                    break;
+                } else if (connection != null && System.currentTimeMillis() - lastWriteAt > IDLE_CLOSE_MILLIS
+                        && connection.isIdle()) {
+                    // Only this thread adds requests, so none can be in flight when it closes
+                    connection.fail(new IOException("Idle connection closed"));
+                    connection = null;
+                }
+                continue;
+            }
+            write(request);
+        }
+        if (connection != null) connection.closeWhenDrained();
+    }
+
+    private void write(Request request) {
+        try {
+            if (connection == null || connection.dead) {
+                connection = new Connection();
+            }
+            Connection c = connection;
+            synchronized (c) {
+                while (c.inFlight.size() >= MAX_IN_FLIGHT && !c.dead) {
+                    c.out.flush();
+                    c.wait();
+                }
+                if (c.dead) {
+                    // Dropped while waiting for room; the request goes out on a new connection
+                    queue.addFirst(request);
+                    return;
+                }
+                c.inFlight.addLast(request);
+            }
+            c.out.write(request.bytes(host, port));
+            // Coalesce: only flush once nothing else is ready to go out
+            if (queue.isEmpty()) c.out.flush();
+            lastWriteAt = System.currentTimeMillis();
+        } catch (IOException e) {
+            if (connection != null && !connection.dead) {
+                connection.fail(e);
+            } else {
+                request.result.completeExceptionally(e);
+            }
+        } catch (InterruptedException e) {
+            queue.addFirst(request);
+        }
+    }
+
+    /**
+     * A keep-alive connection with the requests awaiting responses
+     */
+    private final class Connection {
+        final Socket socket;
+        final OutputStream out;
+        final InputStream in;
+        final ArrayDeque<Request> inFlight = new ArrayDeque<>();
+        volatile boolean dead;
+        boolean closeWhenDrained;
+
+        Connection() throws IOException {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            socket.connect(new InetSocketAddress(host, port), 2000);
+            out = new BufferedOutputStream(socket.getOutputStream(), 16 * 1024);
+            in = new BufferedInputStream(socket.getInputStream(), 16 * 1024);
+            Thread reader = new Thread(this::readLoop, "shapeville-client-reader");
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        private void readLoop() {
+            try {
+                while (true) {
+                    int status = readStatus();
+                    boolean close = false;
+                    int length = -1;
+                    boolean chunked = false;
+                    String line;
+                    while (!(line = readLine()).isEmpty()) {
+                        int colon = line.indexOf(':');
+                        if (colon < 0) continue;
+                        String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+                        String value = line.substring(colon + 1).trim();
+                        if (name.equals("content-length")) length = Integer.parseInt(value);
+                        else if (name.equals("transfer-encoding")) chunked = value.equalsIgnoreCase("chunked");
+                        else if (name.equals("connection")) close = value.equalsIgnoreCase("close");
+                    }
+                    byte[] body = chunked ? readChunked() : readFully(Math.max(0, length));
+                    Request request;
+                    synchronized (this) {
+                        request = inFlight.pollFirst();
+                        notifyAll();
+                    }
+                    if (request == null) throw new IOException("Response without a request");
+                    request.complete(status, new String(body, StandardCharsets.UTF_8));
+                    synchronized (this) {
+                        if (closeWhenDrained && inFlight.isEmpty()) close = true;
+                    }
+                    if (close) throw new EOFException("Connection closed");
+                }
+            } catch (IOException | RuntimeException e) {
+                fail(e instanceof IOException ? (IOException) e : new IOException(e));
+            }
+        }
+
+        /**
+         * Marks the connection dead, retrying idempotent requests that were not answered
+         */
+        void fail(IOException cause) {
+            List<Request> unanswered;
+            synchronized (this) {
+                if (dead) return;
+                dead = true;
+                unanswered = new ArrayList<>(inFlight);
+                inFlight.clear();
+                notifyAll();
+            }
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already failing
+            }
+            for (int i = unanswered.size() - 1; i >= 0; i--) {
+                Request request = unanswered.get(i);
+                if (request.idempotent && !request.retried && !closed) {
+                    request.retried = true;
+                    queue.addFirst(request);
+                } else {
+                    request.result.completeExceptionally(cause);
+                }
+            }
+        }
+
+        /**
+         * @return Whether every request sent on the connection has been answered
+         */
+        synchronized boolean isIdle() {
+            return inFlight.isEmpty();
+        }
+
+        void closeWhenDrained() {
+            synchronized (this) {
+                if (inFlight.isEmpty()) {
+                    fail(new IOException("Client closed"));
+                } else {
+                    closeWhenDrained = true;
+                }
+            }
+            try {
+                out.flush();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        private int readStatus() throws IOException {
+            String line = readLine();
+            String[] parts = line.split(" ", 3);
+            if (parts.length < 2 || !parts[0].startsWith("HTTP/")) throw new IOException("Bad status line: " + line);
+            return Integer.parseInt(parts[1]);
+        }
+
+        private String readLine() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+            int c;
+            while ((c = in.read()) != '\n') {
+                if (c < 0) throw new EOFException("Connection closed");
+                if (c != '\r') line.write(c);
+            }
+            return new String(line.toByteArray(), StandardCharsets.ISO_8859_1);
+        }
+
+        private byte[] readFully(int length) throws IOException {
+            byte[] body = new byte[length];
+            int read = 0;
+            while (read < length) {
+                int n = in.read(body, read, length - read);
+                if (n < 0) throw new EOFException("Connection closed");
+                read += n;
+            }
+            return body;
+        }
+
+        private byte[] readChunked() throws IOException {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            while (true) {
+                String size = readLine();
+                int semicolon = size.indexOf(';');
+                int length = Integer.parseInt((semicolon < 0 ? size : size.substring(0, semicolon)).trim(), 16);
+                if (length == 0) {
+                    while (!readLine().isEmpty()) {
+                        // Skip trailers
+                    }
+                    return body.toByteArray();
+                }
+                body.write(readFully(length));
+                readLine();
+            }
+        }
+    }
+
+    /**
+     * A queued request and the future its response body completes
+     */
+    private static final class Request {
+        final String method;
+        final String path;
+        final String query;
+        final String body;
+        final boolean idempotent;
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        boolean retried;
+
+        Request(String method, String path, String query, String body, boolean idempotent) {
+            this.method = method;
+            this.path = path;
+            this.query = query;
+            this.body = body;
+            this.idempotent = idempotent;
+        }
+
+        byte[] bytes(String host, int port) {
+            byte[] content = body != null ? body.getBytes(StandardCharsets.UTF_8) : new byte[0];
+            StringBuilder head = new StringBuilder(128)
+                    .append(method).append(' ').append(path).append('?').append(query).append(" HTTP/1.1\r\n")
+                    .append("Host: ").append(host).append(':').append(port).append("\r\n");
+            if (body != null) {
+                head.append("Content-Type: application/x-www-form-urlencoded\r\n")
+                        .append("Content-Length: ").append(content.length).append("\r\n");
+            }
+            byte[] headBytes = head.append("\r\n").toString().getBytes(StandardCharsets.ISO_8859_1);
+            byte[] bytes = new byte[headBytes.length + content.length];
+            System.arraycopy(headBytes, 0, bytes, 0, headBytes.length);
+            System.arraycopy(content, 0, bytes, headBytes.length, content.length);
+            return bytes;
+        }
+
+        /**
+         * Completes the future, mapping error responses back to the exceptions the
+         * in-process engine throws
+         */
+        void complete(int status, String body) {
+            if (status < 400) {
+                result.complete(body);
+                return;
+            }
+            Object message = status < 500 ? parseJson(body).get("error") : null;
+            String text = message != null ? message.toString() : "HTTP " + status;
+            if (status == 400 && text.startsWith("Not a number")) {
+                result.completeExceptionally(new NumberFormatException(text));
+            } else if (status == 400) {
+                result.completeExceptionally(new IllegalArgumentException(text));
+            } else if (status == 409) {
+                result.completeExceptionally(new IllegalStateException(text));
+            } else {
+                result.completeExceptionally(new UncheckedIOException(new IOException(text)));
+            }
+        }
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ---- Minimal JSON reader for the server's responses ----
+
+    /**
+     * Parses a JSON object into maps, lists, strings, numbers (Double) and booleans
+     * @param json The JSON text
+     * @return The object's members
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> parseJson(String json) {
+        int[] pos = {0};
+        Object value = readValue(json, pos);
+        if (!(value instanceof Map)) throw new IllegalArgumentException("Not a JSON object: " + json);
+        return (Map<String, Object>) value;
+    }
+
+    private static Object readValue(String json, int[] pos) {
+        skipSpace(json, pos);
+        char c = json.charAt(pos[0]);
+        switch (c) {
+            case '{': {
+                Map<String, Object> map = new LinkedHashMap<>();
+                pos[0]++;
+                skipSpace(json, pos);
+                if (json.charAt(pos[0]) == '}') {
+                    pos[0]++;
+                    return map;
+                }
+                while (true) {
+                    skipSpace(json, pos);
+                    String key = readString(json, pos);
+                    skipSpace(json, pos);
+                    expect(json, pos, ':');
+                    map.put(key, readValue(json, pos));
+                    skipSpace(json, pos);
+                    if (json.charAt(pos[0]) == ',') {
+                        pos[0]++;
+                        continue;
+                    }
+                    expect(json, pos, '}');
+                    return map;
+                }
+            }
+            case '[': {
+                List<Object> list = new ArrayList<>();
+                pos[0]++;
+                skipSpace(json, pos);
+                if (json.charAt(pos[0]) == ']') {
+                    pos[0]++;
+                    return list;
+                }
+                while (true) {
+                    list.add(readValue(json, pos));
+                    skipSpace(json, pos);
+                    if (json.charAt(pos[0]) == ',') {
+                        pos[0]++;
+                        continue;
+                    }
+                    expect(json, pos, ']');
+                    return list;
+                }
+            }
+            case '"':
+                return readString(json, pos);
+            case 't':
+                pos[0] += 4;
+                return Boolean.TRUE;
+            case 'f':
+                pos[0] += 5;
+                return Boolean.FALSE;
+            case 'n':
+                pos[0] += 4;
+                return null;
+            default: {
+                int start = pos[0];
+                while (pos[0] < json.length() && "+-0123456789.eE".indexOf(json.charAt(pos[0])) >= 0) pos[0]++;
+                return Double.parseDouble(json.substring(start, pos[0]));
+            }
+        }
+    }
+
+    private static String readString(String json, int[] pos) {
+        expect(json, pos, '"');
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            char c = json.charAt(pos[0]++);
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char escaped = json.charAt(pos[0]++);
+            switch (escaped) {
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'u':
+                    sb.append((char) Integer.parseInt(json.substring(pos[0], pos[0] + 4), 16));
+                    pos[0] += 4;
+                    break;
+                default: sb.append(escaped);
+            }
+        }
+    }
+
+    private static void skipSpace(String json, int[] pos) {
+        while (pos[0] < json.length() && Character.isWhitespace(json.charAt(pos[0]))) pos[0]++;
+    }
+
+    private static void expect(String json, int[] pos, char c) {
+        if (json.charAt(pos[0]) != c) {
+            throw new IllegalArgumentException("Expected '" + c + "' at " + pos[0] + " in " + json);
+        }
+        pos[0]++;
+    }
+}
@@ -0,0 +1,186 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * ShapevilleEvents - Java Flight Recorder events for the question lifecycle, asset loads and panel changes
+ *
+ * The events appear under "Shapeville" in a recording next to the JVM's own GC,
+ * I/O and thread events, so a slow answer or a long asset decode can be lined
+ * up with what the JVM was doing at the time. They cost nothing unless a
+ * recording with them enabled is running:
+ *
+ *   java -XX:StartFlightRecording=filename=shapeville.jfr,settings=profile ShapevilleApp
+ *   jfr print --categories Shapeville shapeville.jfr
+ */
+public final class ShapevilleEvents {
+    private ShapevilleEvents() {
+    }
+
+    @Name("shapeville.QuestionStarted")
+    @Label("Question Started")
+    @Category("Shapeville")
+    @StackTrace(false)
+    static class QuestionStarted extends Event {
+        @Label("Task") String taskId;
+        @Label("Item") String item;
+    }
+
+    @Name("shapeville.AnswerSubmitted")
+    @Label("Answer Submitted")
+    @Category("Shapeville")
+    @StackTrace(false)
+    static class AnswerSubmitted extends Event {
+        @Label("Task") String taskId;
+        @Label("Item") String item;
+        @Label("Correct") boolean correct;
+        @Label("Attempt") int attempt;
+        @Label("Points") int points;
+        @Label("Latency") @Description("Time from the question being shown to this answer")
+        @Timespan(Timespan.MILLISECONDS) long latency;
+    }
+
+    @Name("shapeville.QuestionTimedOut")
+    @Label("Question Timed Out")
+    @Category("Shapeville")
+    @StackTrace(false)
+    static class QuestionTimedOut extends Event {
+        @Label("Task") String taskId;
+        @Label("Item") String item;
+        @Label("Attempt") int attempt;
+        @Label("Latency") @Timespan(Timespan.MILLISECONDS) long latency;
+    }
+
+    @Name("shapeville.TaskCompleted")
+    @Label("Task Completed")
+    @Category("Shapeville")
+    @StackTrace(false)
+    static class TaskCompleted extends Event {
+        @Label("Task") String taskId;
+        @Label("Score") int score;
+        @Label("Progress") @Description("Share of tasks completed, in percent") int progress;
+    }
+
+    /** A duration event spanning the read and decode, so it lines up with I/O and EDT activity */
+    @Name("shapeville.AssetLoaded")
+    @Label("Asset Loaded")
+    @Category("Shapeville")
+    static class AssetLoaded extends Event {
+        @Label("Path") String path;
+        @Label("Size") @DataAmount long bytes;
+        @Label("Width") int width;
+        @Label("Height") int height;
+    }
+
+    @Name("shapeville.PanelShown")
+    @Label("Panel Shown")
+    @Category("Shapeville")
+    @StackTrace(false)
+    static class PanelShown extends Event {
+        @Label("Panel") String panel;
+    }
+
+    /**
+     * Emits QuestionStarted
+     * @param taskId The task ID
+     * @param item The item shown
+     */
+    public static void questionStarted(String taskId, String item) {
+        QuestionStarted event = new QuestionStarted();
+        if (!event.isEnabled()) return;
+        event.taskId = taskId;
+        event.item = item;
+        event.commit();
+    }
+
+    /**
+     * Emits AnswerSubmitted, or QuestionTimedOut for a timeout
+     * @param taskId The task ID
+     * @param item The item answered
+     * @param attempt The attempt number, starting at 1
+     * @param outcome The result
+     * @param points The points awarded
+     * @param latencyMillis Time from the question being shown
+     */
+    public static void attempted(String taskId, String item, int attempt, AttemptOutcome outcome, int points,
+                                 long latencyMillis) {
+        if (outcome == AttemptOutcome.TIMEOUT) {
+            QuestionTimedOut event = new QuestionTimedOut();
+            if (!event.isEnabled()) return;
+            event.taskId = taskId;
+            event.item = item;
+            event.attempt = attempt;
+            event.latency = latencyMillis;
+            event.commit();
+        } else {
+            AnswerSubmitted event = new AnswerSubmitted();
+            if (!event.isEnabled()) return;
+            event.taskId = taskId;
+            event.item = item;
+            event.correct = outcome == AttemptOutcome.CORRECT;
+            event.attempt = attempt;
+            event.points = points;
+            event.latency = latencyMillis;
+            event.commit();
+        }
+    }
+
+    /**
+     * Emits TaskCompleted
+     * @param taskId The task ID
+     * @param score The student's score after the task
+     * @param progress Share of tasks completed, in percent
+     */
+    public static void taskCompleted(String taskId, int score, int progress) {
+        TaskCompleted event = new TaskCompleted();
+        if (!event.isEnabled()) return;
+        event.taskId = taskId;
+        event.score = score;
+        event.progress = progress;
+        event.commit();
+    }
+
+    /**
+     * Starts an AssetLoaded event; pass it to {@link #assetLoaded} once the asset is decoded
+     * @return The started event
+     */
+    static AssetLoaded assetLoading() {
+        AssetLoaded event = new AssetLoaded();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends and emits an AssetLoaded event
+     * @param event The event from {@link #assetLoading}
+     * @param path The asset's path
+     * @param bytes Encoded size
+     * @param width Decoded width, or 0 if decoding failed
+     * @param height Decoded height, or 0 if decoding failed
+     */
+    static void assetLoaded(AssetLoaded event, String path, long bytes, int width, int height) {
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.path = path;
+        event.bytes = bytes;
+        event.width = width;
+        event.height = height;
+        event.commit();
+    }
+
+    /**
+     * Emits PanelShown
+     * @param panel The card name of the panel
+     */
+    public static void panelShown(String panel) {
+        PanelShown event = new PanelShown();
+        if (!event.isEnabled()) return;
+        event.panel = panel;
+        event.commit();
+    }
+}
@@ -0,0 +1,733 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * ShapevilleServer - Headless server running question generation and grading for thin clients
+ *
+ * Endpoints (parameters may be sent in the query string or as a form body):
+ * <pre>
+ * GET  /question?student=ID&amp;task=TASK[&amp;variant=V]   new question for a student
+ * POST /answer?student=ID&amp;question=N&amp;answer=A       check an answer
+ * POST /timeout?student=ID&amp;question=N               give up on a question
+ * GET  /score?student=ID                             current score
+ * POST /events?student=ID                            batch of attempt reports, one
+ *                                                    form-encoded event per body line
+ * GET  /stats                                        request counts and latency percentiles
+ * GET  /analytics[?items=true]                       class accuracy, attempts, timeouts and
+ *                                                    time-to-answer per task (and per item)
+ * </pre>
+ * A student may hold several open questions at once, so clients can prefetch the
+ * next question while the current one is still being answered. Answers may carry
+ * the time the student spent on the question (latency, in ms) as measured by the
+ * client; otherwise it is measured from when the question was issued.
+ *
+ * Each request runs on its own virtual thread when the JDK provides them, and on a
+ * fixed pool of platform threads otherwise. Per-student state lives in a striped map,
+ * so requests for different students rarely contend on the same lock.
+ *
+ * Usage: java ShapevilleServer [port] [dataDir]; dataDir defaults to data-server, apart
+ * from the desktop app's data directory so the two never share a profile store.
+ */
+public class ShapevilleServer {
+    public static final int DEFAULT_PORT = 8765;
+    public static final int DEFAULT_STRIPES = 64;
+    public static final String DEFAULT_DATA_DIR = "data-server";
+    /** Open questions kept per student; the oldest is dropped when a new one is issued */
+    public static final int MAX_OPEN_QUESTIONS = 16;
+    /** Shape recognition questions never repeat one of the student's last this many shapes */
+    static final int RECENT_SHAPES = 4;
+
+    private final TaskEngine engine;
+    private final ProfileStore store;
+    private final StripedMap<StudentState> students;
+    private final long seed;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final ClassAnalytics analytics = new ClassAnalytics();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    private HttpServer httpServer;
+    private ExecutorService executor;
+    // Profile writes, in the order they were made; null without a store
+    private final ExecutorService profileWriter;
+
+    /**
+     * Creates a server
+     * @param engine The task engine supplying questions and rules
+     * @param store Profile store for scores and attempt history, or null to keep state in memory only
+     * @param stripes Number of lock stripes for per-student state
+     * @param seed Seed for the per-student random question streams
+     */
+    public ShapevilleServer(TaskEngine engine, ProfileStore store, int stripes, long seed) {
+        this.engine = engine;
+        this.store = store;
+        this.students = new StripedMap<>(stripes);
+        this.seed = seed;
+        this.profileWriter = store == null ? null : Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "profile-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts serving HTTP requests
+     * @param address Address to bind (port 0 picks a free port)
+     * @throws IOException If the port cannot be bound
+     */
+    public void start(InetSocketAddress address) throws IOException {
+        // Headers and body are written separately; without TCP_NODELAY small responses
+        // wait for the client's delayed ACK (~40 ms per request on Linux)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        httpServer = HttpServer.create(address, 1024);
+        executor = newVirtualThreadExecutor("shapeville-http", Runtime.getRuntime().availableProcessors() * 8);
+        httpServer.setExecutor(executor);
+        httpServer.createContext("/question", timed(this::handleQuestion));
+        httpServer.createContext("/answer", timed(this::handleAnswer));
+        httpServer.createContext("/timeout", timed(this::handleTimeout));
+        httpServer.createContext("/score", timed(this::handleScore));
+        httpServer.createContext("/events", timed(this::handleEvents));
+        httpServer.createContext("/stats", this::handleStats);
+        httpServer.createContext("/analytics", timed(this::handleAnalytics));
+        httpServer.start();
+    }
+
+    /**
+     * @return The bound port
+     */
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    /**
+     * Stops the HTTP listener, waits briefly for in-flight requests, then finishes the queued profile writes
+     */
+    public void stop() {
+        if (httpServer != null) httpServer.stop(1);
+        try {
+            if (executor != null) {
+                executor.shutdown();
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            }
+            if (profileWriter != null) {
+                profileWriter.shutdown();
+                profileWriter.awaitTermination(5, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Creates an executor that runs each task on a new virtual thread, falling back
+     * to a fixed pool of daemon platform threads on JDKs without virtual threads
+     * @param name Thread name for the fallback pool
+     * @param fallbackThreads Size of the fallback pool
+     * @return The executor
+     */
+    static ExecutorService newVirtualThreadExecutor(String name, int fallbackThreads) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Math.max(1, fallbackThreads), r -> {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Issues a new question to a student
+     * @param studentId The student
+     * @param taskId The task ID
+     * @param variant Task-specific choice, or null for a random one
+     * @return The issued question
+     */
+    public IssuedQuestion nextQuestion(String studentId, String taskId, String variant) {
+        return withStudent(studentId, state -> {
+            TaskEngine.Question question = engine.newQuestion(taskId, variant, state.random);
+            // Like ShapeTask, never repeat a shape within a round of recognition questions
+            for (int retry = 0; retry < 20 && TaskEngine.SHAPES.equals(taskId)
+                    && state.recentShapes.contains(question.getItem()); retry++) {
+                question = engine.newQuestion(taskId, variant, state.random);
+            }
+            if (TaskEngine.SHAPES.equals(taskId)) {
+                state.recentShapes.addLast(question.getItem());
+                if (state.recentShapes.size() > RECENT_SHAPES) state.recentShapes.removeFirst();
+            }
+            long id = ++state.lastQuestionId;
+            state.open.put(id, new OpenQuestion(question));
+            return new IssuedQuestion(id, question);
+        });
+    }
+
+    /**
+     * Checks an answer to the student's current question
+     * @param studentId The student
+     * @param questionId ID of the question being answered
+     * @param answer The answer as typed
+     * @return The outcome
+     * @throws IllegalStateException If the question is not the student's open question
+     * @throws NumberFormatException If a numeric task receives a non-numeric answer (no attempt is used)
+     */
+    public AnswerResult submitAnswer(String studentId, long questionId, String answer) {
+        return submitAnswer(studentId, questionId, answer, -1);
+    }
+
+    /**
+     * Checks an answer, using a client-measured latency for the attempt record
+     * @param latencyMillis Time the student spent on the question, or -1 to measure it here
+     * @see #submitAnswer(String, long, String)
+     */
+    public AnswerResult submitAnswer(String studentId, long questionId, String answer, long latencyMillis) {
+        return withStudent(studentId, state -> {
+            OpenQuestion open = state.open(questionId);
+            boolean correct = TaskEngine.check(open.question, answer);
+            int attempt = open.attemptsUsed + 1;
+            int points = correct
+                    ? TaskEngine.points(open.question.getTaskId(), open.question.getDimension(), open.attemptsUsed) : 0;
+            if (!correct) open.attemptsUsed++;
+            boolean finished = correct || open.attemptsUsed >= TaskEngine.MAX_ATTEMPTS;
+            return state.finish(questionId, open, attempt, correct ? AttemptOutcome.CORRECT : AttemptOutcome.WRONG,
+                    points, finished, latencyMillis);
+        });
+    }
+
+    /**
+     * Closes the student's current question as timed out
+     * @param studentId The student
+     * @param questionId ID of the question that timed out
+     * @return The outcome, revealing the correct answer
+     * @throws IllegalStateException If the question is not the student's open question
+     */
+    public AnswerResult timeOut(String studentId, long questionId) {
+        return timeOut(studentId, questionId, -1);
+    }
+
+    /**
+     * Closes a question as timed out, using a client-measured latency for the attempt record
+     * @param latencyMillis Time the student spent on the question, or -1 to measure it here
+     * @see #timeOut(String, long)
+     */
+    public AnswerResult timeOut(String studentId, long questionId, long latencyMillis) {
+        return withStudent(studentId, state -> {
+            OpenQuestion open = state.open(questionId);
+            return state.finish(questionId, open, open.attemptsUsed + 1, AttemptOutcome.TIMEOUT, 0, true,
+                    latencyMillis);
+        });
+    }
+
+    /**
+     * Records an attempt at a question the client graded itself. The points come from the
+     * task's rules, not the report: a correct attempt scores as TaskEngine.points says for its
+     * attempt number, except at an item already scored in a task that scores once
+     * ({@link TaskEngine#scoresOnce}).
+     * @param studentId The student
+     * @param attempt The attempt; its points are ignored
+     * @return The points awarded
+     * @throws IllegalArgumentException If the task is graded by the server, or the item or attempt number is unknown
+     */
+    public int addAttempt(String studentId, ProfileStore.Attempt attempt) {
+        String taskId = attempt.getTaskId();
+        if (!TaskEngine.isClientGradedItem(taskId, attempt.getItem())) {
+            throw new IllegalArgumentException("Not an item graded by the client: " + taskId + " " + attempt.getItem());
+        }
+        if (attempt.getAttempt() < 1 || attempt.getAttempt() > TaskEngine.MAX_ATTEMPTS) {
+            throw new IllegalArgumentException("Attempt out of range: " + attempt.getAttempt());
+        }
+        return withStudent(studentId, state -> {
+            boolean scores = attempt.getOutcome() == AttemptOutcome.CORRECT
+                    && (!TaskEngine.scoresOnce(taskId) || state.scored.add(scoredKey(attempt)));
+            int points = scores ? TaskEngine.points(taskId, 0, attempt.getAttempt() - 1) : 0;
+            state.score += points;
+            state.persist(new ProfileStore.Attempt(attempt.getTimestamp(), taskId, attempt.getItem(),
+                    attempt.getAttempt(), attempt.getOutcome(), points, attempt.getLatencyMillis()));
+            return points;
+        });
+    }
+
+    private static String scoredKey(ProfileStore.Attempt attempt) {
+        return attempt.getTaskId() + '\n' + attempt.getItem();
+    }
+
+    /**
+     * @param studentId The student
+     * @return The student's current score
+     */
+    public int getScore(String studentId) {
+        return withStudent(studentId, state -> state.score);
+    }
+
+    /**
+     * @return Class statistics from every attempt graded or reported so far
+     */
+    public ClassAnalytics getAnalytics() {
+        return analytics;
+    }
+
+    /**
+     * @return Server-side request latency in microseconds
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    private <R> R withStudent(String studentId, Function<StudentState, R> action) {
+        if (studentId == null || !ProfileStore.isValidId(studentId)) {
+            throw new IllegalArgumentException("Invalid student ID");
+        }
+        // A new student's profile is read before taking the stripe lock, so other students
+        // on the stripe never wait for the disk; if two requests race, one loaded state is kept
+        StudentState loaded = students.contains(studentId) ? null : newStudent(studentId);
+        return students.apply(studentId, id -> loaded != null ? loaded : newStudent(id), action);
+    }
+
+    private StudentState newStudent(String studentId) {
+        StudentState state = new StudentState(studentId, new Random(seed ^ studentId.hashCode()));
+        if (store != null) {
+            try {
+                ProfileStore.Profile profile = store.loadOrCreate(studentId);
+                state.score = profile.getScore();
+                state.completedMask = profile.getCompletedMask();
+                store.forEachAttempt(studentId, attempt -> {
+                    if (attempt.getPoints() > 0 && TaskEngine.scoresOnce(attempt.getTaskId())) {
+                        state.scored.add(scoredKey(attempt));
+                    }
+                });
+            } catch (IOException e) {
+                throw new IllegalStateException("Error loading profile: " + e.getMessage(), e);
+            }
+        }
+        return state;
+    }
+
+    // ---- HTTP handlers ----
+
+    private void handleQuestion(HttpExchange exchange, Map<String, String> params) throws IOException {
+        IssuedQuestion issued = nextQuestion(params.get("student"), require(params, "task"), params.get("variant"));
+        TaskEngine.Question question = issued.getQuestion();
+        StringBuilder json = new StringBuilder(256)
+                .append("{\"question\":").append(issued.getId())
+                .append(",\"task\":").append(ReportExporter.jsonString(question.getTaskId()))
+                .append(",\"prompt\":").append(ReportExporter.jsonString(question.getPrompt()))
+                .append(",\"dimension\":").append(question.getDimension())
+                .append(",\"dims\":[");
+        for (int i = 0; i < question.getDimCount(); i++) {
+            if (i > 0) json.append(',');
+            json.append(question.getDim(i));
+        }
+        json.append(']');
+        // The item names the answer for shape recognition (dims[0] holds its content bank key instead)
+        if (!TaskEngine.SHAPES.equals(question.getTaskId())) {
+            json.append(",\"item\":").append(ReportExporter.jsonString(question.getItem()));
+        }
+        send(exchange, 200, json.append('}').toString());
+    }
+
+    private void handleAnswer(HttpExchange exchange, Map<String, String> params) throws IOException {
+        AnswerResult result = submitAnswer(params.get("student"), Long.parseLong(require(params, "question")),
+                require(params, "answer"), latencyParam(params));
+        send(exchange, 200, result.toJson());
+    }
+
+    private void handleTimeout(HttpExchange exchange, Map<String, String> params) throws IOException {
+        AnswerResult result = timeOut(params.get("student"), Long.parseLong(require(params, "question")),
+                latencyParam(params));
+        send(exchange, 200, result.toJson());
+    }
+
+    private void handleScore(HttpExchange exchange, Map<String, String> params) throws IOException {
+        String studentId = params.get("student");
+        int score = getScore(studentId);
+        send(exchange, 200, "{\"student\":" + ReportExporter.jsonString(studentId) + ",\"score\":" + score + "}");
+    }
+
+    private void handleEvents(HttpExchange exchange, Map<String, String> params) throws IOException {
+        String studentId = params.get("student");
+        int applied = 0;
+        String body = params.get("");
+        for (String line : body == null ? new String[0] : body.split("\n")) {
+            if (line.isEmpty()) continue;
+            Map<String, String> event = new HashMap<>();
+            parseForm(line, event);
+            String type = require(event, "type");
+            if ("score".equals(type)) {
+                // Sent by older clients; points are awarded from the attempt reports instead
+                continue;
+            } else if ("attempt".equals(type)) {
+                addAttempt(studentId, new ProfileStore.Attempt(System.currentTimeMillis(), require(event, "task"),
+                        require(event, "item"), Integer.parseInt(require(event, "attempt")),
+                        AttemptOutcome.valueOf(require(event, "outcome").toUpperCase(Locale.ROOT)),
+                        Integer.parseInt(require(event, "points")), Long.parseLong(require(event, "latency"))));
+            } else {
+                throw new IllegalArgumentException("Unknown event type: " + type);
+            }
+            applied++;
+        }
+        send(exchange, 200, "{\"applied\":" + applied + "}");
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        drain(exchange);
+        send(exchange, 200, "{\"requests\":" + requests.sum() + ",\"errors\":" + errors.sum()
+                + ",\"students\":" + students.size() + ",\"latencyMicros\":" + latency.toJson() + "}");
+    }
+
+    private void handleAnalytics(HttpExchange exchange, Map<String, String> params) throws IOException {
+        send(exchange, 200, analytics.toJson(Boolean.parseBoolean(params.get("items"))));
+    }
+
+    /**
+     * Wraps an endpoint with parameter parsing, error responses and latency recording
+     */
+    private HttpHandler timed(Endpoint endpoint) {
+        return exchange -> {
+            long start = System.nanoTime();
+            requests.increment();
+            try {
+                endpoint.handle(exchange, parameters(exchange));
+            } catch (NumberFormatException e) {
+                errors.increment();
+                send(exchange, 400, error("Not a number: " + e.getMessage()));
+            } catch (IllegalArgumentException e) {
+                errors.increment();
+                send(exchange, 400, error(e.getMessage()));
+            } catch (IllegalStateException e) {
+                errors.increment();
+                send(exchange, 409, error(e.getMessage()));
+            } catch (RuntimeException e) {
+                errors.increment();
+                System.err.println("Error handling " + exchange.getRequestURI() + ": " + e.getMessage());
+                send(exchange, 500, error("Internal error"));
+            } finally {
+                exchange.close();
+                latency.record((System.nanoTime() - start) / 1000);
+            }
+        };
+    }
+
+    private interface Endpoint {
+        void handle(HttpExchange exchange, Map<String, String> params) throws IOException;
+    }
+
+    private static long latencyParam(Map<String, String> params) {
+        String latency = params.get("latency");
+        return latency != null ? Math.max(0, Long.parseLong(latency)) : -1;
+    }
+
+    private static String require(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null) throw new IllegalArgumentException("Missing parameter: " + name);
+        return value;
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + ReportExporter.jsonString(message == null ? "" : message) + "}";
+    }
+
+    /**
+     * Collects parameters from the query string and a form-encoded body;
+     * a multi-line body (an event batch) is kept whole under the empty name
+     */
+    private static Map<String, String> parameters(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+        byte[] body = drain(exchange);
+        if (body.length > 0) {
+            String form = new String(body, StandardCharsets.UTF_8);
+            if (form.indexOf('\n') >= 0) params.put("", form);
+            else parseForm(form, params);
+        }
+        return params;
+    }
+
+    private static byte[] drain(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                if (out.size() + n > 1024 * 1024) throw new IllegalArgumentException("Request body too large");
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static void parseForm(String form, Map<String, String> params) throws UnsupportedEncodingException {
+        if (form == null || form.isEmpty()) return;
+        for (String pair : form.split("&")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), "UTF-8");
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), "UTF-8");
+            params.put(name, value);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * A question handed to a student, with the ID used to answer it
+     */
+    public static class IssuedQuestion {
+        private final long id;
+        private final TaskEngine.Question question;
+
+        IssuedQuestion(long id, TaskEngine.Question question) {
+            this.id = id;
+            this.question = question;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public TaskEngine.Question getQuestion() {
+            return question;
+        }
+    }
+
+    /**
+     * Outcome of an answer or timeout
+     */
+    public static class AnswerResult {
+        private final boolean correct;
+        private final int points;
+        private final int attemptsLeft;
+        private final int score;
+        private final boolean finished;
+        private final String answer;
+
+        AnswerResult(boolean correct, int points, int attemptsLeft, int score, boolean finished, String answer) {
+            this.correct = correct;
+            this.points = points;
+            this.attemptsLeft = attemptsLeft;
+            this.score = score;
+            this.finished = finished;
+            this.answer = answer;
+        }
+
+        public boolean isCorrect() {
+            return correct;
+        }
+
+        public int getPoints() {
+            return points;
+        }
+
+        public int getAttemptsLeft() {
+            return attemptsLeft;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        /**
+         * @return true if the question is closed (answered correctly, out of attempts or timed out)
+         */
+        public boolean isFinished() {
+            return finished;
+        }
+
+        /**
+         * @return The correct answer once the question is finished, otherwise null
+         */
+        public String getAnswer() {
+            return answer;
+        }
+
+        String toJson() {
+            return "{\"correct\":" + correct + ",\"points\":" + points + ",\"attemptsLeft\":" + attemptsLeft
+                    + ",\"score\":" + score + ",\"finished\":" + finished
+                    + (answer != null ? ",\"answer\":" + ReportExporter.jsonString(answer) : "") + "}";
+        }
+    }
+
+    /**
+     * An issued question and the attempts used on it
+     */
+    private static final class OpenQuestion {
+        final TaskEngine.Question question;
+        final long issuedAt = System.nanoTime();
+        int attemptsUsed;
+
+        OpenQuestion(TaskEngine.Question question) {
+            this.question = question;
+        }
+    }
+
+    /**
+     * Mutable state of one student; only touched while holding its stripe lock
+     */
+    private final class StudentState {
+        final String studentId;
+        final Random random;
+        int score;
+        long completedMask;
+        long lastQuestionId;
+        final Map<Long, OpenQuestion> open = new LinkedHashMap<Long, OpenQuestion>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, OpenQuestion> eldest) {
+                return size() > MAX_OPEN_QUESTIONS;
+            }
+        };
+        final Deque<String> recentShapes = new ArrayDeque<>(); // The last RECENT_SHAPES shapes asked
+        final Set<String> scored = new HashSet<>(); // Items of scoresOnce tasks already scored, as scoredKey
+
+        StudentState(String studentId, Random random) {
+            this.studentId = studentId;
+            this.random = random;
+        }
+
+        OpenQuestion open(long questionId) {
+            OpenQuestion question = open.get(questionId);
+            if (question == null) throw new IllegalStateException("Question " + questionId + " is not open");
+            return question;
+        }
+
+        AnswerResult finish(long questionId, OpenQuestion open, int attempt, AttemptOutcome outcome,
+                            int points, boolean finished, long latencyMillis) {
+            score += points;
+            if (latencyMillis < 0) latencyMillis = (System.nanoTime() - open.issuedAt) / 1_000_000;
+            if (finished) this.open.remove(questionId);
+            TaskEngine.Question question = open.question;
+            persist(new ProfileStore.Attempt(System.currentTimeMillis(), question.getTaskId(), question.getItem(),
+                    attempt, outcome, points, latencyMillis));
+            return new AnswerResult(outcome == AttemptOutcome.CORRECT, points,
+                    finished ? 0 : TaskEngine.MAX_ATTEMPTS - open.attemptsUsed, score, finished,
+                    finished ? question.getAnswerText() : null);
+        }
+
+        /**
+         * Records an attempt and queues it, with a snapshot of the score, for the profile writer
+         */
+        void persist(ProfileStore.Attempt attempt) {
+            analytics.record(attempt);
+            if (store == null) return;
+            int savedScore = score;
+            long savedMask = completedMask;
+            profileWriter.execute(() -> {
+                try {
+                    store.appendAttempt(studentId, attempt);
+                    store.save(studentId, savedScore, savedMask);
+                } catch (IOException e) {
+                    System.err.println("Error saving profile " + studentId + ": " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Hash map split into independently locked stripes
+     */
+    static final class StripedMap<V> {
+        private final Object[] locks;
+        private final List<Map<String, V>> maps;
+
+        StripedMap(int stripes) {
+            int n = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+            locks = new Object[n];
+            maps = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                locks[i] = new Object();
+                maps.add(new HashMap<>());
+            }
+        }
+
+        /**
+         * Runs an action on a key's value while holding the key's stripe lock,
+         * creating the value first if absent
+         */
+        <R> R apply(String key, Function<String, V> create, Function<V, R> action) {
+            int stripe = stripe(key);
+            synchronized (locks[stripe]) {
+                V value = maps.get(stripe).computeIfAbsent(key, create);
+                return action.apply(value);
+            }
+        }
+
+        private int stripe(String key) {
+            int h = key.hashCode();
+            return (h ^ (h >>> 16)) & (locks.length - 1);
+        }
+
+        boolean contains(String key) {
+            int stripe = stripe(key);
+            synchronized (locks[stripe]) {
+                return maps.get(stripe).containsKey(key);
+            }
+        }
+
+        int size() {
+            int size = 0;
+            for (int i = 0; i < locks.length; i++) {
+                synchronized (locks[i]) {
+                    size += maps.get(i).size();
+                }
+            }
+            return size;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        Path dataDir = Paths.get(args.length > 1 ? args[1] : System.getProperty("shapeville.data", DEFAULT_DATA_DIR));
+        ProfileStore store = ProfileStore.open(dataDir.resolve("profiles"));
+        ShapevilleServer server = new ShapevilleServer(new TaskEngine(ShapevilleApp.loadContentBank()), store,
+                DEFAULT_STRIPES, System.nanoTime());
+        server.start(new InetSocketAddress(port));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            try {
+                store.close();
+            } catch (IOException e) {
+                System.err.println("Error closing profile store: " + e.getMessage());
+            }
+            System.out.println("Served " + server.getLatency().summary("us"));
+        }, "server-shutdown"));
+        System.out.println("Shapeville server listening on port " + server.getPort());
+    }
+}
@@ -0,0 +1,278 @@
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.geom.Line2D;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+/**
+ * SketchCanvas - Drawing surface that captures freehand strokes from a mouse or pen
+ *
+ * Pointer events only append their coordinates to a fixed float ring buffer, so
+ * event handling stays cheap at any input rate and the event queue never backs up
+ * (AWT replaces queued drag events with the newest one when the event thread
+ * falls behind, which would lose points). The buffer is drained once per batch of
+ * events, through one invokeLater queued behind them; a full buffer is drained on
+ * the spot instead of dropping points.
+ *
+ * Draining smooths the points (exponential moving average) and resamples the
+ * smoothed path at a fixed spacing, carrying the state over to the next batch, so
+ * each point is processed once. Resampled points go into one growable float array
+ * holding every stroke, and only the bounds of the newly added segments are
+ * repainted; paint draws only the segments that cross the clip. Used only on the
+ * event dispatch thread.
+ */
+public class SketchCanvas extends JPanel {
+    /** Distance between resampled points, in pixels */
+    public static final float SPACING = 3f;
+    /** Weight of a new point in the moving average; lower is smoother */
+    static final float SMOOTHING = 0.5f;
+    static final int RING_CAPACITY = 1024; // points, a power of two
+
+    private static final float LINE_WIDTH = 4f;
+    private static final LongAdder RAW_POINTS = Metrics.global().counter("sketch.points.raw");
+    private static final LongAdder RESAMPLED_POINTS = Metrics.global().counter("sketch.points.resampled");
+
+    // Raw x, y pairs waiting to be drained
+    private final float[] ring = new float[2 * RING_CAPACITY];
+    private int head;
+    private int tail;
+    private boolean drainQueued;
+    private boolean strokeEnding;
+
+    // Resampled x, y pairs of every stroke, and where each stroke starts in them
+    private float[] points = new float[2048];
+    private int pointCount;
+    private int[] strokeStarts = new int[16];
+    private int strokeCount;
+
+    // Smoothing and resampling state of the stroke being drawn
+    private boolean drawing;
+    private float smoothX, smoothY;
+    private float lastX, lastY;   // last resampled point
+    private float carried;        // path length since the last resampled point
+
+    // Bounds of the segments added since the last repaint request
+    private float dirtyMinX, dirtyMinY, dirtyMaxX, dirtyMaxY;
+
+    private final Line2D.Float segment = new Line2D.Float();
+    private final BasicStroke pen = new BasicStroke(LINE_WIDTH, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+    private Runnable strokeListener;
+
+    /**
+     * Creates an empty canvas
+     */
+    public SketchCanvas() {
+        setBackground(Color.WHITE);
+        setForeground(Color.DARK_GRAY);
+        resetDirty();
+        MouseAdapter capture = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (!SwingUtilities.isLeftMouseButton(e)) return;
+                drain();
+                beginStroke(e.getX(), e.getY());
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (drawing) push(e.getX(), e.getY());
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                if (!drawing || !SwingUtilities.isLeftMouseButton(e)) return;
+                push(e.getX(), e.getY());
+                strokeEnding = true;
+                drain();
+            }
+        };
+        addMouseListener(capture);
+        addMouseMotionListener(capture);
+    }
+
+    /**
+     * Sets what runs each time a stroke is finished
+     * @param listener The listener, or null for none
+     */
+    public void setStrokeListener(Runnable listener) {
+        this.strokeListener = listener;
+    }
+
+    /**
+     * Adds a raw pointer position, draining first if the ring buffer is full
+     * @param x X coordinate
+     * @param y Y coordinate
+     */
+    void push(float x, float y) {
+        if (tail - head == RING_CAPACITY) drain();
+        int slot = 2 * (tail & (RING_CAPACITY - 1));
+        ring[slot] = x;
+        ring[slot + 1] = y;
+        tail++;
+        RAW_POINTS.increment();
+        if (!drainQueued) {
+            drainQueued = true;
+            SwingUtilities.invokeLater(this::drain);
+        }
+    }
+
+    private void beginStroke(float x, float y) {
+        if (strokeCount == strokeStarts.length) strokeStarts = Arrays.copyOf(strokeStarts, 2 * strokeCount);
+        strokeStarts[strokeCount++] = pointCount;
+        drawing = true;
+        smoothX = lastX = x;
+        smoothY = lastY = y;
+        carried = 0;
+        append(x, y);
+    }
+
+    /**
+     * Smooths and resamples the buffered points and repaints the area they cover
+     */
+    void drain() {
+        drainQueued = false;
+        while (head != tail) {
+            int slot = 2 * (head & (RING_CAPACITY - 1));
+            head++;
+            if (drawing) advance(ring[slot], ring[slot + 1]);
+        }
+        if (strokeEnding) {
+            strokeEnding = false;
+            endStroke();
+        }
+        if (dirtyMaxX >= dirtyMinX) {
+            int pad = (int) Math.ceil(LINE_WIDTH / 2) + 1;
+            int x = (int) Math.floor(dirtyMinX) - pad;
+            int y = (int) Math.floor(dirtyMinY) - pad;
+            repaint(x, y, (int) Math.ceil(dirtyMaxX) + pad - x + 1, (int) Math.ceil(dirtyMaxY) + pad - y + 1);
+            resetDirty();
+        }
+    }
+
+    /**
+     * Moves the smoothed position towards a raw point and emits resampled points along the way
+     */
+    private void advance(float rawX, float rawY) {
+        float fromX = smoothX, fromY = smoothY;
+        smoothX += SMOOTHING * (rawX - smoothX);
+        smoothY += SMOOTHING * (rawY - smoothY);
+        walk(fromX, fromY, smoothX, smoothY);
+    }
+
+    /**
+     * Emits a point every SPACING along a segment, counting the length carried from earlier segments
+     */
+    private void walk(float fromX, float fromY, float toX, float toY) {
+        float dx = toX - fromX, dy = toY - fromY;
+        float length = (float) Math.sqrt(dx * dx + dy * dy);
+        if (length == 0) return;
+        float along = SPACING - carried;
+        while (along <= length) {
+            float t = along / length;
+            append(fromX + t * dx, fromY + t * dy);
+            along += SPACING;
+        }
+        carried = length - (along - SPACING);
+    }
+
+    /**
+     * Finishes the stroke where the pointer was lifted
+     */
+    private void endStroke() {
+        // Close the gap the moving average leaves behind the pointer
+        int last = 2 * ((tail - 1) & (RING_CAPACITY - 1));
+        if (tail > 0) walk(smoothX, smoothY, ring[last], ring[last + 1]);
+        if (carried > 0 && tail > 0) append(ring[last], ring[last + 1]);
+        drawing = false;
+        if (strokeListener != null) strokeListener.run();
+    }
+
+    private void append(float x, float y) {
+        if (pointCount * 2 == points.length) points = Arrays.copyOf(points, 2 * points.length);
+        points[2 * pointCount] = x;
+        points[2 * pointCount + 1] = y;
+        pointCount++;
+        RESAMPLED_POINTS.increment();
+        // The new segment runs from the previous point of this stroke
+        include(lastX, lastY);
+        include(x, y);
+        lastX = x;
+        lastY = y;
+        carried = 0;
+    }
+
+    private void include(float x, float y) {
+        dirtyMinX = Math.min(dirtyMinX, x);
+        dirtyMinY = Math.min(dirtyMinY, y);
+        dirtyMaxX = Math.max(dirtyMaxX, x);
+        dirtyMaxY = Math.max(dirtyMaxY, y);
+    }
+
+    private void resetDirty() {
+        dirtyMinX = dirtyMinY = Float.POSITIVE_INFINITY;
+        dirtyMaxX = dirtyMaxY = Float.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Removes every stroke
+     */
+    public void clear() {
+        drain();
+        drawing = false;
+        pointCount = 0;
+        strokeCount = 0;
+        repaint();
+    }
+
+    /**
+     * @return Number of strokes, including one being drawn
+     */
+    public int getStrokeCount() {
+        return strokeCount;
+    }
+
+    /**
+     * @param stroke Stroke index
+     * @return The stroke's resampled points as x, y pairs
+     */
+    public float[] getStroke(int stroke) {
+        int end = stroke + 1 < strokeCount ? strokeStarts[stroke + 1] : pointCount;
+        return Arrays.copyOfRange(points, 2 * strokeStarts[stroke], 2 * end);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2d = (Graphics2D) g;
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setColor(getForeground());
+        g2d.setStroke(pen);
+        Rectangle clip = g2d.getClipBounds();
+        float margin = LINE_WIDTH;
+        for (int s = 0; s < strokeCount; s++) {
+            int start = strokeStarts[s];
+            int end = s + 1 < strokeCount ? strokeStarts[s + 1] : pointCount;
+            if (end - start == 1) {
+                segment.setLine(points[2 * start], points[2 * start + 1], points[2 * start], points[2 * start + 1]);
+                g2d.draw(segment);
+            }
+            for (int p = start + 1; p < end; p++) {
+                float x1 = points[2 * p - 2], y1 = points[2 * p - 1], x2 = points[2 * p], y2 = points[2 * p + 1];
+                if (clip != null && (Math.max(x1, x2) + margin < clip.x || Math.min(x1, x2) - margin > clip.x + clip.width
+                        || Math.max(y1, y2) + margin < clip.y || Math.min(y1, y2) - margin > clip.y + clip.height)) {
+                    continue;
+                }
+                segment.setLine(x1, y1, x2, y2);
+                g2d.draw(segment);
+            }
+        }
+    }
+}
@@ -0,0 +1,456 @@
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * SketchRecognizer - Names the 2D shape a student has drawn in one stroke
+ *
+ * Three kinds of evidence are combined per label:
+ * - Template matching: the stroke, normalized like the templates, is compared with
+ *   every template by cosine similarity at the best rotation (found in closed form,
+ *   as in the Protractor recognizer), from every start point and in both
+ *   directions, since a closed shape can be drawn from anywhere.
+ * - Corner detection and polygon fitting: corners are the resampled points whose
+ *   "straw" (the chord across a few neighbours) is clearly shorter than on a
+ *   straight line (ShortStraw), minus those on a straight line. The corners make a polygon; how
+ *   closely it follows the stroke, its number of sides, and for four sides its
+ *   angles and side lengths, give the polygon labels' scores.
+ * - Ellipse fitting: the outline's area moments give an ellipse of the same
+ *   spread; how closely the stroke follows it and its axis ratio give the circle
+ *   and oval scores.
+ * The scores are averaged and turned into confidences that add up to 1.
+ *
+ * Recognizing a stroke against the built-in templates takes about 0.3 ms, well
+ * inside the 5 ms budget for recognizing as the pen lifts; each trained template
+ * adds a few microseconds. Not thread-safe when templates are added concurrently.
+ *
+ * Usage: java SketchRecognizer CORPUS                        (accuracy and time per stroke)
+ *        java SketchRecognizer --generate CORPUS [PER_LABEL] [SEED]
+ */
+public class SketchRecognizer {
+    /** Points the stroke is resampled to for corner detection */
+    static final int CORNER_POINTS = 128;
+    /** Neighbours on each side spanned by a straw */
+    static final int STRAW_WINDOW = 3;
+    /** A straw shorter than this share of a straight line's marks a corner */
+    static final double STRAW_THRESHOLD = 0.96;
+    /** Corners with an angle wider than this, in degrees, are on a straight line */
+    static final double STRAIGHT_ANGLE = 160;
+    /** Weight of template matching in the combined score; the rest is geometry */
+    static final double TEMPLATE_WEIGHT = 0.5;
+    /** How sharply confidences favour the best score */
+    static final double SHARPNESS = 12;
+
+    /**
+     * A label and how confident the recognizer is in it
+     */
+    public static final class Candidate {
+        private final String label;
+        private final double confidence;
+
+        Candidate(String label, double confidence) {
+            this.label = label;
+            this.confidence = confidence;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * @return Confidence between 0 and 1; the candidates' confidences add up to 1
+         */
+        public double getConfidence() {
+            return confidence;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s %.0f%%", label, confidence * 100);
+        }
+    }
+
+    private static final LatencyHistogram RECOGNIZE_MICROS = Metrics.global().histogram("sketch.recognizeMicros");
+
+    private final SketchTemplates templates;
+
+    /**
+     * @param templates The templates to match against
+     */
+    public SketchRecognizer(SketchTemplates templates) {
+        this.templates = templates;
+    }
+
+    /**
+     * Recognizes a stroke
+     * @param stroke The stroke as x, y pairs
+     * @return Every label, most likely first; empty if the stroke has fewer than 3 points
+     */
+    public List<Candidate> recognize(float[] stroke) {
+        List<Candidate> candidates = new ArrayList<>();
+        if (stroke.length < 6) return candidates;
+        long start = System.nanoTime();
+        float[][] loops = loops(SketchTemplates.normalize(stroke));
+        Geometry geometry = new Geometry(SketchTemplates.resample(SketchTemplates.close(stroke), CORNER_POINTS, true));
+
+        String[] labels = templates.labels().toArray(new String[0]);
+        double[] scores = new double[labels.length];
+        double best = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < labels.length; i++) {
+            double similarity = 0;
+            for (float[] template : templates.templates(labels[i])) {
+                similarity = Math.max(similarity, similarity(loops, template));
+            }
+            // Angular distance, 0 for a perfect match
+            double templateScore = Math.exp(-Math.acos(Math.min(1, similarity)) / 0.05);
+            double geometryScore = geometry.score(labels[i]);
+            scores[i] = geometryScore < 0 ? templateScore
+                    : TEMPLATE_WEIGHT * templateScore + (1 - TEMPLATE_WEIGHT) * geometryScore;
+            best = Math.max(best, scores[i]);
+        }
+        double total = 0;
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = Math.exp(SHARPNESS * (scores[i] - best));
+            total += scores[i];
+        }
+        for (int i = 0; i < labels.length; i++) candidates.add(new Candidate(labels[i], scores[i] / total));
+        candidates.sort((a, b) -> Double.compare(b.confidence, a.confidence));
+        RECOGNIZE_MICROS.record((System.nanoTime() - start) / 1000);
+        return candidates;
+    }
+
+    /**
+     * The stroke vector twice over, forwards and backwards, so every start point and
+     * direction is a contiguous run
+     * @param vector A normalized stroke
+     * @return The forward and backward loops
+     */
+    static float[][] loops(float[] vector) {
+        int n = vector.length / 2;
+        float[] forward = new float[4 * n];
+        float[] backward = new float[4 * n];
+        for (int i = 0; i < 2 * n; i++) {
+            int from = 2 * (i % n), back = 2 * ((n - i % n) % n);
+            forward[2 * i] = vector[from];
+            forward[2 * i + 1] = vector[from + 1];
+            backward[2 * i] = vector[back];
+            backward[2 * i + 1] = vector[back + 1];
+        }
+        return new float[][] {forward, backward};
+    }
+
+    /**
+     * Best cosine similarity of a stroke and a template over start point, direction and rotation
+     * @param loops The stroke's loops, from {@link #loops}
+     * @param template A normalized template
+     * @return The similarity, at most 1
+     */
+    static double similarity(float[][] loops, float[] template) {
+        int n = template.length / 2;
+        double best = 0;
+        for (float[] loop : loops) {
+            for (int shift = 0; shift < 2 * n; shift += 2) {
+                double a = 0, b = 0;
+                for (int i = 0; i < 2 * n; i += 2) {
+                    float tx = template[i], ty = template[i + 1];
+                    float sx = loop[shift + i], sy = loop[shift + i + 1];
+                    a += tx * sx + ty * sy;
+                    b += tx * sy - ty * sx;
+                }
+                // At the best rotation the similarity is the length of (a, b)
+                best = Math.max(best, a * a + b * b);
+            }
+        }
+        return Math.sqrt(best);
+    }
+
+    /**
+     * Corners, fitted polygon and fitted ellipse of a closed, evenly resampled stroke
+     */
+    static final class Geometry {
+        final float[] points;
+        final int[] corners;
+        final double polygonError; // mean distance from the polygon, relative to the shape's size
+        final double ellipseError; // mean relative radial distance from the ellipse
+        final double axisRatio;    // minor over major axis of the ellipse, at most 1
+
+        Geometry(float[] points) {
+            this.points = points;
+            this.corners = corners(points);
+            double[] moments = moments(points);
+            double area = Math.abs(moments[0]);
+            double size = Math.sqrt(Math.max(area, 1e-9));
+            polygonError = corners.length >= 3 ? polygonDistance(points, corners) / size : Double.POSITIVE_INFINITY;
+
+            // Ellipse with the outline's centroid and second moments
+            double mxx = moments[3], myy = moments[4], mxy = moments[5];
+            double mean = (mxx + myy) / 2;
+            double spread = Math.sqrt((mxx - myy) * (mxx - myy) / 4 + mxy * mxy);
+            double major = 2 * Math.sqrt(Math.max(mean + spread, 1e-9));
+            double minor = 2 * Math.sqrt(Math.max(mean - spread, 1e-9));
+            double angle = 0.5 * Math.atan2(2 * mxy, mxx - myy);
+            double cos = Math.cos(angle), sin = Math.sin(angle);
+            double error = 0;
+            for (int i = 0; i < points.length; i += 2) {
+                double dx = points[i] - moments[1], dy = points[i + 1] - moments[2];
+                double u = (dx * cos + dy * sin) / major, v = (-dx * sin + dy * cos) / minor;
+                error += Math.abs(Math.sqrt(u * u + v * v) - 1);
+            }
+            ellipseError = error / (points.length / 2);
+            axisRatio = minor / major;
+        }
+
+        /**
+         * @param label A label
+         * @return How well the geometry fits it, between 0 and 1, or -1 for labels it knows nothing about
+         */
+        double score(String label) {
+            double polygon = corners.length >= 3 ? clamp(1 - polygonError / 0.04) : 0;
+            double round = clamp(1 - ellipseError / 0.035) * (1 - polygon);
+            switch (label) {
+                case "circle": return round * clamp((axisRatio - 0.75) / 0.15);
+                case "oval": return round * clamp((0.9 - axisRatio) / 0.15);
+                case "triangle": return sides(polygon, 3);
+                case "pentagon": return sides(polygon, 5);
+                case "hexagon": return sides(polygon, 6);
+                case "heptagon": return sides(polygon, 7);
+                case "octagon": return sides(polygon, 8);
+                case "square": return sides(polygon, 4) * quad(true, true);
+                case "rectangle": return sides(polygon, 4) * quad(true, false);
+                case "rhombus": return sides(polygon, 4) * quad(false, true);
+                case "kite": return sides(polygon, 4) * kite();
+                default: return -1;
+            }
+        }
+
+        private double sides(double polygon, int expected) {
+            return polygon * Math.exp(-Math.abs(corners.length - expected));
+        }
+
+        /**
+         * How right-angled (or not) and equal-sided (or not) a four-cornered outline is
+         */
+        private double quad(boolean rightAngled, boolean equalSided) {
+            if (corners.length != 4) return 0.5;
+            double right = 1;
+            for (int i = 0; i < 4; i++) right *= clamp(1 - Math.abs(angleAt(i) - 90) / 25);
+            double equal = equalness(sides());
+            return (rightAngled ? right : 1 - right) * (equalSided ? equal : 1 - equal);
+        }
+
+        /**
+         * How much a four-cornered outline has two pairs of equal adjacent sides but not four equal sides
+         */
+        private double kite() {
+            if (corners.length != 4) return 0.5;
+            double[] s = sides();
+            double pairs = Math.max(equalness(new double[] {s[0], s[1]}) * equalness(new double[] {s[2], s[3]}),
+                    equalness(new double[] {s[1], s[2]}) * equalness(new double[] {s[3], s[0]}));
+            return pairs * (1 - equalness(s));
+        }
+
+        private double[] sides() {
+            double[] sides = new double[corners.length];
+            for (int i = 0; i < corners.length; i++) {
+                sides[i] = distance(points, corners[i], corners[(i + 1) % corners.length]);
+            }
+            return sides;
+        }
+
+        private double angleAt(int corner) {
+            int n = corners.length;
+            return angle(points, corners[(corner + n - 1) % n], corners[corner], corners[(corner + 1) % n]);
+        }
+    }
+
+    /**
+     * Finds corners with ShortStraw on a closed, evenly resampled stroke
+     * @param points The points as x, y pairs
+     * @return Indices of the corner points, in order
+     */
+    static int[] corners(float[] points) {
+        int n = points.length / 2;
+        double[] straws = new double[n];
+        for (int i = 0; i < n; i++) {
+            straws[i] = distance(points, Math.floorMod(i - STRAW_WINDOW, n), (i + STRAW_WINDOW) % n);
+        }
+        // Points are evenly spaced, so on a straight line a straw is exactly 2 * STRAW_WINDOW spacings
+        double perimeter = 0;
+        for (int i = 0; i < n; i++) perimeter += distance(points, i, (i + 1) % n);
+        double threshold = 2 * STRAW_WINDOW * perimeter / n * STRAW_THRESHOLD;
+
+        // The shortest straw of each run below the threshold
+        List<Integer> found = new ArrayList<>();
+        int start = 0;
+        while (start < n && straws[start] < threshold) start++;
+        if (start == n) return new int[0];
+        for (int k = 1; k <= n; k++) {
+            int i = (start + k) % n;
+            if (straws[i] >= threshold) continue;
+            int shortest = i;
+            while (k < n && straws[(start + k + 1) % n] < threshold) {
+                k++;
+                int j = (start + k) % n;
+                if (straws[j] < straws[shortest]) shortest = j;
+            }
+            found.add(shortest);
+        }
+
+        // Drop corners on a nearly straight line, widest angle first
+        boolean removed = true;
+        while (removed && found.size() > 2) {
+            removed = false;
+            int widest = -1;
+            double widestAngle = STRAIGHT_ANGLE;
+            for (int c = 0; c < found.size(); c++) {
+                int size = found.size();
+                double angle = angle(points, found.get((c + size - 1) % size), found.get(c), found.get((c + 1) % size));
+                if (angle > widestAngle) {
+                    widestAngle = angle;
+                    widest = c;
+                }
+            }
+            if (widest >= 0) {
+                found.remove(widest);
+                removed = true;
+            }
+        }
+        int[] corners = new int[found.size()];
+        for (int i = 0; i < corners.length; i++) corners[i] = found.get(i);
+        Arrays.sort(corners);
+        return corners;
+    }
+
+    /**
+     * Area moments of a closed outline
+     * @param points The outline as x, y pairs
+     * @return Signed area, centroid x and y, and the central second moments xx, yy and xy per unit area
+     */
+    static double[] moments(float[] points) {
+        int n = points.length / 2;
+        double area = 0, sx = 0, sy = 0, sxx = 0, syy = 0, sxy = 0;
+        for (int i = 0; i < n; i++) {
+            double x0 = points[2 * i], y0 = points[2 * i + 1];
+            double x1 = points[2 * ((i + 1) % n)], y1 = points[2 * ((i + 1) % n) + 1];
+            double cross = x0 * y1 - x1 * y0;
+            area += cross;
+            sx += (x0 + x1) * cross;
+            sy += (y0 + y1) * cross;
+            sxx += (x0 * x0 + x0 * x1 + x1 * x1) * cross;
+            syy += (y0 * y0 + y0 * y1 + y1 * y1) * cross;
+            sxy += (x0 * y1 + 2 * x0 * y0 + 2 * x1 * y1 + x1 * y0) * cross;
+        }
+        area /= 2;
+        if (area == 0) return new double[] {0, points[0], points[1], 0, 0, 0};
+        double cx = sx / (6 * area), cy = sy / (6 * area);
+        return new double[] {area, cx, cy,
+                sxx / (12 * area) - cx * cx, syy / (12 * area) - cy * cy, sxy / (24 * area) - cx * cy};
+    }
+
+    /**
+     * Mean distance of the points from the polygon through the corners
+     */
+    private static double polygonDistance(float[] points, int[] corners) {
+        int n = points.length / 2;
+        double total = 0;
+        for (int c = 0; c < corners.length; c++) {
+            int from = corners[c], to = corners[(c + 1) % corners.length];
+            for (int i = from; i != to; i = (i + 1) % n) total += segmentDistance(points, i, from, to);
+        }
+        return total / n;
+    }
+
+    private static double segmentDistance(float[] points, int p, int a, int b) {
+        double ax = points[2 * a], ay = points[2 * a + 1];
+        double dx = points[2 * b] - ax, dy = points[2 * b + 1] - ay;
+        double px = points[2 * p] - ax, py = points[2 * p + 1] - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared > 0 ? Math.max(0, Math.min(1, (px * dx + py * dy) / lengthSquared)) : 0;
+        return Math.hypot(px - t * dx, py - t * dy);
+    }
+
+    private static double distance(float[] points, int a, int b) {
+        return Math.hypot(points[2 * b] - points[2 * a], points[2 * b + 1] - points[2 * a + 1]);
+    }
+
+    /**
+     * Angle at b between the lines to a and c, in degrees
+     */
+    private static double angle(float[] points, int a, int b, int c) {
+        double ux = points[2 * a] - points[2 * b], uy = points[2 * a + 1] - points[2 * b + 1];
+        double vx = points[2 * c] - points[2 * b], vy = points[2 * c + 1] - points[2 * b + 1];
+        return Math.toDegrees(Math.abs(Math.atan2(ux * vy - uy * vx, ux * vx + uy * vy)));
+    }
+
+    /**
+     * @return 1 when the values are all equal, falling to 0 as the largest reaches 1.35 times the smallest
+     */
+    private static double equalness(double[] values) {
+        double min = Double.POSITIVE_INFINITY, max = 0;
+        for (double value : values) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        return min > 0 ? clamp(1 - (max / min - 1) / 0.35) : 0;
+    }
+
+    private static double clamp(double value) {
+        return Math.max(0, Math.min(1, value));
+    }
+
+    /**
+     * Generates a corpus of synthetic strokes, or measures accuracy and time per stroke on one
+     * @param args CORPUS, or --generate CORPUS [PER_LABEL] [SEED]
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 2 && args[0].equals("--generate")) {
+            int perLabel = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+            Random random = new Random(args.length > 3 ? Long.parseLong(args[3]) : 2024);
+            List<SketchTemplates.Example> corpus = new ArrayList<>();
+            for (int i = 0; i < perLabel; i++) {
+                for (String name : VectorShapes.NAMES) {
+                    corpus.add(new SketchTemplates.Example(name, SketchTemplates.synthesize(name, random)));
+                }
+            }
+            SketchTemplates.write(Paths.get(args[1]), corpus);
+            System.out.println("Wrote " + corpus.size() + " strokes to " + args[1]);
+            return;
+        }
+        if (args.length != 1) {
+            System.err.println("Usage: java SketchRecognizer CORPUS | --generate CORPUS [PER_LABEL] [SEED]");
+            System.exit(2);
+        }
+        Path file = Paths.get(args[0]);
+        List<SketchTemplates.Example> corpus = SketchTemplates.read(file);
+        SketchRecognizer recognizer = new SketchRecognizer(SketchTemplates.builtIn());
+        // Warm up, then time every stroke
+        for (int round = 0; round < 5; round++) {
+            for (SketchTemplates.Example example : corpus) recognizer.recognize(example.getStroke());
+        }
+        LatencyHistogram micros = new LatencyHistogram();
+        Map<String, int[]> byLabel = new TreeMap<>();
+        int correct = 0;
+        for (SketchTemplates.Example example : corpus) {
+            long start = System.nanoTime();
+            List<Candidate> ranked = recognizer.recognize(example.getStroke());
+            micros.record((System.nanoTime() - start) / 1000);
+            boolean right = ranked.get(0).getLabel().equals(example.getLabel());
+            if (right) correct++;
+            int[] counts = byLabel.computeIfAbsent(example.getLabel(), k -> new int[2]);
+            counts[0] += right ? 1 : 0;
+            counts[1]++;
+            if (!right) System.out.println(example.getLabel() + " -> " + ranked.subList(0, 3));
+        }
+        for (Map.Entry<String, int[]> label : byLabel.entrySet()) {
+            System.out.printf(Locale.ROOT, "%-10s %3d/%d%n", label.getKey(), label.getValue()[0], label.getValue()[1]);
+        }
+        System.out.printf(Locale.ROOT, "%d/%d correct (%.1f%%), %s%n", correct, corpus.size(),
+                100.0 * correct / corpus.size(), micros.summary("us"));
+    }
+}
@@ -0,0 +1,347 @@
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * SketchTemplates - Labelled example strokes that {@link SketchRecognizer} matches sketches against
+ *
+ * Every example is stored closed, resampled to {@link #POINTS} points, centred on
+ * its centroid and scaled to unit length as one vector, which is the form the
+ * recognizer compares. The built-in store has one example per 2D shape, traced
+ * from {@link VectorShapes}; examples added with {@link #add} (a student's own
+ * drawings, say) are kept as drawn as well, so they can be saved and loaded again.
+ *
+ * Strokes are float arrays of x, y pairs, as {@link SketchCanvas} returns them.
+ * Files hold one example per line: the label, a tab, then the coordinates
+ * separated by spaces. The same format is used for stroke corpora.
+ */
+public final class SketchTemplates {
+    /** Points per stored template */
+    public static final int POINTS = 64;
+    /** Size the built-in templates are traced at, in pixels */
+    private static final int TRACE_SIZE = 200;
+
+    /**
+     * A labelled stroke
+     */
+    public static final class Example {
+        private final String label;
+        private final float[] stroke;
+
+        public Example(String label, float[] stroke) {
+            this.label = label;
+            this.stroke = stroke;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public float[] getStroke() {
+            return stroke;
+        }
+    }
+
+    private final Map<String, List<float[]>> templates = new LinkedHashMap<>();
+    private final List<Example> trained = new ArrayList<>();
+
+    /**
+     * @return A store with one template per shape in {@link VectorShapes#NAMES}
+     */
+    public static SketchTemplates builtIn() {
+        SketchTemplates store = new SketchTemplates();
+        for (String name : VectorShapes.NAMES) {
+            store.put(name, normalize(trace(name, TRACE_SIZE)));
+        }
+        return store;
+    }
+
+    /**
+     * Loads the built-in templates plus the examples saved in a file, if it exists
+     * @param file The saved examples
+     * @return The store
+     */
+    public static SketchTemplates load(Path file) {
+        SketchTemplates store = builtIn();
+        if (!Files.isRegularFile(file)) return store;
+        try {
+            for (Example example : read(file)) store.add(example.getLabel(), example.getStroke());
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error reading sketch templates " + file + ": " + e.getMessage());
+        }
+        return store;
+    }
+
+    /**
+     * Adds an example stroke for a label
+     * @param label The shape it shows
+     * @param stroke The stroke as x, y pairs
+     * @throws IllegalArgumentException If the stroke has fewer than 3 points
+     */
+    public void add(String label, float[] stroke) {
+        if (stroke.length < 6) throw new IllegalArgumentException("Too few points to learn from");
+        put(label, normalize(stroke));
+        trained.add(new Example(label, stroke.clone()));
+    }
+
+    private void put(String label, float[] template) {
+        templates.computeIfAbsent(label, k -> new ArrayList<>()).add(template);
+    }
+
+    /**
+     * @return The labels that have templates
+     */
+    public Set<String> labels() {
+        return Collections.unmodifiableSet(templates.keySet());
+    }
+
+    /**
+     * @param label A label
+     * @return Its normalized templates; callers must not modify them
+     */
+    List<float[]> templates(String label) {
+        return templates.getOrDefault(label, Collections.emptyList());
+    }
+
+    /**
+     * @return Number of examples added with {@link #add}
+     */
+    public int trainedCount() {
+        return trained.size();
+    }
+
+    /**
+     * Writes the examples added with {@link #add}, so {@link #load} can restore them
+     * @param file The file
+     * @throws IOException If the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        write(file, trained);
+    }
+
+    /**
+     * Resamples a stroke, closed, to POINTS points, centres it and scales it to unit length
+     * @param stroke The stroke as x, y pairs
+     * @return The template vector
+     */
+    static float[] normalize(float[] stroke) {
+        float[] points = resample(close(stroke), POINTS, true);
+        float cx = 0, cy = 0;
+        for (int i = 0; i < points.length; i += 2) {
+            cx += points[i];
+            cy += points[i + 1];
+        }
+        cx /= POINTS;
+        cy /= POINTS;
+        double norm = 0;
+        for (int i = 0; i < points.length; i += 2) {
+            points[i] -= cx;
+            points[i + 1] -= cy;
+            norm += points[i] * points[i] + points[i + 1] * points[i + 1];
+        }
+        float scale = norm > 0 ? (float) (1 / Math.sqrt(norm)) : 0;
+        for (int i = 0; i < points.length; i++) points[i] *= scale;
+        return points;
+    }
+
+    /**
+     * Cuts off the end of a stroke drawn past its start, at the point nearest the start,
+     * so closing it does not double back
+     * @param stroke The stroke as x, y pairs
+     * @return The stroke, or a shorter copy
+     */
+    static float[] close(float[] stroke) {
+        int n = stroke.length / 2;
+        int nearest = n - 1;
+        double nearestDistance = Double.POSITIVE_INFINITY;
+        // Only the last fifth can be an overshoot
+        for (int i = n - 1; i >= n - n / 5 && i > 0; i--) {
+            double distance = segmentLength(stroke, 0, i);
+            if (distance < nearestDistance) {
+                nearestDistance = distance;
+                nearest = i;
+            }
+        }
+        return nearest == n - 1 ? stroke : Arrays.copyOf(stroke, 2 * (nearest + 1));
+    }
+
+    /**
+     * Resamples a stroke to points evenly spaced along its path
+     * @param stroke The stroke as x, y pairs, at least one point
+     * @param count Number of points wanted
+     * @param closed Whether the path runs on from the last point back to the first
+     * @return The points as x, y pairs
+     */
+    static float[] resample(float[] stroke, int count, boolean closed) {
+        int n = stroke.length / 2;
+        int segments = closed ? n : n - 1;
+        double length = 0;
+        for (int i = 0; i < segments; i++) length += segmentLength(stroke, i, (i + 1) % n);
+        float[] out = new float[2 * count];
+        if (length == 0) {
+            for (int i = 0; i < count; i++) {
+                out[2 * i] = stroke[0];
+                out[2 * i + 1] = stroke[1];
+            }
+            return out;
+        }
+        double step = closed ? length / count : length / (count - 1);
+        int segment = 0;
+        double segmentStart = 0;
+        double segmentEnd = segmentLength(stroke, 0, 1 % n);
+        for (int i = 0; i < count; i++) {
+            double at = Math.min(i * step, length);
+            while (at > segmentEnd && segment < segments - 1) {
+                segment++;
+                segmentStart = segmentEnd;
+                segmentEnd += segmentLength(stroke, segment, (segment + 1) % n);
+            }
+            int a = 2 * segment, b = 2 * ((segment + 1) % n);
+            double span = segmentEnd - segmentStart;
+            float t = span > 0 ? (float) ((at - segmentStart) / span) : 0;
+            out[2 * i] = stroke[a] + t * (stroke[b] - stroke[a]);
+            out[2 * i + 1] = stroke[a + 1] + t * (stroke[b + 1] - stroke[a + 1]);
+        }
+        return out;
+    }
+
+    private static double segmentLength(float[] stroke, int from, int to) {
+        double dx = stroke[2 * to] - stroke[2 * from];
+        double dy = stroke[2 * to + 1] - stroke[2 * from + 1];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Traces a shape's outline as a stroke, starting at the top and going clockwise
+     * @param name One of {@link VectorShapes#NAMES}
+     * @param size Diameter of the circle the shape fits in
+     * @return The outline as x, y pairs
+     */
+    static float[] trace(String name, int size) {
+        return flatten(VectorShapes.outline(name, size), null);
+    }
+
+    private static float[] flatten(Shape shape, AffineTransform transform) {
+        float[] points = new float[64];
+        int count = 0;
+        float[] coords = new float[6];
+        for (PathIterator it = shape.getPathIterator(transform, 0.5); !it.isDone(); it.next()) {
+            int type = it.currentSegment(coords);
+            if (type == PathIterator.SEG_CLOSE) continue;
+            if (count == points.length) points = Arrays.copyOf(points, 2 * count);
+            points[count++] = coords[0];
+            points[count++] = coords[1];
+        }
+        return Arrays.copyOf(points, count);
+    }
+
+    /**
+     * Draws a shape the way a child might with a mouse: turned, a little stretched and
+     * wobbly, started anywhere in either direction, ending short of or past the start,
+     * at whole pixel positions about 3 pixels apart
+     * @param name One of {@link VectorShapes#NAMES}
+     * @param random Source of the variations
+     * @return The stroke as x, y pairs
+     */
+    public static float[] synthesize(String name, Random random) {
+        int size = 120 + random.nextInt(140);
+        AffineTransform transform = AffineTransform.getTranslateInstance(200, 150);
+        transform.rotate(random.nextDouble() * 2 * Math.PI);
+        transform.scale(0.95 + 0.1 * random.nextDouble(), 0.95 + 0.1 * random.nextDouble());
+        float[] outline = flatten(VectorShapes.outline(name, size), transform);
+        double perimeter = 0;
+        int n = outline.length / 2;
+        for (int i = 0; i < n; i++) perimeter += segmentLength(outline, i, (i + 1) % n);
+        int count = Math.max(12, (int) (perimeter / 3));
+        float[] loop = resample(outline, count, true);
+
+        // Closing off by up to 4% of the way short or 6% past the start
+        int drawn = count + (int) Math.round(count * (-0.04 + 0.1 * random.nextDouble()));
+        int start = random.nextInt(count);
+        int direction = random.nextBoolean() ? 1 : -1;
+        double wobble = 0.015 + 0.015 * random.nextDouble();
+        double cycles = 2 + random.nextInt(3);
+        double phase = random.nextDouble() * 2 * Math.PI;
+        float[] stroke = new float[2 * drawn];
+        for (int i = 0; i < drawn; i++) {
+            int index = Math.floorMod(start + direction * i, count);
+            double swell = 1 + wobble * Math.sin(phase + 2 * Math.PI * cycles * i / count);
+            double x = 200 + (loop[2 * index] - 200) * swell + 0.6 * random.nextGaussian();
+            double y = 150 + (loop[2 * index + 1] - 150) * swell + 0.6 * random.nextGaussian();
+            stroke[2 * i] = Math.round(x);
+            stroke[2 * i + 1] = Math.round(y);
+        }
+        return stroke;
+    }
+
+    /**
+     * Reads labelled strokes
+     * @param file The file
+     * @return The examples, in file order
+     * @throws IOException If the file cannot be read
+     * @throws IllegalArgumentException If a line is malformed
+     */
+    public static List<Example> read(Path file) throws IOException {
+        List<Example> examples = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                int tab = line.indexOf('\t');
+                String[] values = tab < 0 ? new String[0] : line.substring(tab + 1).trim().split(" +");
+                if (tab <= 0 || values.length % 2 != 0 || values.length < 6) {
+                    throw new IllegalArgumentException("Bad stroke on line " + lineNumber);
+                }
+                float[] stroke = new float[values.length];
+                try {
+                    for (int i = 0; i < values.length; i++) stroke[i] = Float.parseFloat(values[i]);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Bad number on line " + lineNumber);
+                }
+                examples.add(new Example(line.substring(0, tab), stroke));
+            }
+        }
+        return examples;
+    }
+
+    /**
+     * Writes labelled strokes
+     * @param file The file
+     * @param examples The examples
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(Path file, List<Example> examples) throws IOException {
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (Example example : examples) {
+                out.write(example.getLabel());
+                out.write('\t');
+                float[] stroke = example.getStroke();
+                for (int i = 0; i < stroke.length; i++) {
+                    if (i > 0) out.write(' ');
+                    float value = stroke[i];
+                    out.write(value == Math.rint(value) ? Integer.toString((int) value)
+                            : String.format(Locale.ROOT, "%.1f", value));
+                }
+                out.write('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * TaskBackend - Where the task panels get questions and have answers graded
+ *
+ * The desktop app uses the in-process {@link Local} backend; in thin-client mode
+ * (system property shapeville.server=host:port) it uses {@link ShapevilleClient},
+ * which talks to a {@link ShapevilleServer}. Results are delivered through futures
+ * so the Swing event thread never waits on the network.
+ */
+public interface TaskBackend extends AutoCloseable {
+    /**
+     * Sets the student that later calls act for
+     * @param studentId The student ID
+     */
+    void setStudent(String studentId);
+
+    /**
+     * Fetches a new question, using a prefetched one when available
+     * @param taskId The task ID
+     * @param variant Task-specific choice, or null for a random one
+     * @return The question
+     */
+    CompletableFuture<ShapevilleServer.IssuedQuestion> question(String taskId, String variant);
+
+    /**
+     * Starts fetching a question that is likely to be asked for next
+     * @param taskId The task ID
+     * @param variant Task-specific choice, or null for a random one
+     */
+    void prefetch(String taskId, String variant);
+
+    /**
+     * Grades an answer
+     * @param questionId The question being answered
+     * @param answer The answer as typed
+     * @param latencyMillis Time the student spent on the question
+     * @return The outcome; completes exceptionally with NumberFormatException for non-numeric
+     *         answers to numeric questions
+     */
+    CompletableFuture<ShapevilleServer.AnswerResult> answer(long questionId, String answer, long latencyMillis);
+
+    /**
+     * Closes a question that ran out of time
+     * @param questionId The question
+     * @param latencyMillis Time the student spent on the question
+     * @return The outcome, revealing the correct answer
+     */
+    CompletableFuture<ShapevilleServer.AnswerResult> timeOut(long questionId, long latencyMillis);
+
+    /**
+     * Reports points awarded by the app; backends ignore reports for questions they graded themselves
+     * @param taskId The task ID
+     * @param points The points awarded
+     */
+    void pointsAwarded(String taskId, int points);
+
+    /**
+     * Reports an attempt recorded by the app; backends ignore reports for questions they graded themselves
+     */
+    void attemptRecorded(String taskId, String item, int attempt, AttemptOutcome outcome,
+                         int points, long latencyMillis);
+
+    /**
+     * Flushes pending reports and releases resources
+     */
+    @Override
+    void close();
+
+    /**
+     * Runs the task rules in-process; reports are not needed since the app keeps
+     * its own journal and profile store
+     */
+    class Local implements TaskBackend {
+        private final ShapevilleServer engine;
+        private volatile String studentId;
+
+        /**
+         * Creates an in-process backend
+         * @param engine The task engine
+         * @param studentId The initial student
+         * @param seed Seed for the question streams, so a session can be replayed
+         */
+        public Local(TaskEngine engine, String studentId, long seed) {
+            this.engine = new ShapevilleServer(engine, null, 4, seed);
+            this.studentId = studentId;
+        }
+
+        @Override
+        public void setStudent(String studentId) {
+            this.studentId = studentId;
+        }
+
+        @Override
+        public CompletableFuture<ShapevilleServer.IssuedQuestion> question(String taskId, String variant) {
+            return call(() -> engine.nextQuestion(studentId, taskId, variant));
+        }
+
+        @Override
+        public void prefetch(String taskId, String variant) {
+            // Questions are generated on demand at no cost
+        }
+
+        @Override
+        public CompletableFuture<ShapevilleServer.AnswerResult> answer(long questionId, String answer,
+                                                                       long latencyMillis) {
+            return call(() -> engine.submitAnswer(studentId, questionId, answer, latencyMillis));
+        }
+
+        @Override
+        public CompletableFuture<ShapevilleServer.AnswerResult> timeOut(long questionId, long latencyMillis) {
+            return call(() -> engine.timeOut(studentId, questionId, latencyMillis));
+        }
+
+        @Override
+        public void pointsAwarded(String taskId, int points) {
+        }
+
+        @Override
+        public void attemptRecorded(String taskId, String item, int attempt, AttemptOutcome outcome,
+                                    int points, long latencyMillis) {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private static <T> CompletableFuture<T> call(Supplier<T> action) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            try {
+                future.complete(action.get());
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+            return future;
+        }
+    }
+}
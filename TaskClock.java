@@ -0,0 +1,215 @@
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TaskClock - Time source and scheduler for countdowns and delayed transitions
+ *
+ * The app uses {@link Swing}, which runs actions on the event dispatch thread at
+ * wall-clock time. {@link Virtual} only moves when told to, running due actions in
+ * order on the calling thread, so hours of timed questions can be simulated in
+ * milliseconds with the same result on every run.
+ */
+public interface TaskClock {
+    /**
+     * @return Current time in milliseconds
+     */
+    long now();
+
+    /**
+     * Runs an action once after a delay
+     * @param delayMillis The delay
+     * @param action The action
+     * @return Handle for cancelling the action
+     */
+    Task schedule(long delayMillis, Runnable action);
+
+    /**
+     * Runs an action repeatedly, first after one period, until cancelled
+     * @param periodMillis Time between runs
+     * @param action The action
+     * @return Handle for cancelling the action
+     */
+    Task repeat(long periodMillis, Runnable action);
+
+    /**
+     * A scheduled action
+     */
+    interface Task {
+        /**
+         * Stops the action from running again; safe to call more than once
+         */
+        void cancel();
+    }
+
+    /**
+     * Wall-clock time; actions run on the Swing event dispatch thread
+     */
+    class Swing implements TaskClock {
+        private static final AtomicInteger ACTIVE = new AtomicInteger();
+
+        static {
+            Metrics.global().gauge("timers.active", ACTIVE::get);
+        }
+
+        /**
+         * @return Timers started and not yet fired (one-shot) or cancelled, across all Swing clocks
+         */
+        public static int active() {
+            return ACTIVE.get();
+        }
+
+        @Override
+        public long now() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public Task schedule(long delayMillis, Runnable action) {
+            return start(delayMillis, false, action);
+        }
+
+        @Override
+        public Task repeat(long periodMillis, Runnable action) {
+            return start(periodMillis, true, action);
+        }
+
+        private static Task start(long millis, boolean repeats, Runnable action) {
+            AtomicBoolean done = new AtomicBoolean();
+            javax.swing.Timer timer = new javax.swing.Timer((int) Math.min(Integer.MAX_VALUE, millis), e -> {
+                if (!repeats && done.compareAndSet(false, true)) ACTIVE.decrementAndGet();
+                action.run();
+            });
+            timer.setRepeats(repeats);
+            ACTIVE.incrementAndGet();
+            timer.start();
+            return () -> {
+                timer.stop();
+                if (done.compareAndSet(false, true)) ACTIVE.decrementAndGet();
+            };
+        }
+    }
+
+    /**
+     * Simulated time that advances only through {@link #advance}; not thread-safe,
+     * so drive it from a single thread (the event thread when used with the app)
+     */
+    class Virtual implements TaskClock {
+        private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+        private long now;
+        private long sequence;
+
+        /**
+         * Creates a virtual clock starting at time 0
+         */
+        public Virtual() {
+            this(0);
+        }
+
+        /**
+         * Creates a virtual clock
+         * @param startMillis The starting time
+         */
+        public Virtual(long startMillis) {
+            this.now = startMillis;
+        }
+
+        @Override
+        public long now() {
+            return now;
+        }
+
+        @Override
+        public Task schedule(long delayMillis, Runnable action) {
+            return add(delayMillis, 0, action);
+        }
+
+        @Override
+        public Task repeat(long periodMillis, Runnable action) {
+            if (periodMillis <= 0) throw new IllegalArgumentException("Period must be positive: " + periodMillis);
+            return add(periodMillis, periodMillis, action);
+        }
+
+        private Entry add(long delayMillis, long period, Runnable action) {
+            Entry entry = new Entry(now + Math.max(0, delayMillis), sequence++, period, action);
+            queue.add(entry);
+            return entry;
+        }
+
+        /**
+         * Moves time forward, running every action that falls due on the way in
+         * time order (actions due at the same time run in the order they were scheduled)
+         * @param millis How far to move
+         * @return Number of actions run
+         */
+        public int advance(long millis) {
+            return advanceTo(now + millis);
+        }
+
+        /**
+         * Moves time forward to an absolute time
+         * @param target The time to move to; earlier times are ignored
+         * @return Number of actions run
+         */
+        public int advanceTo(long target) {
+            int ran = 0;
+            while (!queue.isEmpty() && queue.peek().due <= target) {
+                if (queue.peek().cancelled) queue.poll();
+                else if (runNext()) ran++;
+            }
+            now = Math.max(now, target);
+            return ran;
+        }
+
+        /**
+         * Jumps to the next scheduled action and runs it
+         * @return False if nothing is scheduled
+         */
+        public boolean runNext() {
+            Entry entry = queue.poll();
+            while (entry != null && entry.cancelled) entry = queue.poll();
+            if (entry == null) return false;
+            now = Math.max(now, entry.due);
+            if (entry.period > 0) {
+                entry.due += entry.period;
+                entry.order = sequence++;
+                queue.add(entry);
+            }
+            entry.action.run();
+            return true;
+        }
+
+        /**
+         * @return Number of scheduled actions, including cancelled ones not yet discarded
+         */
+        public int pending() {
+            return queue.size();
+        }
+
+        private static class Entry implements Task, Comparable<Entry> {
+            private long due;
+            private long order;
+            private final long period;
+            private final Runnable action;
+            private boolean cancelled;
+
+            Entry(long due, long order, long period, Runnable action) {
+                this.due = due;
+                this.order = order;
+                this.period = period;
+                this.action = action;
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+            }
+
+            @Override
+            public int compareTo(Entry other) {
+                int byTime = Long.compare(due, other.due);
+                return byTime != 0 ? byTime : Long.compare(order, other.order);
+            }
+        }
+    }
+}
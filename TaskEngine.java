@@ -0,0 +1,487 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * TaskEngine - Headless question generation and grading rules for every task
+ * The Swing panels and the server mode both use these rules, so points, answer
+ * tolerances and generated dimensions are identical wherever a task runs.
+ */
+public class TaskEngine {
+    // Task IDs, shared with the card names in ShapevilleApp
+    public static final String SHAPES = "ks1_task1";
+    public static final String ANGLES = "ks1_task2";
+    public static final String AREA = "ks2_task3";
+    public static final String CIRCLE = "ks2_task4";
+    public static final String COMPOSITE = "bonus_task_composite";
+    public static final String SECTOR = "bonus_task_sector";
+
+    public static final int MAX_ATTEMPTS = 3;
+    public static final String[] SHAPE_ROUNDS = {"2D", "3D"};
+    public static final String[] AREA_SHAPES = {"Rectangle", "Parallelogram", "Triangle", "Trapezium"};
+    public static final String[] CIRCLE_TYPES = {"area", "arc"};
+    public static final String[] ANGLE_TYPES = {"Acute", "Right", "Obtuse", "Reflex"};
+    public static final int[] COMPOSITE_IDS = {2, 3, 4, 5, 8, 9};
+    public static final int[] SECTOR_IDS = {1, 2, 3, 4, 5, 6, 7, 8};
+
+    private final ItemBank bank;
+    private final ItemBank.Task shapes;
+    private final Map<Integer, List<ItemBank.Item>> shapesByDimension = new TreeMap<>();
+    private final List<Integer> dimensions;
+
+    /**
+     * Creates an engine over a content bank
+     * @param bank The content bank holding shapes, composite figures and sectors
+     */
+    public TaskEngine(ItemBank bank) {
+        this.bank = bank;
+        this.shapes = bank.task(ItemBankWriter.SHAPES_TASK);
+        if (shapes == null) {
+            throw new IllegalStateException("Content bank has no '" + ItemBankWriter.SHAPES_TASK + "' section");
+        }
+        for (int i = 0; i < shapes.size(); i++) {
+            ItemBank.Item item = shapes.item(i);
+            shapesByDimension.computeIfAbsent(item.getDimension(), d -> new ArrayList<>()).add(item);
+        }
+        this.dimensions = Collections.unmodifiableList(new ArrayList<>(shapesByDimension.keySet()));
+    }
+
+    /**
+     * Points awarded for a correct answer
+     * @param taskId The task ID
+     * @param dimension Shape dimension for the shape task (3D shapes score double), ignored otherwise
+     * @param attemptsUsed Number of wrong attempts before the correct one
+     * @return The points, or 0 once all attempts are used
+     */
+    public static int points(String taskId, int dimension, int attemptsUsed) {
+        boolean doubled = (SHAPES.equals(taskId) && dimension == 3)
+                || COMPOSITE.equals(taskId) || SECTOR.equals(taskId);
+        int base;
+        switch (attemptsUsed) {
+            case 0: base = 3; break; // First try
+            case 1: base = 2; break; // Second try
+            case 2: base = 1; break; // Third try
+            default: base = 0;
+        }
+        return doubled ? base * 2 : base;
+    }
+
+    /**
+     * Time allowed per question
+     * @param taskId The task ID
+     * @return The limit in seconds, or 0 if the task is untimed
+     */
+    public static int timeLimitSeconds(String taskId) {
+        switch (taskId) {
+            case AREA:
+            case CIRCLE: return 180;
+            case COMPOSITE:
+            case SECTOR: return 300;
+            default: return 0;
+        }
+    }
+
+    /**
+     * Determines the angle type based on degree value
+     * @param degree The angle in degrees
+     * @return The type of angle (Acute/Right/Obtuse/Reflex)
+     */
+    public static String angleType(int degree) {
+        if (degree < 90) return "Acute";
+        if (degree == 90) return "Right";
+        if (degree < 180) return "Obtuse";
+        return "Reflex";
+    }
+
+    /**
+     * Determines the shape name a shape description refers to
+     * @param description The shape description
+     * @return The corresponding shape name
+     */
+    public static String shapeForDescription(String description) {
+        if (description.contains("4 equal sides")) return "Square";
+        if (description.contains("round")) return "Circle";
+        if (description.contains("3 sides")) return "Triangle";
+        if (description.contains("4 sides") && description.contains("opposite sides")) return "Rectangle";
+        return "Square";
+    }
+
+    /**
+     * Validates an angle input (0-360 and multiple of 10)
+     * @param angle Input angle value
+     * @return Whether valid
+     */
+    public static boolean isValidAngle(int angle) {
+        return angle >= 0 && angle <= 360 && angle % 10 == 0;
+    }
+
+    /**
+     * Whether a task's items score only the first time they are answered correctly. Each angle
+     * type scores once per student; circle calculations, composite figures and sectors score
+     * on every correct answer, since the app asks them again.
+     * @param taskId The task ID
+     * @return Whether a correct answer to an item already scored earns no points
+     */
+    public static boolean scoresOnce(String taskId) {
+        return ANGLES.equals(taskId);
+    }
+
+    /**
+     * Checks the item of an attempt at a task the app grades itself, as the app reports it
+     * (the angle type, the circle calculation type, or the figure or sector ID)
+     * @param taskId The task ID
+     * @param item The item
+     * @return Whether the task is graded by the app and has the item
+     */
+    public static boolean isClientGradedItem(String taskId, String item) {
+        switch (taskId) {
+            case ANGLES:
+                return Arrays.asList(ANGLE_TYPES).contains(item);
+            case CIRCLE:
+                return Arrays.asList(CIRCLE_TYPES).contains(item);
+            case COMPOSITE:
+                return Arrays.stream(COMPOSITE_IDS).anyMatch(id -> String.valueOf(id).equals(item));
+            case SECTOR:
+                return Arrays.stream(SECTOR_IDS).anyMatch(id -> String.valueOf(id).equals(item));
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Checks a numeric answer against the correct value
+     * @param answer The student's answer
+     * @param correct The correct value
+     * @return true if within the accepted tolerance
+     */
+    public static boolean matches(double answer, double correct) {
+        return Math.abs(answer - correct) < 0.01;
+    }
+
+    /**
+     * Correct answer for the circle task
+     * @param calculationType "area" or "arc"
+     * @param radiusCm The radius in centimetres
+     * @return Area or circumference
+     */
+    public static double circleAnswer(String calculationType, double radiusCm) {
+        return "area".equals(calculationType) ? Math.PI * Math.pow(radiusCm, 2) : 2 * Math.PI * radiusCm;
+    }
+
+    /**
+     * Sector area as taught in the bonus task (π approximated by 3.14)
+     * @param radius The radius
+     * @param theta The angle in degrees
+     * @return The sector area
+     */
+    public static double sectorArea(double radius, double theta) {
+        return 3.14 * radius * radius * (theta / 360.0);
+    }
+
+    /**
+     * Generates dimensions for an area question
+     * @param shapeType One of AREA_SHAPES
+     * @param random Source of randomness
+     * @return The question; dims are the shape's dimensions in cm
+     */
+    public static Question areaQuestion(String shapeType, Random random) {
+        double dim1 = 0, dim2 = 0, dim3 = 0;
+        switch (shapeType) {
+            case "Rectangle":
+            case "Parallelogram":
+            case "Triangle":
+                dim1 = random.nextInt(19) + 2;
+                dim2 = random.nextInt(19) + 2;
+                break;
+            case "Trapezium":
+                dim1 = random.nextInt(10) + 2;
+                dim2 = random.nextInt(10) + dim1 + 1;
+                dim3 = random.nextInt(19) + 2;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown area shape: " + shapeType);
+        }
+        return areaQuestion(shapeType, dim1, dim2, dim3);
+    }
+
+    /**
+     * Builds an area question with given dimensions
+     * @param shapeType One of AREA_SHAPES
+     * @param dim1 Length, base or upper base in cm
+     * @param dim2 Width, height or lower base in cm
+     * @param dim3 Height of a trapezium in cm, ignored otherwise
+     * @return The question
+     */
+    public static Question areaQuestion(String shapeType, double dim1, double dim2, double dim3) {
+        double correct;
+        String prompt;
+        switch (shapeType) {
+            case "Rectangle":
+                correct = dim1 * dim2;
+                prompt = String.format("Rectangle: length = %s cm, width = %s cm", format(dim1), format(dim2));
+                break;
+            case "Parallelogram":
+                correct = dim1 * dim2;
+                prompt = String.format("Parallelogram: base = %s cm, height = %s cm", format(dim1), format(dim2));
+                break;
+            case "Triangle":
+                correct = (dim1 * dim2) / 2.0;
+                prompt = String.format("Triangle: base = %s cm, height = %s cm", format(dim1), format(dim2));
+                break;
+            case "Trapezium":
+                correct = ((dim1 + dim2) / 2.0) * dim3;
+                prompt = String.format("Trapezoid: upper base a = %s cm, lower base b = %s cm, height h = %s cm",
+                        format(dim1), format(dim2), format(dim3));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown area shape: " + shapeType);
+        }
+        return new Question(AREA, shapeType, prompt, 0, new double[]{dim1, dim2, dim3}, null, correct);
+    }
+
+    /**
+     * Generates a circle question
+     * @param calculationType "area" or "arc"
+     * @param random Source of randomness
+     * @return The question; dims[0] is the radius in cm
+     */
+    public static Question circleQuestion(String calculationType, Random random) {
+        return circleQuestion(calculationType, random.nextInt(19) + 2); // Radius between 2-20cm
+    }
+
+    /**
+     * Builds a circle question with a given radius
+     * @param calculationType "area" or "arc"
+     * @param radiusCm The radius in cm
+     * @return The question
+     */
+    public static Question circleQuestion(String calculationType, int radiusCm) {
+        String prompt = "area".equals(calculationType)
+                ? "Calculate the area of the circle: radius = " + radiusCm + " cm"
+                : "Calculate the arc length (circumference) of the circle: radius = " + radiusCm + " cm";
+        return new Question(CIRCLE, calculationType, prompt, 0, new double[]{radiusCm}, null,
+                circleAnswer(calculationType, radiusCm));
+    }
+
+    /**
+     * Generates a question for any task
+     * @param taskId The task ID
+     * @param variant Task-specific choice (dimension "2"/"3", area shape, circle type,
+     *                figure or sector ID, or an angle); null picks one at random
+     * @param random Source of randomness
+     * @return The question
+     */
+    public Question newQuestion(String taskId, String variant, Random random) {
+        switch (taskId) {
+            case SHAPES: {
+                if (dimensions.isEmpty()) throw new IllegalStateException("Content bank has no shapes");
+                int dimension = variant != null ? Integer.parseInt(variant)
+                        : dimensions.get(random.nextInt(dimensions.size()));
+                List<ItemBank.Item> items = shapesByDimension.get(dimension);
+                if (items == null) throw new IllegalArgumentException("No shapes of dimension " + dimension);
+                return shapeQuestion(items.get(random.nextInt(items.size())));
+            }
+            case ANGLES: {
+                int angle = variant != null ? Integer.parseInt(variant) : (1 + random.nextInt(35)) * 10;
+                if (!isValidAngle(angle)) throw new IllegalArgumentException("Invalid angle: " + angle);
+                return new Question(ANGLES, String.valueOf(angle), "Classify an angle of " + angle + " degrees", 0,
+                        new double[]{angle}, angleType(angle), 0);
+            }
+            case AREA:
+                return areaQuestion(variant != null ? variant : AREA_SHAPES[random.nextInt(AREA_SHAPES.length)], random);
+            case CIRCLE:
+                return circleQuestion(variant != null ? variant : CIRCLE_TYPES[random.nextInt(CIRCLE_TYPES.length)], random);
+            case COMPOSITE: {
+                int id = variant != null ? Integer.parseInt(variant) : COMPOSITE_IDS[random.nextInt(COMPOSITE_IDS.length)];
+                return new Question(COMPOSITE, String.valueOf(id), "Calculate the area of figure " + id, 0,
+                        new double[0], null, compositeArea(id));
+            }
+            case SECTOR: {
+                int id = variant != null ? Integer.parseInt(variant) : SECTOR_IDS[random.nextInt(SECTOR_IDS.length)];
+                double r = sectorRadius(id);
+                double theta = sectorAngle(id);
+                return new Question(SECTOR, String.valueOf(id),
+                        String.format(Locale.ROOT, "Sector %d: R=%.1f, Angle=%.0f°", id, r, theta), 0,
+                        new double[]{r, theta}, null, sectorArea(r, theta));
+            }
+            default:
+                throw new IllegalArgumentException("Unknown task: " + taskId);
+        }
+    }
+
+    /**
+     * Rebuilds a question from what was shown to the student
+     * @param taskId The task ID
+     * @param item The question's item
+     * @param dims The question's dimensions (the content bank key for the shape task, the
+     *             shape's sizes for area, the radius for circles; unused by the other tasks)
+     * @return The question
+     */
+    public Question question(String taskId, String item, double... dims) {
+        switch (taskId) {
+            case SHAPES: {
+                ItemBank.Item shape = shapes.findByKey((int) dims[0]);
+                if (shape == null) throw new IllegalArgumentException("Unknown shape key: " + dims[0]);
+                return shapeQuestion(shape);
+            }
+            case AREA:
+                return areaQuestion(item, dims[0], dims[1], dims.length > 2 ? dims[2] : 0);
+            case CIRCLE:
+                return circleQuestion(item, (int) dims[0]);
+            default:
+                // The remaining tasks are fully determined by their item
+                return newQuestion(taskId, item, null);
+        }
+    }
+
+    /**
+     * Builds the question for a shape; its name and any of its aliases are accepted
+     */
+    private static Question shapeQuestion(ItemBank.Item shape) {
+        String[] aliases = new String[shape.getAliasCount()];
+        for (int i = 0; i < aliases.length; i++) aliases[i] = shape.getAlias(i);
+        // dims[0] is the content bank key, so clients can show the image without being told the name
+        return new Question(SHAPES, shape.getName(), shape.getDescription(), shape.getDimension(),
+                new double[]{shape.getKey()}, shape.getName(), aliases, 0);
+    }
+
+    /**
+     * Checks an answer against a question
+     * @param question The question
+     * @param answer The student's answer as typed
+     * @return true if correct
+     * @throws NumberFormatException If a numeric task receives a non-numeric answer
+     */
+    public static boolean check(Question question, String answer) {
+        if (question.getExpectedText() != null) {
+            String text = answer.trim();
+            if (text.equalsIgnoreCase(question.getExpectedText())) return true;
+            for (String alias : question.aliases) {
+                if (text.equalsIgnoreCase(alias)) return true;
+            }
+            return false;
+        }
+        return matches(Double.parseDouble(answer.trim()), question.getNumericAnswer());
+    }
+
+    /**
+     * Calculates the area of a composite shape based on its ID
+     * @param id The ID of the shape
+     * @return The area, or 0 for an unknown figure
+     */
+    public double compositeArea(int id) {
+        ItemBank.Item figure = find(ItemBankWriter.COMPOSITE_TASK, id);
+        return figure != null ? figure.getParam(0) : 0;
+    }
+
+    /**
+     * Gets the radius for a sector based on its ID
+     * @param id The ID of the sector
+     * @return The radius value, or 0 for an unknown sector
+     */
+    public double sectorRadius(int id) {
+        ItemBank.Item sector = find(ItemBankWriter.SECTOR_TASK, id);
+        return sector != null ? sector.getParam(0) : 0;
+    }
+
+    /**
+     * Gets the angle for a sector based on its ID
+     * @param id The ID of the sector
+     * @return The angle in degrees, or 0 for an unknown sector
+     */
+    public double sectorAngle(int id) {
+        ItemBank.Item sector = find(ItemBankWriter.SECTOR_TASK, id);
+        return sector != null ? sector.getParam(1) : 0;
+    }
+
+    private ItemBank.Item find(String task, int key) {
+        ItemBank.Task section = bank.task(task);
+        return section != null ? section.findByKey(key) : null;
+    }
+
+    private static String format(double value) {
+        // Same output as DecimalFormat("#.##") for the whole numbers generated here
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    /**
+     * A generated question with its expected answer
+     */
+    public static class Question {
+        private final String taskId;
+        private final String item;
+        private final String prompt;
+        private final int dimension;
+        private final double[] dims;
+        private final String expectedText;
+        private final String[] aliases;
+        private final double numericAnswer;
+
+        Question(String taskId, String item, String prompt, int dimension, double[] dims,
+                 String expectedText, double numericAnswer) {
+            this(taskId, item, prompt, dimension, dims, expectedText, new String[0], numericAnswer);
+        }
+
+        Question(String taskId, String item, String prompt, int dimension, double[] dims,
+                 String expectedText, String[] aliases, double numericAnswer) {
+            this.taskId = taskId;
+            this.item = item;
+            this.prompt = prompt;
+            this.dimension = dimension;
+            this.dims = dims;
+            this.expectedText = expectedText;
+            this.aliases = aliases;
+            this.numericAnswer = numericAnswer;
+        }
+
+        public String getTaskId() {
+            return taskId;
+        }
+
+        /**
+         * @return The item being asked about (shape name, area shape, circle type, figure/sector ID or angle)
+         */
+        public String getItem() {
+            return item;
+        }
+
+        public String getPrompt() {
+            return prompt;
+        }
+
+        public int getDimension() {
+            return dimension;
+        }
+
+        public double getDim(int index) {
+            return index < dims.length ? dims[index] : 0;
+        }
+
+        public int getDimCount() {
+            return dims.length;
+        }
+
+        /**
+         * @return The expected answer for text tasks (shape name, angle type), or null for numeric tasks
+         */
+        public String getExpectedText() {
+            return expectedText;
+        }
+
+        public double getNumericAnswer() {
+            return numericAnswer;
+        }
+
+        /**
+         * @return The expected answer formatted for display
+         */
+        public String getAnswerText() {
+            return expectedText != null ? expectedText : String.format(Locale.ROOT, "%.2f", numericAnswer);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * VectorShapes - Draws the KS1 2D shapes from geometry instead of image files
+ *
+ * Every shape is built centred on the origin and inside a circle of the requested
+ * size, so it stays in the drawing area at any rotation. Outlines are cached per
+ * (shape, size) and reused on every paint; rotation, scale and colour are applied
+ * when drawing through a {@link Style}, so a random style for each question costs
+ * no extra geometry. Nothing is read from disk.
+ */
+public final class VectorShapes {
+    /** The shapes this class can draw, as named in the content bank */
+    public static final List<String> NAMES = Arrays.asList(
+            "circle", "oval", "triangle", "square", "rectangle", "rhombus",
+            "kite", "pentagon", "hexagon", "heptagon", "octagon");
+
+    /** Share of the smaller side of the drawing area used by a shape at scale 1 */
+    static final double FILL = 0.7;
+    private static final int CACHE_SIZE = 128;
+
+    private static final Color[] PALETTE = {
+            Color.decode("#4A90E2"), Color.decode("#E94E3C"), Color.decode("#50B848"),
+            Color.decode("#F5A623"), Color.decode("#9B59B6"), Color.decode("#1ABC9C")
+    };
+
+    private static final LongAdder BUILT = Metrics.global().counter("shapes.geometryBuilt");
+
+    // Access-ordered, so panel resizes drop the sizes no longer drawn
+    private static final Map<String, Shape> CACHE = new LinkedHashMap<String, Shape>(32, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Shape> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private VectorShapes() {
+    }
+
+    /**
+     * How a shape is drawn: turned, resized and coloured
+     */
+    public static final class Style {
+        public static final Style DEFAULT = new Style(0, 1, PALETTE[0]);
+
+        private final double rotation;
+        private final double scale;
+        private final Color color;
+
+        /**
+         * @param rotation Clockwise rotation in degrees
+         * @param scale Size relative to the default, at most 1
+         * @param color Fill colour; the outline is a darker shade
+         */
+        public Style(double rotation, double scale, Color color) {
+            this.rotation = rotation;
+            this.scale = scale;
+            this.color = color;
+        }
+
+        /**
+         * Picks a rotation, a scale between 0.6 and 1 and a palette colour
+         * @param random Source of the choices
+         * @return The style
+         */
+        public static Style random(Random random) {
+            return new Style(random.nextInt(360), 0.6 + 0.4 * random.nextDouble(),
+                    PALETTE[random.nextInt(PALETTE.length)]);
+        }
+
+        public double getRotation() {
+            return rotation;
+        }
+
+        public double getScale() {
+            return scale;
+        }
+
+        public Color getColor() {
+            return color;
+        }
+    }
+
+    /**
+     * @param name A shape name
+     * @return Whether the shape can be drawn here
+     */
+    public static boolean supports(String name) {
+        return name != null && NAMES.contains(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Draws a shape centred in the drawing area
+     * @param g2d Graphics context
+     * @param width Drawing area width
+     * @param height Drawing area height
+     * @param name One of {@link #NAMES}
+     * @param style Rotation, scale and colour
+     */
+    public static void draw(Graphics2D g2d, int width, int height, String name, Style style) {
+        int size = (int) Math.round(Math.min(width, height) * FILL * Math.min(1, style.getScale()));
+        if (size <= 0) return;
+        Shape outline = outline(name, size);
+        AffineTransform saved = g2d.getTransform();
+        Object antialiasing = g2d.getRenderingHint(RenderingHints.KEY_ANTIALIASING);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.translate(width / 2.0, height / 2.0);
+        g2d.rotate(Math.toRadians(style.getRotation()));
+        g2d.setColor(style.getColor());
+        g2d.fill(outline);
+        g2d.setColor(style.getColor().darker());
+        g2d.setStroke(new BasicStroke(3, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        g2d.draw(outline);
+        g2d.setTransform(saved);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, antialiasing);
+    }
+
+    /**
+     * Gets a shape's outline from the cache, building it the first time
+     * @param name One of {@link #NAMES}
+     * @param size Diameter of the circle the shape fits in, in pixels
+     * @return The outline, centred on the origin; callers must not modify it
+     * @throws IllegalArgumentException If the shape is unknown
+     */
+    public static Shape outline(String name, int size) {
+        String shape = name.toLowerCase(Locale.ROOT);
+        String key = shape + "@" + size;
+        synchronized (CACHE) {
+            Shape outline = CACHE.get(key);
+            if (outline == null) {
+                outline = build(shape, size / 2.0);
+                CACHE.put(key, outline);
+                BUILT.increment();
+            }
+            return outline;
+        }
+    }
+
+    /**
+     * Builds an outline inside a circle of radius r, with the top at negative y
+     */
+    private static Shape build(String shape, double r) {
+        switch (shape) {
+            case "circle": return new Ellipse2D.Double(-r, -r, 2 * r, 2 * r);
+            case "oval": return new Ellipse2D.Double(-r, -0.6 * r, 2 * r, 1.2 * r);
+            case "triangle": return regular(3, r);
+            case "square": return rotated(regular(4, r), Math.PI / 4);
+            case "rectangle": {
+                // Corners on the circle, twice as wide as tall
+                double angle = Math.atan2(1, 2);
+                return polygon(r * Math.cos(angle), r * Math.sin(angle),
+                        -1, -1, 1, -1, 1, 1, -1, 1);
+            }
+            case "rhombus": return polygon(r, r, 0, -1, 0.6, 0, 0, 1, -0.6, 0);
+            case "kite": return polygon(r, r, 0, -1, 0.6, -0.35, 0, 1, -0.6, -0.35);
+            case "pentagon": return regular(5, r);
+            case "hexagon": return regular(6, r);
+            case "heptagon": return regular(7, r);
+            case "octagon": return rotated(regular(8, r), Math.PI / 8);
+            default: throw new IllegalArgumentException("No vector shape for " + shape);
+        }
+    }
+
+    /**
+     * A regular polygon with a vertex at the top
+     */
+    private static Path2D regular(int sides, double r) {
+        Path2D.Double path = new Path2D.Double();
+        for (int i = 0; i < sides; i++) {
+            double angle = -Math.PI / 2 + 2 * Math.PI * i / sides;
+            double x = r * Math.cos(angle);
+            double y = r * Math.sin(angle);
+            if (i == 0) path.moveTo(x, y);
+            else path.lineTo(x, y);
+        }
+        path.closePath();
+        return path;
+    }
+
+    /**
+     * A polygon from unit coordinates, scaled by sx and sy
+     */
+    private static Path2D polygon(double sx, double sy, double... points) {
+        Path2D.Double path = new Path2D.Double();
+        path.moveTo(sx * points[0], sy * points[1]);
+        for (int i = 2; i < points.length; i += 2) path.lineTo(sx * points[i], sy * points[i + 1]);
+        path.closePath();
+        return path;
+    }
+
+    private static Path2D rotated(Path2D path, double radians) {
+        path.transform(AffineTransform.getRotateInstance(radians));
+        return path;
+    }
+}
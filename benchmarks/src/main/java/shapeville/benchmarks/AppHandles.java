@@ -0,0 +1,113 @@
+package shapeville.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * AppHandles - Method handles for calling the app's classes from benchmarks
+ *
+ * The app's classes are in the default package, which a named package cannot
+ * import, and JMH refuses benchmarks in the default package. Benchmarks therefore
+ * call the app through method handles, with app types in their signatures seen as
+ * Object. Handles held in static final fields are constants to the JIT compiler,
+ * so invokeExact on them compiles to a direct call.
+ */
+final class AppHandles {
+    private AppHandles() {
+    }
+
+    /**
+     * @param name The binary name of an app class, e.g. "TaskEngine$Question"
+     * @return The class
+     */
+    static Class<?> appClass(String name) {
+        try {
+            return Class.forName(name, false, AppHandles.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("App class not found: " + name, e);
+        }
+    }
+
+    /**
+     * Finds a static method
+     * @param owner The app class
+     * @param name The method name
+     * @param returnType The return type
+     * @param params Parameter types; use {@link #appClass} for app types
+     * @return The handle, with app types replaced by Object
+     */
+    static MethodHandle staticMethod(String owner, String name, Class<?> returnType, Class<?>... params) {
+        Class<?> type = appClass(owner);
+        try {
+            return erase(lookup(type).findStatic(type, name, MethodType.methodType(returnType, params)));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Method not found: " + owner + "." + name, e);
+        }
+    }
+
+    /**
+     * Finds an instance method; the receiver is the handle's first parameter
+     * @param owner The app class
+     * @param name The method name
+     * @param returnType The return type
+     * @param params Parameter types; use {@link #appClass} for app types
+     * @return The handle, with app types replaced by Object
+     */
+    static MethodHandle virtualMethod(String owner, String name, Class<?> returnType, Class<?>... params) {
+        Class<?> type = appClass(owner);
+        try {
+            return erase(lookup(type).findVirtual(type, name, MethodType.methodType(returnType, params)));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Method not found: " + owner + "." + name, e);
+        }
+    }
+
+    /**
+     * Creates an instance of an app class; meant for benchmark setup
+     * @param owner The app class
+     * @param params Constructor parameter types; use {@link #appClass} for app types
+     * @param args Constructor arguments
+     * @return The instance
+     */
+    static Object construct(String owner, Class<?>[] params, Object... args) {
+        Class<?> type = appClass(owner);
+        try {
+            return lookup(type).findConstructor(type, MethodType.methodType(void.class, params)).invokeWithArguments(args);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot create " + owner, e);
+        }
+    }
+
+    /**
+     * Creates a task engine over the built-in content, as the app does without a content bank file
+     * @return The TaskEngine
+     */
+    static Object taskEngine() {
+        try {
+            Object writer = staticMethod("ItemBankWriter", "builtIn", appClass("ItemBankWriter")).invoke();
+            Object bank = virtualMethod("ItemBankWriter", "toBank", appClass("ItemBank")).invoke(writer);
+            return construct("TaskEngine", new Class<?>[] {appClass("ItemBank")}, bank);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot create the task engine", e);
+        }
+    }
+
+    private static MethodHandles.Lookup lookup(Class<?> type) throws IllegalAccessException {
+        // Benchmarks and app share the unnamed module, so package-private members are reachable too
+        return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+    }
+
+    private static MethodHandle erase(MethodHandle handle) {
+        MethodType type = handle.type();
+        for (int i = 0; i < type.parameterCount(); i++) {
+            if (isAppType(type.parameterType(i))) type = type.changeParameterType(i, Object.class);
+        }
+        if (isAppType(type.returnType())) type = type.changeReturnType(Object.class);
+        return handle.asType(type);
+    }
+
+    private static boolean isAppType(Class<?> type) {
+        return !type.isPrimitive() && !type.isArray() && type.getPackageName().isEmpty();
+    }
+}
@@ -0,0 +1,48 @@
+package shapeville.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * AreaQuestionBenchmark - Dimension generation for the area task
+ * ShapeAreaCalculationPanel.startShapeCalculation gets its dimensions, prompt and
+ * answer from TaskEngine.areaQuestion, measured here per shape.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AreaQuestionBenchmark {
+    private static final MethodHandle AREA_QUESTION = AppHandles.staticMethod("TaskEngine", "areaQuestion",
+            AppHandles.appClass("TaskEngine$Question"), String.class, Random.class);
+
+    @Param({"Rectangle", "Parallelogram", "Triangle", "Trapezium"})
+    public String shapeType;
+
+    private Random random;
+
+    @Setup
+    public void setUp() {
+        random = new Random(42);
+    }
+
+    @Benchmark
+    public Object startShapeCalculation() throws Throwable {
+        return (Object) AREA_QUESTION.invokeExact(shapeType, random);
+    }
+}
@@ -0,0 +1,30 @@
+package shapeville.benchmarks;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * BenchmarkMain - Runs the benchmarks and keeps the results as JSON per version
+ *
+ * Takes the usual JMH command line. Unless -rf or -rff is given, results are
+ * written to results/VERSION.json, so runs of different versions can be compared
+ * side by side (for example with a JMH JSON visualizer) to spot regressions.
+ */
+public class BenchmarkMain {
+    public static void main(String[] args) throws Exception {
+        List<String> options = Arrays.asList(args);
+        if (!options.contains("-rf") && !options.contains("-rff")) {
+            String version = BenchmarkMain.class.getPackage().getImplementationVersion();
+            File results = new File("results", (version != null ? version : "dev") + ".json");
+            results.getParentFile().mkdirs();
+            String[] withResults = Arrays.copyOf(args, args.length + 4);
+            withResults[args.length] = "-rf";
+            withResults[args.length + 1] = "json";
+            withResults[args.length + 2] = "-rff";
+            withResults[args.length + 3] = results.getPath();
+            args = withResults;
+        }
+        org.openjdk.jmh.Main.main(args);
+    }
+}
@@ -0,0 +1,84 @@
+package shapeville.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * GradingBenchmark - The small classification and grading rules
+ *
+ * getAngleType and getCorrectShapeForDescription delegate to TaskEngine.angleType
+ * and TaskEngine.shapeForDescription; check is the grading rule behind every
+ * backend answer. Inputs rotate through fixed tables so no call sees a constant.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GradingBenchmark {
+    private static final MethodHandle ANGLE_TYPE = AppHandles.staticMethod("TaskEngine", "angleType",
+            String.class, int.class);
+    private static final MethodHandle SHAPE_FOR_DESCRIPTION = AppHandles.staticMethod("TaskEngine",
+            "shapeForDescription", String.class, String.class);
+    private static final MethodHandle CHECK = AppHandles.staticMethod("TaskEngine", "check",
+            boolean.class, AppHandles.appClass("TaskEngine$Question"), String.class);
+
+    private static final String[] DESCRIPTIONS = {
+            "A shape with 4 equal sides and 4 right angles",
+            "A round shape with no corners",
+            "A shape with 3 sides and 3 corners",
+            "A shape with 4 sides where opposite sides are equal",
+            "A solid with 6 square faces"
+    };
+    private static final int TABLE_SIZE = 64; // Power of two, for cheap wrap-around
+
+    private final Object[] questions = new Object[TABLE_SIZE];
+    private final String[] answers = new String[TABLE_SIZE];
+    private int next;
+
+    @Setup
+    public void setUp() throws Throwable {
+        MethodHandle areaQuestion = AppHandles.staticMethod("TaskEngine", "areaQuestion",
+                AppHandles.appClass("TaskEngine$Question"), String.class, Random.class);
+        MethodHandle answerText = AppHandles.virtualMethod("TaskEngine$Question", "getAnswerText", String.class);
+        String[] shapes = {"Rectangle", "Parallelogram", "Triangle", "Trapezium"};
+        Random random = new Random(42);
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            questions[i] = areaQuestion.invoke(shapes[i % shapes.length], random);
+            // Every other answer is off by one, so both outcomes are graded
+            String correct = (String) answerText.invoke(questions[i]);
+            answers[i] = i % 2 == 0 ? correct : String.valueOf(Double.parseDouble(correct) + 1);
+        }
+    }
+
+    @Benchmark
+    public String getAngleType() throws Throwable {
+        int degree = ((next++ & Integer.MAX_VALUE) % 37) * 10; // 0-360 in steps of 10, as the angle task allows
+        return (String) ANGLE_TYPE.invokeExact(degree);
+    }
+
+    @Benchmark
+    public String getCorrectShapeForDescription() throws Throwable {
+        String description = DESCRIPTIONS[(next++ & Integer.MAX_VALUE) % DESCRIPTIONS.length];
+        return (String) SHAPE_FOR_DESCRIPTION.invokeExact(description);
+    }
+
+    @Benchmark
+    public boolean check() throws Throwable {
+        int i = next++ & (TABLE_SIZE - 1);
+        return (boolean) CHECK.invokeExact(questions[i], answers[i]);
+    }
+}
@@ -0,0 +1,95 @@
+package shapeville.benchmarks;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.lang.invoke.MethodHandle;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ImageAnalysisBenchmark - Finding and naming the shape in a photo-sized image
+ *
+ * Each call runs ImageShapeAnalyzer's whole pipeline on a synthetic photo: a
+ * turned, coloured hexagon on a noisy grey background, at 2 and 8 megapixels. The
+ * per-pixel stages run in a ForkJoinPool of the given parallelism, so comparing
+ * the parallelism rows of one size shows how the pipeline scales with cores; it
+ * cannot scale past the machine's core count. Runs headless.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ImageAnalysisBenchmark {
+    private static final MethodHandle RANDOM_STYLE = AppHandles.staticMethod("VectorShapes$Style", "random",
+            AppHandles.appClass("VectorShapes$Style"), Random.class);
+    private static final MethodHandle DRAW_SHAPE = AppHandles.staticMethod("VectorShapes", "draw",
+            void.class, Graphics2D.class, int.class, int.class, String.class, AppHandles.appClass("VectorShapes$Style"));
+    private static final MethodHandle BUILT_IN = AppHandles.staticMethod("SketchTemplates", "builtIn",
+            AppHandles.appClass("SketchTemplates"));
+    private static final MethodHandle ANALYZE = AppHandles.virtualMethod("ImageShapeAnalyzer", "analyze",
+            AppHandles.appClass("ImageShapeAnalyzer$Result"), BufferedImage.class);
+
+    /** Image size: 1632x1224 or 3264x2448, the 2 and 8 megapixel sizes of phone cameras */
+    @Param({"2", "8"})
+    public int megapixels;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private BufferedImage image;
+    private ForkJoinPool pool;
+    private Object analyzer;
+
+    @Setup
+    public void setUp() throws Throwable {
+        int width = megapixels == 8 ? 3264 : 1632, height = width * 3 / 4;
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int v = 185 + random.nextInt(31);
+                image.setRGB(x, y, v << 16 | v << 8 | v);
+            }
+        }
+        Graphics2D g2d = image.createGraphics();
+        try {
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            DRAW_SHAPE.invokeExact(g2d, width, height, "hexagon", (Object) RANDOM_STYLE.invokeExact(random));
+        } finally {
+            g2d.dispose();
+        }
+
+        pool = new ForkJoinPool(parallelism);
+        Object recognizer = AppHandles.construct("SketchRecognizer",
+                new Class<?>[] {AppHandles.appClass("SketchTemplates")}, (Object) BUILT_IN.invokeExact());
+        analyzer = AppHandles.construct("ImageShapeAnalyzer",
+                new Class<?>[] {AppHandles.appClass("SketchRecognizer"), ForkJoinPool.class}, recognizer, pool);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public Object analyze() throws Throwable {
+        return (Object) ANALYZE.invokeExact(analyzer, image);
+    }
+}
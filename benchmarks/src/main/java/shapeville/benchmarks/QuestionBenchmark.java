@@ -0,0 +1,78 @@
+package shapeville.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * QuestionBenchmark - The shape recognition task's calls into the in-process backend
+ *
+ * ShapeTask.startNewTask and ShapeTask.checkAnswer are thin wrappers over
+ * TaskBackend.question and TaskBackend.answer on the event thread, so these
+ * benchmarks make the same backend calls with the same arguments.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuestionBenchmark {
+    private static final String SHAPES = "ks1_task1";
+
+    private static final MethodHandle QUESTION = AppHandles.virtualMethod("TaskBackend$Local", "question",
+            CompletableFuture.class, String.class, String.class);
+    private static final MethodHandle ANSWER = AppHandles.virtualMethod("TaskBackend$Local", "answer",
+            CompletableFuture.class, long.class, String.class, long.class);
+    private static final MethodHandle ISSUED_ID = AppHandles.virtualMethod("ShapevilleServer$IssuedQuestion",
+            "getId", long.class);
+    private static final MethodHandle ISSUED_QUESTION = AppHandles.virtualMethod("ShapevilleServer$IssuedQuestion",
+            "getQuestion", AppHandles.appClass("TaskEngine$Question"));
+    private static final MethodHandle ANSWER_TEXT = AppHandles.virtualMethod("TaskEngine$Question",
+            "getAnswerText", String.class);
+
+    /** Shape dimension, as chosen with the 2D and 3D buttons */
+    @Param({"2", "3"})
+    public String dimension;
+
+    private Object backend;
+
+    @Setup
+    public void setUp() {
+        backend = AppHandles.construct("TaskBackend$Local",
+                new Class<?>[] {AppHandles.appClass("TaskEngine"), String.class, long.class},
+                AppHandles.taskEngine(), "bench", 42L);
+    }
+
+    /**
+     * Issues a shape question, as ShapeTask.startNewTask does
+     */
+    @Benchmark
+    public Object startNewTask() throws Throwable {
+        return ((CompletableFuture<?>) QUESTION.invokeExact(backend, SHAPES, dimension)).join();
+    }
+
+    /**
+     * Issues a shape question and grades the correct name for it, as ShapeTask.checkAnswer
+     * does; an answer needs an open question, so subtract startNewTask for the grading alone
+     */
+    @Benchmark
+    public Object checkAnswer() throws Throwable {
+        Object issued = ((CompletableFuture<?>) QUESTION.invokeExact(backend, SHAPES, dimension)).join();
+        long id = (long) ISSUED_ID.invokeExact(issued);
+        String answer = (String) ANSWER_TEXT.invokeExact((Object) ISSUED_QUESTION.invokeExact(issued));
+        return ((CompletableFuture<?>) ANSWER.invokeExact(backend, id, answer, 5000L)).join();
+    }
+}
@@ -0,0 +1,124 @@
+package shapeville.benchmarks;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * RenderBenchmark - Offscreen painting of the area shape, protractor and circle panels, and 3D shape frames
+ *
+ * Each call clears a BufferedImage the size of the panel's preferred size and
+ * paints into it with ShapeRenderer, which is what the panel's paintComponent does
+ * after Swing clears the background. meshFrame renders one frame of a turning 3D
+ * shape into MeshRenderer's own raster, which must stay under 16 ms for 60 fps.
+ * Runs headless.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+    private static final MethodHandle CLEAR = AppHandles.staticMethod("ShapeRenderer", "clear",
+            void.class, BufferedImage.class, Color.class);
+    private static final MethodHandle DRAW_AREA_SHAPE = AppHandles.staticMethod("ShapeRenderer", "drawAreaShape",
+            void.class, Graphics2D.class, int.class, int.class, String.class, double.class, double.class, double.class);
+    private static final MethodHandle DRAW_PROTRACTOR = AppHandles.staticMethod("ShapeRenderer", "drawProtractor",
+            void.class, Graphics2D.class, int.class, int.class, int.class);
+    private static final MethodHandle DRAW_CIRCLE = AppHandles.staticMethod("ShapeRenderer", "drawCircle",
+            void.class, Graphics2D.class, int.class, int.class, int.class);
+    private static final MethodHandle RENDER_MESH = AppHandles.virtualMethod("MeshRenderer", "render",
+            BufferedImage.class, int.class, int.class, String.class, double.class, double.class, int.class);
+
+    private BufferedImage drawingPanel;
+    private BufferedImage anglePanel;
+    private BufferedImage circlePanel;
+    private int angle;
+    private Object meshRenderer;
+    private double yaw;
+
+    @Setup
+    public void setUp() {
+        // Panel sizes as in the app's setPreferredSize calls
+        drawingPanel = new BufferedImage(400, 300, BufferedImage.TYPE_INT_ARGB);
+        anglePanel = new BufferedImage(400, 400, BufferedImage.TYPE_INT_ARGB);
+        circlePanel = new BufferedImage(300, 300, BufferedImage.TYPE_INT_ARGB);
+        meshRenderer = AppHandles.construct("MeshRenderer", new Class<?>[0]);
+    }
+
+    /**
+     * DrawingPanel's shape; a separate state so only drawingPanel runs once per shape
+     */
+    @State(Scope.Thread)
+    public static class Shape {
+        @Param({"Rectangle", "Parallelogram", "Triangle", "Trapezium"})
+        public String shapeType;
+    }
+
+    /**
+     * 3D shape drawn by meshFrame
+     */
+    @State(Scope.Thread)
+    public static class Solid {
+        @Param({"cube", "sphere", "cone"})
+        public String name;
+    }
+
+    @Benchmark
+    public BufferedImage drawingPanel(Shape shape) throws Throwable {
+        CLEAR.invokeExact(drawingPanel, Color.WHITE);
+        Graphics2D g2d = drawingPanel.createGraphics();
+        try {
+            DRAW_AREA_SHAPE.invokeExact(g2d, 400, 300, shape.shapeType, 7.0, 12.0, 9.0);
+        } finally {
+            g2d.dispose();
+        }
+        return drawingPanel;
+    }
+
+    @Benchmark
+    public BufferedImage protractor() throws Throwable {
+        angle = angle % 360 + 10;
+        CLEAR.invokeExact(anglePanel, Color.WHITE);
+        Graphics2D g2d = anglePanel.createGraphics();
+        try {
+            DRAW_PROTRACTOR.invokeExact(g2d, 400, 400, angle);
+        } finally {
+            g2d.dispose();
+        }
+        return anglePanel;
+    }
+
+    @Benchmark
+    public BufferedImage circlePanel() throws Throwable {
+        CLEAR.invokeExact(circlePanel, Color.WHITE);
+        Graphics2D g2d = circlePanel.createGraphics();
+        try {
+            DRAW_CIRCLE.invokeExact(g2d, 300, 300, 80); // 20 cm at 4 pixels per cm
+        } finally {
+            g2d.dispose();
+        }
+        return circlePanel;
+    }
+
+    @Benchmark
+    public BufferedImage meshFrame(Solid solid) throws Throwable {
+        yaw += 0.01; // A slow drag
+        return (BufferedImage) RENDER_MESH.invokeExact(meshRenderer, 400, 300, solid.name, yaw, 0.4, 0xffffff);
+    }
+}
@@ -0,0 +1,66 @@
+package shapeville.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SketchBenchmark - Recognizing the strokes of the stored sketch corpus
+ *
+ * Each call recognizes the next stroke of corpus/sketches.tsv (110 drawings of the
+ * eleven 2D shapes, from SketchRecognizer --generate) against the built-in
+ * templates, as the sketch canvas does when the pen lifts. The budget is 5 ms.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SketchBenchmark {
+    private static final MethodHandle READ = AppHandles.staticMethod("SketchTemplates", "read", List.class, Path.class);
+    private static final MethodHandle STROKE = AppHandles.virtualMethod("SketchTemplates$Example", "getStroke",
+            float[].class);
+    private static final MethodHandle BUILT_IN = AppHandles.staticMethod("SketchTemplates", "builtIn",
+            AppHandles.appClass("SketchTemplates"));
+    private static final MethodHandle RECOGNIZE = AppHandles.virtualMethod("SketchRecognizer", "recognize",
+            List.class, float[].class);
+
+    private float[][] strokes;
+    private Object recognizer;
+    private int next;
+
+    @Setup
+    public void setUp() throws Throwable {
+        // Run from benchmarks/ as the README shows, or from the repository root
+        Path corpus = Paths.get("corpus", "sketches.tsv");
+        if (!Files.isRegularFile(corpus)) corpus = Paths.get("benchmarks", "corpus", "sketches.tsv");
+        List<?> examples = (List<?>) READ.invokeExact(corpus);
+        strokes = new float[examples.size()][];
+        for (int i = 0; i < strokes.length; i++) strokes[i] = (float[]) STROKE.invokeExact((Object) examples.get(i));
+        Object templates = (Object) BUILT_IN.invokeExact();
+        recognizer = AppHandles.construct("SketchRecognizer", new Class<?>[] {AppHandles.appClass("SketchTemplates")},
+                templates);
+    }
+
+    @Benchmark
+    public List<?> recognize() throws Throwable {
+        float[] stroke = strokes[next];
+        next = (next + 1) % strokes.length;
+        return (List<?>) RECOGNIZE.invokeExact(recognizer, stroke);
+    }
+}